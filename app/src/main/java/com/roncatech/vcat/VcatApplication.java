@@ -8,6 +8,7 @@ package com.roncatech.vcat;
 
 import android.app.Application;
 
+import com.roncatech.vcat.tools.DecoderCapabilityCache;
 import com.roncatech.vcat.video.DecoderPluginLoader;
 
 public final class VcatApplication extends Application {
@@ -16,5 +17,7 @@ public final class VcatApplication extends Application {
     public void onCreate() {
         super.onCreate();
         DecoderPluginLoader.loadAll(this);
+        // keyed by the plugins, so only once they are registered
+        DecoderCapabilityCache.getInstance().loadAsync(this);
     }
 }
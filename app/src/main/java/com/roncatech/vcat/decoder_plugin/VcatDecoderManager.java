@@ -38,6 +38,7 @@ import com.roncatech.vcat.decoder_plugin_api.ContainerParser;
 import com.roncatech.vcat.decoder_plugin_api.IvfParserExtension;
 import com.roncatech.vcat.decoder_plugin_api.Mp4ParserExtension;
 import com.roncatech.vcat.decoder_plugin_api.VcatDecoder;
+import com.roncatech.vcat.decoder_plugin_api.VcatDecoderPlugin;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -53,6 +54,8 @@ public final class VcatDecoderManager {
 
     private static final VcatDecoderManager INSTANCE = new VcatDecoderManager();
     private final ConcurrentMap<String, VcatDecoder> decoders = new ConcurrentHashMap<>();
+    // plugin-API versions declared in the plugins' own manifests, by decoder id
+    private final ConcurrentMap<String, String> manifestApiVersions = new ConcurrentHashMap<>();
 
     private VcatDecoderManager() {
     }
@@ -74,6 +77,52 @@ public final class VcatDecoderManager {
         return false;
     }
 
+    /**
+     * As {@link #registerDecoder(VcatDecoder)}, recording the plugin-API version the plugin's
+     * manifest declares, if it declares one.
+     */
+    public boolean registerDecoder(VcatDecoder decoder, @Nullable String manifestApiVersion) {
+        boolean registered = registerDecoder(decoder);
+        if (registered && manifestApiVersion != null) {
+            manifestApiVersions.put(decoder.getId(), manifestApiVersion);
+        }
+        return registered;
+    }
+
+    /**
+     * The plugin-API version {@code decoder} was built against, or null if it does not say.
+     * See {@link #pluginApiVersionOf}.
+     */
+    @Nullable
+    public String getPluginApiVersion(VcatDecoder decoder) {
+        return pluginApiVersionOf(decoder, manifestApiVersions.get(decoder.getId()));
+    }
+
+    /**
+     * The plugin-API version of {@code decoder}: the one its manifest declares, else the one its own
+     * classes return from {@code getPluginApiVersion}. Plugin classes resolve the SPI interfaces
+     * through the host, so a plugin that does not override the method inherits the host's default
+     * and would report the host's version whatever it was built against; that answer is not used.
+     * Legacy {@link VcatDecoderPlugin} decoders are on the legacy SPI whichever API they built against.
+     *
+     * @return the version, or null if neither the manifest nor the plugin declares one
+     */
+    @Nullable
+    public static String pluginApiVersionOf(VcatDecoder decoder, @Nullable String manifestApiVersion) {
+        if (manifestApiVersion != null) {
+            return manifestApiVersion;
+        }
+        for (Class<?> c = decoder.getClass(); c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("getPluginApiVersion");
+                return decoder.getPluginApiVersion();
+            } catch (NoSuchMethodException e) {
+                // not declared at this level
+            }
+        }
+        return decoder instanceof VcatDecoderPlugin ? decoder.getPluginApiVersion() : null;
+    }
+
     public VcatDecoder getDecoder(String id){
         return this.decoders.getOrDefault(id, null);
     }
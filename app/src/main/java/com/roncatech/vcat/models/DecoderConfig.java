@@ -35,9 +35,11 @@ package com.roncatech.vcat.models;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import com.roncatech.vcat.tools.DecoderCapabilityCache;
 import com.roncatech.vcat.tools.VideoDecoderEnumerator;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -47,31 +49,34 @@ public class DecoderConfig {
     // Decoder Configuration Map (Empty = Use App Default)
     public final Map<VideoDecoderEnumerator.MimeType, String> decoderConfig = new HashMap<>();
 
+    // Decoder Thread Count per MIME Type, e.g. saved from a thread sweep (Empty = RunConfig.threads)
+    public final Map<VideoDecoderEnumerator.MimeType, Integer> threadConfig = new HashMap<>();
+
     public DecoderConfig() {
         // When no decoder is selected for a MIME type,
         // StrictRenderersFactoryV2 enumerates all registered plugins for that type and adds
         // them in registration order — the first registered plugin becomes the effective default.
-        VideoDecoderEnumerator.DecoderSet vp9Set = VideoDecoderEnumerator.getDecodersForMimeType(VideoDecoderEnumerator.MimeType.VP9);
-
-        if (vp9Set.decoders.size() > 0) {
-            decoderConfig.put(VideoDecoderEnumerator.MimeType.VP9, vp9Set.decoders.get(0));
-        }
-
-        VideoDecoderEnumerator.DecoderSet hevcSet = VideoDecoderEnumerator.getDecodersForMimeType(VideoDecoderEnumerator.MimeType.H265);
-
-        if(hevcSet.decoders.size() > 0){
-            decoderConfig.put(VideoDecoderEnumerator.MimeType.H265, hevcSet.decoders.get(0));
-        }
-
-        VideoDecoderEnumerator.DecoderSet h264Set = VideoDecoderEnumerator.getDecodersForMimeType(VideoDecoderEnumerator.MimeType.H264);
+        // New configs are made on the main thread, so the defaults come only from what is known
+        // without waiting: the capability cache if it has the type, else the registered plugins.
+        // A type left unset resolves to the same first decoder when the player is built.
+        putDefault(VideoDecoderEnumerator.MimeType.VP9);
+        putDefault(VideoDecoderEnumerator.MimeType.H265);
+        putDefault(VideoDecoderEnumerator.MimeType.H264);
+    }
 
-        if(h264Set.decoders.size() > 0){
-            decoderConfig.put(VideoDecoderEnumerator.MimeType.H264, h264Set.decoders.get(0));
+    private void putDefault(VideoDecoderEnumerator.MimeType mimeType) {
+        List<String> known = DecoderCapabilityCache.getInstance().peekDecoderNames(mimeType);
+        String first = known != null
+                ? (known.isEmpty() ? "" : known.get(0))
+                : VideoDecoderEnumerator.firstRegisteredDecoder(mimeType.toString());
+        if (!first.isEmpty()) {
+            decoderConfig.put(mimeType, first);
         }
-
     }
+
     public DecoderConfig(DecoderConfig copyFrom){
         this.decoderConfig.putAll(copyFrom.decoderConfig);
+        this.threadConfig.putAll(copyFrom.threadConfig);
     }
 
     @Override
@@ -79,12 +84,13 @@ public class DecoderConfig {
         if (this == o) return true;
         if (!(o instanceof DecoderConfig)) return false;
         DecoderConfig that = (DecoderConfig) o;
-        return Objects.equals(this.decoderConfig, that.decoderConfig);
+        return Objects.equals(this.decoderConfig, that.decoderConfig)
+                && Objects.equals(this.threadConfig, that.threadConfig);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(decoderConfig);
+        return Objects.hash(decoderConfig, threadConfig);
     }
 
     // Get decoder for a MIME type (returns "default" if not set)
@@ -116,6 +122,17 @@ public class DecoderConfig {
         return decoderConfig.containsKey(mimeType);
     }
 
+    // Get decoder threads for a MIME type (returns defaultThreads if not set)
+    public int getThreads(String mimeType, int defaultThreads) {
+        VideoDecoderEnumerator.MimeType mt = VideoDecoderEnumerator.MimeType.fromString(mimeType);
+        Integer threads = mt != null ? threadConfig.get(mt) : null;
+        return (threads != null && threads > 0) ? threads : defaultThreads;
+    }
+
+    public void setThreads(VideoDecoderEnumerator.MimeType mimeType, int threads) {
+        threadConfig.put(mimeType, threads);
+    }
+
 
     // ✅ Static nested Comparator class
     public static class Comparator implements java.util.Comparator<DecoderConfig> {
@@ -147,6 +164,20 @@ public class DecoderConfig {
                 }
             }
 
+            // Then the thread counts, the same way
+            if (config1.threadConfig.size() != config2.threadConfig.size()) {
+                return Integer.compare(config1.threadConfig.size(), config2.threadConfig.size());
+            }
+            for (Map.Entry<VideoDecoderEnumerator.MimeType, Integer> entry : config1.threadConfig.entrySet()) {
+                Integer threads2 = config2.threadConfig.get(entry.getKey());
+                if (threads2 == null) {
+                    return 1;
+                }
+                if (!entry.getValue().equals(threads2)) {
+                    return Integer.compare(entry.getValue(), threads2);
+                }
+            }
+
             return 0;  // Both configs are identical
         }
     }
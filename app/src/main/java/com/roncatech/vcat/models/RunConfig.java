@@ -71,8 +71,116 @@ public class RunConfig {
         }
     }
     public VideoOrientation videoOrientation;
+
+    public enum ClipTransition{
+        // build, prepare and start a new player at every clip boundary
+        FRESH_PLAYER("Fresh Player"),
+
+        // prepare the next clip's player while the current clip plays, swap at the boundary
+        PREWARM("Pre-warmed"),
+
+        // one player, the whole playlist as a single timeline; renderers (and decoders, where the
+        // renderer supports reuse) survive clip boundaries
+        GAPLESS("Gapless Playlist");
+
+        private ClipTransition(String label){this.label = label;}
+        public final String label;
+    }
+    public ClipTransition clipTransition;
+
+    public enum TestMode{
+        // real-time playback to the display, paced by the playback clock
+        PLAYBACK("Real-time Playback"),
+
+        // decode as fast as possible to an offscreen surface, no A/V sync or vsync pacing
+        DECODE_BENCHMARK("Decode Benchmark"),
+
+        // 1..maxConcurrentInstances players decoding the same clip at once, offscreen
+        CONCURRENT_STRESS("Concurrent Decode Stress"),
+
+        // each clip decoded as in DECODE_BENCHMARK at 1, 2, 4 ... decoder threads, up to the core count
+        THREAD_SWEEP("Thread Scaling Sweep"),
+
+        // each clip played on the display with seeksPerClip seeks in seekPattern, timed to first frame
+        SEEK_BENCHMARK("Seek Latency Benchmark"),
+
+        // each clip played on the display while the playback speed is searched up to headroomMaxSpeed
+        SPEED_HEADROOM("Speed Headroom Search"),
+
+        // real-time playback as in PLAYBACK, video to an offscreen surface and the screen left to turn off
+        DISPLAY_OFF("Display-off Playback");
+
+        private TestMode(String label){this.label = label;}
+        public final String label;
+    }
+    public TestMode testMode;
+
+    public enum IoMode{
+        // ExoPlayer's file/content data sources, read() into a heap buffer per chunk
+        PLATFORM("Platform Read"),
+
+        // local files served from a memory mapping, falling back to the platform source
+        MEMORY_MAPPED("Memory-mapped"),
+
+        // each clip loaded whole into RAM before it plays, the next one while the current one plays
+        RAM_PRELOAD("Preloaded in RAM");
+
+        private IoMode(String label){this.label = label;}
+        public final String label;
+    }
+    public IoMode ioMode;
+
+    public enum CorePlacement{
+        // no restriction, the scheduler decides
+        ALL("All Cores"),
+
+        // every core outside the slowest cluster
+        BIG_ONLY("Performance Cores"),
+
+        // the slowest cluster only
+        LITTLE_ONLY("Efficiency Cores"),
+
+        // the cores listed in placementCpuSet
+        CPU_SET("CPU Set");
+
+        private CorePlacement(String label){this.label = label;}
+        public final String label;
+    }
+    public CorePlacement corePlacement; // where plugin decoders should run their worker threads
+    public String placementCpuSet; // CPU_SET: cpuset notation, e.g. "0-3,6"
+    public int decoderThreadPriority; // Process thread priority for plugin decoder workers, 0 = leave as is
+    public boolean preflight; // predict real-time playback per clip from past runs before starting
+
+    public enum SeekPattern{
+        // uniformly random targets, decoded to the exact position
+        RANDOM("Random"),
+
+        // uniformly random targets, snapped to the sync sample before them
+        KEYFRAME("Keyframe-aligned"),
+
+        // evenly spaced targets from the end of the clip back to the start
+        BACKWARD("Backward"),
+
+        // short hops forward from a random start, wrapping at the end
+        FORWARD_HOPS("Small Forward Hops");
+
+        private SeekPattern(String label){this.label = label;}
+        public final String label;
+    }
+    public SeekPattern seekPattern; // SEEK_BENCHMARK: where the seeks of each clip go
+    public int seeksPerClip; // SEEK_BENCHMARK: seeks timed per clip
+    public int headroomMaxSpeed; // SPEED_HEADROOM: upper bound of the speed search, x real time
+    public int headroomDropPct; // SPEED_HEADROOM: a speed is sustained while under this % of frames drop
+
     public RunMode runMode;
     public int runLimit; // battery %or total minutes
+    public int energySampleHz; // battery current sampling rate for energy integration, 1-10
+    public int maxConcurrentInstances; // concurrent stress ramps 1..this per clip
+    public int fragmentReadAhead; // fMP4 fragments read ahead per sequential read, 0 = off
+    public int preloadBudgetMb; // RAM_PRELOAD: memory for the current and next clip together
+    public boolean bitstreamTrace; // per-sample trace sidecar for each clip played
+    public int frameHashInterval; // benchmark-integrity mode: hash every Nth decoded frame, 0 = off
+    public int sweepClipSeconds; // THREAD_SWEEP: decode only the first N seconds of each clip, 0 = whole clip
 
     public String runModeStr(){
         switch (runMode){
@@ -90,6 +198,14 @@ public class RunConfig {
 
     public static final int defaultBattery = 15;
     public static final int defaultTime = 16*60;
+    public static final int defaultEnergySampleHz = 5;
+    public static final int defaultMaxConcurrentInstances = 4;
+    public static final int defaultFragmentReadAhead = 4;
+    public static final int defaultPreloadBudgetMb = 512;
+    public static final int defaultSweepClipSeconds = 10;
+    public static final int defaultSeeksPerClip = 20;
+    public static final int defaultHeadroomMaxSpeed = 8;
+    public static final int defaultHeadroomDropPct = 1;
 
     @Override
     public boolean equals(Object o) {
@@ -102,6 +218,24 @@ public class RunConfig {
         if(this.threads != that.threads){return false;}
         if(this.screenBrightness != that.screenBrightness){return false;}
         if(this.videoOrientation != that.videoOrientation){return false;}
+        if(this.energySampleHz != that.energySampleHz){return false;}
+        if(this.clipTransition != that.clipTransition){return false;}
+        if(this.testMode != that.testMode){return false;}
+        if(this.maxConcurrentInstances != that.maxConcurrentInstances){return false;}
+        if(this.fragmentReadAhead != that.fragmentReadAhead){return false;}
+        if(this.ioMode != that.ioMode){return false;}
+        if(this.preloadBudgetMb != that.preloadBudgetMb){return false;}
+        if(this.bitstreamTrace != that.bitstreamTrace){return false;}
+        if(this.frameHashInterval != that.frameHashInterval){return false;}
+        if(this.sweepClipSeconds != that.sweepClipSeconds){return false;}
+        if(this.corePlacement != that.corePlacement){return false;}
+        if(!Objects.equals(this.placementCpuSet, that.placementCpuSet)){return false;}
+        if(this.decoderThreadPriority != that.decoderThreadPriority){return false;}
+        if(this.preflight != that.preflight){return false;}
+        if(this.seekPattern != that.seekPattern){return false;}
+        if(this.seeksPerClip != that.seeksPerClip){return false;}
+        if(this.headroomMaxSpeed != that.headroomMaxSpeed){return false;}
+        if(this.headroomDropPct != that.headroomDropPct){return false;}
 
         return Objects.equals(this.decoderCfg, that.decoderCfg);
     }
@@ -113,6 +247,24 @@ public class RunConfig {
                 threads,
                 runMode,
                 runLimit,
+                energySampleHz,
+                clipTransition,
+                testMode,
+                maxConcurrentInstances,
+                fragmentReadAhead,
+                ioMode,
+                preloadBudgetMb,
+                bitstreamTrace,
+                frameHashInterval,
+                sweepClipSeconds,
+                corePlacement,
+                placementCpuSet,
+                decoderThreadPriority,
+                preflight,
+                seekPattern,
+                seeksPerClip,
+                headroomMaxSpeed,
+                headroomDropPct,
                 decoderCfg
         );
     }
@@ -125,6 +277,24 @@ public class RunConfig {
         this.runLimit = 15;
         this.decoderCfg = new DecoderConfig();
         this.videoOrientation = VideoOrientation.MATCH_VIDEO;
+        this.energySampleHz = defaultEnergySampleHz;
+        this.clipTransition = ClipTransition.FRESH_PLAYER;
+        this.testMode = TestMode.PLAYBACK;
+        this.maxConcurrentInstances = defaultMaxConcurrentInstances;
+        this.fragmentReadAhead = defaultFragmentReadAhead;
+        this.ioMode = IoMode.PLATFORM;
+        this.preloadBudgetMb = defaultPreloadBudgetMb;
+        this.bitstreamTrace = false;
+        this.frameHashInterval = 0;
+        this.sweepClipSeconds = defaultSweepClipSeconds;
+        this.corePlacement = CorePlacement.ALL;
+        this.placementCpuSet = "";
+        this.decoderThreadPriority = 0;
+        this.preflight = true;
+        this.seekPattern = SeekPattern.RANDOM;
+        this.seeksPerClip = defaultSeeksPerClip;
+        this.headroomMaxSpeed = defaultHeadroomMaxSpeed;
+        this.headroomDropPct = defaultHeadroomDropPct;
     }
 
     public RunConfig(final RunConfig copyFrom){
@@ -135,6 +305,24 @@ public class RunConfig {
                 copyFrom.runLimit,
                 copyFrom.decoderCfg,
                 copyFrom.videoOrientation);
+        this.energySampleHz = copyFrom.energySampleHz;
+        this.clipTransition = copyFrom.clipTransition;
+        this.testMode = copyFrom.testMode;
+        this.maxConcurrentInstances = copyFrom.maxConcurrentInstances;
+        this.fragmentReadAhead = copyFrom.fragmentReadAhead;
+        this.ioMode = copyFrom.ioMode;
+        this.preloadBudgetMb = copyFrom.preloadBudgetMb;
+        this.bitstreamTrace = copyFrom.bitstreamTrace;
+        this.frameHashInterval = copyFrom.frameHashInterval;
+        this.sweepClipSeconds = copyFrom.sweepClipSeconds;
+        this.corePlacement = copyFrom.corePlacement;
+        this.placementCpuSet = copyFrom.placementCpuSet;
+        this.decoderThreadPriority = copyFrom.decoderThreadPriority;
+        this.preflight = copyFrom.preflight;
+        this.seekPattern = copyFrom.seekPattern;
+        this.seeksPerClip = copyFrom.seeksPerClip;
+        this.headroomMaxSpeed = copyFrom.headroomMaxSpeed;
+        this.headroomDropPct = copyFrom.headroomDropPct;
     }
 
     // Constructor with parameters
@@ -145,6 +333,24 @@ public class RunConfig {
         this.runLimit = runLimit;
         this.decoderCfg = new DecoderConfig(decoderCfg);
         this.videoOrientation = videoOrientation;
+        this.energySampleHz = defaultEnergySampleHz;
+        this.clipTransition = ClipTransition.FRESH_PLAYER;
+        this.testMode = TestMode.PLAYBACK;
+        this.maxConcurrentInstances = defaultMaxConcurrentInstances;
+        this.fragmentReadAhead = defaultFragmentReadAhead;
+        this.ioMode = IoMode.PLATFORM;
+        this.preloadBudgetMb = defaultPreloadBudgetMb;
+        this.bitstreamTrace = false;
+        this.frameHashInterval = 0;
+        this.sweepClipSeconds = defaultSweepClipSeconds;
+        this.corePlacement = CorePlacement.ALL;
+        this.placementCpuSet = "";
+        this.decoderThreadPriority = 0;
+        this.preflight = true;
+        this.seekPattern = SeekPattern.RANDOM;
+        this.seeksPerClip = defaultSeeksPerClip;
+        this.headroomMaxSpeed = defaultHeadroomMaxSpeed;
+        this.headroomDropPct = defaultHeadroomDropPct;
     }
 
     // Convert object to JSON string (for saving)
@@ -162,6 +368,51 @@ public class RunConfig {
             if(ret.videoOrientation == null){
                 ret.videoOrientation = VideoOrientation.MATCH_VIDEO;
             }
+            if(ret.energySampleHz <= 0){
+                ret.energySampleHz = defaultEnergySampleHz;
+            }
+            if(ret.clipTransition == null){
+                ret.clipTransition = ClipTransition.FRESH_PLAYER;
+            }
+            if(ret.testMode == null){
+                ret.testMode = TestMode.PLAYBACK;
+            }
+            if(ret.maxConcurrentInstances <= 0){
+                ret.maxConcurrentInstances = defaultMaxConcurrentInstances;
+            }
+            if(ret.fragmentReadAhead < 0){
+                ret.fragmentReadAhead = defaultFragmentReadAhead;
+            }
+            if(ret.ioMode == null){
+                ret.ioMode = IoMode.PLATFORM;
+            }
+            if(ret.preloadBudgetMb <= 0){
+                ret.preloadBudgetMb = defaultPreloadBudgetMb;
+            }
+            if(ret.frameHashInterval < 0){
+                ret.frameHashInterval = 0;
+            }
+            if(ret.sweepClipSeconds < 0){
+                ret.sweepClipSeconds = defaultSweepClipSeconds;
+            }
+            if(ret.corePlacement == null){
+                ret.corePlacement = CorePlacement.ALL;
+            }
+            if(ret.placementCpuSet == null){
+                ret.placementCpuSet = "";
+            }
+            if(ret.seekPattern == null){
+                ret.seekPattern = SeekPattern.RANDOM;
+            }
+            if(ret.seeksPerClip <= 0){
+                ret.seeksPerClip = defaultSeeksPerClip;
+            }
+            if(ret.headroomMaxSpeed <= 1){
+                ret.headroomMaxSpeed = defaultHeadroomMaxSpeed;
+            }
+            if(ret.headroomDropPct <= 0){
+                ret.headroomDropPct = defaultHeadroomDropPct;
+            }
 
             return ret;
         }
@@ -195,6 +446,78 @@ public class RunConfig {
                 return Integer.compare(config1.videoOrientation.ordinal(), config2.videoOrientation.ordinal());
             }
 
+            if(config1.energySampleHz != config2.energySampleHz){
+                return Integer.compare(config1.energySampleHz, config2.energySampleHz);
+            }
+
+            if(config1.clipTransition != config2.clipTransition){
+                return Integer.compare(config1.clipTransition.ordinal(), config2.clipTransition.ordinal());
+            }
+
+            if(config1.testMode != config2.testMode){
+                return Integer.compare(config1.testMode.ordinal(), config2.testMode.ordinal());
+            }
+
+            if(config1.maxConcurrentInstances != config2.maxConcurrentInstances){
+                return Integer.compare(config1.maxConcurrentInstances, config2.maxConcurrentInstances);
+            }
+
+            if(config1.fragmentReadAhead != config2.fragmentReadAhead){
+                return Integer.compare(config1.fragmentReadAhead, config2.fragmentReadAhead);
+            }
+
+            if(config1.ioMode != config2.ioMode){
+                return Integer.compare(config1.ioMode.ordinal(), config2.ioMode.ordinal());
+            }
+
+            if(config1.preloadBudgetMb != config2.preloadBudgetMb){
+                return Integer.compare(config1.preloadBudgetMb, config2.preloadBudgetMb);
+            }
+
+            if(config1.bitstreamTrace != config2.bitstreamTrace){
+                return Boolean.compare(config1.bitstreamTrace, config2.bitstreamTrace);
+            }
+
+            if(config1.frameHashInterval != config2.frameHashInterval){
+                return Integer.compare(config1.frameHashInterval, config2.frameHashInterval);
+            }
+
+            if(config1.sweepClipSeconds != config2.sweepClipSeconds){
+                return Integer.compare(config1.sweepClipSeconds, config2.sweepClipSeconds);
+            }
+
+            if(config1.corePlacement != config2.corePlacement){
+                return Integer.compare(config1.corePlacement.ordinal(), config2.corePlacement.ordinal());
+            }
+
+            if(!Objects.equals(config1.placementCpuSet, config2.placementCpuSet)){
+                return String.valueOf(config1.placementCpuSet).compareTo(String.valueOf(config2.placementCpuSet));
+            }
+
+            if(config1.decoderThreadPriority != config2.decoderThreadPriority){
+                return Integer.compare(config1.decoderThreadPriority, config2.decoderThreadPriority);
+            }
+
+            if(config1.preflight != config2.preflight){
+                return Boolean.compare(config1.preflight, config2.preflight);
+            }
+
+            if(config1.seekPattern != config2.seekPattern){
+                return Integer.compare(config1.seekPattern.ordinal(), config2.seekPattern.ordinal());
+            }
+
+            if(config1.seeksPerClip != config2.seeksPerClip){
+                return Integer.compare(config1.seeksPerClip, config2.seeksPerClip);
+            }
+
+            if(config1.headroomMaxSpeed != config2.headroomMaxSpeed){
+                return Integer.compare(config1.headroomMaxSpeed, config2.headroomMaxSpeed);
+            }
+
+            if(config1.headroomDropPct != config2.headroomDropPct){
+                return Integer.compare(config1.headroomDropPct, config2.headroomDropPct);
+            }
+
             // now compare the decoder cfg
             return DecoderConfig.comparator.compare(config1.decoderCfg, config2.decoderCfg);
         }
@@ -81,12 +81,21 @@ public class TestVectorManifests {
         @SerializedName("frame_rate")
         public final String frameRate;
 
+        // Optional reference CRC32s (hex) of every frame_crc32_interval-th decoded frame, see FrameHashSink
+        @SerializedName("frame_crc32_interval")
+        public final Integer frameCrc32Interval;
+
+        @SerializedName("frame_crc32")
+        public final List<String> frameCrc32;
+
         public VideoAsset(String name, String url, String checksum, long lengthBytes, String videoMimeType, Integer durationMs, String resolutionXY, String frameRate) {
             super(name, url, checksum, lengthBytes);
             this.videoMimeType = videoMimeType;
             this.durationMs = durationMs;
             this.resolutionXY = resolutionXY;
             this.frameRate = frameRate;
+            this.frameCrc32Interval = null;
+            this.frameCrc32 = null;
         }
 
         // Static method to deserialize from JSON
@@ -0,0 +1,248 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.parsers;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Per-sample bitstream trace of one clip: presentation time, stored size, key frame flag and, for
+ * H.264/HEVC, the NAL unit types the sample carried. Samples go into fixed primitive arrays that
+ * wrap once full; each time, the records are encoded into one of a few reused buffers and handed to
+ * a writer thread, so recording never allocates and never does I/O.
+ *
+ * <p>The sidecar is big-endian: a header of magic {@code "VTRC"}, version (u16) and record size
+ * (u16), then one {@link #RECORD_SIZE} byte record per sample: pts us (s64), stored size (s32),
+ * flags (u8, {@link #FLAG_KEY_FRAME}, {@link #FLAG_DISCONTINUITY}) and NAL type bitmask (u64, bit
+ * {@code n} set when a NAL unit of type {@code n} was seen, 0 for other codecs).
+ *
+ * <p>Called on the extractor's loading thread only; opening the sidecar (a SAF createFile) and
+ * every write happen on the writer. A sidecar that cannot be opened or written, or a writer that
+ * falls {@link #BUFFERS} drains behind, turns the trace off; it never fails or stalls playback.
+ */
+public final class SampleTrace implements Closeable {
+    private static final String TAG = "SampleTrace";
+
+    /** Opens the clip's sidecar, or returns null to skip the trace. */
+    public interface Sink {
+        @Nullable
+        OutputStream open() throws IOException;
+    }
+
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    public static final int RECORD_SIZE = 21;
+
+    public static final int FLAG_KEY_FRAME = 1;
+    /** First sample after a seek or reset; the gap before it is not a bitrate dip. */
+    public static final int FLAG_DISCONTINUITY = 2;
+
+    static final int DEFAULT_CAPACITY = 1024;
+    /** Encoded drains that may wait for the writer at once. */
+    static final int BUFFERS = 4;
+
+    /** One writer for every trace; a drain is a single write of a few tens of KB. */
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "vcat-trace-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Sink sink;
+    private final Executor writer;
+    private final long[] timesUs;
+    private final int[] sizes;
+    private final byte[] flags;
+    private final long[] nalTypes;
+    private final BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(BUFFERS);
+
+    // writer thread
+    @Nullable private OutputStream out;
+    private boolean headerWritten;
+    // set by the writer when the sidecar failed, read by the loading thread
+    private volatile boolean failed;
+
+    // loading thread
+    private int count;
+    private boolean discontinuity;
+    private boolean closed;
+
+    public SampleTrace(Sink sink) {
+        this(sink, DEFAULT_CAPACITY, WRITER);
+    }
+
+    SampleTrace(Sink sink, int capacity, Executor writer) {
+        this.sink = sink;
+        this.writer = writer;
+        this.timesUs = new long[capacity];
+        this.sizes = new int[capacity];
+        this.flags = new byte[capacity];
+        this.nalTypes = new long[capacity];
+        for (int i = 0; i < BUFFERS; i++) {
+            freeBuffers.add(new byte[capacity * RECORD_SIZE]);
+        }
+    }
+
+    /**
+     * @param bufferFlags the sample's {@link C.BufferFlags}
+     * @param nalTypes NAL unit type bitmask, 0 when not known
+     */
+    public void record(long timeUs, int size, @C.BufferFlags int bufferFlags, long nalTypes) {
+        if (closed || failed) {
+            return;
+        }
+        int f = (bufferFlags & C.BUFFER_FLAG_KEY_FRAME) != 0 ? FLAG_KEY_FRAME : 0;
+        if (discontinuity) {
+            f |= FLAG_DISCONTINUITY;
+            discontinuity = false;
+        }
+        timesUs[count] = timeUs;
+        sizes[count] = size;
+        flags[count] = (byte) f;
+        this.nalTypes[count] = nalTypes;
+        if (++count == timesUs.length) {
+            drain();
+        }
+    }
+
+    /** Flags the next recorded sample as following a seek. */
+    public void markDiscontinuity() {
+        discontinuity = true;
+    }
+
+    /**
+     * Drains what is left and queues the sidecar's close behind it; the writer finishes the file.
+     * Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        if (count > 0 && !failed) {
+            drain();
+        }
+        closed = true;
+        writer.execute(this::closeOut);
+    }
+
+    /** Encodes the recorded samples into a free buffer and hands it to the writer. */
+    private void drain() {
+        byte[] encoded = freeBuffers.poll();
+        if (encoded == null) {
+            Log.w(TAG, "Trace disabled, the writer is " + BUFFERS + " drains behind");
+            failed = true;
+            count = 0;
+            return;
+        }
+        int p = 0;
+        for (int i = 0; i < count; i++) {
+            p = putLong(encoded, p, timesUs[i]);
+            p = putInt(encoded, p, sizes[i]);
+            encoded[p++] = flags[i];
+            p = putLong(encoded, p, nalTypes[i]);
+        }
+        int length = p;
+        writer.execute(() -> write(encoded, length));
+        count = 0;
+    }
+
+    /** Writer thread: opens the sidecar on the first drain, then appends the drain's records. */
+    private void write(byte[] encoded, int length) {
+        try {
+            if (failed) {
+                return;
+            }
+            if (!headerWritten) {
+                headerWritten = true;
+                out = sink.open();
+                if (out == null) {
+                    failed = true;
+                    return;
+                }
+                out.write(header());
+            }
+            if (out != null) {
+                out.write(encoded, 0, length);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Trace disabled, write failed: " + e.getMessage());
+            failed = true;
+        } finally {
+            freeBuffers.offer(encoded);
+        }
+    }
+
+    /** Writer thread, after every drain of the trace. */
+    private void closeOut() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Closing trace failed: " + e.getMessage());
+            }
+            out = null;
+        }
+    }
+
+    private static byte[] header() {
+        return new byte[] {'V', 'T', 'R', 'C',
+                (byte) (VERSION >> 8), (byte) VERSION,
+                (byte) (RECORD_SIZE >> 8), (byte) RECORD_SIZE};
+    }
+
+    private static int putInt(byte[] b, int p, int v) {
+        b[p] = (byte) (v >> 24);
+        b[p + 1] = (byte) (v >> 16);
+        b[p + 2] = (byte) (v >> 8);
+        b[p + 3] = (byte) v;
+        return p + 4;
+    }
+
+    private static int putLong(byte[] b, int p, long v) {
+        p = putInt(b, p, (int) (v >> 32));
+        return putInt(b, p, (int) v);
+    }
+}
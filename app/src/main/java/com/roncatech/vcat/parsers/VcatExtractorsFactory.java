@@ -0,0 +1,120 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.parsers;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.extractor.Extractor;
+import com.google.android.exoplayer2.extractor.ExtractorsFactory;
+import com.roncatech.vcat.parsers.ivf.VcatIvfExtractor;
+import com.roncatech.vcat.parsers.mp4.FragmentedMp4Extractor;
+import com.roncatech.vcat.parsers.mp4.ParsedMoovCache;
+import com.roncatech.vcat.parsers.mp4.VcatMp4Extractor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The extractors used for playback: IVF (DKIF) first, then MP4, then fragmented MP4 (fMP4/CMAF).
+ * ExoPlayer asks for extractors per media uri, which is what lets the MP4 extractor key its
+ * parsed-moov cache on the file. The MP4 extractor's sniff rejects fragmented files, so those fall
+ * through to the fragmented extractor.
+ *
+ * <p>With trace sinks, each uri's extractors share one {@link SampleTrace}; only the extractor
+ * that wins the sniff records into it, and nothing is written for a clip that never plays.
+ */
+public final class VcatExtractorsFactory implements ExtractorsFactory {
+    private final Context context;
+    @Nullable private final ParsedMoovCache moovCache;
+    private final int fragmentReadAhead;
+    @Nullable private final Function<Uri, SampleTrace.Sink> traceSinks;
+    @Nullable private final Function<Uri, VcatMp4Extractor.MoovListener> moovListeners;
+
+    /**
+     * @param moovCache parsed-moov cache shared by every player of the session, or null for none
+     * @param fragmentReadAhead fMP4 fragments to read ahead of the parser, 0 for none
+     */
+    public VcatExtractorsFactory(@NonNull Context context, @Nullable ParsedMoovCache moovCache,
+                                 int fragmentReadAhead) {
+        this(context, moovCache, fragmentReadAhead, null);
+    }
+
+    /**
+     * @param traceSinks the bitstream trace sidecar for a clip's uri, or null to trace nothing
+     */
+    public VcatExtractorsFactory(@NonNull Context context, @Nullable ParsedMoovCache moovCache,
+                                 int fragmentReadAhead,
+                                 @Nullable Function<Uri, SampleTrace.Sink> traceSinks) {
+        this(context, moovCache, fragmentReadAhead, traceSinks, null);
+    }
+
+    /**
+     * @param moovListeners who hears the MP4 moov parse and setup times of a clip's uri, or null
+     */
+    public VcatExtractorsFactory(@NonNull Context context, @Nullable ParsedMoovCache moovCache,
+                                 int fragmentReadAhead,
+                                 @Nullable Function<Uri, SampleTrace.Sink> traceSinks,
+                                 @Nullable Function<Uri, VcatMp4Extractor.MoovListener> moovListeners) {
+        this.context = context.getApplicationContext();
+        this.moovCache = moovCache;
+        this.fragmentReadAhead = fragmentReadAhead;
+        this.traceSinks = traceSinks;
+        this.moovListeners = moovListeners;
+    }
+
+    @NonNull
+    @Override
+    public Extractor[] createExtractors() {
+        return createExtractors(Uri.EMPTY, Collections.emptyMap());
+    }
+
+    @NonNull
+    @Override
+    public Extractor[] createExtractors(@NonNull Uri uri, @NonNull Map<String, List<String>> responseHeaders) {
+        // called on the loading thread, so the size/mtime lookup stays off the main thread
+        String moovCacheKey = moovCache != null ? moovCache.keyFor(context, uri) : null;
+        SampleTrace trace = traceSinks != null ? new SampleTrace(traceSinks.apply(uri)) : null;
+        VcatMp4Extractor.MoovListener moovListener = moovListeners != null ? moovListeners.apply(uri) : null;
+        return new Extractor[] {
+                new VcatIvfExtractor(trace),
+                new VcatMp4Extractor(/* flags= */ 0, moovCache, moovCacheKey, trace, moovListener),
+                new FragmentedMp4Extractor(/* flags= */ 0, fragmentReadAhead)
+        };
+    }
+}
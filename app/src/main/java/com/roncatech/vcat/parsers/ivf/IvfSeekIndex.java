@@ -0,0 +1,118 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.parsers.ivf;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.extractor.SeekMap;
+import com.google.android.exoplayer2.extractor.SeekPoint;
+
+import java.util.Arrays;
+
+/**
+ * {@link SeekMap} of an IVF file, built as the file is read. IVF has no index, so
+ * {@link VcatIvfExtractor} adds every random access point it passes (see
+ * {@link com.roncatech.vcat.decoder_plugin_api.IvfParserExtension#isKeyFrame}). A seek lands on the
+ * last such frame at or before the target; past the indexed part of the file that is the last frame
+ * indexed so far, and the player decodes forward from there, indexing as it goes.
+ *
+ * <p>Frames are added from the loading thread and looked up from the playback thread.
+ */
+final class IvfSeekIndex implements SeekMap {
+
+    private volatile long durationUs = C.TIME_UNSET;
+
+    // ascending by time and by position; entry 0 is always the first frame
+    private long[] timesUs = new long[16];
+    private long[] positions = new long[16];
+    private int size = 0;
+
+    /**
+     * Set before the index is handed to the {@link com.google.android.exoplayer2.extractor.ExtractorOutput},
+     * which reads the duration once.
+     *
+     * @param durationUs duration of the file, or {@link C#TIME_UNSET}
+     */
+    void setDurationUs(long durationUs) {
+        this.durationUs = durationUs;
+    }
+
+    /**
+     * Add a random access point. Frames at or before the last one indexed are ignored, so reading a
+     * stretch of the file again after a seek adds nothing twice.
+     *
+     * @param position file offset of the frame header
+     */
+    synchronized void add(long timeUs, long position) {
+        if (size > 0 && position <= positions[size - 1]) {
+            return;
+        }
+        if (size == timesUs.length) {
+            timesUs = Arrays.copyOf(timesUs, size * 2);
+            positions = Arrays.copyOf(positions, size * 2);
+        }
+        timesUs[size] = timeUs;
+        positions[size] = position;
+        size++;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isSeekable() {
+        return true;
+    }
+
+    @Override
+    public long getDurationUs() {
+        return durationUs;
+    }
+
+    @Override
+    public synchronized SeekPoints getSeekPoints(long timeUs) {
+        if (size == 0) {
+            // nothing read yet: start over from the file header
+            return new SeekPoints(SeekPoint.START);
+        }
+        int i = Arrays.binarySearch(timesUs, 0, size, timeUs);
+        if (i < 0) {
+            i = Math.max(0, -i - 2);
+        }
+        SeekPoint before = new SeekPoint(timesUs[i], positions[i]);
+        if (timesUs[i] == timeUs || i + 1 == size) {
+            return new SeekPoints(before);
+        }
+        return new SeekPoints(before, new SeekPoint(timesUs[i + 1], positions[i + 1]));
+    }
+}
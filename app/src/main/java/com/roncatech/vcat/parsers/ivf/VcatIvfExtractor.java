@@ -32,6 +32,8 @@
 
 package com.roncatech.vcat.parsers.ivf;
 
+import androidx.annotation.Nullable;
+
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.ParserException;
@@ -39,29 +41,39 @@ import com.google.android.exoplayer2.extractor.Extractor;
 import com.google.android.exoplayer2.extractor.ExtractorInput;
 import com.google.android.exoplayer2.extractor.ExtractorOutput;
 import com.google.android.exoplayer2.extractor.PositionHolder;
-import com.google.android.exoplayer2.extractor.SeekMap;
 import com.google.android.exoplayer2.extractor.TrackOutput;
 import com.google.android.exoplayer2.video.ColorInfo;
 import com.roncatech.vcat.decoder_plugin.VcatDecoderManager;
 import com.roncatech.vcat.decoder_plugin_api.IvfParserExtension;
 import com.roncatech.vcat.decoder_plugin_api.VideoConfiguration;
+import com.roncatech.vcat.parsers.SampleTrace;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * ExoPlayer {@link Extractor} for the AOM IVF container. Parses IVF framing only — all
  * codec-specific sequence-header parsing is delegated to the registered {@link IvfParserExtension}
  * matched by the file-header FourCC (see {@link VcatDecoderManager#findIvfPlugin(int)}).
  *
- * <p>Sequence-header parsing uses peeking: the plugin's {@link IvfParserExtension#parseHeader} only
- * <em>peeks</em> the first frame payload, so the read position stays at the start of that payload.
- * After the call the extractor resets the peek position and feeds the full first frame as the first
- * sample — no buffering of the whole frame and no seek-back required.
+ * <p>Sequence-header parsing uses peeking: the extractor <em>peeks</em> the first frame payload and
+ * hands the plugin a read-only view of it ({@link IvfParserExtension#parseHeader(ByteBuffer)}), so
+ * the read position stays at the start of that payload. After the call the extractor resets the peek
+ * position and feeds the full first frame as the first sample from the input's peek buffer — no
+ * second read of the frame and no seek-back required.
+ *
+ * <p>IVF has no index. The extractor builds one as it reads ({@link IvfSeekIndex}), asking the plugin
+ * which frames are random access points ({@link IvfParserExtension#isKeyFrame}), so seeks land on the
+ * closest indexed frame before the target. The header's frame count is in frames, not time base
+ * ticks, so the duration is that count times the pts step between the first two frames, and the seek
+ * map is output once the second frame header is read.
  */
 public final class VcatIvfExtractor implements Extractor {
 
     private static final int FILE_HEADER_SIZE = IvfFileHeader.SIZE; // 32
     private static final int FRAME_HEADER_SIZE = 12;               // 4-byte size + 8-byte pts
+    // start of each frame handed to the plugin's key frame check; the bytes are read anyway
+    private static final int KEY_FRAME_PEEK_SIZE = 256;
 
     private static final int STATE_FILE_HEADER = 0;
     private static final int STATE_FRAME_HEADER = 1;
@@ -69,19 +81,38 @@ public final class VcatIvfExtractor implements Extractor {
     private static final int STATE_SAMPLE = 3;
 
     private final byte[] scratch = new byte[FRAME_HEADER_SIZE];
+    private final byte[] frameStart = new byte[KEY_FRAME_PEEK_SIZE];
+    /** The first frame, peeked for the sequence header; reused and grown only for a larger frame. */
+    private byte[] firstFrame = new byte[0];
+    @Nullable private final SampleTrace trace;
 
     private ExtractorOutput extractorOutput;
     private TrackOutput trackOutput;
     private IvfFileHeader fileHeader;
     private IvfParserExtension plugin;
+    @Nullable private IvfSeekIndex seekIndex;
+    private boolean seekMapOutput = false;
+    private long firstFramePts = C.TIME_UNSET; // raw, until the seek map is output
 
     private int state = STATE_FILE_HEADER;
     private int currentFrameSize;
     private long currentPtsUs;
+    private boolean currentKeyFrame;
     private int sampleBytesRemaining;
     private boolean firstSample = true;
     private boolean formatEmitted = false;
 
+    public VcatIvfExtractor() {
+        this(null);
+    }
+
+    /**
+     * @param trace records every frame; closed on release. Null for none.
+     */
+    public VcatIvfExtractor(@Nullable SampleTrace trace) {
+        this.trace = trace;
+    }
+
     @Override
     public boolean sniff(ExtractorInput input) throws IOException {
         byte[] sig = new byte[4];
@@ -97,7 +128,7 @@ public final class VcatIvfExtractor implements Extractor {
     public void init(ExtractorOutput output) {
         this.extractorOutput = output;
         this.trackOutput = output.track(0, C.TRACK_TYPE_VIDEO);
-        output.seekMap(new SeekMap.Unseekable(C.TIME_UNSET));
+        // the seek map needs the file header's time base; it is output once that is read
         output.endTracks();
     }
 
@@ -129,28 +160,63 @@ public final class VcatIvfExtractor implements Extractor {
                     "No IVF plugin registered for FourCC: " + fourCcToString(fileHeader.fourCc),
                     /* cause= */ null);
         }
+        if (seekIndex == null) {
+            seekIndex = new IvfSeekIndex();
+        }
         state = STATE_FRAME_HEADER;
         return RESULT_CONTINUE;
     }
 
     private int readFrameHeader(ExtractorInput input) throws IOException {
+        long framePosition = input.getPosition();
         if (!input.readFully(scratch, 0, FRAME_HEADER_SIZE, /* allowEndOfInput= */ true)) {
+            if (!seekMapOutput) {
+                outputSeekMap(/* ptsStep= */ 0); // fewer than two frames
+            }
             return RESULT_END_OF_INPUT; // clean end between frames
         }
         currentFrameSize = le32(scratch, 0);
-        currentPtsUs = toMicros(le64(scratch, 4));
+        long pts = le64(scratch, 4);
+        currentPtsUs = toMicros(pts);
+        if (!seekMapOutput) {
+            if (firstFramePts == C.TIME_UNSET) {
+                firstFramePts = pts;
+            } else {
+                outputSeekMap(pts - firstFramePts);
+            }
+        }
         sampleBytesRemaining = currentFrameSize;
+        currentKeyFrame = firstSample || isKeyFrame(input);
+        if (currentKeyFrame && seekIndex != null) {
+            seekIndex.add(currentPtsUs, framePosition);
+        }
         // The first frame drives sequence-header parsing (Format emission) before it is emitted as
         // a sample; every subsequent frame goes straight to sample output.
         state = formatEmitted ? STATE_SAMPLE : STATE_SEQUENCE_HEADER;
         return RESULT_CONTINUE;
     }
 
+    /**
+     * Output the seek map, with the duration taken as frameCount frames of {@code ptsStep} ticks.
+     * Unknown when the header has no frame count or the step is not positive.
+     */
+    private void outputSeekMap(long ptsStep) {
+        seekIndex.setDurationUs(fileHeader.frameCount > 0 && ptsStep > 0
+                ? toMicros(fileHeader.frameCount * ptsStep)
+                : C.TIME_UNSET);
+        extractorOutput.seekMap(seekIndex);
+        seekMapOutput = true;
+    }
+
     private int parseSequenceHeader(ExtractorInput input) throws IOException {
-        // Read position is at the first byte of the first frame payload. The plugin PEEKS only.
+        // Read position is at the first byte of the first frame payload. Peek it, do not consume it.
+        if (firstFrame.length < currentFrameSize) {
+            firstFrame = new byte[currentFrameSize];
+        }
+        input.peekFully(firstFrame, 0, currentFrameSize);
         VideoConfiguration cfg;
         try {
-            cfg = plugin.parseHeader(input, currentFrameSize);
+            cfg = plugin.parseHeader(ByteBuffer.wrap(firstFrame, 0, currentFrameSize).slice().asReadOnlyBuffer());
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new IOException("Interrupted parsing IVF sequence header", e);
@@ -170,13 +236,28 @@ public final class VcatIvfExtractor implements Extractor {
             }
             sampleBytesRemaining -= appended;
         }
-        int flags = firstSample ? C.BUFFER_FLAG_KEY_FRAME : 0;
+        int flags = currentKeyFrame ? C.BUFFER_FLAG_KEY_FRAME : 0;
         trackOutput.sampleMetadata(currentPtsUs, flags, currentFrameSize, /* offset= */ 0, /* cryptoData= */ null);
+        if (trace != null) {
+            // IVF frames carry no NAL units
+            trace.record(currentPtsUs, currentFrameSize, flags, /* nalTypes= */ 0);
+        }
         firstSample = false;
         state = STATE_FRAME_HEADER;
         return RESULT_CONTINUE;
     }
 
+    /** Peek the start of the current frame for the plugin's key frame check; the read position stays. */
+    private boolean isKeyFrame(ExtractorInput input) throws IOException {
+        int n = Math.min(currentFrameSize, KEY_FRAME_PEEK_SIZE);
+        if (n <= 0) {
+            return false;
+        }
+        input.peekFully(frameStart, 0, n);
+        input.resetPeekPosition();
+        return plugin.isKeyFrame(ByteBuffer.wrap(frameStart, 0, n).asReadOnlyBuffer());
+    }
+
     private Format buildFormat(VideoConfiguration cfg) {
         // Frame rate is intentionally left unset: IVF's rate/scale don't reliably give nominal fps.
         Format.Builder b = new Format.Builder()
@@ -207,18 +288,25 @@ public final class VcatIvfExtractor implements Extractor {
 
     @Override
     public void seek(long position, long timeUs) {
-        // IVF is unseekable; only a reset to the start (position == 0) is expected.
+        // position is 0 for a reset to the start, otherwise a frame header from the seek index
+        firstSample = true;
+        sampleBytesRemaining = 0;
         if (position == 0) {
             state = STATE_FILE_HEADER;
-            firstSample = true;
             formatEmitted = false;
-            sampleBytesRemaining = 0;
+        } else {
+            state = STATE_FRAME_HEADER;
+        }
+        if (trace != null) {
+            trace.markDiscontinuity();
         }
     }
 
     @Override
     public void release() {
-        // No resources held.
+        if (trace != null) {
+            trace.close();
+        }
     }
 
     private static int le32(byte[] b, int off) {
@@ -0,0 +1,175 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.parsers.mp4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * For each sample of each track, the accumulated size of all samples (of every track, in
+ * timestamp order) that need to be read before it can be used. The values are the ones {@link
+ * VcatMp4Extractor} used to compute for the whole file before emitting its first sample; here they
+ * are materialized on demand, one window of {@link #WINDOW_SIZE} merged samples at a time.
+ *
+ * <p>A checkpoint of the merge state is kept at every window boundary reached so far, so a lookup
+ * after a seek in either direction re-runs at most one window of the merge. Lookups normally stay
+ * inside the current window of each track as reading advances.
+ */
+/* package */ final class AccumulatedSampleSizes {
+
+  /* package */ static final int WINDOW_SIZE = 4096;
+
+  private final TrackSampleTable[] tables;
+  private final long totalSamples;
+
+  // Merge state at the start of window w: checkpointNextSample.get(w)[track] is the first sample of
+  // each track not yet merged, checkpointAccumulated.get(w) the bytes merged before it.
+  private final List<int[]> checkpointNextSample = new ArrayList<>();
+  private final List<Long> checkpointAccumulated = new ArrayList<>();
+
+  // Per track: the window whose values are held, and the track's samples that fall in it.
+  private final int[] window;
+  private final int[] windowFirstSample;
+  private final long[][] windowValues;
+  private final int[] windowLength;
+
+  /* package */ AccumulatedSampleSizes(TrackSampleTable[] tables) {
+    this.tables = tables;
+    long total = 0;
+    for (TrackSampleTable table : tables) {
+      total += table.sampleCount;
+    }
+    totalSamples = total;
+    checkpointNextSample.add(new int[tables.length]);
+    checkpointAccumulated.add(0L);
+    window = new int[tables.length];
+    Arrays.fill(window, -1);
+    windowFirstSample = new int[tables.length];
+    windowValues = new long[tables.length][];
+    windowLength = new int[tables.length];
+  }
+
+  /** Returns the accumulated size before {@code sampleIndex} of track {@code trackIndex}. */
+  /* package */ long get(int trackIndex, int sampleIndex) {
+    int offset = sampleIndex - windowFirstSample[trackIndex];
+    if (window[trackIndex] < 0 || offset < 0 || offset >= windowLength[trackIndex]) {
+      materialize(trackIndex, sampleIndex);
+      offset = sampleIndex - windowFirstSample[trackIndex];
+    }
+    return windowValues[trackIndex][offset];
+  }
+
+  /** Returns the number of windows reached so far. */
+  /* package */ int getCheckpointCount() {
+    return checkpointNextSample.size();
+  }
+
+  private void materialize(int trackIndex, int sampleIndex) {
+    // The last known window whose start is at or before the sample. Each track's next sample only
+    // moves forward across checkpoints, so this is a binary search.
+    int low = 0;
+    int high = checkpointNextSample.size() - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (checkpointNextSample.get(mid)[trackIndex] <= sampleIndex) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    int w = low;
+    while (!runWindow(w, trackIndex, sampleIndex)) {
+      w++;
+    }
+  }
+
+  /**
+   * Runs the merge over window {@code w}, holding the values of {@code trackIndex}'s samples in it.
+   * Returns whether {@code sampleIndex} was in the window; if not, window {@code w + 1} has been
+   * checkpointed.
+   */
+  private boolean runWindow(int w, int trackIndex, int sampleIndex) {
+    int trackCount = tables.length;
+    int[] nextSample = checkpointNextSample.get(w).clone();
+    long accumulated = checkpointAccumulated.get(w);
+    long[] nextSampleTimesUs = new long[trackCount];
+    for (int i = 0; i < trackCount; i++) {
+      nextSampleTimesUs[i] =
+          nextSample[i] < tables[i].sampleCount
+              ? tables[i].getTimestampUs(nextSample[i])
+              : Long.MAX_VALUE;
+    }
+
+    long[] values = windowValues[trackIndex];
+    if (values == null) {
+      values = new long[WINDOW_SIZE];
+      windowValues[trackIndex] = values;
+    }
+    window[trackIndex] = w;
+    windowFirstSample[trackIndex] = nextSample[trackIndex];
+    int length = 0;
+
+    long merged = (long) w * WINDOW_SIZE;
+    long windowEnd = Math.min(merged + WINDOW_SIZE, totalSamples);
+    for (; merged < windowEnd; merged++) {
+      // Same order as a full merge: the earliest next sample, the last track on ties.
+      long minTimeUs = Long.MAX_VALUE;
+      int minTimeTrackIndex = -1;
+      for (int i = 0; i < trackCount; i++) {
+        if (nextSample[i] < tables[i].sampleCount && nextSampleTimesUs[i] <= minTimeUs) {
+          minTimeTrackIndex = i;
+          minTimeUs = nextSampleTimesUs[i];
+        }
+      }
+      int trackSampleIndex = nextSample[minTimeTrackIndex];
+      if (minTimeTrackIndex == trackIndex) {
+        values[length++] = accumulated;
+      }
+      accumulated += tables[minTimeTrackIndex].getSize(trackSampleIndex);
+      nextSample[minTimeTrackIndex] = ++trackSampleIndex;
+      if (trackSampleIndex < tables[minTimeTrackIndex].sampleCount) {
+        nextSampleTimesUs[minTimeTrackIndex] =
+            tables[minTimeTrackIndex].getTimestampUs(trackSampleIndex);
+      }
+    }
+    windowLength[trackIndex] = length;
+
+    if (w + 1 == checkpointNextSample.size() && windowEnd < totalSamples) {
+      checkpointNextSample.add(nextSample);
+      checkpointAccumulated.add(accumulated);
+    }
+    int offset = sampleIndex - windowFirstSample[trackIndex];
+    return offset >= 0 && offset < length;
+  }
+}
@@ -194,6 +194,15 @@ import java.util.List;
   @SuppressWarnings("ConstantCaseForConstants")
   public static final int TYPE_sidx = 0x73696478;
 
+  @SuppressWarnings("ConstantCaseForConstants")
+  public static final int TYPE_mfra = 0x6d667261;
+
+  @SuppressWarnings("ConstantCaseForConstants")
+  public static final int TYPE_tfra = 0x74667261;
+
+  @SuppressWarnings("ConstantCaseForConstants")
+  public static final int TYPE_mfro = 0x6d66726f;
+
   @SuppressWarnings("ConstantCaseForConstants")
   public static final int TYPE_moov = 0x6d6f6f76;
 
@@ -60,6 +60,7 @@ import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.IntToLongFunction;
 import org.checkerframework.checker.nullness.compatqual.NullableType;
 
 /**
@@ -196,7 +197,8 @@ import org.checkerframework.checker.nullness.compatqual.NullableType;
                               checkNotNull(atom.getContainerAtomOfType(Atom.TYPE_mdia))
                                       .getContainerAtomOfType(Atom.TYPE_minf))
                               .getContainerAtomOfType(Atom.TYPE_stbl));
-      TrackSampleTable trackSampleTable = parseStbl(track, stblAtom, gaplessInfoHolder);
+      TrackSampleTable trackSampleTable =
+              parseStbl(track, stblAtom, gaplessInfoHolder, /* allowCompact= */ true);
       trackSampleTables.add(trackSampleTable);
     }
     return trackSampleTables;
@@ -436,11 +438,16 @@ import org.checkerframework.checker.nullness.compatqual.NullableType;
    * @param track Track to which this sample table corresponds.
    * @param stblAtom stbl (sample table) atom to decode.
    * @param gaplessInfoHolder Holder to populate with gapless playback information.
+   * @param allowCompact Whether the table may be returned in {@link CompactSampleTable} form. It
+   *     falls back to dense arrays for rechunked audio and edit lists with more than one edit.
    * @return Sample table described by the stbl atom.
    * @throws ParserException Thrown if the stbl atom can't be parsed.
    */
-  private static TrackSampleTable parseStbl(
-          Track track, Atom.ContainerAtom stblAtom, GaplessInfoHolder gaplessInfoHolder)
+  /* package */ static TrackSampleTable parseStbl(
+          Track track,
+          Atom.ContainerAtom stblAtom,
+          GaplessInfoHolder gaplessInfoHolder,
+          boolean allowCompact)
           throws ParserException {
     SampleSizeBox sampleSizeBox;
     @Nullable Atom.LeafAtom stszAtom = stblAtom.getLeafAtomOfType(Atom.TYPE_stsz);
@@ -554,10 +561,15 @@ import org.checkerframework.checker.nullness.compatqual.NullableType;
       flags = rechunkedResults.flags;
       duration = rechunkedResults.duration;
     } else {
-      offsets = new long[sampleCount];
-      sizes = new int[sampleCount];
-      timestamps = new long[sampleCount];
-      flags = new int[sampleCount];
+      @Nullable
+      CompactSampleTable.Builder compactSamples =
+              allowCompact
+                      ? new CompactSampleTable.Builder(sampleCount, /* allSync= */ stss == null)
+                      : null;
+      offsets = compactSamples == null ? new long[sampleCount] : null;
+      sizes = compactSamples == null ? new int[sampleCount] : null;
+      timestamps = compactSamples == null ? new long[sampleCount] : null;
+      flags = compactSamples == null ? new int[sampleCount] : null;
       long offset = 0;
       int remainingSamplesInChunk = 0;
 
@@ -571,10 +583,12 @@ import org.checkerframework.checker.nullness.compatqual.NullableType;
         if (!chunkDataComplete) {
           Log.w(TAG, "Unexpected end of chunk data");
           sampleCount = i;
-          offsets = Arrays.copyOf(offsets, sampleCount);
-          sizes = Arrays.copyOf(sizes, sampleCount);
-          timestamps = Arrays.copyOf(timestamps, sampleCount);
-          flags = Arrays.copyOf(flags, sampleCount);
+          if (compactSamples == null) {
+            offsets = Arrays.copyOf(offsets, sampleCount);
+            sizes = Arrays.copyOf(sizes, sampleCount);
+            timestamps = Arrays.copyOf(timestamps, sampleCount);
+            flags = Arrays.copyOf(flags, sampleCount);
+          }
           break;
         }
 
@@ -593,23 +607,30 @@ import org.checkerframework.checker.nullness.compatqual.NullableType;
           remainingSamplesAtTimestampOffset--;
         }
 
-        offsets[i] = offset;
-        sizes[i] = sampleSizeBox.readNextSampleSize();
-        if (sizes[i] > maximumSize) {
-          maximumSize = sizes[i];
+        int size = sampleSizeBox.readNextSampleSize();
+        if (size > maximumSize) {
+          maximumSize = size;
         }
-        timestamps[i] = timestampTimeUnits + timestampOffset;
 
         // All samples are synchronization samples if the stss is not present.
-        flags[i] = stss == null ? C.BUFFER_FLAG_KEY_FRAME : 0;
+        boolean isSync = stss == null;
         if (i == nextSynchronizationSampleIndex) {
-          flags[i] = C.BUFFER_FLAG_KEY_FRAME;
+          isSync = true;
           remainingSynchronizationSamples--;
           if (remainingSynchronizationSamples > 0) {
             nextSynchronizationSampleIndex = checkNotNull(stss).readUnsignedIntToInt() - 1;
           }
         }
 
+        if (compactSamples != null) {
+          compactSamples.add(offset, size, timestampTimeUnits, timestampOffset, isSync);
+        } else {
+          offsets[i] = offset;
+          sizes[i] = size;
+          timestamps[i] = timestampTimeUnits + timestampOffset;
+          flags[i] = isSync ? C.BUFFER_FLAG_KEY_FRAME : 0;
+        }
+
         // Add on the duration of this sample.
         timestampTimeUnits += timestampDeltaInTimeUnits;
         remainingSamplesAtTimestampDelta--;
@@ -625,7 +646,7 @@ import org.checkerframework.checker.nullness.compatqual.NullableType;
           remainingTimestampDeltaChanges--;
         }
 
-        offset += sizes[i];
+        offset += size;
         remainingSamplesInChunk--;
       }
       duration = timestampTimeUnits + timestampOffset;
@@ -665,6 +686,38 @@ import org.checkerframework.checker.nullness.compatqual.NullableType;
                         + remainingSamplesAtTimestampOffset
                         + (!isCttsValid ? ", ctts invalid" : ""));
       }
+
+      if (compactSamples != null) {
+        CompactSampleTable samples = compactSamples.build();
+        @Nullable
+        TrackSampleTable compactTable =
+                buildCompactSampleTable(track, samples, maximumSize, duration, gaplessInfoHolder);
+        if (compactTable != null) {
+          Log.d(
+                  TAG,
+                  "Track "
+                          + track.id
+                          + ": "
+                          + samples.getCount()
+                          + " samples in "
+                          + samples.getHeapBytes()
+                          + " bytes (dense "
+                          + CompactSampleTable.getDenseHeapBytes(samples.getCount())
+                          + ")");
+          return compactTable;
+        }
+        // The edit list needs the general path below, which works on dense arrays.
+        offsets = new long[sampleCount];
+        sizes = new int[sampleCount];
+        timestamps = new long[sampleCount];
+        flags = new int[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+          offsets[i] = samples.getOffset(i);
+          sizes[i] = samples.getSize(i);
+          timestamps[i] = samples.getTimestamp(i);
+          flags[i] = samples.isSync(i) ? C.BUFFER_FLAG_KEY_FRAME : 0;
+        }
+      }
     }
     long durationUs = Util.scaleLargeTimestamp(duration, C.MICROS_PER_SECOND, track.timescale);
 
@@ -820,6 +873,114 @@ import org.checkerframework.checker.nullness.compatqual.NullableType;
             editedDurationUs);
   }
 
+  /**
+   * Returns the compact equivalent of what the rest of {@link #parseStbl} would build from dense
+   * arrays, or null if the track's edit list is one the compact form cannot express (more than one
+   * edit, or an empty edit). Each branch mirrors the corresponding dense branch.
+   */
+  @Nullable
+  private static TrackSampleTable buildCompactSampleTable(
+          Track track,
+          CompactSampleTable samples,
+          int maximumSize,
+          long duration,
+          GaplessInfoHolder gaplessInfoHolder) {
+    int sampleCount = samples.getCount();
+    long durationUs = Util.scaleLargeTimestamp(duration, C.MICROS_PER_SECOND, track.timescale);
+
+    if (track.editListDurations == null) {
+      return new TrackSampleTable(
+              track, samples, 0, sampleCount, 0, false, maximumSize, durationUs);
+    }
+
+    long[] editListMediaTimes = checkNotNull(track.editListMediaTimes);
+    if (track.editListDurations.length == 1
+            && track.type == C.TRACK_TYPE_AUDIO
+            && sampleCount >= 2) {
+      long editStartTime = editListMediaTimes[0];
+      long editEndTime =
+              editStartTime
+                      + Util.scaleLargeTimestamp(
+                      track.editListDurations[0], track.timescale, track.movieTimescale);
+      if (canApplyEditWithGaplessInfo(
+              samples::getTimestamp, sampleCount, duration, editStartTime, editEndTime)) {
+        long paddingTimeUnits = duration - editEndTime;
+        long encoderDelay =
+                Util.scaleLargeTimestamp(
+                        editStartTime - samples.getTimestamp(0),
+                        track.format.sampleRate,
+                        track.timescale);
+        long encoderPadding =
+                Util.scaleLargeTimestamp(paddingTimeUnits, track.format.sampleRate, track.timescale);
+        if ((encoderDelay != 0 || encoderPadding != 0)
+                && encoderDelay <= Integer.MAX_VALUE
+                && encoderPadding <= Integer.MAX_VALUE) {
+          gaplessInfoHolder.encoderDelay = (int) encoderDelay;
+          gaplessInfoHolder.encoderPadding = (int) encoderPadding;
+          long editedDurationUs =
+                  Util.scaleLargeTimestamp(
+                          track.editListDurations[0], C.MICROS_PER_SECOND, track.movieTimescale);
+          return new TrackSampleTable(
+                  track, samples, 0, sampleCount, 0, false, maximumSize, editedDurationUs);
+        }
+      }
+    }
+
+    if (track.editListDurations.length == 1 && track.editListDurations[0] == 0) {
+      long editStartTime = editListMediaTimes[0];
+      durationUs =
+              Util.scaleLargeTimestamp(duration - editStartTime, C.MICROS_PER_SECOND, track.timescale);
+      return new TrackSampleTable(
+              track, samples, 0, sampleCount, editStartTime, false, maximumSize, durationUs);
+    }
+
+    if (track.editListDurations.length != 1 || editListMediaTimes[0] == -1) {
+      return null;
+    }
+
+    // A single edit selects a contiguous window of samples, starting at a sync sample.
+    long editMediaTime = editListMediaTimes[0];
+    long editDuration =
+            Util.scaleLargeTimestamp(
+                    track.editListDurations[0], track.timescale, track.movieTimescale);
+    boolean omitClippedSample = track.type == C.TRACK_TYPE_AUDIO;
+    int startIndex =
+            CompactSampleTable.binarySearchFloor(
+                    samples::getTimestamp, sampleCount, editMediaTime, true, true);
+    int endIndex =
+            CompactSampleTable.binarySearchCeil(
+                    samples::getTimestamp,
+                    sampleCount,
+                    editMediaTime + editDuration,
+                    omitClippedSample,
+                    false);
+    while (startIndex < endIndex && !samples.isSync(startIndex)) {
+      startIndex++;
+    }
+    if (endIndex < startIndex) {
+      return null;
+    }
+    int editedMaximumSize = maximumSize;
+    if (startIndex != 0 || endIndex != sampleCount) {
+      editedMaximumSize = 0;
+      for (int i = startIndex; i < endIndex; i++) {
+        editedMaximumSize = max(editedMaximumSize, samples.getSize(i));
+      }
+    }
+    long editedDurationUs =
+            Util.scaleLargeTimestamp(
+                    track.editListDurations[0], C.MICROS_PER_SECOND, track.movieTimescale);
+    return new TrackSampleTable(
+            track,
+            samples,
+            startIndex,
+            endIndex - startIndex,
+            editMediaTime,
+            canTrimSamplesWithTimestampChange(track.type),
+            editedMaximumSize,
+            editedDurationUs);
+  }
+
   private static boolean canTrimSamplesWithTimestampChange(@C.TrackType int trackType) {
     // Audio samples have an inherent duration and we can't trim data by changing the sample
     // timestamp alone.
@@ -1272,11 +1433,9 @@ import org.checkerframework.checker.nullness.compatqual.NullableType;
         colorTransfer = avcConfig.colorTransfer;
       } else if(isNonStandardVideo(atomType, childAtomType)){
         ExtractorUtil.checkContainerInput(mimeType == null, null);
-        parent.setPosition(childStartPosition);
-
-        byte[] atomBuffer = new byte [childAtomSize];
-        parent.setPosition(childStartPosition);
-        parent.readBytes(atomBuffer, 0, childAtomSize);
+        // read-only view of the entry in place; parsers still on parseStsd(byte[]) copy it in the default
+        ByteBuffer atomBuffer =
+            ByteBuffer.wrap(parent.getData(), childStartPosition, childAtomSize).slice().asReadOnlyBuffer();
 
         Mp4ParserExtension parser =VcatDecoderManager.getInstance().getNonStandardDecoders().get(atomType);
         // Codec MIME comes from the decoder (the parser is always a VcatDecoder from the registry);
@@ -1288,7 +1447,9 @@ import org.checkerframework.checker.nullness.compatqual.NullableType;
           initializationData = cfg.initializationData;
         }
 
-        out.nalUnitLengthFieldLength = cfg.nalUnitLengthFieldLength;
+        // 0 makes the extractors pass samples through untouched, lengths and all
+        out.nalUnitLengthFieldLength =
+            parser.acceptsLengthPrefixed() ? 0 : cfg.nalUnitLengthFieldLength;
         if (!pixelWidthHeightRatioFromPasp) {
           pixelWidthHeightRatio = cfg.pixelWidthHeightRatio;
         }
@@ -2021,13 +2182,23 @@ import org.checkerframework.checker.nullness.compatqual.NullableType;
   /** Returns whether it's possible to apply the specified edit using gapless playback info. */
   private static boolean canApplyEditWithGaplessInfo(
           long[] timestamps, long duration, long editStartTime, long editEndTime) {
-    int lastIndex = timestamps.length - 1;
+    return canApplyEditWithGaplessInfo(
+            i -> timestamps[i], timestamps.length, duration, editStartTime, editEndTime);
+  }
+
+  private static boolean canApplyEditWithGaplessInfo(
+          IntToLongFunction timestamps,
+          int length,
+          long duration,
+          long editStartTime,
+          long editEndTime) {
+    int lastIndex = length - 1;
     int latestDelayIndex = Util.constrainValue(MAX_GAPLESS_TRIM_SIZE_SAMPLES, 0, lastIndex);
     int earliestPaddingIndex =
-            Util.constrainValue(timestamps.length - MAX_GAPLESS_TRIM_SIZE_SAMPLES, 0, lastIndex);
-    return timestamps[0] <= editStartTime
-            && editStartTime < timestamps[latestDelayIndex]
-            && timestamps[earliestPaddingIndex] < editEndTime
+            Util.constrainValue(length - MAX_GAPLESS_TRIM_SIZE_SAMPLES, 0, lastIndex);
+    return timestamps.applyAsLong(0) <= editStartTime
+            && editStartTime < timestamps.applyAsLong(latestDelayIndex)
+            && timestamps.applyAsLong(earliestPaddingIndex) < editEndTime
             && editEndTime <= duration;
   }
 
@@ -0,0 +1,448 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.parsers.mp4;
+
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Run-length form of an stbl sample table, for vectors with millions of samples where the dense
+ * per-sample arrays of {@link TrackSampleTable} would cost tens of MB of heap.
+ *
+ * <ul>
+ *   <li>Offsets: one entry per run of contiguous samples (normally an stco chunk), plus each
+ *       sample's offset within its run. When every sample has the same size the per-sample array
+ *       is dropped.
+ *   <li>Decode times: stts-style runs of (first sample, first dts, delta).
+ *   <li>Composition offsets: ctts-style runs, or one int per sample when the runs are shorter
+ *       than two samples on average (typical with B-frames).
+ *   <li>Sync samples: a bitset, or nothing when every sample is a sync sample.
+ * </ul>
+ *
+ * <p>Values are recorded from the same walk over stsz/stco/stsc/stts/ctts/stss that fills the
+ * dense arrays, so every accessor returns exactly what the dense table would hold. Timestamps are
+ * raw (track timescale, before edit lists); {@link TrackSampleTable} maps them to microseconds.
+ * Instances are immutable and safe to read from the loading and playback threads.
+ */
+/* package */ final class CompactSampleTable {
+
+  /** Records samples in stbl order. */
+  /* package */ static final class Builder {
+    private final boolean allSync;
+    private int count;
+
+    private int[] segmentFirstSample = new int[16];
+    private long[] segmentOffsets = new long[16];
+    private int[] segmentEnds = new int[16];
+    private int segmentCount;
+    private int[] offsetInSegment;
+    private int commonSize = C.LENGTH_UNSET;
+    private boolean sizesVary;
+
+    private int[] dtsRunFirstSample = new int[4];
+    private long[] dtsRunFirstDts = new long[4];
+    private int[] dtsRunDelta = new int[4];
+    private int dtsRunCount;
+    private long previousDts;
+
+    private int[] ctsRunFirstSample = new int[4];
+    private int[] ctsRunOffset = new int[4];
+    private int ctsRunCount;
+
+    @Nullable private final long[] syncBits;
+
+    /**
+     * @param capacity upper bound on the number of samples
+     * @param allSync whether every sample is a sync sample (no stss)
+     */
+    Builder(int capacity, boolean allSync) {
+      this.allSync = allSync;
+      this.offsetInSegment = new int[capacity];
+      this.syncBits = allSync ? null : new long[(capacity + 63) >>> 6];
+    }
+
+    /** Adds the next sample. {@code dts + ctsOffset} is its raw presentation time. */
+    void add(long offset, int size, long dts, int ctsOffset, boolean isSync) {
+      int i = count++;
+
+      // bytes: start a new segment when not contiguous with the previous sample
+      int end = segmentCount == 0 ? 0 : segmentEnds[segmentCount - 1];
+      long segmentOffset = segmentCount == 0 ? 0 : segmentOffsets[segmentCount - 1];
+      if (segmentCount == 0
+          || offset != segmentOffset + end
+          || (long) end + size > Integer.MAX_VALUE) {
+        if (segmentCount == segmentOffsets.length) {
+          int n = segmentCount * 2;
+          segmentFirstSample = Arrays.copyOf(segmentFirstSample, n);
+          segmentOffsets = Arrays.copyOf(segmentOffsets, n);
+          segmentEnds = Arrays.copyOf(segmentEnds, n);
+        }
+        segmentFirstSample[segmentCount] = i;
+        segmentOffsets[segmentCount] = offset;
+        segmentEnds[segmentCount] = 0;
+        segmentCount++;
+        end = 0;
+      }
+      offsetInSegment[i] = end;
+      segmentEnds[segmentCount - 1] = end + size;
+      if (i == 0) {
+        commonSize = size;
+      } else if (size != commonSize) {
+        sizesVary = true;
+      }
+
+      // decode time: extend the current run while the delta holds
+      if (dtsRunCount > 0 && i - dtsRunFirstSample[dtsRunCount - 1] == 1) {
+        long delta = dts - previousDts;
+        if (delta == (int) delta) {
+          dtsRunDelta[dtsRunCount - 1] = (int) delta;
+        } else {
+          newDtsRun(i, dts);
+        }
+      } else if (dtsRunCount == 0 || dts - previousDts != dtsRunDelta[dtsRunCount - 1]) {
+        newDtsRun(i, dts);
+      }
+      previousDts = dts;
+
+      // composition offset
+      if (ctsRunCount == 0 || ctsRunOffset[ctsRunCount - 1] != ctsOffset) {
+        if (ctsRunCount == ctsRunOffset.length) {
+          ctsRunFirstSample = Arrays.copyOf(ctsRunFirstSample, ctsRunCount * 2);
+          ctsRunOffset = Arrays.copyOf(ctsRunOffset, ctsRunCount * 2);
+        }
+        ctsRunFirstSample[ctsRunCount] = i;
+        ctsRunOffset[ctsRunCount] = ctsOffset;
+        ctsRunCount++;
+      }
+
+      if (isSync && syncBits != null) {
+        syncBits[i >>> 6] |= 1L << (i & 63);
+      }
+    }
+
+    private void newDtsRun(int i, long dts) {
+      if (dtsRunCount == dtsRunDelta.length) {
+        int n = dtsRunCount * 2;
+        dtsRunFirstSample = Arrays.copyOf(dtsRunFirstSample, n);
+        dtsRunFirstDts = Arrays.copyOf(dtsRunFirstDts, n);
+        dtsRunDelta = Arrays.copyOf(dtsRunDelta, n);
+      }
+      dtsRunFirstSample[dtsRunCount] = i;
+      dtsRunFirstDts[dtsRunCount] = dts;
+      dtsRunDelta[dtsRunCount] = 0;
+      dtsRunCount++;
+    }
+
+    int getCount() {
+      return count;
+    }
+
+    CompactSampleTable build() {
+      return new CompactSampleTable(this);
+    }
+  }
+
+  private final int count;
+
+  private final int[] segmentFirstSample;
+  private final long[] segmentOffsets;
+  private final int[] segmentEnds;
+  // null when every sample has fixedSize bytes
+  @Nullable private final int[] offsetInSegment;
+  private final int fixedSize;
+
+  private final int[] dtsRunFirstSample;
+  private final long[] dtsRunFirstDts;
+  private final int[] dtsRunDelta;
+
+  // either runs or one offset per sample
+  @Nullable private final int[] ctsRunFirstSample;
+  @Nullable private final int[] ctsRunOffset;
+  @Nullable private final int[] ctsPerSample;
+
+  // null when every sample is a sync sample
+  @Nullable private final long[] syncBits;
+
+  private CompactSampleTable(Builder b) {
+    count = b.count;
+
+    segmentFirstSample = Arrays.copyOf(b.segmentFirstSample, b.segmentCount);
+    segmentOffsets = Arrays.copyOf(b.segmentOffsets, b.segmentCount);
+    segmentEnds = Arrays.copyOf(b.segmentEnds, b.segmentCount);
+    if (b.sizesVary) {
+      offsetInSegment =
+          b.offsetInSegment.length == count ? b.offsetInSegment : Arrays.copyOf(b.offsetInSegment, count);
+      fixedSize = C.LENGTH_UNSET;
+    } else {
+      offsetInSegment = null;
+      fixedSize = b.commonSize;
+    }
+
+    dtsRunFirstSample = Arrays.copyOf(b.dtsRunFirstSample, b.dtsRunCount);
+    dtsRunFirstDts = Arrays.copyOf(b.dtsRunFirstDts, b.dtsRunCount);
+    dtsRunDelta = Arrays.copyOf(b.dtsRunDelta, b.dtsRunCount);
+
+    if (b.ctsRunCount * 2 > count) {
+      // runs would cost more than a plain int per sample
+      int[] perSample = new int[count];
+      for (int r = 0; r < b.ctsRunCount; r++) {
+        int end = r + 1 < b.ctsRunCount ? b.ctsRunFirstSample[r + 1] : count;
+        Arrays.fill(perSample, b.ctsRunFirstSample[r], end, b.ctsRunOffset[r]);
+      }
+      ctsPerSample = perSample;
+      ctsRunFirstSample = null;
+      ctsRunOffset = null;
+    } else {
+      ctsPerSample = null;
+      ctsRunFirstSample = Arrays.copyOf(b.ctsRunFirstSample, b.ctsRunCount);
+      ctsRunOffset = Arrays.copyOf(b.ctsRunOffset, b.ctsRunCount);
+    }
+
+    syncBits = b.syncBits;
+  }
+
+  private CompactSampleTable(DataInput in) throws IOException {
+    count = in.readInt();
+    segmentFirstSample = readInts(in);
+    segmentOffsets = readLongs(in);
+    segmentEnds = readInts(in);
+    offsetInSegment = readInts(in);
+    fixedSize = in.readInt();
+    dtsRunFirstSample = readInts(in);
+    dtsRunFirstDts = readLongs(in);
+    dtsRunDelta = readInts(in);
+    ctsRunFirstSample = readInts(in);
+    ctsRunOffset = readInts(in);
+    ctsPerSample = readInts(in);
+    syncBits = readLongs(in);
+    if (segmentFirstSample == null
+        || segmentOffsets == null
+        || segmentEnds == null
+        || dtsRunFirstSample == null
+        || dtsRunFirstDts == null
+        || dtsRunDelta == null
+        || (ctsPerSample == null && (ctsRunFirstSample == null || ctsRunOffset == null))) {
+      throw new IOException("Malformed compact sample table");
+    }
+  }
+
+  /** Writes the table in the form {@link #readFrom} restores. */
+  /* package */ void writeTo(DataOutput out) throws IOException {
+    out.writeInt(count);
+    writeInts(out, segmentFirstSample);
+    writeLongs(out, segmentOffsets);
+    writeInts(out, segmentEnds);
+    writeInts(out, offsetInSegment);
+    out.writeInt(fixedSize);
+    writeInts(out, dtsRunFirstSample);
+    writeLongs(out, dtsRunFirstDts);
+    writeInts(out, dtsRunDelta);
+    writeInts(out, ctsRunFirstSample);
+    writeInts(out, ctsRunOffset);
+    writeInts(out, ctsPerSample);
+    writeLongs(out, syncBits);
+  }
+
+  /* package */ static CompactSampleTable readFrom(DataInput in) throws IOException {
+    return new CompactSampleTable(in);
+  }
+
+  /** Number of samples. */
+  public int getCount() {
+    return count;
+  }
+
+  /** Byte offset of sample {@code i}. */
+  public long getOffset(int i) {
+    int s = runIndex(segmentFirstSample, i);
+    long inSegment =
+        offsetInSegment != null ? offsetInSegment[i] : (long) (i - segmentFirstSample[s]) * fixedSize;
+    return segmentOffsets[s] + inSegment;
+  }
+
+  /** Size of sample {@code i} in bytes. */
+  public int getSize(int i) {
+    if (offsetInSegment == null) {
+      return fixedSize;
+    }
+    int s = runIndex(segmentFirstSample, i);
+    int end =
+        (s + 1 < segmentFirstSample.length && segmentFirstSample[s + 1] == i + 1) || i + 1 == count
+            ? segmentEnds[s]
+            : offsetInSegment[i + 1];
+    return end - offsetInSegment[i];
+  }
+
+  /** Raw presentation time of sample {@code i}, in track timescale units. */
+  public long getTimestamp(int i) {
+    int r = runIndex(dtsRunFirstSample, i);
+    long dts = dtsRunFirstDts[r] + (long) (i - dtsRunFirstSample[r]) * dtsRunDelta[r];
+    int cts;
+    if (ctsPerSample != null) {
+      cts = ctsPerSample[i];
+    } else {
+      cts = ctsRunOffset[runIndex(ctsRunFirstSample, i)];
+    }
+    return dts + cts;
+  }
+
+  public boolean isSync(int i) {
+    return syncBits == null || (syncBits[i >>> 6] & (1L << (i & 63))) != 0;
+  }
+
+  /** Approximate heap held by this table, for logging. */
+  public long getHeapBytes() {
+    return 4L * segmentFirstSample.length
+        + 8L * segmentOffsets.length
+        + 4L * segmentEnds.length
+        + (offsetInSegment != null ? 4L * offsetInSegment.length : 0)
+        + 16L * dtsRunFirstSample.length
+        + (ctsPerSample != null ? 4L * ctsPerSample.length : 8L * lengthOf(ctsRunOffset))
+        + (syncBits != null ? 8L * syncBits.length : 0);
+  }
+
+  /** Heap the dense arrays of {@link TrackSampleTable} would hold for {@code samples} samples. */
+  public static long getDenseHeapBytes(int samples) {
+    // long offset, int size, long timestamp, int flags
+    return 24L * samples;
+  }
+
+  private static int lengthOf(@Nullable int[] a) {
+    return a == null ? 0 : a.length;
+  }
+
+  private static void writeInts(DataOutput out, @Nullable int[] a) throws IOException {
+    out.writeInt(a == null ? -1 : a.length);
+    if (a != null) {
+      for (int v : a) {
+        out.writeInt(v);
+      }
+    }
+  }
+
+  private static void writeLongs(DataOutput out, @Nullable long[] a) throws IOException {
+    out.writeInt(a == null ? -1 : a.length);
+    if (a != null) {
+      for (long v : a) {
+        out.writeLong(v);
+      }
+    }
+  }
+
+  @Nullable
+  private static int[] readInts(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    int[] a = new int[length];
+    for (int i = 0; i < length; i++) {
+      a[i] = in.readInt();
+    }
+    return a;
+  }
+
+  @Nullable
+  private static long[] readLongs(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    long[] a = new long[length];
+    for (int i = 0; i < length; i++) {
+      a[i] = in.readLong();
+    }
+    return a;
+  }
+
+  /** Index of the run containing sample {@code i}, given the runs' first samples in order. */
+  private static int runIndex(int[] runFirstSample, int i) {
+    int r = Arrays.binarySearch(runFirstSample, i);
+    return r >= 0 ? r : -r - 2;
+  }
+
+  // The binary searches below mirror Util.binarySearchFloor/Ceil over Arrays.binarySearch, probe
+  // for probe, so they give the same answer as the dense table even where timestamps are not
+  // sorted (ctts reordering).
+
+  /* package */ static int binarySearchFloor(
+      IntToLongFunction values, int length, long value, boolean inclusive, boolean stayInBounds) {
+    int index = binarySearch(values, length, value);
+    if (index < 0) {
+      index = -(index + 2);
+    } else {
+      while (--index >= 0 && values.applyAsLong(index) == value) {}
+      if (inclusive) {
+        index++;
+      }
+    }
+    return stayInBounds ? Math.max(0, index) : index;
+  }
+
+  /* package */ static int binarySearchCeil(
+      IntToLongFunction values, int length, long value, boolean inclusive, boolean stayInBounds) {
+    int index = binarySearch(values, length, value);
+    if (index < 0) {
+      index = ~index;
+    } else {
+      while (++index < length && values.applyAsLong(index) == value) {}
+      if (inclusive) {
+        index--;
+      }
+    }
+    return stayInBounds ? Math.min(length - 1, index) : index;
+  }
+
+  /** {@link Arrays#binarySearch(long[], long)} over an accessor. */
+  private static int binarySearch(IntToLongFunction values, int length, long key) {
+    int low = 0;
+    int high = length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midVal = values.applyAsLong(mid);
+      if (midVal < key) {
+        low = mid + 1;
+      } else if (midVal > key) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+}
@@ -34,6 +34,7 @@ import com.google.android.exoplayer2.drm.DrmInitData;
 import com.google.android.exoplayer2.drm.DrmInitData.SchemeData;
 import com.google.android.exoplayer2.extractor.CeaUtil;
 import com.google.android.exoplayer2.extractor.ChunkIndex;
+import com.google.android.exoplayer2.extractor.DefaultExtractorInput;
 import com.google.android.exoplayer2.extractor.Extractor;
 import com.google.android.exoplayer2.extractor.ExtractorInput;
 import com.google.android.exoplayer2.extractor.ExtractorOutput;
@@ -46,6 +47,7 @@ import com.google.android.exoplayer2.extractor.mp4.Track;
 import com.google.android.exoplayer2.extractor.mp4.TrackEncryptionBox;
 import com.google.android.exoplayer2.metadata.emsg.EventMessage;
 import com.google.android.exoplayer2.metadata.emsg.EventMessageEncoder;
+import com.google.android.exoplayer2.upstream.DataReader;
 import com.google.android.exoplayer2.util.Log;
 import com.google.android.exoplayer2.util.MimeTypes;
 import com.google.android.exoplayer2.util.NalUnitUtil;
@@ -63,6 +65,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.IntFunction;
 
 /**
  * Extracts data from the FMP4 container format.
@@ -135,9 +138,18 @@ public class FragmentedMp4Extractor implements Extractor {
   private static final int STATE_READING_ENCRYPTION_DATA = 2;
   private static final int STATE_READING_SAMPLE_START = 3;
   private static final int STATE_READING_SAMPLE_CONTINUE = 4;
+  private static final int STATE_READING_MFRA = 5;
+
+  // Fragment random access index (mfra), located through the mfro box that ends the file.
+  private static final int MFRO_SIZE = 16;
+  private static final int MAX_MFRA_SIZE = 16 * 1024 * 1024;
+
+  // Upper bound on the bytes buffered by fragment read-ahead.
+  private static final int MAX_READ_AHEAD_BYTES = 32 * 1024 * 1024;
 
   // Workarounds.
   private final @Flags int flags;
+  private final int readAheadFragments;
   @Nullable private final Track sideloadedTrack;
 
   // Sideloaded data.
@@ -189,6 +201,18 @@ public class FragmentedMp4Extractor implements Extractor {
   // Whether extractorOutput.seekMap has been called.
   private boolean haveOutputSeekMap;
 
+  // mfra lookup, done once before the first fragment when the stream has no sidx.
+  private boolean mfraLookupDone;
+  private long mfraResumePosition;
+  private int mfraSize;
+
+  // Fragments read ahead of the parser in one sequential read, consumed before the input.
+  @Nullable private ExtractorInput readAheadInput;
+  private long readAheadEndPosition;
+  private long lastMoofSize;
+  // Reused from one read-ahead to the next; only grown, so the extractor holds at most one.
+  private byte[] readAheadBuffer;
+
   public FragmentedMp4Extractor() {
     this(0);
   }
@@ -200,6 +224,21 @@ public class FragmentedMp4Extractor implements Extractor {
     this(flags, /* timestampAdjuster= */ null);
   }
 
+  /**
+   * @param flags Flags that control the extractor's behavior.
+   * @param readAheadFragments How many fragments (moof and mdat) to read ahead of the parser in a
+   *     single sequential read when a mdat is reached, or 0 to read in place.
+   */
+  public FragmentedMp4Extractor(@Flags int flags, int readAheadFragments) {
+    this(
+        flags,
+        /* timestampAdjuster= */ null,
+        /* sideloadedTrack= */ null,
+        Collections.emptyList(),
+        /* additionalEmsgTrackOutput= */ null,
+        readAheadFragments);
+  }
+
   /**
    * @param flags Flags that control the extractor's behavior.
    * @param timestampAdjuster Adjusts sample timestamps. May be null if no adjustment is needed.
@@ -259,7 +298,37 @@ public class FragmentedMp4Extractor implements Extractor {
       @Nullable Track sideloadedTrack,
       List<Format> closedCaptionFormats,
       @Nullable TrackOutput additionalEmsgTrackOutput) {
+    this(
+        flags,
+        timestampAdjuster,
+        sideloadedTrack,
+        closedCaptionFormats,
+        additionalEmsgTrackOutput,
+        /* readAheadFragments= */ 0);
+  }
+
+  /**
+   * @param flags Flags that control the extractor's behavior.
+   * @param timestampAdjuster Adjusts sample timestamps. May be null if no adjustment is needed.
+   * @param sideloadedTrack Sideloaded track information, in the case that the extractor will not
+   *     receive a moov box in the input data. Null if a moov box is expected.
+   * @param closedCaptionFormats For tracks that contain SEI messages, the formats of the closed
+   *     caption channels to expose.
+   * @param additionalEmsgTrackOutput An extra track output that will receive all emsg messages
+   *     targeting the player, even if {@link #FLAG_ENABLE_EMSG_TRACK} is not set. Null if special
+   *     handling of emsg messages for players is not required.
+   * @param readAheadFragments How many fragments (moof and mdat) to read ahead of the parser in a
+   *     single sequential read when a mdat is reached, or 0 to read in place.
+   */
+  public FragmentedMp4Extractor(
+      @Flags int flags,
+      @Nullable TimestampAdjuster timestampAdjuster,
+      @Nullable Track sideloadedTrack,
+      List<Format> closedCaptionFormats,
+      @Nullable TrackOutput additionalEmsgTrackOutput,
+      int readAheadFragments) {
     this.flags = flags;
+    this.readAheadFragments = readAheadFragments;
     this.timestampAdjuster = timestampAdjuster;
     this.sideloadedTrack = sideloadedTrack;
     this.closedCaptionFormats = Collections.unmodifiableList(closedCaptionFormats);
@@ -270,6 +339,7 @@ public class FragmentedMp4Extractor implements Extractor {
     nalPrefix = new ParsableByteArray(5);
     nalBuffer = new ParsableByteArray();
     scratchBytes = new byte[16];
+    readAheadBuffer = Util.EMPTY_BYTE_ARRAY;
     scratch = new ParsableByteArray(scratchBytes);
     containerAtoms = new ArrayDeque<>();
     pendingMetadataSampleInfos = new ArrayDeque<>();
@@ -324,31 +394,40 @@ public class FragmentedMp4Extractor implements Extractor {
     pendingMetadataSampleBytes = 0;
     pendingSeekTimeUs = timeUs;
     containerAtoms.clear();
+    readAheadInput = null;
     enterReadingAtomHeaderState();
   }
 
   @Override
   public void release() {
-    // Do nothing
+    readAheadInput = null;
+    readAheadBuffer = Util.EMPTY_BYTE_ARRAY;
   }
 
   @Override
   public int read(ExtractorInput input, PositionHolder seekPosition) throws IOException {
     while (true) {
+      if (readAheadInput != null && readAheadInput.getPosition() >= readAheadEndPosition) {
+        // The read-ahead ends on an atom boundary; carry on from the input.
+        readAheadInput = null;
+      }
+      ExtractorInput source = readAheadInput != null ? readAheadInput : input;
       switch (parserState) {
         case STATE_READING_ATOM_HEADER:
-          if (!readAtomHeader(input)) {
+          if (!readAtomHeader(source)) {
             return Extractor.RESULT_END_OF_INPUT;
           }
           break;
         case STATE_READING_ATOM_PAYLOAD:
-          readAtomPayload(input);
+          readAtomPayload(source);
           break;
         case STATE_READING_ENCRYPTION_DATA:
-          readEncryptionData(input);
+          readEncryptionData(source);
           break;
+        case STATE_READING_MFRA:
+          return readMfra(input, seekPosition);
         default:
-          if (readSample(input)) {
+          if (readSample(source)) {
             return RESULT_CONTINUE;
           }
       }
@@ -397,6 +476,17 @@ public class FragmentedMp4Extractor implements Extractor {
 
     long atomPosition = input.getPosition() - atomHeaderBytesRead;
     if (atomType == Atom.TYPE_moof || atomType == Atom.TYPE_mdat) {
+      if (!haveOutputSeekMap
+          && !mfraLookupDone
+          && sideloadedTrack == null
+          && input.getLength() != C.LENGTH_UNSET) {
+        // No sidx so far in a progressive file. Look for an mfra at its end, then come back here.
+        mfraLookupDone = true;
+        mfraResumePosition = atomPosition;
+        mfraSize = 0;
+        parserState = STATE_READING_MFRA;
+        return true;
+      }
       if (!haveOutputSeekMap) {
         // This must be the first moof or mdat in the stream.
         extractorOutput.seekMap(new SeekMap.Unseekable(durationUs, atomPosition));
@@ -405,6 +495,7 @@ public class FragmentedMp4Extractor implements Extractor {
     }
 
     if (atomType == Atom.TYPE_moof) {
+      lastMoofSize = atomSize;
       // The data positions may be updated when parsing the tfhd/trun.
       int trackCount = trackBundles.size();
       for (int i = 0; i < trackCount; i++) {
@@ -418,6 +509,9 @@ public class FragmentedMp4Extractor implements Extractor {
     if (atomType == Atom.TYPE_mdat) {
       currentTrackBundle = null;
       endOfMdatPosition = atomPosition + atomSize;
+      if (readAheadFragments > 0 && readAheadInput == null && atomSize != atomHeaderBytesRead) {
+        maybeStartReadAhead(input, atomSize);
+      }
       parserState = STATE_READING_ENCRYPTION_DATA;
       return true;
     }
@@ -456,6 +550,256 @@ public class FragmentedMp4Extractor implements Extractor {
     return true;
   }
 
+  /**
+   * Reads the rest of the current mdat, plus up to {@code readAheadFragments - 1} following
+   * fragments, in one sequential read. The parser then reads from that buffer until it is used up.
+   * The buffered region always ends on an atom boundary, so no read straddles it.
+   */
+  private void maybeStartReadAhead(ExtractorInput input, long mdatSize) throws IOException {
+    long start = input.getPosition();
+    long remaining = endOfMdatPosition - start;
+    long budget = remaining + (readAheadFragments - 1) * (lastMoofSize + mdatSize);
+    long length = input.getLength();
+    if (length != C.LENGTH_UNSET) {
+      budget = Math.min(budget, length - start);
+    }
+    budget = Math.min(budget, MAX_READ_AHEAD_BYTES);
+    if (remaining <= 0 || remaining > budget) {
+      return;
+    }
+    if (readAheadBuffer.length < budget) {
+      // The previous read-ahead has been consumed (or dropped by a seek) before this one starts.
+      readAheadBuffer = new byte[(int) budget];
+    }
+    byte[] buffer = readAheadBuffer;
+    int filled =
+        fillReadAhead(
+            input, buffer, (int) remaining, (int) budget, readAheadFragments, scratch);
+
+    readAheadInput =
+        new DefaultExtractorInput(new ByteArrayReader(buffer, filled), start, length);
+    readAheadEndPosition = start + filled;
+  }
+
+  /**
+   * Reads the first {@code remaining} bytes (the rest of the current mdat) into {@code buffer},
+   * then whole atoms for as long as each fits within {@code budget} bytes and fewer than {@code
+   * maxFragments} mdats have been taken. Returns the number of bytes read, which always ends on an
+   * atom boundary.
+   *
+   * @param scratch At least 16 bytes of scratch space for peeking atom headers.
+   */
+  /* package */ static int fillReadAhead(
+      ExtractorInput input,
+      byte[] buffer,
+      int remaining,
+      int budget,
+      int maxFragments,
+      ParsableByteArray scratch)
+      throws IOException {
+    input.readFully(buffer, 0, remaining);
+    int filled = remaining;
+    byte[] scratchBytes = scratch.getData();
+
+    int fragments = 1;
+    while (fragments < maxFragments) {
+      // Take the next atom whole if it fits, deciding from its peeked header.
+      if (!input.peekFully(scratchBytes, 0, Atom.HEADER_SIZE, /* allowEndOfInput= */ true)) {
+        break;
+      }
+      scratch.setPosition(0);
+      long size = scratch.readUnsignedInt();
+      int type = scratch.readInt();
+      if (size == 1) {
+        input.peekFully(scratchBytes, Atom.HEADER_SIZE, Atom.HEADER_SIZE);
+        scratch.setPosition(Atom.HEADER_SIZE);
+        size = scratch.readUnsignedLongToLong();
+      }
+      input.resetPeekPosition();
+      if (size < Atom.HEADER_SIZE || size > budget - filled) {
+        break;
+      }
+      input.readFully(buffer, filled, (int) size);
+      filled += (int) size;
+      if (type == Atom.TYPE_mdat) {
+        fragments++;
+      }
+    }
+    return filled;
+  }
+
+  /** Serves the bytes of a read-ahead buffer. */
+  private static final class ByteArrayReader implements DataReader {
+    private final byte[] data;
+    private final int limit;
+    private int position;
+
+    ByteArrayReader(byte[] data, int limit) {
+      this.data = data;
+      this.limit = limit;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) {
+      if (position == limit) {
+        return C.RESULT_END_OF_INPUT;
+      }
+      int bytesRead = Math.min(length, limit - position);
+      System.arraycopy(data, position, target, offset, bytesRead);
+      position += bytesRead;
+      return bytesRead;
+    }
+  }
+
+  /**
+   * Reads the mfro at the end of the file and then the mfra it points to, outputs the seek map
+   * built from it (or an unseekable one), and seeks back to the first fragment.
+   */
+  private int readMfra(ExtractorInput input, PositionHolder seekPosition) throws IOException {
+    long length = input.getLength();
+    if (mfraSize == 0) {
+      if (input.getPosition() != length - MFRO_SIZE) {
+        seekPosition.position = length - MFRO_SIZE;
+        return RESULT_SEEK;
+      }
+      scratch.reset(MFRO_SIZE);
+      input.readFully(scratch.getData(), 0, MFRO_SIZE);
+      long mfroSize = scratch.readUnsignedInt();
+      int mfroType = scratch.readInt();
+      scratch.skipBytes(4); // version and flags
+      long size = scratch.readUnsignedInt();
+      if (mfroSize != MFRO_SIZE
+          || mfroType != Atom.TYPE_mfro
+          || size < Atom.HEADER_SIZE + MFRO_SIZE
+          || size > Math.min(MAX_MFRA_SIZE, length)) {
+        return endMfraLookup(/* index= */ null, seekPosition);
+      }
+      mfraSize = (int) size;
+      seekPosition.position = length - mfraSize;
+      return RESULT_SEEK;
+    }
+    ParsableByteArray mfra = new ParsableByteArray(mfraSize);
+    input.readFully(mfra.getData(), 0, mfraSize);
+    @Nullable
+    ChunkIndex index =
+        parseMfra(
+            mfra,
+            length - mfraSize,
+            durationUs,
+            trackId -> {
+              @Nullable TrackBundle bundle = trackBundles.get(trackId);
+              return bundle != null ? bundle.moovSampleTable.track : null;
+            });
+    return endMfraLookup(index, seekPosition);
+  }
+
+  private int endMfraLookup(@Nullable ChunkIndex index, PositionHolder seekPosition) {
+    if (index != null) {
+      Log.d(TAG, "Seeking from mfra, " + index.length + " fragments");
+    }
+    extractorOutput.seekMap(
+        index != null ? index : new SeekMap.Unseekable(durationUs, mfraResumePosition));
+    haveOutputSeekMap = true;
+    enterReadingAtomHeaderState();
+    seekPosition.position = mfraResumePosition;
+    return RESULT_SEEK;
+  }
+
+  /**
+   * Builds a chunk index from the tfra of the first video track in {@code mfra}, or of the first
+   * track with a tfra if there is no video. Returns null if there is no usable tfra.
+   *
+   * @param mfra The mfra atom.
+   * @param fragmentsEndPosition The position at which the last fragment ends.
+   * @param durationUs The duration of the stream, or {@link C#TIME_UNSET} if unknown.
+   * @param tracks Returns the track with a given id, or null if there is none.
+   */
+  @Nullable
+  /* package */ static ChunkIndex parseMfra(
+      ParsableByteArray mfra,
+      long fragmentsEndPosition,
+      long durationUs,
+      IntFunction<Track> tracks) {
+    if (mfra.readInt() != mfra.limit() || mfra.readInt() != Atom.TYPE_mfra) {
+      return null;
+    }
+    @Nullable long[] timesUs = null;
+    @Nullable long[] offsets = null;
+    boolean isVideo = false;
+    while (mfra.bytesLeft() >= Atom.HEADER_SIZE) {
+      int atomStart = mfra.getPosition();
+      long atomSize = mfra.readUnsignedInt();
+      int atomType = mfra.readInt();
+      if (atomSize < Atom.HEADER_SIZE || atomSize > mfra.limit() - atomStart) {
+        break;
+      }
+      if (atomType == Atom.TYPE_tfra && atomSize >= Atom.FULL_HEADER_SIZE + 12) {
+        int version = Atom.parseFullAtomVersion(mfra.readInt());
+        @Nullable Track track = tracks.apply(mfra.readInt());
+        if (track != null && (timesUs == null || (!isVideo && isVideoTrack(track)))) {
+          int lengths = mfra.readInt();
+          int entryTailBytes =
+              ((lengths >> 4) & 3) + 1 + ((lengths >> 2) & 3) + 1 + (lengths & 3) + 1;
+          long entryCount = mfra.readUnsignedInt();
+          // The count comes from the file: it has to fit in the atom before anything is sized by it.
+          int entryBytes = (version == 1 ? 16 : 8) + entryTailBytes;
+          if (entryCount > (atomStart + atomSize - mfra.getPosition()) / entryBytes) {
+            return null;
+          }
+          long timescale = track.timescale;
+          long[] entryTimesUs = new long[(int) entryCount];
+          long[] entryOffsets = new long[(int) entryCount];
+          int count = 0;
+          for (int i = 0; i < entryCount; i++) {
+            long time = version == 1 ? mfra.readUnsignedLongToLong() : mfra.readUnsignedInt();
+            long offset = version == 1 ? mfra.readUnsignedLongToLong() : mfra.readUnsignedInt();
+            mfra.skipBytes(entryTailBytes);
+            // One entry per fragment: several sync samples in a fragment share its offset.
+            if (count > 0 && offset == entryOffsets[count - 1]) {
+              continue;
+            }
+            if (count > 0 && offset < entryOffsets[count - 1]) {
+              return null;
+            }
+            entryTimesUs[count] = Util.scaleLargeTimestamp(time, C.MICROS_PER_SECOND, timescale);
+            entryOffsets[count] = offset;
+            count++;
+          }
+          if (count > 0) {
+            timesUs = Arrays.copyOf(entryTimesUs, count);
+            offsets = Arrays.copyOf(entryOffsets, count);
+            isVideo = isVideoTrack(track);
+          }
+        }
+      }
+      mfra.setPosition(atomStart + (int) atomSize);
+    }
+    if (timesUs == null || offsets == null) {
+      return null;
+    }
+
+    int count = timesUs.length;
+    int[] sizes = new int[count];
+    long[] durationsUs = new long[count];
+    for (int i = 0; i < count; i++) {
+      long end = i + 1 < count ? offsets[i + 1] : fragmentsEndPosition;
+      if (end - offsets[i] > Integer.MAX_VALUE || end < offsets[i]) {
+        return null;
+      }
+      sizes[i] = (int) (end - offsets[i]);
+      long endTimeUs =
+          i + 1 < count
+              ? timesUs[i + 1]
+              : (durationUs != C.TIME_UNSET ? durationUs : timesUs[i]);
+      durationsUs[i] = max(0, endTimeUs - timesUs[i]);
+    }
+    return new ChunkIndex(sizes, offsets, durationsUs, timesUs);
+  }
+
+  private static boolean isVideoTrack(Track track) {
+    return track.type == C.TRACK_TYPE_VIDEO;
+  }
+
   private void readAtomPayload(ExtractorInput input) throws IOException {
     int atomPayloadSize = (int) atomSize - atomHeaderBytesRead;
     @Nullable ParsableByteArray atomData = this.atomData;
@@ -1723,21 +2067,21 @@ public class FragmentedMp4Extractor implements Extractor {
     /** Returns the presentation time of the current sample in microseconds. */
     public long getCurrentSamplePresentationTimeUs() {
       return !currentlyInFragment
-          ? moovSampleTable.timestampsUs[currentSampleIndex]
+          ? moovSampleTable.getTimestampUs(currentSampleIndex)
           : fragment.getSamplePresentationTimeUs(currentSampleIndex);
     }
 
     /** Returns the byte offset of the current sample. */
     public long getCurrentSampleOffset() {
       return !currentlyInFragment
-          ? moovSampleTable.offsets[currentSampleIndex]
+          ? moovSampleTable.getOffset(currentSampleIndex)
           : fragment.trunDataPosition[currentTrackRunIndex];
     }
 
     /** Returns the size of the current sample in bytes. */
     public int getCurrentSampleSize() {
       return !currentlyInFragment
-          ? moovSampleTable.sizes[currentSampleIndex]
+          ? moovSampleTable.getSize(currentSampleIndex)
           : fragment.sampleSizeTable[currentSampleIndex];
     }
 
@@ -1745,7 +2089,7 @@ public class FragmentedMp4Extractor implements Extractor {
     public @C.BufferFlags int getCurrentSampleFlags() {
       int flags =
           !currentlyInFragment
-              ? moovSampleTable.flags[currentSampleIndex]
+              ? moovSampleTable.getFlags(currentSampleIndex)
               : (fragment.sampleIsSyncFrameTable[currentSampleIndex] ? C.BUFFER_FLAG_KEY_FRAME : 0);
       if (getEncryptionBoxIfEncrypted() != null) {
         flags |= C.BUFFER_FLAG_ENCRYPTED;
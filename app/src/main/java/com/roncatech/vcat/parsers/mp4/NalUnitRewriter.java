@@ -0,0 +1,171 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.parsers.mp4;
+
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.ParserException;
+import com.google.android.exoplayer2.util.MimeTypes;
+
+/**
+ * Rewrites a whole length-prefixed sample (each NAL unit preceded by a 1, 2 or 4 byte big-endian
+ * length) into Annex-B form, where each NAL unit is preceded by a 4 byte start code. The rewrite
+ * collects the NAL unit types it passes as a bitmask (bit {@code n} for type {@code n}), read from
+ * the H.264 or HEVC NAL unit header; other codecs (VVC, Dolby Vision) report 0.
+ */
+/* package */ final class NalUnitRewriter {
+
+  /** NAL unit types are not collected. */
+  public static final int NAL_HEADER_NONE = 0;
+  /** H.264 NAL unit header: type in the low 5 bits of the first byte. */
+  public static final int NAL_HEADER_H264 = 1;
+  /** HEVC NAL unit header: type in bits 1-6 of the first byte. */
+  public static final int NAL_HEADER_H265 = 2;
+
+  private NalUnitRewriter() {}
+
+  /** Returns the NAL unit header layout of {@code sampleMimeType}. */
+  public static int nalHeaderOf(@Nullable String sampleMimeType) {
+    if (MimeTypes.VIDEO_H264.equals(sampleMimeType)) {
+      return NAL_HEADER_H264;
+    } else if (MimeTypes.VIDEO_H265.equals(sampleMimeType)) {
+      return NAL_HEADER_H265;
+    }
+    return NAL_HEADER_NONE;
+  }
+
+  /**
+   * Replaces the 4 byte lengths of {@code data[0, length)} with start codes in place.
+   *
+   * @param nalHeader The NAL unit header layout, see {@link #nalHeaderOf}.
+   * @return The NAL unit types seen.
+   * @throws ParserException If a NAL unit length runs past the end of the sample.
+   */
+  public static long rewriteInPlace(byte[] data, int length, int nalHeader)
+      throws ParserException {
+    long nalTypes = 0;
+    int position = 0;
+    while (position < length) {
+      int nalLength = readLength(data, position, length, /* lengthFieldLength= */ 4);
+      data[position] = 0;
+      data[position + 1] = 0;
+      data[position + 2] = 0;
+      data[position + 3] = 1;
+      if (nalLength > 0) {
+        nalTypes |= nalTypeBit(data[position + 4], nalHeader);
+      }
+      position += 4 + nalLength;
+    }
+    return nalTypes;
+  }
+
+  /**
+   * Returns the size of {@code data[0, length)} once its {@code lengthFieldLength} byte lengths are
+   * replaced with 4 byte start codes.
+   *
+   * @throws ParserException If a NAL unit length runs past the end of the sample.
+   */
+  public static int expandedSize(byte[] data, int length, int lengthFieldLength)
+      throws ParserException {
+    int position = 0;
+    int nalCount = 0;
+    while (position < length) {
+      position += lengthFieldLength + readLength(data, position, length, lengthFieldLength);
+      nalCount++;
+    }
+    return length + nalCount * (4 - lengthFieldLength);
+  }
+
+  /**
+   * Copies {@code source[0, length)} into {@code target}, replacing each {@code lengthFieldLength}
+   * byte length with a start code. {@code target} must hold {@link #expandedSize} bytes; the sample
+   * must already have been validated by that call.
+   *
+   * @return The NAL unit types seen.
+   */
+  public static long expand(
+      byte[] source, int length, int lengthFieldLength, byte[] target, int nalHeader) {
+    long nalTypes = 0;
+    int read = 0;
+    int written = 0;
+    while (read < length) {
+      int nalLength = 0;
+      for (int i = 0; i < lengthFieldLength; i++) {
+        nalLength = (nalLength << 8) | (source[read + i] & 0xFF);
+      }
+      read += lengthFieldLength;
+      target[written] = 0;
+      target[written + 1] = 0;
+      target[written + 2] = 0;
+      target[written + 3] = 1;
+      written += 4;
+      if (nalLength > 0) {
+        nalTypes |= nalTypeBit(source[read], nalHeader);
+      }
+      System.arraycopy(source, read, target, written, nalLength);
+      read += nalLength;
+      written += nalLength;
+    }
+    return nalTypes;
+  }
+
+  /**
+   * Returns the bitmask bit for the NAL unit whose first header byte is {@code header}, or 0 for
+   * {@link #NAL_HEADER_NONE}.
+   */
+  public static long nalTypeBit(byte header, int nalHeader) {
+    switch (nalHeader) {
+      case NAL_HEADER_H264:
+        return 1L << (header & 0x1F);
+      case NAL_HEADER_H265:
+        return 1L << ((header >> 1) & 0x3F);
+      default:
+        return 0;
+    }
+  }
+
+  private static int readLength(byte[] data, int position, int limit, int lengthFieldLength)
+      throws ParserException {
+    if (limit - position < lengthFieldLength) {
+      throw ParserException.createForMalformedContainer(
+          "Truncated NAL length", /* cause= */ null);
+    }
+    long nalLength = 0;
+    for (int i = 0; i < lengthFieldLength; i++) {
+      nalLength = (nalLength << 8) | (data[position + i] & 0xFF);
+    }
+    if (nalLength > limit - position - lengthFieldLength) {
+      throw ParserException.createForMalformedContainer("Invalid NAL length", /* cause= */ null);
+    }
+    return (int) nalLength;
+  }
+}
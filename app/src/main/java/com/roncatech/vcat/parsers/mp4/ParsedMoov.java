@@ -0,0 +1,536 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.parsers.mp4;
+
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.container.CreationTime;
+import com.google.android.exoplayer2.container.Mp4LocationData;
+import com.google.android.exoplayer2.extractor.mp4.Track;
+import com.google.android.exoplayer2.metadata.Metadata;
+import com.google.android.exoplayer2.metadata.id3.ApicFrame;
+import com.google.android.exoplayer2.metadata.id3.CommentFrame;
+import com.google.android.exoplayer2.metadata.id3.InternalFrame;
+import com.google.android.exoplayer2.metadata.id3.TextInformationFrame;
+import com.google.android.exoplayer2.metadata.mp4.MdtaMetadataEntry;
+import com.google.android.exoplayer2.metadata.mp4.SlowMotionData;
+import com.google.android.exoplayer2.metadata.mp4.SmtaMetadataEntry;
+import com.google.android.exoplayer2.video.ColorInfo;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What {@link VcatMp4Extractor} derives from a moov atom: the tracks it outputs, each with the
+ * format it emits and its sample table, plus the overall duration. This is the unit {@link
+ * ParsedMoovCache} stores, so a cached file can start reading samples without reading its moov.
+ *
+ * <p>Formats are written field by field rather than as a marshalled {@code Parcel}, whose layout
+ * is private to the platform release that wrote it. The same goes for the container metadata on a
+ * format (udta, mdta, mvhd, ...): the entry types {@link MetadataUtil} and {@link AtomParsers}
+ * produce are written field by field, and a track with any other entry is not cached.
+ */
+/* package */ final class ParsedMoov {
+
+  /** One output track. */
+  /* package */ static final class TrackEntry {
+    /** The id the track was output with. */
+    public final int id;
+
+    public final Track track;
+    /** The format emitted on the track's output. */
+    public final Format format;
+
+    public final TrackSampleTable sampleTable;
+
+    public TrackEntry(int id, Track track, Format format, TrackSampleTable sampleTable) {
+      this.id = id;
+      this.track = track;
+      this.format = format;
+      this.sampleTable = sampleTable;
+    }
+  }
+
+  public final List<TrackEntry> tracks;
+  public final long durationUs;
+
+  public ParsedMoov(List<TrackEntry> tracks, long durationUs) {
+    this.tracks = Collections.unmodifiableList(tracks);
+    this.durationUs = durationUs;
+  }
+
+  /**
+   * Whether the tracks can be written. Encrypted tracks, and tracks with a metadata entry of a type
+   * {@link #writeFormat} does not know, are not cached.
+   */
+  public boolean isCacheable() {
+    for (TrackEntry entry : tracks) {
+      if (entry.format.drmInitData != null) {
+        return false;
+      }
+      @Nullable Metadata metadata = entry.format.metadata;
+      if (metadata != null) {
+        for (int i = 0; i < metadata.length(); i++) {
+          if (entryType(metadata.get(i)) == ENTRY_UNKNOWN) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /* package */ void writeTo(DataOutput out) throws IOException {
+    out.writeLong(durationUs);
+    out.writeInt(tracks.size());
+    for (TrackEntry entry : tracks) {
+      Track track = entry.track;
+      out.writeInt(entry.id);
+      out.writeInt(track.id);
+      out.writeInt(track.type);
+      out.writeLong(track.timescale);
+      out.writeLong(track.movieTimescale);
+      out.writeLong(track.durationUs);
+      out.writeInt(track.sampleTransformation);
+      out.writeInt(track.nalUnitLengthFieldLength);
+      writeLongs(out, track.editListDurations);
+      writeLongs(out, track.editListMediaTimes);
+      writeFormat(out, entry.format);
+      entry.sampleTable.writeTo(out);
+    }
+  }
+
+  /* package */ static ParsedMoov readFrom(DataInput in) throws IOException {
+    long durationUs = in.readLong();
+    int trackCount = in.readInt();
+    if (trackCount < 0) {
+      throw new IOException("Malformed track count");
+    }
+    List<TrackEntry> tracks = new ArrayList<>(trackCount);
+    for (int i = 0; i < trackCount; i++) {
+      int outputId = in.readInt();
+      int id = in.readInt();
+      int type = in.readInt();
+      long timescale = in.readLong();
+      long movieTimescale = in.readLong();
+      long trackDurationUs = in.readLong();
+      int sampleTransformation = in.readInt();
+      int nalUnitLengthFieldLength = in.readInt();
+      @Nullable long[] editListDurations = readLongs(in);
+      @Nullable long[] editListMediaTimes = readLongs(in);
+      Format format = readFormat(in);
+      // The output format stands in for the stsd one; the extractor only reads its mime type.
+      Track track =
+          new Track(
+              id,
+              type,
+              timescale,
+              movieTimescale,
+              trackDurationUs,
+              format,
+              sampleTransformation,
+              /* sampleDescriptionEncryptionBoxes= */ null,
+              nalUnitLengthFieldLength,
+              editListDurations,
+              editListMediaTimes);
+      tracks.add(new TrackEntry(outputId, track, format, TrackSampleTable.readFrom(in, track)));
+    }
+    return new ParsedMoov(tracks, durationUs);
+  }
+
+  /* package */ static void writeFormat(DataOutput out, Format format) throws IOException {
+    writeString(out, format.id);
+    writeString(out, format.label);
+    writeString(out, format.language);
+    out.writeInt(format.selectionFlags);
+    out.writeInt(format.roleFlags);
+    out.writeInt(format.averageBitrate);
+    out.writeInt(format.peakBitrate);
+    writeString(out, format.codecs);
+    writeString(out, format.containerMimeType);
+    writeString(out, format.sampleMimeType);
+    out.writeInt(format.maxInputSize);
+    out.writeInt(format.initializationData.size());
+    for (byte[] data : format.initializationData) {
+      writeBytes(out, data);
+    }
+    out.writeLong(format.subsampleOffsetUs);
+    out.writeInt(format.width);
+    out.writeInt(format.height);
+    out.writeFloat(format.frameRate);
+    out.writeInt(format.rotationDegrees);
+    out.writeFloat(format.pixelWidthHeightRatio);
+    writeBytes(out, format.projectionData);
+    out.writeInt(format.stereoMode);
+    @Nullable ColorInfo colorInfo = format.colorInfo;
+    out.writeBoolean(colorInfo != null);
+    if (colorInfo != null) {
+      out.writeInt(colorInfo.colorSpace);
+      out.writeInt(colorInfo.colorRange);
+      out.writeInt(colorInfo.colorTransfer);
+      writeBytes(out, colorInfo.hdrStaticInfo);
+    }
+    out.writeInt(format.channelCount);
+    out.writeInt(format.sampleRate);
+    out.writeInt(format.pcmEncoding);
+    out.writeInt(format.encoderDelay);
+    out.writeInt(format.encoderPadding);
+    out.writeInt(format.accessibilityChannel);
+    out.writeInt(format.tileCountHorizontal);
+    out.writeInt(format.tileCountVertical);
+    writeMetadata(out, format.metadata);
+  }
+
+  /* package */ static Format readFormat(DataInput in) throws IOException {
+    Format.Builder builder =
+        new Format.Builder()
+            .setId(readString(in))
+            .setLabel(readString(in))
+            .setLanguage(readString(in))
+            .setSelectionFlags(in.readInt())
+            .setRoleFlags(in.readInt())
+            .setAverageBitrate(in.readInt())
+            .setPeakBitrate(in.readInt())
+            .setCodecs(readString(in))
+            .setContainerMimeType(readString(in))
+            .setSampleMimeType(readString(in))
+            .setMaxInputSize(in.readInt());
+    int initializationDataCount = in.readInt();
+    if (initializationDataCount < 0) {
+      throw new IOException("Malformed initialization data");
+    }
+    List<byte[]> initializationData = new ArrayList<>(initializationDataCount);
+    for (int i = 0; i < initializationDataCount; i++) {
+      @Nullable byte[] data = readBytes(in);
+      if (data == null) {
+        throw new IOException("Malformed initialization data");
+      }
+      initializationData.add(data);
+    }
+    builder
+        .setInitializationData(initializationData)
+        .setSubsampleOffsetUs(in.readLong())
+        .setWidth(in.readInt())
+        .setHeight(in.readInt())
+        .setFrameRate(in.readFloat())
+        .setRotationDegrees(in.readInt())
+        .setPixelWidthHeightRatio(in.readFloat())
+        .setProjectionData(readBytes(in))
+        .setStereoMode(in.readInt());
+    if (in.readBoolean()) {
+      builder.setColorInfo(
+          new ColorInfo.Builder()
+              .setColorSpace(in.readInt())
+              .setColorRange(in.readInt())
+              .setColorTransfer(in.readInt())
+              .setHdrStaticInfo(readBytes(in))
+              .build());
+    }
+    return builder
+        .setChannelCount(in.readInt())
+        .setSampleRate(in.readInt())
+        .setPcmEncoding(in.readInt())
+        .setEncoderDelay(in.readInt())
+        .setEncoderPadding(in.readInt())
+        .setAccessibilityChannel(in.readInt())
+        .setTileCountHorizontal(in.readInt())
+        .setTileCountVertical(in.readInt())
+        .setMetadata(readMetadata(in))
+        .build();
+  }
+
+  // metadata entry type tags; never renumber, cached entries are only dropped on a new build
+  private static final int ENTRY_UNKNOWN = -1;
+  private static final int ENTRY_CREATION_TIME = 0;
+  private static final int ENTRY_LOCATION = 1;
+  private static final int ENTRY_MDTA = 2;
+  private static final int ENTRY_SMTA = 3;
+  private static final int ENTRY_SLOW_MOTION = 4;
+  private static final int ENTRY_TEXT_INFORMATION = 5;
+  private static final int ENTRY_COMMENT = 6;
+  private static final int ENTRY_INTERNAL = 7;
+  private static final int ENTRY_APIC = 8;
+
+  private static int entryType(Metadata.Entry entry) {
+    if (entry instanceof CreationTime) {
+      return ENTRY_CREATION_TIME;
+    } else if (entry instanceof Mp4LocationData) {
+      return ENTRY_LOCATION;
+    } else if (entry instanceof MdtaMetadataEntry) {
+      return ENTRY_MDTA;
+    } else if (entry instanceof SmtaMetadataEntry) {
+      return ENTRY_SMTA;
+    } else if (entry instanceof SlowMotionData) {
+      return ENTRY_SLOW_MOTION;
+    } else if (entry instanceof TextInformationFrame) {
+      return ENTRY_TEXT_INFORMATION;
+    } else if (entry instanceof CommentFrame) {
+      return ENTRY_COMMENT;
+    } else if (entry instanceof InternalFrame) {
+      return ENTRY_INTERNAL;
+    } else if (entry instanceof ApicFrame) {
+      return ENTRY_APIC;
+    }
+    return ENTRY_UNKNOWN;
+  }
+
+  private static void writeMetadata(DataOutput out, @Nullable Metadata metadata)
+      throws IOException {
+    out.writeBoolean(metadata != null);
+    if (metadata == null) {
+      return;
+    }
+    out.writeLong(metadata.presentationTimeUs);
+    out.writeInt(metadata.length());
+    for (int i = 0; i < metadata.length(); i++) {
+      Metadata.Entry entry = metadata.get(i);
+      int type = entryType(entry);
+      out.writeInt(type);
+      switch (type) {
+        case ENTRY_CREATION_TIME:
+          out.writeLong(((CreationTime) entry).timestampMs);
+          break;
+        case ENTRY_LOCATION:
+          Mp4LocationData location = (Mp4LocationData) entry;
+          out.writeFloat(location.latitude);
+          out.writeFloat(location.longitude);
+          break;
+        case ENTRY_MDTA:
+          MdtaMetadataEntry mdta = (MdtaMetadataEntry) entry;
+          writeText(out, mdta.key);
+          writeBytes(out, mdta.value);
+          out.writeInt(mdta.localeIndicator);
+          out.writeInt(mdta.typeIndicator);
+          break;
+        case ENTRY_SMTA:
+          SmtaMetadataEntry smta = (SmtaMetadataEntry) entry;
+          out.writeFloat(smta.captureFrameRate);
+          out.writeInt(smta.svcTemporalLayerCount);
+          break;
+        case ENTRY_SLOW_MOTION:
+          List<SlowMotionData.Segment> segments = ((SlowMotionData) entry).segments;
+          out.writeInt(segments.size());
+          for (SlowMotionData.Segment segment : segments) {
+            out.writeLong(segment.startTimeMs);
+            out.writeLong(segment.endTimeMs);
+            out.writeInt(segment.speedDivisor);
+          }
+          break;
+        case ENTRY_TEXT_INFORMATION:
+          TextInformationFrame text = (TextInformationFrame) entry;
+          writeText(out, text.id);
+          writeText(out, text.description);
+          out.writeInt(text.values.size());
+          for (String value : text.values) {
+            writeText(out, value);
+          }
+          break;
+        case ENTRY_COMMENT:
+          CommentFrame comment = (CommentFrame) entry;
+          writeText(out, comment.language);
+          writeText(out, comment.description);
+          writeText(out, comment.text);
+          break;
+        case ENTRY_INTERNAL:
+          InternalFrame internal = (InternalFrame) entry;
+          writeText(out, internal.domain);
+          writeText(out, internal.description);
+          writeText(out, internal.text);
+          break;
+        case ENTRY_APIC:
+          ApicFrame apic = (ApicFrame) entry;
+          writeText(out, apic.mimeType);
+          writeText(out, apic.description);
+          out.writeInt(apic.pictureType);
+          writeBytes(out, apic.pictureData);
+          break;
+        default:
+          // isCacheable() keeps such tracks out of the cache
+          throw new IOException("Unsupported metadata entry " + entry.getClass().getName());
+      }
+    }
+  }
+
+  @Nullable
+  private static Metadata readMetadata(DataInput in) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    long presentationTimeUs = in.readLong();
+    int count = in.readInt();
+    if (count < 0) {
+      throw new IOException("Malformed metadata");
+    }
+    List<Metadata.Entry> entries = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      switch (in.readInt()) {
+        case ENTRY_CREATION_TIME:
+          entries.add(new CreationTime(in.readLong()));
+          break;
+        case ENTRY_LOCATION:
+          entries.add(new Mp4LocationData(in.readFloat(), in.readFloat()));
+          break;
+        case ENTRY_MDTA:
+          entries.add(
+              new MdtaMetadataEntry(
+                  readRequiredText(in), requireBytes(readBytes(in)), in.readInt(), in.readInt()));
+          break;
+        case ENTRY_SMTA:
+          entries.add(new SmtaMetadataEntry(in.readFloat(), in.readInt()));
+          break;
+        case ENTRY_SLOW_MOTION:
+          int segmentCount = in.readInt();
+          if (segmentCount < 0) {
+            throw new IOException("Malformed metadata");
+          }
+          List<SlowMotionData.Segment> segments = new ArrayList<>(segmentCount);
+          for (int s = 0; s < segmentCount; s++) {
+            segments.add(new SlowMotionData.Segment(in.readLong(), in.readLong(), in.readInt()));
+          }
+          entries.add(new SlowMotionData(segments));
+          break;
+        case ENTRY_TEXT_INFORMATION:
+          String id = readRequiredText(in);
+          @Nullable String description = readText(in);
+          int valueCount = in.readInt();
+          if (valueCount < 0) {
+            throw new IOException("Malformed metadata");
+          }
+          List<String> values = new ArrayList<>(valueCount);
+          for (int v = 0; v < valueCount; v++) {
+            values.add(readRequiredText(in));
+          }
+          entries.add(new TextInformationFrame(id, description, values));
+          break;
+        case ENTRY_COMMENT:
+          entries.add(
+              new CommentFrame(readRequiredText(in), readRequiredText(in), readRequiredText(in)));
+          break;
+        case ENTRY_INTERNAL:
+          entries.add(
+              new InternalFrame(readRequiredText(in), readRequiredText(in), readRequiredText(in)));
+          break;
+        case ENTRY_APIC:
+          entries.add(
+              new ApicFrame(
+                  readRequiredText(in), readText(in), in.readInt(), requireBytes(readBytes(in))));
+          break;
+        default:
+          throw new IOException("Malformed metadata");
+      }
+    }
+    return new Metadata(presentationTimeUs, entries);
+  }
+
+  // UTF-8 with an int length: metadata text (lyrics, descriptions) may not fit writeUTF's 64 KB
+  private static void writeText(DataOutput out, @Nullable String s) throws IOException {
+    writeBytes(out, s == null ? null : s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Nullable
+  private static String readText(DataInput in) throws IOException {
+    @Nullable byte[] a = readBytes(in);
+    return a == null ? null : new String(a, StandardCharsets.UTF_8);
+  }
+
+  private static String readRequiredText(DataInput in) throws IOException {
+    @Nullable String s = readText(in);
+    if (s == null) {
+      throw new IOException("Malformed metadata");
+    }
+    return s;
+  }
+
+  private static byte[] requireBytes(@Nullable byte[] a) throws IOException {
+    if (a == null) {
+      throw new IOException("Malformed metadata");
+    }
+    return a;
+  }
+
+  private static void writeString(DataOutput out, @Nullable String s) throws IOException {
+    out.writeBoolean(s != null);
+    if (s != null) {
+      out.writeUTF(s);
+    }
+  }
+
+  @Nullable
+  private static String readString(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static void writeBytes(DataOutput out, @Nullable byte[] a) throws IOException {
+    out.writeInt(a == null ? -1 : a.length);
+    if (a != null) {
+      out.write(a);
+    }
+  }
+
+  @Nullable
+  private static byte[] readBytes(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] a = new byte[length];
+    in.readFully(a);
+    return a;
+  }
+
+  private static void writeLongs(DataOutput out, @Nullable long[] a) throws IOException {
+    out.writeInt(a == null ? -1 : a.length);
+    if (a != null) {
+      for (long v : a) {
+        out.writeLong(v);
+      }
+    }
+  }
+
+  @Nullable
+  private static long[] readLongs(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    long[] a = new long[length];
+    for (int i = 0; i < length; i++) {
+      a[i] = in.readLong();
+    }
+    return a;
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.parsers.mp4;
+
+import android.content.Context;
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import androidx.documentfile.provider.DocumentFile;
+import com.google.android.exoplayer2.util.Log;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Disk cache of parsed moov atoms, so the clips of a looping run only pay for reading and parsing
+ * their moov (often at the end of the file, behind a SAF seek) on the first pass.
+ *
+ * <p>Entries are keyed by the SHA-256 the clip's manifest gives for it and the file's size when the
+ * clip is a set-up test vector, else by media uri, size and last-modified time (see
+ * {@link #keyFor}), and stamped
+ * with the build that wrote them; a mismatch on either drops the entry. Storage providers often
+ * report no or a stale last-modified time, so only the checksum reliably tells a replaced file of
+ * the same size apart. The directory is bounded by
+ * size, evicting the least recently used entries first. Writes happen on a background thread so a
+ * miss costs the clip nothing beyond the parse it would do anyway.
+ */
+public final class ParsedMoovCache {
+
+  private static final String TAG = "ParsedMoovCache";
+
+  /** Default bound on the cache directory. */
+  public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+  private static final int MAGIC = 0x76636d76; // "vcmv"
+  // 2: formats written field by field instead of as a marshalled Parcel
+  private static final int FORMAT_VERSION = 2;
+  private static final String SUFFIX = ".moov";
+
+  private final File directory;
+  private final long maxBytes;
+  private final String buildId;
+  private final ExecutorService writer;
+  // manifest SHA-256 by uri string; set once the run's data is loaded, read on loading threads
+  private volatile Map<String, String> manifestSha256 = Collections.emptyMap();
+
+  /**
+   * @param directory Directory holding the cache, usually under the app cache dir.
+   * @param maxBytes Bound on the total size of the entries.
+   * @param buildId Identifies the app build; entries written by another build are dropped, since
+   *     both the parser and the serialized formats may have changed.
+   */
+  public ParsedMoovCache(File directory, long maxBytes, String buildId) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+    this.buildId = buildId;
+    this.writer = Executors.newSingleThreadExecutor();
+  }
+
+  /** The manifest SHA-256 of the set-up test vectors, by uri string. */
+  public void setManifestChecksums(Map<String, String> byUri) {
+    this.manifestSha256 = new HashMap<>(byUri);
+  }
+
+  /**
+   * Returns the cache key for {@code uri}: its manifest SHA-256 with the file's current size when a
+   * checksum is known, else the uri with its size and last-modified time. Null if the file cannot
+   * be read, in which case it is not cached.
+   *
+   * <p>The checksum was recorded when the vector was set up and is looked up by uri, so it says
+   * nothing about a file since replaced at that uri; the size in the key at least retires the entry
+   * when the replacement differs in length.
+   */
+  @Nullable
+  public String keyFor(Context context, Uri uri) {
+    @Nullable long[] stat = stat(context, uri);
+    if (stat == null) {
+      return null;
+    }
+    return keyFor(uri.toString(), stat[0], stat[1]);
+  }
+
+  /** As {@link #keyFor(Context, Uri)}, for a file at {@code uri} of the given size and mtime. */
+  @Nullable
+  /* package */ String keyFor(String uri, long length, long lastModified) {
+    @Nullable String key = checksumKey(manifestSha256.get(uri), length);
+    return key != null ? key : key(uri, length, lastModified);
+  }
+
+  /**
+   * The key for content with the given SHA-256 in a file of {@code length} bytes, or null if it is
+   * not a SHA-256 hex digest or the length is unknown.
+   */
+  @Nullable
+  /* package */ static String checksumKey(@Nullable String sha256, long length) {
+    if (sha256 == null || !sha256.matches("[0-9a-fA-F]{64}") || length <= 0) {
+      return null;
+    }
+    return "sha256|" + sha256.toLowerCase(Locale.ROOT) + "|" + length;
+  }
+
+  /** {size, last-modified time} of the file at {@code uri}, or null if it is not a local file. */
+  @Nullable
+  private static long[] stat(Context context, Uri uri) {
+    String scheme = uri.getScheme();
+    if ("file".equals(scheme) && uri.getPath() != null) {
+      File file = new File(uri.getPath());
+      return new long[] {file.length(), file.lastModified()};
+    } else if ("content".equals(scheme)) {
+      @Nullable DocumentFile document = DocumentFile.fromSingleUri(context, uri);
+      if (document == null) {
+        return null;
+      }
+      return new long[] {document.length(), document.lastModified()};
+    }
+    return null;
+  }
+
+  /**
+   * The key for a file at {@code uri} with the given size and last-modified time, or null if
+   * either is unknown. Rewriting the file changes at least one, which retires its old entry.
+   */
+  @Nullable
+  /* package */ static String key(String uri, long length, long lastModified) {
+    if (length <= 0 || lastModified <= 0) {
+      return null;
+    }
+    return uri + "|" + length + "|" + lastModified;
+  }
+
+  /** Returns the entry for {@code key}, or null on a miss or an invalid entry (which is deleted). */
+  @Nullable
+  /* package */ ParsedMoov read(String key) {
+    File file = fileFor(key);
+    if (!file.exists()) {
+      return null;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC
+          || in.readInt() != FORMAT_VERSION
+          || !buildId.equals(in.readUTF())
+          || !key.equals(in.readUTF())) {
+        throw new IOException("Stale entry");
+      }
+      ParsedMoov moov = ParsedMoov.readFrom(in);
+      // last-modified doubles as the LRU order
+      file.setLastModified(System.currentTimeMillis());
+      return moov;
+    } catch (IOException | RuntimeException e) {
+      Log.w(TAG, "Dropping cache entry for " + key + ": " + e.getMessage());
+      file.delete();
+      return null;
+    }
+  }
+
+  /** Stores {@code moov} under {@code key} in the background. */
+  /* package */ void write(String key, ParsedMoov moov) {
+    if (!moov.isCacheable()) {
+      return;
+    }
+    writer.execute(() -> writeNow(key, moov));
+  }
+
+  /** Stops the background writer. Writes already queued still complete. */
+  public void release() {
+    writer.shutdown();
+  }
+
+  /** Stores {@code moov} under {@code key} on the calling thread; {@link #write} queues this. */
+  /* package */ void writeNow(String key, ParsedMoov moov) {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      Log.w(TAG, "Cannot create " + directory);
+      return;
+    }
+    File file = fileFor(key);
+    File temp = new File(directory, file.getName() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(buildId);
+      out.writeUTF(key);
+      moov.writeTo(out);
+    } catch (IOException | RuntimeException e) {
+      Log.w(TAG, "Cannot cache " + key + ": " + e.getMessage());
+      temp.delete();
+      return;
+    }
+    if (!temp.renameTo(file)) {
+      temp.delete();
+      return;
+    }
+    Log.d(TAG, "Cached " + key + " (" + file.length() + " bytes)");
+    evict();
+  }
+
+  private void evict() {
+    File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+    if (files == null) {
+      return;
+    }
+    long total = 0;
+    for (File f : files) {
+      total += f.length();
+    }
+    if (total <= maxBytes) {
+      return;
+    }
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+    for (File f : files) {
+      if (total <= maxBytes) {
+        break;
+      }
+      total -= f.length();
+      f.delete();
+    }
+  }
+
+  private File fileFor(String key) {
+    return new File(directory, sha256(key) + SUFFIX);
+  }
+
+  private static String sha256(String s) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -15,10 +15,16 @@
  */
 package com.roncatech.vcat.parsers.mp4;
 
+import static java.lang.Math.max;
+
+import androidx.annotation.Nullable;
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.extractor.mp4.Track;
 import com.google.android.exoplayer2.util.Assertions;
 import com.google.android.exoplayer2.util.Util;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * Sample table for a track in an MP4 file.
@@ -35,19 +41,24 @@ import com.google.android.exoplayer2.util.Util;
   public final Track track;
   /** Number of samples. */
   public final int sampleCount;
-  /** Sample offsets in bytes. */
-  public final long[] offsets;
-  /** Sample sizes in bytes. */
-  public final int[] sizes;
-  /** Maximum sample size in {@link #sizes}. */
+  /** Maximum sample size in bytes. */
   public final int maximumSize;
-  /** Sample timestamps in microseconds. */
-  public final long[] timestampsUs;
-  /** Sample flags. */
-  public final int[] flags;
   /** The duration of the track sample table in microseconds. */
   public final long durationUs;
 
+  // Dense form: one entry per sample.
+  @Nullable private final long[] offsets;
+  @Nullable private final int[] sizes;
+  @Nullable private final long[] timestampsUs;
+  @Nullable private final int[] flags;
+
+  // Compact form: samples [firstSample, firstSample + sampleCount) of a CompactSampleTable, with
+  // timestamps mapped from track timescale to microseconds on access.
+  @Nullable private final CompactSampleTable compact;
+  private final int firstSample;
+  private final long timestampShift;
+  private final boolean clampTimestamps;
+
   public TrackSampleTable(
       Track track,
       long[] offsets,
@@ -71,6 +82,135 @@ import com.google.android.exoplayer2.util.Util;
     if (flags.length > 0) {
       flags[flags.length - 1] |= C.BUFFER_FLAG_LAST_SAMPLE;
     }
+    this.compact = null;
+    this.firstSample = 0;
+    this.timestampShift = 0;
+    this.clampTimestamps = false;
+  }
+
+  /**
+   * Creates a table over a window of a {@link CompactSampleTable}. Sample {@code i} of this table
+   * is sample {@code firstSample + i} of {@code samples}, and its timestamp is {@code
+   * scale(raw - timestampShift)} in microseconds, clamped to zero if {@code clampTimestamps}.
+   */
+  public TrackSampleTable(
+      Track track,
+      CompactSampleTable samples,
+      int firstSample,
+      int sampleCount,
+      long timestampShift,
+      boolean clampTimestamps,
+      int maximumSize,
+      long durationUs) {
+    Assertions.checkArgument(firstSample >= 0 && firstSample + sampleCount <= samples.getCount());
+
+    this.track = track;
+    this.compact = samples;
+    this.firstSample = firstSample;
+    this.sampleCount = sampleCount;
+    this.timestampShift = timestampShift;
+    this.clampTimestamps = clampTimestamps;
+    this.maximumSize = maximumSize;
+    this.durationUs = durationUs;
+    this.offsets = null;
+    this.sizes = null;
+    this.timestampsUs = null;
+    this.flags = null;
+  }
+
+  /** Sample offset in bytes. */
+  public long getOffset(int index) {
+    return compact != null ? compact.getOffset(firstSample + index) : offsets[index];
+  }
+
+  /** Sample size in bytes. */
+  public int getSize(int index) {
+    return compact != null ? compact.getSize(firstSample + index) : sizes[index];
+  }
+
+  /** Sample timestamp in microseconds. */
+  public long getTimestampUs(int index) {
+    if (compact == null) {
+      return timestampsUs[index];
+    }
+    long timeUs =
+        Util.scaleLargeTimestamp(
+            compact.getTimestamp(firstSample + index) - timestampShift,
+            C.MICROS_PER_SECOND,
+            track.timescale);
+    return clampTimestamps ? max(0, timeUs) : timeUs;
+  }
+
+  /** Sample flags. */
+  public @C.BufferFlags int getFlags(int index) {
+    if (compact == null) {
+      return flags[index];
+    }
+    int sampleFlags = compact.isSync(firstSample + index) ? C.BUFFER_FLAG_KEY_FRAME : 0;
+    return index == sampleCount - 1 ? sampleFlags | C.BUFFER_FLAG_LAST_SAMPLE : sampleFlags;
+  }
+
+  /** Whether the table is held in run-length form rather than as per-sample arrays. */
+  public boolean isCompact() {
+    return compact != null;
+  }
+
+  /** Writes the table, but not its track, in the form {@link #readFrom} restores. */
+  /* package */ void writeTo(DataOutput out) throws IOException {
+    out.writeInt(sampleCount);
+    out.writeInt(maximumSize);
+    out.writeLong(durationUs);
+    out.writeBoolean(compact != null);
+    if (compact != null) {
+      out.writeInt(firstSample);
+      out.writeLong(timestampShift);
+      out.writeBoolean(clampTimestamps);
+      compact.writeTo(out);
+    } else {
+      for (int i = 0; i < sampleCount; i++) {
+        out.writeLong(offsets[i]);
+        out.writeInt(sizes[i]);
+        out.writeLong(timestampsUs[i]);
+        out.writeInt(flags[i]);
+      }
+    }
+  }
+
+  /** Restores a table written by {@link #writeTo} for {@code track}. */
+  /* package */ static TrackSampleTable readFrom(DataInput in, Track track) throws IOException {
+    int sampleCount = in.readInt();
+    int maximumSize = in.readInt();
+    long durationUs = in.readLong();
+    if (in.readBoolean()) {
+      int firstSample = in.readInt();
+      long timestampShift = in.readLong();
+      boolean clampTimestamps = in.readBoolean();
+      CompactSampleTable samples = CompactSampleTable.readFrom(in);
+      if (firstSample < 0 || firstSample + sampleCount > samples.getCount()) {
+        throw new IOException("Sample window out of range");
+      }
+      return new TrackSampleTable(
+          track,
+          samples,
+          firstSample,
+          sampleCount,
+          timestampShift,
+          clampTimestamps,
+          maximumSize,
+          durationUs);
+    }
+    long[] offsets = new long[sampleCount];
+    int[] sizes = new int[sampleCount];
+    long[] timestampsUs = new long[sampleCount];
+    int[] flags = new int[sampleCount];
+    for (int i = 0; i < sampleCount; i++) {
+      offsets[i] = in.readLong();
+      sizes[i] = in.readInt();
+      timestampsUs[i] = in.readLong();
+      flags[i] = in.readInt();
+    }
+    return new TrackSampleTable(
+        track, offsets, sizes, maximumSize, timestampsUs, flags, durationUs);
   }
 
   /**
@@ -83,9 +223,13 @@ import com.google.android.exoplayer2.util.Util;
   public int getIndexOfEarlierOrEqualSynchronizationSample(long timeUs) {
     // Video frame timestamps may not be sorted, so the behavior of this call can be undefined.
     // Frames are not reordered past synchronization samples so this works in practice.
-    int startIndex = Util.binarySearchFloor(timestampsUs, timeUs, true, false);
+    int startIndex =
+        timestampsUs != null
+            ? Util.binarySearchFloor(timestampsUs, timeUs, true, false)
+            : CompactSampleTable.binarySearchFloor(
+                this::getTimestampUs, sampleCount, timeUs, true, false);
     for (int i = startIndex; i >= 0; i--) {
-      if ((flags[i] & C.BUFFER_FLAG_KEY_FRAME) != 0) {
+      if ((getFlags(i) & C.BUFFER_FLAG_KEY_FRAME) != 0) {
         return i;
       }
     }
@@ -100,9 +244,13 @@ import com.google.android.exoplayer2.util.Util;
    * @return index Index of the synchronization sample, or {@link C#INDEX_UNSET} if none.
    */
   public int getIndexOfLaterOrEqualSynchronizationSample(long timeUs) {
-    int startIndex = Util.binarySearchCeil(timestampsUs, timeUs, true, false);
-    for (int i = startIndex; i < timestampsUs.length; i++) {
-      if ((flags[i] & C.BUFFER_FLAG_KEY_FRAME) != 0) {
+    int startIndex =
+        timestampsUs != null
+            ? Util.binarySearchCeil(timestampsUs, timeUs, true, false)
+            : CompactSampleTable.binarySearchCeil(
+                this::getTimestampUs, sampleCount, timeUs, true, false);
+    for (int i = startIndex; i < sampleCount; i++) {
+      if ((getFlags(i) & C.BUFFER_FLAG_KEY_FRAME) != 0) {
         return i;
       }
     }
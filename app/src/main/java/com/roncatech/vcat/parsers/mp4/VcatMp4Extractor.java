@@ -23,6 +23,7 @@ import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.lang.annotation.ElementType.TYPE_USE;
 
+import android.os.SystemClock;
 import androidx.annotation.IntDef;
 import androidx.annotation.Nullable;
 import com.google.android.exoplayer2.C;
@@ -45,9 +46,12 @@ import com.google.android.exoplayer2.metadata.Metadata;
 import com.google.android.exoplayer2.metadata.mp4.MotionPhotoMetadata;
 import com.google.android.exoplayer2.metadata.mp4.SlowMotionData;
 import com.google.android.exoplayer2.util.Assertions;
+import com.google.android.exoplayer2.util.Log;
 import com.google.android.exoplayer2.util.MimeTypes;
 import com.google.android.exoplayer2.util.NalUnitUtil;
 import com.google.android.exoplayer2.util.ParsableByteArray;
+import com.roncatech.vcat.parsers.SampleTrace;
+import java.io.EOFException;
 import java.io.IOException;
 import java.lang.annotation.Documented;
 import java.lang.annotation.Retention;
@@ -104,6 +108,18 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
    */
   public static final int FLAG_READ_SEF_DATA = 1 << 2;
 
+  /** Receives the cost of getting a stream's moov ready, on the loading thread. */
+  public interface MoovListener {
+
+    /**
+     * @param parseMs Time spent parsing the moov (the stbl walk over stsz, stco and friends), or
+     *     reading it back from the cache.
+     * @param setupMs Time spent creating the tracks and emitting formats and the seek map.
+     * @param fromCache Whether the moov came from the {@link ParsedMoovCache}.
+     */
+    void onMoovReady(long parseMs, long setupMs, boolean fromCache);
+  }
+
   /** Parser states. */
   @Documented
   @Retention(RetentionPolicy.SOURCE)
@@ -116,6 +132,8 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
   })
   private @interface State {}
 
+  private static final String TAG = "VcatMp4Extractor";
+
   private static final int STATE_READING_ATOM_HEADER = 0;
   private static final int STATE_READING_ATOM_PAYLOAD = 1;
   private static final int STATE_READING_SAMPLE = 2;
@@ -138,6 +156,12 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
    */
   private static final long RELOAD_MINIMUM_SEEK_DISTANCE = 256 * 1024;
 
+  /**
+   * Largest length-prefixed sample read whole and rewritten in one pass. Larger samples are
+   * rewritten NAL unit by NAL unit as they stream through.
+   */
+  private static final int MAX_WHOLE_SAMPLE_SIZE = 8 * 1024 * 1024;
+
   /**
    * For poorly interleaved streams, the maximum byte difference one track is allowed to be read
    * ahead before the source will be reloaded at a new position to read another track.
@@ -150,6 +174,7 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
   private final ParsableByteArray nalStartCode;
   private final ParsableByteArray nalLength;
   private final ParsableByteArray scratch;
+  private final byte[] nalHeader;
 
   private final ParsableByteArray atomHeader;
   private final ArrayDeque<Atom.ContainerAtom> containerAtoms;
@@ -166,17 +191,30 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
   private int sampleBytesRead;
   private int sampleBytesWritten;
   private int sampleCurrentNalBytesRemaining;
+  private boolean readingWholeSample;
+  private long sampleNalTypes;
+
+  // Pooled buffers for whole-sample NAL rewriting; they grow to the largest sample read so far.
+  private final ParsableByteArray wholeSample;
+  private final ParsableByteArray expandedSample;
 
   // Extractor outputs.
   private ExtractorOutput extractorOutput;
   private Mp4Track[] tracks;
 
-  private long @MonotonicNonNull [][] accumulatedSampleSizes;
+  private @MonotonicNonNull AccumulatedSampleSizes accumulatedSampleSizes;
   private int firstVideoTrackIndex;
   private long durationUs;
   private @FileType int fileType;
   @Nullable private MotionPhotoMetadata motionPhotoMetadata;
 
+  @Nullable private final ParsedMoovCache moovCache;
+  @Nullable private final String moovCacheKey;
+  private boolean moovCacheChecked;
+
+  @Nullable private final SampleTrace trace;
+  @Nullable private final MoovListener moovListener;
+
   /** Creates a new extractor for unfragmented MP4 streams. */
   public VcatMp4Extractor() {
     this(/* flags= */ 0);
@@ -189,7 +227,55 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
    * @param flags Flags that control the extractor's behavior.
    */
   public VcatMp4Extractor(@Flags int flags) {
+    this(flags, /* moovCache= */ null, /* moovCacheKey= */ null);
+  }
+
+  /**
+   * Creates a new extractor for unfragmented MP4 streams that restores the parsed moov from {@code
+   * moovCache} when it holds an entry for {@code moovCacheKey}, and stores it there otherwise.
+   *
+   * @param flags Flags that control the extractor's behavior.
+   * @param moovCache The cache, or null to always read the moov.
+   * @param moovCacheKey The stream's key, from {@link ParsedMoovCache#keyFor}, or null if it has
+   *     none.
+   */
+  public VcatMp4Extractor(
+      @Flags int flags, @Nullable ParsedMoovCache moovCache, @Nullable String moovCacheKey) {
+    this(flags, moovCache, moovCacheKey, /* trace= */ null);
+  }
+
+  /**
+   * As {@link #VcatMp4Extractor(int, ParsedMoovCache, String)}, also recording every video sample
+   * into {@code trace}, which the extractor closes on release.
+   *
+   * @param trace The trace, or null for none.
+   */
+  public VcatMp4Extractor(
+      @Flags int flags,
+      @Nullable ParsedMoovCache moovCache,
+      @Nullable String moovCacheKey,
+      @Nullable SampleTrace trace) {
+    this(flags, moovCache, moovCacheKey, trace, /* moovListener= */ null);
+  }
+
+  /**
+   * As {@link #VcatMp4Extractor(int, ParsedMoovCache, String, SampleTrace)}, also reporting the
+   * moov parse and track setup times to {@code moovListener}.
+   *
+   * @param moovListener The listener, or null for none.
+   */
+  public VcatMp4Extractor(
+      @Flags int flags,
+      @Nullable ParsedMoovCache moovCache,
+      @Nullable String moovCacheKey,
+      @Nullable SampleTrace trace,
+      @Nullable MoovListener moovListener) {
     this.flags = flags;
+    this.trace = trace;
+    this.moovListener = moovListener;
+    this.moovCache = moovCacheKey != null ? moovCache : null;
+    // the flags change what is parsed, so they are part of the key
+    this.moovCacheKey = moovCacheKey != null ? moovCacheKey + "|flags=" + flags : null;
     parserState =
         ((flags & FLAG_READ_SEF_DATA) != 0) ? STATE_READING_SEF : STATE_READING_ATOM_HEADER;
     sefReader = new SefReader();
@@ -199,6 +285,9 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
     nalStartCode = new ParsableByteArray(NalUnitUtil.NAL_START_CODE);
     nalLength = new ParsableByteArray(4);
     scratch = new ParsableByteArray();
+    nalHeader = new byte[1];
+    wholeSample = new ParsableByteArray();
+    expandedSample = new ParsableByteArray();
     sampleTrackIndex = C.INDEX_UNSET;
     extractorOutput = ExtractorOutput.PLACEHOLDER;
     tracks = new Mp4Track[0];
@@ -223,6 +312,10 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
     sampleBytesRead = 0;
     sampleBytesWritten = 0;
     sampleCurrentNalBytesRemaining = 0;
+    sampleNalTypes = 0;
+    if (trace != null) {
+      trace.markDiscontinuity();
+    }
     if (position == 0) {
       // Reading the SEF data occurs before normal MP4 parsing. Therefore we can not transition to
       // reading the atom header until that has completed.
@@ -244,11 +337,17 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
 
   @Override
   public void release() {
-    // Do nothing
+    if (trace != null) {
+      trace.close();
+    }
   }
 
   @Override
   public int read(ExtractorInput input, PositionHolder seekPosition) throws IOException {
+    if (!moovCacheChecked && parserState == STATE_READING_ATOM_HEADER) {
+      moovCacheChecked = true;
+      maybeRestoreMoov();
+    }
     while (true) {
       switch (parserState) {
         case STATE_READING_ATOM_HEADER:
@@ -319,14 +418,14 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
       if (sampleIndex == C.INDEX_UNSET) {
         return new SeekPoints(SeekPoint.START);
       }
-      long sampleTimeUs = sampleTable.timestampsUs[sampleIndex];
+      long sampleTimeUs = sampleTable.getTimestampUs(sampleIndex);
       firstTimeUs = sampleTimeUs;
-      firstOffset = sampleTable.offsets[sampleIndex];
+      firstOffset = sampleTable.getOffset(sampleIndex);
       if (sampleTimeUs < timeUs && sampleIndex < sampleTable.sampleCount - 1) {
         int secondSampleIndex = sampleTable.getIndexOfLaterOrEqualSynchronizationSample(timeUs);
         if (secondSampleIndex != C.INDEX_UNSET && secondSampleIndex != sampleIndex) {
-          secondTimeUs = sampleTable.timestampsUs[secondSampleIndex];
-          secondOffset = sampleTable.offsets[secondSampleIndex];
+          secondTimeUs = sampleTable.getTimestampUs(secondSampleIndex);
+          secondOffset = sampleTable.getOffset(secondSampleIndex);
         }
       }
     } else {
@@ -491,9 +590,9 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
 
   /** Updates the stored track metadata to reflect the contents of the specified moov atom. */
   private void processMoovAtom(Atom.ContainerAtom moov) throws ParserException {
-    int firstVideoTrackIndex = C.INDEX_UNSET;
+    long startMs = SystemClock.elapsedRealtime();
     long durationUs = C.TIME_UNSET;
-    List<Mp4Track> tracks = new ArrayList<>();
+    List<ParsedMoov.TrackEntry> tracks = new ArrayList<>();
 
     // Process metadata.
     @Nullable Metadata udtaMetaMetadata = null;
@@ -530,6 +629,7 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
             ignoreEditLists,
             isQuickTime,
             /* modifyTrackFunction= */ track -> track);
+    long parsedMs = SystemClock.elapsedRealtime();
 
     int trackCount = trackSampleTables.size();
     for (int i = 0; i < trackCount; i++) {
@@ -541,8 +641,6 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
       long trackDurationUs =
           track.durationUs != C.TIME_UNSET ? track.durationUs : trackSampleTable.durationUs;
       durationUs = max(durationUs, trackDurationUs);
-      Mp4Track mp4Track =
-          new Mp4Track(track, trackSampleTable, extractorOutput.track(i, track.type));
 
       int maxInputSize;
       if (MimeTypes.AUDIO_TRUEHD.equals(track.format.sampleMimeType)) {
@@ -573,22 +671,94 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
           slowMotionMetadataEntries.isEmpty() ? null : new Metadata(slowMotionMetadataEntries),
           xyzMetadata,
           mvhdMetadata);
-      mp4Track.trackOutput.format(formatBuilder.build());
+      tracks.add(new ParsedMoov.TrackEntry(i, track, formatBuilder.build(), trackSampleTable));
+    }
+    ParsedMoov parsedMoov = new ParsedMoov(tracks, durationUs);
+    setUpTracks(parsedMoov);
+    long endMs = SystemClock.elapsedRealtime();
+    Log.d(
+        TAG,
+        "moov: "
+            + this.tracks.length
+            + " tracks, "
+            + getSampleCount()
+            + " samples, parse "
+            + (parsedMs - startMs)
+            + " ms, setup "
+            + (endMs - parsedMs)
+            + " ms");
+    if (moovListener != null) {
+      moovListener.onMoovReady(parsedMs - startMs, endMs - parsedMs, /* fromCache= */ false);
+    }
+    if (moovCache != null && moovCacheKey != null) {
+      moovCache.write(moovCacheKey, parsedMoov);
+    }
+  }
 
-      if (track.type == C.TRACK_TYPE_VIDEO && firstVideoTrackIndex == C.INDEX_UNSET) {
-        firstVideoTrackIndex = tracks.size();
+  /** Restores the tracks from {@link #moovCache}, if it holds them, and starts reading samples. */
+  private void maybeRestoreMoov() {
+    if (moovCache == null || moovCacheKey == null) {
+      return;
+    }
+    long startMs = SystemClock.elapsedRealtime();
+    @Nullable ParsedMoov parsedMoov = moovCache.read(moovCacheKey);
+    if (parsedMoov == null) {
+      return;
+    }
+    long readMs = SystemClock.elapsedRealtime();
+    setUpTracks(parsedMoov);
+    containerAtoms.clear();
+    parserState = STATE_READING_SAMPLE;
+    long endMs = SystemClock.elapsedRealtime();
+    Log.d(
+        TAG,
+        "moov restored from cache: "
+            + tracks.length
+            + " tracks, "
+            + getSampleCount()
+            + " samples in "
+            + (endMs - startMs)
+            + " ms");
+    if (moovListener != null) {
+      moovListener.onMoovReady(readMs - startMs, endMs - readMs, /* fromCache= */ true);
+    }
+  }
+
+  /** Creates the track outputs and emits their formats, the duration and the seek map. */
+  private void setUpTracks(ParsedMoov parsedMoov) {
+    int firstVideoTrackIndex = C.INDEX_UNSET;
+    Mp4Track[] tracks = new Mp4Track[parsedMoov.tracks.size()];
+    TrackSampleTable[] sampleTables = new TrackSampleTable[tracks.length];
+    for (int i = 0; i < tracks.length; i++) {
+      ParsedMoov.TrackEntry entry = parsedMoov.tracks.get(i);
+      Mp4Track mp4Track =
+          new Mp4Track(
+              entry.track, entry.sampleTable, extractorOutput.track(entry.id, entry.track.type));
+      mp4Track.trackOutput.format(entry.format);
+      if (entry.track.type == C.TRACK_TYPE_VIDEO && firstVideoTrackIndex == C.INDEX_UNSET) {
+        firstVideoTrackIndex = i;
       }
-      tracks.add(mp4Track);
+      tracks[i] = mp4Track;
+      sampleTables[i] = entry.sampleTable;
     }
     this.firstVideoTrackIndex = firstVideoTrackIndex;
-    this.durationUs = durationUs;
-    this.tracks = tracks.toArray(new Mp4Track[0]);
-    accumulatedSampleSizes = calculateAccumulatedSampleSizes(this.tracks);
+    this.durationUs = parsedMoov.durationUs;
+    this.tracks = tracks;
+    // Materialized in windows as reading advances, rather than for the whole file up front.
+    accumulatedSampleSizes = new AccumulatedSampleSizes(sampleTables);
 
     extractorOutput.endTracks();
     extractorOutput.seekMap(this);
   }
 
+  private long getSampleCount() {
+    long sampleCount = 0;
+    for (Mp4Track track : tracks) {
+      sampleCount += track.sampleTable.sampleCount;
+    }
+    return sampleCount;
+  }
+
   /**
    * Attempts to extract the next sample in the current mdat atom for the specified track.
    *
@@ -615,8 +785,8 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
     Mp4Track track = tracks[sampleTrackIndex];
     TrackOutput trackOutput = track.trackOutput;
     int sampleIndex = track.sampleIndex;
-    long position = track.sampleTable.offsets[sampleIndex];
-    int sampleSize = track.sampleTable.sizes[sampleIndex];
+    long position = track.sampleTable.getOffset(sampleIndex);
+    int sampleSize = track.sampleTable.getSize(sampleIndex);
     @Nullable TrueHdSampleRechunker trueHdSampleRechunker = track.trueHdSampleRechunker;
     long skipAmount = position - inputPosition + sampleBytesRead;
     if (skipAmount < 0 || skipAmount >= RELOAD_MINIMUM_SEEK_DISTANCE) {
@@ -630,7 +800,21 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
       sampleSize -= Atom.HEADER_SIZE;
     }
     input.skipFully((int) skipAmount);
-    if (track.track.nalUnitLengthFieldLength != 0) {
+    boolean traced = trace != null && track.track.type == C.TRACK_TYPE_VIDEO;
+    int nalHeaderLayout = NalUnitRewriter.nalHeaderOf(track.track.format.sampleMimeType);
+    int storedSize = sampleSize;
+    if (track.track.nalUnitLengthFieldLength != 0 && sampleBytesRead == 0) {
+      readingWholeSample = sampleSize <= MAX_WHOLE_SAMPLE_SIZE;
+    }
+    if (track.track.nalUnitLengthFieldLength != 0 && readingWholeSample) {
+      sampleSize =
+          writeWholeNalSample(
+              input,
+              trackOutput,
+              track.track.nalUnitLengthFieldLength,
+              sampleSize,
+              nalHeaderLayout);
+    } else if (track.track.nalUnitLengthFieldLength != 0) {
       // Zero the top three bytes of the array that we'll use to decode nal unit lengths, in case
       // they're only 1 or 2 bytes long.
       byte[] nalLengthData = nalLength.getData();
@@ -654,6 +838,12 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
                 "Invalid NAL length", /* cause= */ null);
           }
           sampleCurrentNalBytesRemaining = nalLengthInt;
+          if (traced && nalLengthInt > 0) {
+            // the NAL unit header is the next byte; peek it so the payload still streams through
+            input.peekFully(nalHeader, 0, 1);
+            input.resetPeekPosition();
+            sampleNalTypes |= NalUnitRewriter.nalTypeBit(nalHeader[0], nalHeaderLayout);
+          }
           // Write a start code for the current NAL unit.
           nalStartCode.setPosition(0);
           trackOutput.sampleData(nalStartCode, 4);
@@ -687,8 +877,8 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
       }
     }
 
-    long timeUs = track.sampleTable.timestampsUs[sampleIndex];
-    @C.BufferFlags int flags = track.sampleTable.flags[sampleIndex];
+    long timeUs = track.sampleTable.getTimestampUs(sampleIndex);
+    @C.BufferFlags int flags = track.sampleTable.getFlags(sampleIndex);
     if (trueHdSampleRechunker != null) {
       trueHdSampleRechunker.sampleMetadata(
           trackOutput, timeUs, flags, sampleSize, /* offset= */ 0, /* cryptoData= */ null);
@@ -699,15 +889,69 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
       trackOutput.sampleMetadata(
           timeUs, flags, sampleSize, /* offset= */ 0, /* cryptoData= */ null);
     }
+    if (traced) {
+      trace.record(timeUs, storedSize, flags, sampleNalTypes);
+    }
 
     track.sampleIndex++;
     sampleTrackIndex = C.INDEX_UNSET;
     sampleBytesRead = 0;
     sampleBytesWritten = 0;
     sampleCurrentNalBytesRemaining = 0;
+    sampleNalTypes = 0;
     return RESULT_CONTINUE;
   }
 
+  /**
+   * Reads the whole length-prefixed sample into a pooled buffer, replaces its lengths with start
+   * codes (in place for 4 byte lengths, in a single expansion pass otherwise) and writes it to
+   * {@code trackOutput} in one call. The read resumes from {@link #sampleBytesRead} if it was
+   * interrupted. The NAL unit types seen are left in {@link #sampleNalTypes}.
+   *
+   * @return The size of the sample as written.
+   */
+  private int writeWholeNalSample(
+      ExtractorInput input,
+      TrackOutput trackOutput,
+      int nalUnitLengthFieldLength,
+      int sampleSize,
+      int nalHeaderLayout)
+      throws IOException {
+    if (sampleBytesRead == 0) {
+      wholeSample.reset(sampleSize);
+    }
+    byte[] data = wholeSample.getData();
+    while (sampleBytesRead < sampleSize) {
+      int bytesRead = input.read(data, sampleBytesRead, sampleSize - sampleBytesRead);
+      if (bytesRead == C.RESULT_END_OF_INPUT) {
+        throw new EOFException();
+      }
+      sampleBytesRead += bytesRead;
+    }
+
+    ParsableByteArray annexB;
+    if (nalUnitLengthFieldLength == 4) {
+      sampleNalTypes = NalUnitRewriter.rewriteInPlace(data, sampleSize, nalHeaderLayout);
+      annexB = wholeSample;
+    } else {
+      int expandedSize =
+          NalUnitRewriter.expandedSize(data, sampleSize, nalUnitLengthFieldLength);
+      expandedSample.reset(expandedSize);
+      sampleNalTypes =
+          NalUnitRewriter.expand(
+              data,
+              sampleSize,
+              nalUnitLengthFieldLength,
+              expandedSample.getData(),
+              nalHeaderLayout);
+      annexB = expandedSample;
+    }
+    int size = annexB.limit();
+    trackOutput.sampleData(annexB, size);
+    sampleBytesWritten = size;
+    return size;
+  }
+
   /**
    * Returns the index of the track that contains the next sample to be read, or {@link
    * C#INDEX_UNSET} if no samples remain.
@@ -735,8 +979,8 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
       if (sampleIndex == track.sampleTable.sampleCount) {
         continue;
       }
-      long sampleOffset = track.sampleTable.offsets[sampleIndex];
-      long sampleAccumulatedBytes = castNonNull(accumulatedSampleSizes)[trackIndex][sampleIndex];
+      long sampleOffset = track.sampleTable.getOffset(sampleIndex);
+      long sampleAccumulatedBytes = castNonNull(accumulatedSampleSizes).get(trackIndex, sampleIndex);
       long skipAmount = sampleOffset - inputPosition;
       boolean requiresReload = skipAmount < 0 || skipAmount >= RELOAD_MINIMUM_SEEK_DISTANCE;
       if ((!requiresReload && preferredRequiresReload)
@@ -806,45 +1050,6 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
     }
   }
 
-  /**
-   * For each sample of each track, calculates accumulated size of all samples which need to be read
-   * before this sample can be used.
-   */
-  private static long[][] calculateAccumulatedSampleSizes(Mp4Track[] tracks) {
-    long[][] accumulatedSampleSizes = new long[tracks.length][];
-    int[] nextSampleIndex = new int[tracks.length];
-    long[] nextSampleTimesUs = new long[tracks.length];
-    boolean[] tracksFinished = new boolean[tracks.length];
-    for (int i = 0; i < tracks.length; i++) {
-      accumulatedSampleSizes[i] = new long[tracks[i].sampleTable.sampleCount];
-      nextSampleTimesUs[i] = tracks[i].sampleTable.timestampsUs[0];
-    }
-    long accumulatedSampleSize = 0;
-    int finishedTracks = 0;
-    while (finishedTracks < tracks.length) {
-      long minTimeUs = Long.MAX_VALUE;
-      int minTimeTrackIndex = -1;
-      for (int i = 0; i < tracks.length; i++) {
-        if (!tracksFinished[i] && nextSampleTimesUs[i] <= minTimeUs) {
-          minTimeTrackIndex = i;
-          minTimeUs = nextSampleTimesUs[i];
-        }
-      }
-      int trackSampleIndex = nextSampleIndex[minTimeTrackIndex];
-      accumulatedSampleSizes[minTimeTrackIndex][trackSampleIndex] = accumulatedSampleSize;
-      accumulatedSampleSize += tracks[minTimeTrackIndex].sampleTable.sizes[trackSampleIndex];
-      nextSampleIndex[minTimeTrackIndex] = ++trackSampleIndex;
-      if (trackSampleIndex < accumulatedSampleSizes[minTimeTrackIndex].length) {
-        nextSampleTimesUs[minTimeTrackIndex] =
-            tracks[minTimeTrackIndex].sampleTable.timestampsUs[trackSampleIndex];
-      } else {
-        tracksFinished[minTimeTrackIndex] = true;
-        finishedTracks++;
-      }
-    }
-    return accumulatedSampleSizes;
-  }
-
   /**
    * Adjusts a seek point offset to take into account the track with the given {@code sampleTable},
    * for a given {@code seekTimeUs}.
@@ -860,7 +1065,7 @@ public final class VcatMp4Extractor implements Extractor, SeekMap {
     if (sampleIndex == C.INDEX_UNSET) {
       return offset;
     }
-    long sampleOffset = sampleTable.offsets[sampleIndex];
+    long sampleOffset = sampleTable.getOffset(sampleIndex);
     return min(sampleOffset, offset);
   }
 
@@ -0,0 +1,114 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.service;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.IBinder;
+import android.os.PowerManager;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.roncatech.vcat.R;
+
+/**
+ * Keeps a test running while the screen is off: a foreground service, so the process keeps its
+ * priority once the player activity is no longer visible, holding a partial wake lock, so the CPU
+ * keeps decoding. The player activity starts it for a display-off run and stops it when the run ends.
+ */
+public class PlaybackKeepAliveService extends Service {
+
+    private static final String TAG = "PlaybackKeepAlive";
+    private static final String CHANNEL_ID = "vcat_test_run";
+    private static final int NOTIFICATION_ID = 1;
+
+    @Nullable private PowerManager.WakeLock wakeLock;
+
+    public static void start(Context context) {
+        context.startForegroundService(new Intent(context, PlaybackKeepAliveService.class));
+    }
+
+    public static void stop(Context context) {
+        context.stopService(new Intent(context, PlaybackKeepAliveService.class));
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        NotificationManager nm = getSystemService(NotificationManager.class);
+        nm.createNotificationChannel(new NotificationChannel(CHANNEL_ID, getString(R.string.test_run_channel),
+                NotificationManager.IMPORTANCE_LOW));
+        Notification n = new Notification.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_play_video)
+                .setContentTitle(getString(R.string.app_name))
+                .setContentText(getString(R.string.display_off_running))
+                .setOngoing(true)
+                .build();
+        startForeground(NOTIFICATION_ID, n, ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK);
+
+        PowerManager pm = (PowerManager) getSystemService(POWER_SERVICE);
+        // released in onDestroy; a run is bounded by its run mode, not by a timeout here
+        wakeLock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "vcat:display-off-run");
+        wakeLock.setReferenceCounted(false);
+        wakeLock.acquire();
+        Log.i(TAG, "Started, wake lock held");
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // a run cannot resume after the process dies, so there is nothing to restart
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        if (wakeLock != null && wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+        wakeLock = null;
+        Log.i(TAG, "Stopped, wake lock released");
+        super.onDestroy();
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.telemetry;
+
+/**
+ * Startup milestones of one clip on the monotonic clock ({@code SystemClock.elapsedRealtime}):
+ * media item set, source prepared (tracks known), video decoder initialized and first frame
+ * rendered. Only the first occurrence of each milestone after {@link #begin} counts. Durations are
+ * from {@link #begin}, or -1 for a milestone that has not happened (a decoder kept across a
+ * gapless boundary is never initialized for the clip).
+ */
+public final class ClipStartup {
+    private long startMs = -1;
+    private long preparedMs = -1;
+    private long decoderInitializedMs = -1;
+    private long firstFrameMs = -1;
+    private long decoderInitDurationMs = -1;
+    private long moovParseMs = -1;
+    private long moovSetupMs = -1;
+    private boolean moovCached = false;
+
+    /** The clip's media item has just been handed to the player (or, prewarmed, started). */
+    public void begin(long nowMs) {
+        startMs = nowMs;
+        preparedMs = -1;
+        decoderInitializedMs = -1;
+        firstFrameMs = -1;
+        decoderInitDurationMs = -1;
+        moovParseMs = -1;
+        moovSetupMs = -1;
+        moovCached = false;
+    }
+
+    public void onPrepared(long nowMs) {
+        if (startMs >= 0 && preparedMs < 0) {
+            preparedMs = nowMs;
+        }
+    }
+
+    /**
+     * @param initializedMs when the decoder finished initializing
+     * @param initDurationMs how long creating and configuring it took; for plugins this is the
+     *     native context and thread pool setup
+     */
+    public void onDecoderInitialized(long initializedMs, long initDurationMs) {
+        if (startMs >= 0 && decoderInitializedMs < 0) {
+            decoderInitializedMs = initializedMs;
+            decoderInitDurationMs = initDurationMs;
+        }
+    }
+
+    /**
+     * The MP4 extractor has the clip's moov ready. Part of the prepare time; the other containers
+     * have no moov and leave these at -1.
+     * @param parseMs parsing the sample tables, or reading them back from the moov cache
+     * @param setupMs creating the tracks from them
+     */
+    public void onMoovReady(long parseMs, long setupMs, boolean fromCache) {
+        if (startMs >= 0 && moovParseMs < 0) {
+            moovParseMs = parseMs;
+            moovSetupMs = setupMs;
+            moovCached = fromCache;
+        }
+    }
+
+    /**
+     * The clip was prepared by a back buffer that recorded its own milestones in {@code prewarm}
+     * before this clip began. Its prepare, decoder and moov times are taken over as it measured them,
+     * from its own media item; the first frame stays measured from this {@link #begin} (play).
+     */
+    public void takePrewarmed(ClipStartup prewarm) {
+        if (startMs < 0) {
+            return;
+        }
+        if (preparedMs < 0 && prewarm.getPrepareMs() >= 0) {
+            preparedMs = startMs + prewarm.getPrepareMs();
+        }
+        if (decoderInitializedMs < 0 && prewarm.getDecoderReadyMs() >= 0) {
+            decoderInitializedMs = startMs + prewarm.getDecoderReadyMs();
+            decoderInitDurationMs = prewarm.decoderInitDurationMs;
+        }
+        if (moovParseMs < 0 && prewarm.moovParseMs >= 0) {
+            moovParseMs = prewarm.moovParseMs;
+            moovSetupMs = prewarm.moovSetupMs;
+            moovCached = prewarm.moovCached;
+        }
+    }
+
+    public void onFirstFrame(long nowMs) {
+        if (startMs >= 0 && firstFrameMs < 0) {
+            firstFrameMs = nowMs;
+        }
+    }
+
+    private long since(long ms) {
+        return (startMs >= 0 && ms >= 0) ? Math.max(0, ms - startMs) : -1;
+    }
+
+    /** Media item to prepared. */
+    public long getPrepareMs() {
+        return since(preparedMs);
+    }
+
+    /** Media item to decoder initialized. */
+    public long getDecoderReadyMs() {
+        return since(decoderInitializedMs);
+    }
+
+    /** The decoder's own initialization time. */
+    public long getDecoderInitMs() {
+        return decoderInitializedMs >= 0 ? decoderInitDurationMs : -1;
+    }
+
+    /** Media item to first rendered frame. */
+    public long getFirstFrameMs() {
+        return since(firstFrameMs);
+    }
+
+    /** Time the MP4 extractor spent parsing (or restoring) the moov, -1 if it did not. */
+    public long getMoovParseMs() {
+        return moovParseMs;
+    }
+
+    /** Time the MP4 extractor spent setting up tracks from the moov, -1 if it did not. */
+    public long getMoovSetupMs() {
+        return moovSetupMs;
+    }
+
+    /** Whether the moov came from the parsed-moov cache rather than the file. */
+    public boolean isMoovCached() {
+        return moovCached;
+    }
+}
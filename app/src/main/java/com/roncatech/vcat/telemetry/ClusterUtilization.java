@@ -0,0 +1,269 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.telemetry;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.system.Os;
+import android.system.OsConstants;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CPU time of this process's threads per CPU cluster, on a background thread. Decoder plugins run
+ * in-process, so their worker threads are included; apps cannot read the system-wide
+ * {@code /proc/stat}.
+ *
+ * <p>Every {@link #PERIOD_MS} each thread's {@code /proc/self/task/<tid>/stat} is read. The CPU time
+ * the thread used since the previous sample is charged to the cluster of the CPU it last ran on.
+ * A thread that migrates within a period is charged to one cluster only. At this rate the
+ * per-cluster split is still clear enough to tell where the decoding ran.
+ *
+ * <p>Like {@link EnergyIntegrator} it only accumulates; diff two {@link Snapshot}s to measure a
+ * window.
+ */
+public final class ClusterUtilization {
+    public static final long PERIOD_MS = 250L;
+
+    /** CPU time per cluster up to a point in time. */
+    public static final class Snapshot {
+        final long[] cpuMs;
+        final long atMs;
+
+        Snapshot(long[] cpuMs, long atMs) {
+            this.cpuMs = cpuMs;
+            this.atMs = atMs;
+        }
+    }
+
+    private final File taskDir;
+    private final int[] clusterOfCpu;
+    private final int[] coresPerCluster;
+    private final String[] labels;
+    private final long msPerTick;
+
+    private final long[] clusterTicks;
+    private Map<Integer, Long> lastTicks = new HashMap<>();
+    private boolean primed = false;
+
+    private HandlerThread thread;
+    private Handler handler;
+
+    private final Runnable sampler = new Runnable() {
+        @Override
+        public void run() {
+            sample();
+            Handler h = handler;
+            if (h != null) {
+                h.postDelayed(this, PERIOD_MS);
+            }
+        }
+    };
+
+    /**
+     * @param clusterOfCpu cluster index of each CPU number
+     * @param labels name of each cluster, e.g. "little", "big"
+     * @param clockTicksPerSecond {@code _SC_CLK_TCK}, the unit of the stat times
+     */
+    public ClusterUtilization(int[] clusterOfCpu, String[] labels, long clockTicksPerSecond) {
+        this(new File("/proc/self/task"), clusterOfCpu, labels, clockTicksPerSecond);
+    }
+
+    ClusterUtilization(File taskDir, int[] clusterOfCpu, String[] labels, long clockTicksPerSecond) {
+        this.taskDir = taskDir;
+        this.clusterOfCpu = clusterOfCpu.clone();
+        this.labels = labels.clone();
+        this.coresPerCluster = new int[labels.length];
+        for (int c : clusterOfCpu) {
+            this.coresPerCluster[c]++;
+        }
+        this.clusterTicks = new long[labels.length];
+        this.msPerTick = 1000L / Math.max(1L, clockTicksPerSecond);
+    }
+
+    /** The unit of the thread times in {@code /proc}, 100 on every Android kernel seen so far. */
+    public static long clockTicksPerSecond() {
+        long hz = Os.sysconf(OsConstants._SC_CLK_TCK);
+        return hz > 0 ? hz : 100L;
+    }
+
+    /** Start sampling. Calling start on a running sampler is a no-op. */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new HandlerThread("vcat-clusters", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        handler.post(sampler);
+    }
+
+    /** Stop sampling. What was accumulated stays available. */
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        handler.removeCallbacks(sampler);
+        handler = null;
+        thread.quitSafely();
+        thread = null;
+    }
+
+    public String[] getLabels() {
+        return labels.clone();
+    }
+
+    /** Read every thread's CPU time once and charge what it used since the last sample. */
+    synchronized void sample() {
+        File[] tasks = taskDir.listFiles();
+        if (tasks == null) {
+            return;
+        }
+        Map<Integer, Long> ticks = new HashMap<>(tasks.length * 2);
+        for (File task : tasks) {
+            int tid;
+            try {
+                tid = Integer.parseInt(task.getName());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            long[] stat = parseTaskStat(readLine(new File(task, "stat")));
+            if (stat == null) {
+                continue;
+            }
+            ticks.put(tid, stat[0]);
+            // the first sample only sets the baselines; a thread first seen later is new since the last one
+            Long last = lastTicks.get(tid);
+            long used = last != null ? stat[0] - last : (primed ? stat[0] : 0);
+            int cpu = (int) stat[1];
+            if (used > 0 && cpu >= 0 && cpu < clusterOfCpu.length) {
+                clusterTicks[clusterOfCpu[cpu]] += used;
+            }
+        }
+        lastTicks = ticks;
+        primed = true;
+    }
+
+    public Snapshot snapshot() {
+        return snapshot(SystemClock.elapsedRealtime());
+    }
+
+    synchronized Snapshot snapshot(long atMs) {
+        long[] ms = new long[clusterTicks.length];
+        for (int i = 0; i < ms.length; i++) {
+            ms[i] = clusterTicks[i] * msPerTick;
+        }
+        return new Snapshot(ms, atMs);
+    }
+
+    /**
+     * Share of each cluster's capacity (its cores times the wall time) this process used between
+     * two snapshots; -1 for a cluster with no cores or an empty window.
+     */
+    public double[] utilization(Snapshot start, Snapshot end) {
+        double[] out = new double[labels.length];
+        long wallMs = end.atMs - start.atMs;
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (wallMs > 0 && coresPerCluster[i] > 0)
+                    ? (double) (end.cpuMs[i] - start.cpuMs[i]) / (wallMs * coresPerCluster[i]) : -1.0;
+        }
+        return out;
+    }
+
+    /** e.g. "little:0.125;big:0.402", for the csv. */
+    public String format(double[] utilization) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < utilization.length; i++) {
+            if (i > 0) {
+                sb.append(';');
+            }
+            sb.append(labels[i]).append(':').append(String.format(Locale.US, "%.3f", utilization[i]));
+        }
+        return sb.toString();
+    }
+
+    public Map<String, Double> toMap(double[] utilization) {
+        Map<String, Double> out = new HashMap<>();
+        for (int i = 0; i < utilization.length; i++) {
+            out.put(labels[i], utilization[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Parse a {@code /proc/<pid>/task/<tid>/stat} line.
+     *
+     * @return {utime + stime in clock ticks, CPU last run on}, or null if the line is not a stat line
+     */
+    @Nullable
+    static long[] parseTaskStat(@Nullable String line) {
+        if (line == null) {
+            return null;
+        }
+        // the command name is in parentheses and may itself contain spaces or parentheses
+        int close = line.lastIndexOf(')');
+        if (close < 0 || close + 2 > line.length()) {
+            return null;
+        }
+        String[] f = line.substring(close + 2).split(" ");
+        // f[0] is field 3 (state): utime is field 14, stime 15, processor 39
+        if (f.length < 37) {
+            return null;
+        }
+        try {
+            return new long[] {Long.parseLong(f[11]) + Long.parseLong(f[12]), Long.parseLong(f[36])};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static String readLine(File file) {
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            return br.readLine();
+        } catch (IOException e) {
+            // the thread exited since the directory was listed
+            return null;
+        }
+    }
+}
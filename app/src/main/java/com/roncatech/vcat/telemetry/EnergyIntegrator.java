@@ -0,0 +1,254 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+
+package com.roncatech.vcat.telemetry;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Integrates battery power draw into energy (mJ) on a background thread.
+ *
+ * <p>{@code BATTERY_PROPERTY_CURRENT_NOW} (µA) is sampled at a configurable 1–10 Hz and
+ * multiplied by the battery voltage (mV, from the sticky {@code ACTION_BATTERY_CHANGED}
+ * broadcast) to get instantaneous power, which is integrated with the trapezoid rule. Voltage
+ * moves slowly and the sticky broadcast is an IPC, so it is refreshed at most once per
+ * {@link #VOLTAGE_REFRESH_MS} rather than per sample.
+ *
+ * <p>The integrator only ever accumulates. Callers take a {@link Snapshot} at the start of a
+ * clip (or session) and diff it against a later snapshot, so any number of overlapping
+ * windows can be measured off one sampling thread.
+ *
+ * <p>The sign convention of {@code CURRENT_NOW} differs between vendors (negative is
+ * "discharging" on most devices), so the magnitude is integrated, and the sign cannot tell
+ * charging apart either. Samples taken while {@link BatteryManager#isCharging()} is true are
+ * counted in {@link Snapshot#chargingSamples} so a result polluted by a connected charger can be
+ * recognized.
+ */
+public class EnergyIntegrator {
+    private static final String TAG = "EnergyIntegrator";
+
+    public static final int MIN_SAMPLE_HZ = 1;
+    public static final int MAX_SAMPLE_HZ = 10;
+    public static final int DEFAULT_SAMPLE_HZ = 5;
+
+    private static final long VOLTAGE_REFRESH_MS = 5_000L;
+
+    /** Energy accumulated up to a point in time; diff two of these to measure a window. */
+    public static final class Snapshot {
+        public static final Snapshot empty = new Snapshot(0.0, 0L, 0L, 0L);
+
+        public final double energyMj;
+        public final long durationMs;
+        public final long samples;
+        public final long chargingSamples;
+
+        Snapshot(double energyMj, long durationMs, long samples, long chargingSamples) {
+            this.energyMj = energyMj;
+            this.durationMs = durationMs;
+            this.samples = samples;
+            this.chargingSamples = chargingSamples;
+        }
+
+        /** The energy and time accumulated between {@code start} and this snapshot. */
+        public Snapshot since(Snapshot start) {
+            return new Snapshot(
+                    this.energyMj - start.energyMj,
+                    this.durationMs - start.durationMs,
+                    this.samples - start.samples,
+                    this.chargingSamples - start.chargingSamples);
+        }
+
+        /** Average power over the window in mW, or -1 if nothing was integrated. */
+        public double averagePowerMw() {
+            return durationMs > 0 ? energyMj * 1000.0 / durationMs : -1.0;
+        }
+
+        /** Energy per frame in mJ, or -1 if no frames were rendered. */
+        public double energyPerFrameMj(long frames) {
+            return frames > 0 ? energyMj / frames : -1.0;
+        }
+    }
+
+    /**
+     * Trapezoid-rule accumulator, kept separate from the sampling thread so the arithmetic can
+     * be unit tested without a device.
+     */
+    static final class Accumulator {
+        private double energyMj = 0.0;
+        private long durationMs = 0L;
+        private long samples = 0L;
+        private long chargingSamples = 0L;
+
+        private long lastSampleMs = -1L;
+        private double lastPowerMw = 0.0;
+
+        /**
+         * Add one sample.
+         * @param nowMs monotonic sample time
+         * @param currentUa instantaneous battery current, any sign convention
+         * @param voltageMv battery voltage; samples with a non-positive voltage are ignored
+         * @param charging the battery reported charging at the time of the sample
+         */
+        synchronized void add(long nowMs, long currentUa, int voltageMv, boolean charging) {
+            if (voltageMv <= 0 || currentUa == Long.MIN_VALUE) {
+                return;
+            }
+            double powerMw = Math.abs(currentUa) / 1000.0 * voltageMv / 1000.0;
+            if (lastSampleMs >= 0 && nowMs > lastSampleMs) {
+                long dtMs = nowMs - lastSampleMs;
+                // mW * s = mJ
+                energyMj += (lastPowerMw + powerMw) / 2.0 * dtMs / 1000.0;
+                durationMs += dtMs;
+            }
+            if (charging) {
+                chargingSamples++;
+            }
+            samples++;
+            lastSampleMs = nowMs;
+            lastPowerMw = powerMw;
+        }
+
+        /** Forget the previous sample so a pause in sampling is not integrated as a long step. */
+        synchronized void breakInterval() {
+            lastSampleMs = -1L;
+        }
+
+        synchronized Snapshot snapshot() {
+            return new Snapshot(energyMj, durationMs, samples, chargingSamples);
+        }
+    }
+
+    private final Context ctx;
+    private final long periodMs;
+    private final Accumulator acc = new Accumulator();
+
+    private HandlerThread thread;
+    // the sampling chain of the current start; null while stopped
+    private Sampler sampler;
+
+    /**
+     * One start's sampling chain. It only re-posts to its own handler and only adds a sample while
+     * it is still the integrator's current sampler, so a sample in flight on a stopped thread
+     * cannot land after {@link #stop()} or a later {@link #start()}.
+     */
+    private final class Sampler implements Runnable {
+        private final Handler handler;
+        private final BatteryManager batteryManager;
+
+        private int voltageMv = -1;
+        private long voltageReadMs = -1L;
+
+        Sampler(Handler handler, BatteryManager batteryManager) {
+            this.handler = handler;
+            this.batteryManager = batteryManager;
+        }
+
+        @Override
+        public void run() {
+            long now = SystemClock.elapsedRealtime();
+            if (voltageReadMs < 0 || now - voltageReadMs >= VOLTAGE_REFRESH_MS) {
+                voltageMv = readVoltageMv();
+                voltageReadMs = now;
+            }
+            long currentUa = batteryManager.getLongProperty(BatteryManager.BATTERY_PROPERTY_CURRENT_NOW);
+            boolean charging = batteryManager.isCharging();
+            synchronized (EnergyIntegrator.this) {
+                if (sampler != this) {
+                    return;
+                }
+                acc.add(now, currentUa, voltageMv, charging);
+                handler.postDelayed(this, periodMs);
+            }
+        }
+    }
+
+    public EnergyIntegrator(Context ctx, int sampleHz) {
+        this.ctx = ctx.getApplicationContext();
+        this.periodMs = 1000L / clampSampleHz(sampleHz);
+    }
+
+    public static int clampSampleHz(int sampleHz) {
+        return Math.max(MIN_SAMPLE_HZ, Math.min(MAX_SAMPLE_HZ, sampleHz));
+    }
+
+    /** Start sampling. Calling start on a running integrator is a no-op. */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        // never integrate across the time spent stopped
+        acc.breakInterval();
+        thread = new HandlerThread("vcat-energy", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        sampler = new Sampler(new Handler(thread.getLooper()),
+                (BatteryManager) ctx.getSystemService(Context.BATTERY_SERVICE));
+        sampler.handler.post(sampler);
+        Log.i(TAG, String.format(Locale.US, "Energy sampling started @ %d ms", periodMs));
+    }
+
+    /** Stop sampling. The accumulated energy is kept and still available via {@link #snapshot()}. */
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        sampler.handler.removeCallbacks(sampler);
+        sampler = null;
+        thread.quitSafely();
+        thread = null;
+        acc.breakInterval();
+        Log.i(TAG, "Energy sampling stopped");
+    }
+
+    public Snapshot snapshot() {
+        return acc.snapshot();
+    }
+
+    private int readVoltageMv() {
+        Intent batteryStatus = ctx.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (batteryStatus == null) {
+            Log.w(TAG, "ACTION_BATTERY_CHANGED not available, energy will not be integrated");
+            return -1;
+        }
+        return batteryStatus.getIntExtra(BatteryManager.EXTRA_VOLTAGE, -1);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.telemetry;
+
+import androidx.annotation.Nullable;
+
+import com.roncatech.vcat.decoder_plugin_api.FrameHashSink;
+
+/**
+ * Benchmark-integrity check of one clip: collects the CRC32 of every hashed output frame and checks
+ * it against the clip's reference hashes, if the test vector provides any. Output frame indexes
+ * count from 0 in presentation order; a reference is kept for every {@code referenceInterval}th
+ * frame.
+ *
+ * <p>Hashes arrive on the playback thread and are compared as they come, so only the counters are
+ * kept; results are read from the main thread.
+ */
+public final class FrameIntegrity implements FrameHashSink {
+
+    public enum Result {
+        /** Every reference frame was hashed and matched. */
+        PASS("pass"),
+        /** A hash did not match, or a reference frame never came out of the decoder. */
+        FAIL("fail"),
+        /** No reference for this clip, or no frame was hashed. */
+        UNVERIFIED("unverified");
+
+        public final String label;
+
+        Result(String label) {
+            this.label = label;
+        }
+    }
+
+    private final int hashEveryNthFrame;
+    @Nullable private final long[] reference;
+    private final int referenceInterval;
+
+    private long framesHashed = 0;
+    private long hashingNs = 0;
+    private long compared = 0;
+    private long mismatches = 0;
+    private long firstMismatchFrame = -1;
+
+    /**
+     * @param hashEveryNthFrame the renderer hashes frames whose index is a multiple of this
+     * @param reference expected CRC32 of frames 0, referenceInterval, 2 * referenceInterval, ...; null if none
+     */
+    public FrameIntegrity(int hashEveryNthFrame, @Nullable long[] reference, int referenceInterval) {
+        this.hashEveryNthFrame = Math.max(1, hashEveryNthFrame);
+        this.reference = reference;
+        this.referenceInterval = Math.max(1, referenceInterval);
+    }
+
+    public int getHashEveryNthFrame() {
+        return hashEveryNthFrame;
+    }
+
+    @Override
+    public synchronized void onFrameHashed(long frameIndex, long presentationTimeUs, long crc32, long hashingNs) {
+        this.framesHashed++;
+        this.hashingNs += hashingNs;
+        if (reference == null || frameIndex % referenceInterval != 0) {
+            return;
+        }
+        long i = frameIndex / referenceInterval;
+        if (i >= reference.length) {
+            return;
+        }
+        this.compared++;
+        if (reference[(int) i] != crc32) {
+            if (this.mismatches == 0) {
+                this.firstMismatchFrame = frameIndex;
+            }
+            this.mismatches++;
+        }
+    }
+
+    /** Reference frames the renderer is expected to hash: those at a common multiple of both intervals. */
+    synchronized long expectedComparisons() {
+        if (reference == null) {
+            return 0;
+        }
+        long step = lcm(hashEveryNthFrame, referenceInterval) / referenceInterval;
+        return (reference.length + step - 1) / step;
+    }
+
+    /**
+     * @param clipComplete the clip played to its end, so every expected reference frame should have been hashed
+     */
+    public synchronized Result getResult(boolean clipComplete) {
+        if (mismatches > 0) {
+            return Result.FAIL;
+        }
+        if (reference == null || compared == 0) {
+            return Result.UNVERIFIED;
+        }
+        if (clipComplete && compared < expectedComparisons()) {
+            return Result.FAIL;
+        }
+        return Result.PASS;
+    }
+
+    public synchronized long getFramesHashed() {
+        return framesHashed;
+    }
+
+    public synchronized long getMismatches() {
+        return mismatches;
+    }
+
+    /** Index of the first frame that did not match, or -1. */
+    public synchronized long getFirstMismatchFrame() {
+        return firstMismatchFrame;
+    }
+
+    public synchronized double getHashingMs() {
+        return hashingNs / 1e6;
+    }
+
+    /** Mean hashing time per hashed frame, or -1 before the first frame. */
+    public synchronized double getHashingMsPerFrame() {
+        return framesHashed > 0 ? hashingNs / 1e6 / framesHashed : -1.0;
+    }
+
+    private static long lcm(long a, long b) {
+        long x = a;
+        long y = b;
+        while (y != 0) {
+            long t = x % y;
+            x = y;
+            y = t;
+        }
+        return a / x * b;
+    }
+}
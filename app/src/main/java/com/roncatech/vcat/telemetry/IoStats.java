@@ -0,0 +1,211 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.telemetry;
+
+import java.util.Arrays;
+
+/**
+ * Media I/O and buffer health counters for a playback session: bytes and read calls from the data
+ * sources, per-call read latency as a histogram, the wall and CPU time spent in reads, rebuffer (underrun) events, and the buffered
+ * duration the load control saw. Everything is cumulative; per-clip numbers come from
+ * {@link Snapshot#since}, as for {@link EnergyIntegrator}.
+ *
+ * <p>Together with the drop counters this separates the two ways a clip can stall: a starved
+ * player has a low buffer and underruns, an overloaded decoder drops frames with a full buffer.
+ * Called from the loading and playback threads.
+ */
+public final class IoStats {
+
+    /** Upper bounds of the read latency buckets in us; the last bucket holds everything slower. */
+    public static final long[] LATENCY_BUCKET_US = {
+            50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000
+    };
+
+    /** Buffered duration under which a buffer sample counts as low. */
+    public static final long LOW_BUFFER_MS = 500;
+
+    public static final class Snapshot {
+        public static final Snapshot empty =
+                new Snapshot(0L, 0L, 0L, new long[LATENCY_BUCKET_US.length + 1], 0L, 0L, 0L, 0L, 0L, 0L, -1L);
+
+        public final long bytesRead;
+        public final long readCalls;
+        public final long transfers;
+        private final long[] latencyCounts;
+        /** Wall time spent inside read calls. */
+        public final long readNs;
+        /** CPU time of the loading threads inside read calls, what the io modes are compared on. */
+        public final long readCpuNs;
+        public final long underruns;
+        public final long bufferSamples;
+        public final long bufferSumMs;
+        public final long lowBufferSamples;
+        /** Most recent buffered duration, -1 if none was seen. Not windowed. */
+        public final long lastBufferMs;
+
+        Snapshot(long bytesRead, long readCalls, long transfers, long[] latencyCounts, long readNs,
+                 long readCpuNs, long underruns, long bufferSamples, long bufferSumMs, long lowBufferSamples,
+                 long lastBufferMs) {
+            this.bytesRead = bytesRead;
+            this.readCalls = readCalls;
+            this.transfers = transfers;
+            this.latencyCounts = latencyCounts;
+            this.readNs = readNs;
+            this.readCpuNs = readCpuNs;
+            this.underruns = underruns;
+            this.bufferSamples = bufferSamples;
+            this.bufferSumMs = bufferSumMs;
+            this.lowBufferSamples = lowBufferSamples;
+            this.lastBufferMs = lastBufferMs;
+        }
+
+        /** The counts accumulated between {@code start} and this snapshot. */
+        public Snapshot since(Snapshot start) {
+            long[] counts = new long[latencyCounts.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = this.latencyCounts[i] - start.latencyCounts[i];
+            }
+            return new Snapshot(
+                    this.bytesRead - start.bytesRead,
+                    this.readCalls - start.readCalls,
+                    this.transfers - start.transfers,
+                    counts,
+                    this.readNs - start.readNs,
+                    this.readCpuNs - start.readCpuNs,
+                    this.underruns - start.underruns,
+                    this.bufferSamples - start.bufferSamples,
+                    this.bufferSumMs - start.bufferSumMs,
+                    this.lowBufferSamples - start.lowBufferSamples,
+                    this.lastBufferMs);
+        }
+
+        /** Read calls per latency bucket, see {@link #LATENCY_BUCKET_US}. */
+        public long[] getLatencyHistogram() {
+            return latencyCounts.clone();
+        }
+
+        /**
+         * Upper bound in us of the bucket holding the {@code percentile}th read, -1 if there were no
+         * reads, or {@link Long#MAX_VALUE} if it is in the open-ended last bucket.
+         */
+        public long latencyPercentileUs(double percentile) {
+            if (readCalls <= 0) {
+                return -1;
+            }
+            long rank = (long) Math.ceil(percentile / 100.0 * readCalls);
+            long seen = 0;
+            for (int i = 0; i < latencyCounts.length; i++) {
+                seen += latencyCounts[i];
+                if (seen >= Math.max(1, rank)) {
+                    return i < LATENCY_BUCKET_US.length ? LATENCY_BUCKET_US[i] : Long.MAX_VALUE;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /** Bytes delivered per second of read time in MB/s, or -1 if nothing was read. */
+        public double readMbPerSecond() {
+            return readNs > 0 ? bytesRead / 1e6 / (readNs / 1e9) : -1.0;
+        }
+
+        /** CPU ms spent in reads per MB delivered, or -1 if nothing was read. */
+        public double readCpuMsPerMb() {
+            return bytesRead > 0 ? (readCpuNs / 1e6) / (bytesRead / 1e6) : -1.0;
+        }
+
+        /** Mean buffered duration over the window in ms, or -1 if it was not sampled. */
+        public double averageBufferMs() {
+            return bufferSamples > 0 ? (double) bufferSumMs / bufferSamples : -1.0;
+        }
+
+        /** Fraction of buffer samples under {@link #LOW_BUFFER_MS}, or -1 if it was not sampled. */
+        public double lowBufferFraction() {
+            return bufferSamples > 0 ? (double) lowBufferSamples / bufferSamples : -1.0;
+        }
+    }
+
+    private long bytesRead = 0;
+    private long readCalls = 0;
+    private long transfers = 0;
+    private final long[] latencyCounts = new long[LATENCY_BUCKET_US.length + 1];
+    private long readNs = 0;
+    private long readCpuNs = 0;
+    private long underruns = 0;
+    private long bufferSamples = 0;
+    private long bufferSumMs = 0;
+    private long lowBufferSamples = 0;
+    private long lastBufferMs = -1;
+
+    /** A data source transfer (one open) started. */
+    public synchronized void onTransferStart() {
+        transfers++;
+    }
+
+    /** Bytes delivered by a data source. */
+    public synchronized void onBytesTransferred(long bytes) {
+        bytesRead += bytes;
+    }
+
+    /**
+     * One read call on a data source, however many bytes it returned, and the CPU time the calling
+     * thread spent in it (0 if unknown).
+     */
+    public synchronized void onRead(long latencyNs, long cpuNs) {
+        readCalls++;
+        readNs += latencyNs;
+        readCpuNs += Math.max(0, cpuNs);
+        long us = latencyNs / 1000;
+        int bucket = Arrays.binarySearch(LATENCY_BUCKET_US, us);
+        latencyCounts[bucket >= 0 ? bucket : -bucket - 1]++;
+    }
+
+    /** Playback went back to buffering after it had started. */
+    public synchronized void onUnderrun() {
+        underruns++;
+    }
+
+    /** The load control's view of how much media is buffered ahead of the playback position. */
+    public synchronized void onBufferLevel(long bufferedMs) {
+        bufferSamples++;
+        bufferSumMs += bufferedMs;
+        if (bufferedMs < LOW_BUFFER_MS) {
+            lowBufferSamples++;
+        }
+        lastBufferMs = bufferedMs;
+    }
+
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(bytesRead, readCalls, transfers, latencyCounts.clone(), readNs, readCpuNs,
+                underruns, bufferSamples, bufferSumMs, lowBufferSamples, lastBufferMs);
+    }
+}
@@ -0,0 +1,404 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.telemetry;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * What this device's decoders sustained on past runs, per (decoder, codec, resolution, frame rate,
+ * bitrate), kept in the app files dir so the playlist pre-flight can predict which clips will play
+ * in real time before a run starts.
+ *
+ * <p>Playback clips record the rate they rendered at and the share of frames dropped; decode
+ * benchmark clips record the rate the decoder can reach, which is the better capacity figure. A
+ * clip with no measurement of its own is predicted from the nearest measured one of the same
+ * decoder and codec, scaled by pixel rate. Also remembered is the format of each clip played, so
+ * clips the platform extractor cannot read (IVF, VVC) can still be predicted on later runs.
+ */
+public final class PerfDatabase {
+    private static final String TAG = "PerfDatabase";
+    public static final String FILE_NAME = "perf_db.json";
+    // One writer for the process, as for the session summary.
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor();
+
+    /** Dropping up to this share of frames still counts as real time. */
+    public static final double DROP_OK = 0.01;
+    /** Dropping up to this share is marginal; more is too slow. */
+    public static final double DROP_MARGINAL = 0.05;
+    /** A predicted rate this far above the clip's is real time; below 1.0 it is too slow. */
+    public static final double FPS_HEADROOM = 1.10;
+
+    // new measurements weigh 1/n until this many are in, then stay at 1/this
+    private static final int AVERAGE_WINDOW = 4;
+
+    /** Format of a clip, as seen when it played or read from its container. */
+    public static final class ClipFormat {
+        @SerializedName("mime_type")
+        public final String mimeType;
+        @SerializedName("width")
+        public final int width;
+        @SerializedName("height")
+        public final int height;
+        @SerializedName("fps")
+        public final double fps;
+        /** bits per second, 0 when unknown */
+        @SerializedName("bitrate")
+        public final long bitrate;
+        @SerializedName("duration_ms")
+        public final long durationMs;
+
+        public ClipFormat(String mimeType, int width, int height, double fps, long bitrate, long durationMs) {
+            this.mimeType = mimeType;
+            this.width = width;
+            this.height = height;
+            this.fps = fps;
+            this.bitrate = bitrate;
+            this.durationMs = durationMs;
+        }
+
+        double pixelRate() {
+            return (double) width * height * fps;
+        }
+    }
+
+    /** Measurements of one decoder on one kind of content. */
+    public static final class Entry {
+        @SerializedName("decoder")
+        public final String decoder;
+        @SerializedName("mime_type")
+        public final String mimeType;
+        @SerializedName("width")
+        public final int width;
+        @SerializedName("height")
+        public final int height;
+        @SerializedName("fps")
+        public final double fps;
+        @SerializedName("bitrate")
+        public final long bitrate;
+
+        @SerializedName("playback_runs")
+        public int playbackRuns;
+        /** Rendered frames per second of playback, first frame to end. */
+        @SerializedName("playback_fps")
+        public double playbackFps;
+        @SerializedName("drop_fraction")
+        public double dropFraction;
+        @SerializedName("benchmark_runs")
+        public int benchmarkRuns;
+        /** Decoded frames per second with no pacing, what the decoder can sustain. */
+        @SerializedName("decode_fps")
+        public double decodeFps;
+        @SerializedName("power_runs")
+        public int powerRuns;
+        @SerializedName("avg_power_mw")
+        public double avgPowerMw;
+        @SerializedName("updated_ms")
+        public long updatedMs;
+
+        Entry(String decoder, ClipFormat f) {
+            this.decoder = decoder;
+            this.mimeType = f.mimeType;
+            this.width = f.width;
+            this.height = f.height;
+            this.fps = f.fps;
+            this.bitrate = f.bitrate;
+        }
+
+        /**
+         * Frames per second at this entry's size the decoder can sustain, or -1 if unknown. A
+         * playback that kept up only shows the decoder reached the clip's rate, so it is a lower
+         * bound; see {@link #isLowerBound()}.
+         */
+        double capacityFps() {
+            if (benchmarkRuns > 0) {
+                return decodeFps;
+            }
+            if (playbackRuns > 0) {
+                return dropFraction > DROP_OK ? playbackFps : fps;
+            }
+            return -1.0;
+        }
+
+        boolean isLowerBound() {
+            return benchmarkRuns == 0 && playbackRuns > 0 && dropFraction <= DROP_OK;
+        }
+    }
+
+    public enum Verdict {
+        REALTIME("real time"),
+        MARGINAL("marginal"),
+        TOO_SLOW("too slow"),
+        UNSUPPORTED("unsupported"),
+        UNKNOWN("no data");
+
+        Verdict(String label) {
+            this.label = label;
+        }
+
+        public final String label;
+    }
+
+    /** What the database expects of one clip. */
+    public static final class Prediction {
+        public final Verdict verdict;
+        /** Sustainable frames per second, -1 when unknown. */
+        public final double fps;
+        /** Whether a measurement of this exact kind of content backs it, rather than a scaled neighbour. */
+        public final boolean measured;
+        /** Average power while playing such content, -1 when unknown. */
+        public final double powerMw;
+
+        public Prediction(Verdict verdict, double fps, boolean measured, double powerMw) {
+            this.verdict = verdict;
+            this.fps = fps;
+            this.measured = measured;
+            this.powerMw = powerMw;
+        }
+
+        public static final Prediction unknown = new Prediction(Verdict.UNKNOWN, -1.0, false, -1.0);
+    }
+
+    @SerializedName("entries")
+    private final Map<String, Entry> entries = new HashMap<>();
+    /** Clip uri to the format it played with. */
+    @SerializedName("clips")
+    private final Map<String, ClipFormat> clips = new HashMap<>();
+    /** The latest snapshot not yet written; not part of the file. */
+    private final transient AtomicReference<String> pendingJson = new AtomicReference<>();
+
+    static String keyFor(String decoder, ClipFormat f) {
+        return String.format(Locale.US, "%s|%s|%dx%d|%.0f|%d",
+                decoder, f.mimeType, f.width, f.height, f.fps, bitrateBucket(f.bitrate));
+    }
+
+    /** Half-octave bitrate buckets, so re-encodes at nearly the same rate share an entry. */
+    static int bitrateBucket(long bitrate) {
+        return bitrate > 0 ? (int) Math.round(2.0 * Math.log(bitrate / 1000.0) / Math.log(2.0)) : 0;
+    }
+
+    private Entry entryFor(String decoder, ClipFormat f) {
+        String key = keyFor(decoder, f);
+        Entry e = entries.get(key);
+        if (e == null) {
+            e = new Entry(decoder, f);
+            entries.put(key, e);
+        }
+        return e;
+    }
+
+    private static double average(double old, double sample, int n) {
+        return old + (sample - old) / Math.min(n, AVERAGE_WINDOW);
+    }
+
+    /** A playback clip ran to the end: rendered fps from first frame to end, and dropped / (rendered + dropped). */
+    public synchronized void recordPlayback(String decoder, ClipFormat f, double renderedFps,
+                                            double dropFraction, double powerMw, long nowMs) {
+        Entry e = entryFor(decoder, f);
+        e.playbackRuns++;
+        e.playbackFps = average(e.playbackFps, renderedFps, e.playbackRuns);
+        e.dropFraction = average(e.dropFraction, dropFraction, e.playbackRuns);
+        recordPower(e, powerMw);
+        e.updatedMs = nowMs;
+    }
+
+    /** A decode benchmark clip ran to the end at {@code decodedFps}. */
+    public synchronized void recordBenchmark(String decoder, ClipFormat f, double decodedFps,
+                                             double powerMw, long nowMs) {
+        Entry e = entryFor(decoder, f);
+        e.benchmarkRuns++;
+        e.decodeFps = average(e.decodeFps, decodedFps, e.benchmarkRuns);
+        recordPower(e, powerMw);
+        e.updatedMs = nowMs;
+    }
+
+    private static void recordPower(Entry e, double powerMw) {
+        if (powerMw > 0) {
+            e.powerRuns++;
+            e.avgPowerMw = average(e.avgPowerMw, powerMw, e.powerRuns);
+        }
+    }
+
+    public synchronized void recordClip(String uri, ClipFormat f) {
+        clips.put(uri, f);
+    }
+
+    @Nullable
+    public synchronized ClipFormat getClip(String uri) {
+        return clips.get(uri);
+    }
+
+    /** Average power over every measured entry, for clips with none of their own; -1 if none. */
+    public synchronized double getAveragePowerMw() {
+        double sum = 0;
+        int n = 0;
+        for (Entry e : entries.values()) {
+            if (e.powerRuns > 0) {
+                sum += e.avgPowerMw;
+                n++;
+            }
+        }
+        return n > 0 ? sum / n : -1.0;
+    }
+
+    /**
+     * Whether {@code decoder} will play {@code f} in real time. An exact entry decides on its own
+     * measurement; otherwise the closest entry of the same decoder and codec, by pixel rate and then
+     * bitrate, is scaled to the clip's pixel rate.
+     */
+    public synchronized Prediction predict(String decoder, ClipFormat f) {
+        Entry exact = entries.get(keyFor(decoder, f));
+        if (exact != null && (exact.playbackRuns > 0 || exact.benchmarkRuns > 0)) {
+            double power = exact.powerRuns > 0 ? exact.avgPowerMw : -1.0;
+            if (exact.benchmarkRuns > 0) {
+                return new Prediction(verdictFor(exact.decodeFps, f.fps), exact.decodeFps, true, power);
+            }
+            Verdict v = exact.dropFraction <= DROP_OK ? Verdict.REALTIME
+                    : exact.dropFraction <= DROP_MARGINAL ? Verdict.MARGINAL : Verdict.TOO_SLOW;
+            return new Prediction(v, exact.capacityFps(), true, power);
+        }
+
+        Entry nearest = null;
+        double best = Double.MAX_VALUE;
+        for (Entry e : entries.values()) {
+            if (!e.decoder.equals(decoder) || !e.mimeType.equals(f.mimeType) || e.capacityFps() <= 0) {
+                continue;
+            }
+            double d = distance(e, f);
+            if (d < best) {
+                best = d;
+                nearest = e;
+            }
+        }
+        if (nearest == null || f.width <= 0 || f.height <= 0) {
+            return Prediction.unknown;
+        }
+        double fps = nearest.capacityFps() * ((double) nearest.width * nearest.height) / ((double) f.width * f.height);
+        double power = nearest.powerRuns > 0 ? nearest.avgPowerMw : -1.0;
+        Verdict v = verdictFor(fps, f.fps);
+        if (nearest.isLowerBound() && v != Verdict.REALTIME) {
+            // the neighbour never showed its limit, so a slower prediction says nothing
+            v = Verdict.UNKNOWN;
+        }
+        return new Prediction(v, fps, false, power);
+    }
+
+    public static Verdict verdictFor(double capacityFps, double clipFps) {
+        if (capacityFps <= 0 || clipFps <= 0) {
+            return Verdict.UNKNOWN;
+        }
+        if (capacityFps >= clipFps * FPS_HEADROOM) {
+            return Verdict.REALTIME;
+        }
+        return capacityFps >= clipFps ? Verdict.MARGINAL : Verdict.TOO_SLOW;
+    }
+
+    private static double distance(Entry e, ClipFormat f) {
+        double d = Math.abs(Math.log(((double) e.width * e.height * Math.max(e.fps, 1.0))
+                / Math.max(f.pixelRate(), 1.0)));
+        if (e.bitrate > 0 && f.bitrate > 0) {
+            d += 0.5 * Math.abs(Math.log((double) e.bitrate / f.bitrate));
+        }
+        return d;
+    }
+
+    /** The database in {@code file}, or an empty one if there is none yet. */
+    @NonNull
+    public static PerfDatabase load(File file) {
+        if (file.isFile()) {
+            try (Reader r = new FileReader(file)) {
+                PerfDatabase db = new Gson().fromJson(r, PerfDatabase.class);
+                if (db != null) {
+                    return db;
+                }
+            } catch (IOException | JsonParseException e) {
+                Log.w(TAG, "Starting over, cannot read " + file, e);
+            }
+        }
+        return new PerfDatabase();
+    }
+
+    /** Write the database to {@code file} on the calling thread. */
+    public void save(File file) {
+        write(file, toJson());
+    }
+
+    /**
+     * As {@link #save}, but only the JSON snapshot is taken on the calling thread; the file rewrite
+     * goes to a background writer. Saves queued while one is in flight collapse into the latest
+     * snapshot, since each one replaces the whole file anyway.
+     */
+    public void saveAsync(File file) {
+        if (this.pendingJson.getAndSet(toJson()) == null) {
+            WRITER.execute(() -> flush(file));
+        }
+    }
+
+    private synchronized String toJson() {
+        return new Gson().toJson(this);
+    }
+
+    private void flush(File file) {
+        String json = this.pendingJson.getAndSet(null);
+        if (json != null) {
+            write(file, json);
+        }
+    }
+
+    private static void write(File file, String json) {
+        try (Writer w = new FileWriter(file)) {
+            w.write(json);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot save " + file, e);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.telemetry;
+
+import android.util.Log;
+
+import com.roncatech.vcat.decoder_plugin_api.DecoderMetrics;
+import com.roncatech.vcat.decoder_plugin_api.VcatDecoder;
+
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Polls the {@link DecoderMetrics} of every registered decoder plugin that publishes any, once per
+ * telemetry sample. Each metric becomes a {@code plugin.<id>.<metric>} csv column, in decoder id
+ * then metric order, and a running min/max/mean in the session summary.
+ *
+ * <p>The slots, their last values and the running stats are primitive arrays sized once, so a
+ * sample reads the plugins' buffers without allocating.
+ */
+public final class PluginMetrics {
+    private static final String TAG = "PluginMetrics";
+
+    private final List<String> columnNames = new ArrayList<>();
+    private final LongBuffer[] buffers;
+    private final int[] slots;
+    private final boolean[] counter;
+
+    private final long[] values;
+    private final long[] first;
+    private final long[] min;
+    private final long[] max;
+    private final double[] sum;
+    private long samples = 0;
+
+    public static PluginMetrics fromDecoders(List<VcatDecoder> decoders) {
+        Map<String, DecoderMetrics> byId = new TreeMap<>();
+        for (VcatDecoder d : decoders) {
+            DecoderMetrics m = d.getMetrics();
+            if (m != null) {
+                byId.put(d.getId(), m);
+            }
+        }
+        return new PluginMetrics(byId);
+    }
+
+    /**
+     * @param byDecoderId metrics keyed by decoder id, iterated in the map's order
+     */
+    PluginMetrics(Map<String, DecoderMetrics> byDecoderId) {
+        List<LongBuffer> bufferList = new ArrayList<>();
+        List<Integer> slotList = new ArrayList<>();
+        List<Boolean> counterList = new ArrayList<>();
+        for (Map.Entry<String, DecoderMetrics> e : byDecoderId.entrySet()) {
+            List<DecoderMetrics.Metric> metrics = e.getValue().getMetrics();
+            LongBuffer buffer = e.getValue().getValues();
+            if (metrics == null || buffer == null || buffer.limit() < metrics.size()) {
+                Log.w(TAG, "Ignoring metrics of " + e.getKey() + ": buffer does not cover its metrics");
+                continue;
+            }
+            for (int i = 0; i < metrics.size(); i++) {
+                DecoderMetrics.Metric m = metrics.get(i);
+                columnNames.add("plugin." + e.getKey() + "." + m.name);
+                bufferList.add(buffer);
+                slotList.add(i);
+                counterList.add(m.kind == DecoderMetrics.Kind.COUNTER);
+            }
+        }
+
+        int n = columnNames.size();
+        this.buffers = bufferList.toArray(new LongBuffer[0]);
+        this.slots = new int[n];
+        this.counter = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            this.slots[i] = slotList.get(i);
+            this.counter[i] = counterList.get(i);
+        }
+        this.values = new long[n];
+        this.first = new long[n];
+        this.min = new long[n];
+        this.max = new long[n];
+        this.sum = new double[n];
+    }
+
+    /** The csv column names, one per metric. */
+    public List<String> getColumnNames() {
+        return Collections.unmodifiableList(columnNames);
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    /** Read every plugin's current values. */
+    public synchronized void sample() {
+        boolean isFirst = samples == 0;
+        for (int i = 0; i < values.length; i++) {
+            long v = buffers[i].get(slots[i]);
+            values[i] = v;
+            if (isFirst) {
+                first[i] = v;
+                min[i] = v;
+                max[i] = v;
+            } else {
+                min[i] = Math.min(min[i], v);
+                max[i] = Math.max(max[i], v);
+            }
+            sum[i] += v;
+        }
+        samples++;
+    }
+
+    /** The value of metric {@code index} at the last {@link #sample()}. */
+    public synchronized long getValue(int index) {
+        return values[index];
+    }
+
+    /** Per-metric rollup of every sample so far, keyed by column name; empty before the first sample. */
+    public synchronized Map<String, SessionSummary.PluginMetric> toSummary() {
+        Map<String, SessionSummary.PluginMetric> out = new TreeMap<>();
+        if (samples == 0) {
+            return out;
+        }
+        for (int i = 0; i < values.length; i++) {
+            out.put(columnNames.get(i), new SessionSummary.PluginMetric(counter[i], samples,
+                    first[i], values[i], min[i], max[i], sum[i] / samples));
+        }
+        return out;
+    }
+}
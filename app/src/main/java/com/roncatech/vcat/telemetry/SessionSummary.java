@@ -0,0 +1,1073 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+
+package com.roncatech.vcat.telemetry;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-clip and per-session rollup written next to the telemetry csv as
+ * {@code <log name>_summary.json}. The csv holds the time series; this holds the headline numbers
+ * that are compared across decoders and devices, so they do not have to be re-derived from rows.
+ *
+ * <p>The summary is rewritten after every clip so an interrupted session still leaves a valid file.
+ * Session totals are kept as running aggregates and only the last {@link #CLIPS_KEPT} clip rollups
+ * (and {@link #STRESS_STEPS_KEPT} stress steps and {@link #SPEED_HEADROOM_KEPT} headroom searches,
+ * without their probes) stay in it, so the rewrite costs the same on the hundredth loop as on the
+ * first; every clip rollup is also appended once, as a JSON line, to
+ * {@code <log name>_clips.jsonl}, every stress step to {@code <log name>_stress_steps.jsonl} and
+ * every headroom search, probes included, to {@code <log name>_speed_headroom.jsonl}.
+ */
+public class SessionSummary {
+
+    public static final Gson gson = new GsonBuilder()
+            .setPrettyPrinting()
+            .serializeSpecialFloatingPointValues()
+            .create();
+
+    /** One clip rollup per line of the clips file. */
+    public static final Gson lineGson = new GsonBuilder()
+            .serializeSpecialFloatingPointValues()
+            .create();
+
+    /** Most recent clip rollups kept in the summary itself. */
+    public static final int CLIPS_KEPT = 100;
+
+    /** Most recent concurrent stress steps kept in the summary itself. */
+    public static final int STRESS_STEPS_KEPT = 100;
+
+    /** Most recent speed headroom searches kept in the summary itself. */
+    public static final int SPEED_HEADROOM_KEPT = 100;
+
+    public static class ClipSummary {
+        @SerializedName("file_name")
+        public final String fileName;
+        @SerializedName("decoder_name")
+        public final String decoderName;
+        @SerializedName("mime_type")
+        public final String mimeType;
+        @SerializedName("duration_ms")
+        public final long durationMs;
+        @SerializedName("frames_rendered")
+        public final long framesRendered;
+        @SerializedName("frames_dropped")
+        public final long framesDropped;
+        @SerializedName("energy_mj")
+        public final double energyMj;
+        @SerializedName("avg_power_mw")
+        public final double avgPowerMw;
+        @SerializedName("energy_per_frame_mj")
+        public final double energyPerFrameMj;
+        @SerializedName("energy_charging_samples")
+        public final long chargingSamples;
+
+        // optional, omitted from the json when not measured
+
+        /** End of the previous clip to first frame of this one. */
+        @SerializedName("transition_ms")
+        public Long transitionMs;
+        @SerializedName("prewarmed")
+        public Boolean prewarmed;
+        /** Gapless mode: whether the decoder was kept across the boundary into this clip. */
+        @SerializedName("decoder_reused")
+        public Boolean decoderReused;
+        /** vcat process CPU time per rendered (benchmark: decoded) frame. */
+        @SerializedName("cpu_ms_per_frame")
+        public Double cpuMsPerFrame;
+        /** Decode benchmark mode: rendered + dropped + skipped output buffers. */
+        @SerializedName("frames_decoded")
+        public Long framesDecoded;
+        @SerializedName("decoded_fps")
+        public Double decodedFps;
+        @SerializedName("frame_ms_p50")
+        public Double frameMsP50;
+        @SerializedName("frame_ms_p90")
+        public Double frameMsP90;
+        @SerializedName("frame_ms_p99")
+        public Double frameMsP99;
+        /** How media was read, {@code RunConfig.IoMode}, so cpu_ms_per_frame can be compared across modes. */
+        @SerializedName("io_mode")
+        public String ioMode;
+        /** RAM_PRELOAD: whether this clip was actually played from memory (it may not fit the budget). */
+        @SerializedName("preloaded")
+        public Boolean preloaded;
+        @SerializedName("read_bytes")
+        public Long readBytes;
+        @SerializedName("read_calls")
+        public Long readCalls;
+        @SerializedName("read_us_p50")
+        public Long readUsP50;
+        @SerializedName("read_us_p99")
+        public Long readUsP99;
+        /** Bytes over the wall time spent inside reads, MB/s. */
+        @SerializedName("read_mb_s")
+        public Double readMbPerSecond;
+        /** Loading-thread CPU spent inside reads per MB; the saving of an io_mode is the drop in this. */
+        @SerializedName("read_cpu_ms_per_mb")
+        public Double readCpuMsPerMb;
+        /** Read calls per latency bucket, bounds in the session's read_latency_bucket_us. */
+        @SerializedName("read_latency_histogram")
+        public long[] readLatencyHistogram;
+        @SerializedName("underruns")
+        public Long underruns;
+        @SerializedName("buffer_avg_ms")
+        public Double bufferAvgMs;
+        @SerializedName("buffer_low_fraction")
+        public Double bufferLowFraction;
+
+        /** Media item to prepared (tracks known). */
+        @SerializedName("startup_prepare_ms")
+        public Long startupPrepareMs;
+        /** Media item to video decoder initialized. */
+        @SerializedName("startup_decoder_ready_ms")
+        public Long startupDecoderReadyMs;
+        /** The decoder's own creation and configuration time. */
+        @SerializedName("startup_decoder_init_ms")
+        public Long startupDecoderInitMs;
+        /** Media item to first rendered frame. */
+        @SerializedName("startup_first_frame_ms")
+        public Long startupFirstFrameMs;
+        /** Parsing the MP4 sample tables, or reading them from the moov cache; part of prepare. */
+        @SerializedName("startup_moov_parse_ms")
+        public Long startupMoovParseMs;
+        /** Creating the MP4 tracks from the parsed moov. */
+        @SerializedName("startup_moov_setup_ms")
+        public Long startupMoovSetupMs;
+        @SerializedName("startup_moov_cached")
+        public Boolean startupMoovCached;
+
+        /** Decoder threads the clip ran with; only set in the thread sweep. */
+        @SerializedName("threads")
+        public Integer threads;
+
+        /** Placement asked of the clip's decoder, or why none applied. */
+        @SerializedName("thread_placement")
+        public String threadPlacement;
+        /** Share of each cluster's capacity the vcat process used during the clip. */
+        @SerializedName("cluster_util")
+        public Map<String, Double> clusterUtil;
+
+        /** pass, fail or unverified; only set in benchmark-integrity mode. */
+        @SerializedName("integrity_result")
+        public String integrityResult;
+        @SerializedName("integrity_frames_hashed")
+        public Long integrityFramesHashed;
+        @SerializedName("integrity_mismatches")
+        public Long integrityMismatches;
+        @SerializedName("integrity_first_mismatch_frame")
+        public Long integrityFirstMismatchFrame;
+        @SerializedName("integrity_hash_ms")
+        public Double integrityHashMs;
+        @SerializedName("integrity_hash_ms_per_frame")
+        public Double integrityHashMsPerFrame;
+
+        /** Fill the integrity fields from the clip's frame hashes. */
+        public void setIntegrity(FrameIntegrity integrity, boolean clipComplete) {
+            this.integrityResult = integrity.getResult(clipComplete).label;
+            this.integrityFramesHashed = integrity.getFramesHashed();
+            this.integrityMismatches = integrity.getMismatches();
+            long first = integrity.getFirstMismatchFrame();
+            this.integrityFirstMismatchFrame = first >= 0 ? first : null;
+            this.integrityHashMs = integrity.getHashingMs();
+            double perFrame = integrity.getHashingMsPerFrame();
+            this.integrityHashMsPerFrame = perFrame >= 0 ? perFrame : null;
+        }
+
+        /** Fill the startup fields with the milestones the clip reached. */
+        public void setStartup(ClipStartup startup) {
+            this.startupPrepareMs = orNull(startup.getPrepareMs());
+            this.startupDecoderReadyMs = orNull(startup.getDecoderReadyMs());
+            this.startupDecoderInitMs = orNull(startup.getDecoderInitMs());
+            this.startupFirstFrameMs = orNull(startup.getFirstFrameMs());
+            this.startupMoovParseMs = orNull(startup.getMoovParseMs());
+            this.startupMoovSetupMs = orNull(startup.getMoovSetupMs());
+            this.startupMoovCached = startup.getMoovParseMs() >= 0 ? startup.isMoovCached() : null;
+        }
+
+        private static Long orNull(long ms) {
+            return ms >= 0 ? ms : null;
+        }
+
+        /** Fill the I/O fields from the clip's window of {@link IoStats}. */
+        public void setIo(IoStats.Snapshot io) {
+            this.readBytes = io.bytesRead;
+            this.readCalls = io.readCalls;
+            this.readUsP50 = io.latencyPercentileUs(50);
+            this.readUsP99 = io.latencyPercentileUs(99);
+            if (io.bytesRead > 0) {
+                this.readMbPerSecond = io.readMbPerSecond();
+                this.readCpuMsPerMb = io.readCpuMsPerMb();
+            }
+            this.readLatencyHistogram = io.getLatencyHistogram();
+            this.underruns = io.underruns;
+            if (io.bufferSamples > 0) {
+                this.bufferAvgMs = io.averageBufferMs();
+                this.bufferLowFraction = io.lowBufferFraction();
+            }
+        }
+
+        public ClipSummary(String fileName, String decoderName, String mimeType, long durationMs,
+                           long framesRendered, long framesDropped, EnergyIntegrator.Snapshot energy) {
+            this.fileName = fileName;
+            this.decoderName = decoderName;
+            this.mimeType = mimeType;
+            this.durationMs = durationMs;
+            this.framesRendered = framesRendered;
+            this.framesDropped = framesDropped;
+            this.energyMj = energy.energyMj;
+            this.avgPowerMw = energy.averagePowerMw();
+            this.energyPerFrameMj = energy.energyPerFrameMj(framesRendered);
+            this.chargingSamples = energy.chargingSamples;
+        }
+    }
+
+    /** Distribution of one startup duration, in the session's startup_bucket_ms buckets. */
+    public static class StartupHistogram {
+        @SerializedName("counts")
+        public final long[] counts = new long[STARTUP_BUCKET_MS.length + 1];
+        @SerializedName("samples")
+        public long samples = 0;
+        @SerializedName("mean_ms")
+        public double meanMs = -1.0;
+        @SerializedName("max_ms")
+        public long maxMs = -1;
+
+        private transient long sumMs = 0;
+
+        void add(long ms) {
+            if (ms < 0) {
+                return;
+            }
+            int bucket = 0;
+            while (bucket < STARTUP_BUCKET_MS.length && ms > STARTUP_BUCKET_MS[bucket]) {
+                bucket++;
+            }
+            counts[bucket]++;
+            samples++;
+            sumMs += ms;
+            meanMs = (double) sumMs / samples;
+            maxMs = Math.max(maxMs, ms);
+        }
+    }
+
+    /** Startup of every clip that ran on one decoder. */
+    public static class DecoderStartup {
+        @SerializedName("clips")
+        public long clips = 0;
+        @SerializedName("prepare_ms")
+        public final StartupHistogram prepareMs = new StartupHistogram();
+        @SerializedName("decoder_ready_ms")
+        public final StartupHistogram decoderReadyMs = new StartupHistogram();
+        @SerializedName("decoder_init_ms")
+        public final StartupHistogram decoderInitMs = new StartupHistogram();
+        @SerializedName("first_frame_ms")
+        public final StartupHistogram firstFrameMs = new StartupHistogram();
+
+        void add(ClipStartup startup) {
+            clips++;
+            prepareMs.add(startup.getPrepareMs());
+            decoderReadyMs.add(startup.getDecoderReadyMs());
+            decoderInitMs.add(startup.getDecoderInitMs());
+            firstFrameMs.add(startup.getFirstFrameMs());
+        }
+    }
+
+    /** Upper bounds of the startup histogram buckets in ms; the last bucket holds everything slower. */
+    public static final long[] STARTUP_BUCKET_MS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+
+    /** One decoder plugin metric over the session, see {@link PluginMetrics}. */
+    public static class PluginMetric {
+        @SerializedName("kind")
+        public final String kind;
+        @SerializedName("samples")
+        public final long samples;
+        @SerializedName("first")
+        public final long first;
+        @SerializedName("last")
+        public final long last;
+        @SerializedName("min")
+        public final long min;
+        @SerializedName("max")
+        public final long max;
+        @SerializedName("mean")
+        public final double mean;
+        // counters only: growth over the session
+        @SerializedName("delta")
+        public final Long delta;
+
+        public PluginMetric(boolean counter, long samples, long first, long last, long min, long max,
+                            double mean) {
+            this.kind = counter ? "counter" : "gauge";
+            this.samples = samples;
+            this.first = first;
+            this.last = last;
+            this.min = min;
+            this.max = max;
+            this.mean = mean;
+            this.delta = counter ? last - first : null;
+        }
+    }
+
+    /** Thread sweep: one decoder at one thread count, summed over the clips swept. */
+    public static class ThreadPoint {
+        @SerializedName("threads")
+        public final int threads;
+        @SerializedName("clips")
+        public int clips = 0;
+        @SerializedName("frames_decoded")
+        public long framesDecoded = 0;
+        @SerializedName("decode_ms")
+        public double decodeMs = 0.0;
+        @SerializedName("frames_dropped")
+        public long framesDropped = 0;
+        @SerializedName("cpu_ms")
+        public long cpuMs = 0;
+        @SerializedName("energy_mj")
+        public double energyMj = 0.0;
+        @SerializedName("fps")
+        public double fps = -1.0;
+        @SerializedName("cpu_ms_per_frame")
+        public double cpuMsPerFrame = -1.0;
+        @SerializedName("energy_per_frame_mj")
+        public double energyPerFrameMj = -1.0;
+
+        ThreadPoint(int threads) {
+            this.threads = threads;
+        }
+
+        void add(long framesDecoded, double decodeMs, long framesDropped, long cpuMs, double energyMj) {
+            this.clips++;
+            this.framesDecoded += framesDecoded;
+            this.decodeMs += decodeMs;
+            this.framesDropped += framesDropped;
+            this.cpuMs += cpuMs;
+            this.energyMj += energyMj;
+            this.fps = this.decodeMs > 0 ? this.framesDecoded * 1000.0 / this.decodeMs : -1.0;
+            this.cpuMsPerFrame = this.framesDecoded > 0 ? (double) this.cpuMs / this.framesDecoded : -1.0;
+            this.energyPerFrameMj = this.framesDecoded > 0 ? this.energyMj / this.framesDecoded : -1.0;
+        }
+    }
+
+    /**
+     * Thread sweep: one decoder's scaling curve. The recommendation is the fewest threads that reach
+     * {@link #THREAD_RECOMMEND_FRACTION} of the best throughput, since threads past that point cost
+     * CPU and energy for little gain.
+     */
+    public static class ThreadCurve {
+        @SerializedName("mime_type")
+        public final String mimeType;
+        // ascending thread counts
+        @SerializedName("points")
+        public final List<ThreadPoint> points = new ArrayList<>();
+        @SerializedName("recommended_threads")
+        public Integer recommendedThreads;
+
+        ThreadCurve(String mimeType) {
+            this.mimeType = mimeType;
+        }
+
+        void add(int threads, long framesDecoded, double decodeMs, long framesDropped, long cpuMs, double energyMj) {
+            int i = 0;
+            while (i < points.size() && points.get(i).threads < threads) {
+                i++;
+            }
+            if (i == points.size() || points.get(i).threads != threads) {
+                points.add(i, new ThreadPoint(threads));
+            }
+            points.get(i).add(framesDecoded, decodeMs, framesDropped, cpuMs, energyMj);
+
+            double best = 0.0;
+            for (ThreadPoint p : points) {
+                best = Math.max(best, p.fps);
+            }
+            this.recommendedThreads = null;
+            for (ThreadPoint p : points) {
+                if (best > 0 && p.fps >= best * THREAD_RECOMMEND_FRACTION) {
+                    this.recommendedThreads = p.threads;
+                    break;
+                }
+            }
+        }
+    }
+
+    /** Share of the best thread-sweep throughput the recommended thread count must reach. */
+    public static final double THREAD_RECOMMEND_FRACTION = 0.95;
+
+    /**
+     * Seek benchmark: seek-to-first-frame latency and the media bytes read for it, for one decoder
+     * on one container. Percentiles are nearest-rank over every seek that showed a frame, read off a
+     * fixed-bucket histogram as the bucket's upper bound: exact to 1 ms up to 100 ms, to 10 ms up to
+     * 1 s and to 100 ms up to 10 s. Seeks that timed out are only counted.
+     */
+    public static class SeekLatency {
+        @SerializedName("decoder_name")
+        public final String decoderName;
+        @SerializedName("container")
+        public final String container;
+        @SerializedName("seeks")
+        public long seeks = 0;
+        @SerializedName("timeouts")
+        public long timeouts = 0;
+        @SerializedName("ms_p50")
+        public long msP50 = -1;
+        @SerializedName("ms_p90")
+        public long msP90 = -1;
+        @SerializedName("ms_p99")
+        public long msP99 = -1;
+        @SerializedName("ms_max")
+        public long msMax = -1;
+        @SerializedName("mean_ms")
+        public double meanMs = -1.0;
+        @SerializedName("mean_bytes_read")
+        public long meanBytesRead = -1;
+
+        /** Histogram buckets: 1 ms wide to 100 ms, 10 ms to 1 s, 100 ms to 10 s, then one open bucket. */
+        static final int LATENCY_BUCKETS = 101 + 90 + 90 + 1;
+
+        private final transient long[] latencyCounts = new long[LATENCY_BUCKETS];
+        private transient long completed = 0;
+        private transient long sumMs = 0;
+        private transient long sumBytes = 0;
+
+        public SeekLatency(String decoderName, String container) {
+            this.decoderName = decoderName;
+            this.container = container;
+        }
+
+        public void add(long latencyMs, long bytesRead) {
+            latencyCounts[bucketOf(latencyMs)]++;
+            completed++;
+            seeks++;
+            sumMs += latencyMs;
+            sumBytes += Math.max(0, bytesRead);
+            msMax = Math.max(msMax, latencyMs);
+            refresh();
+        }
+
+        public void addTimeout() {
+            seeks++;
+            timeouts++;
+        }
+
+        void addAll(SeekLatency other) {
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                latencyCounts[i] += other.latencyCounts[i];
+            }
+            completed += other.completed;
+            seeks += other.seeks;
+            timeouts += other.timeouts;
+            sumMs += other.sumMs;
+            sumBytes += other.sumBytes;
+            msMax = Math.max(msMax, other.msMax);
+            refresh();
+        }
+
+        /** Seeks that showed a frame. */
+        public long completed() {
+            return completed;
+        }
+
+        private void refresh() {
+            if (completed == 0) {
+                return;
+            }
+            msP50 = percentile(50);
+            msP90 = percentile(90);
+            msP99 = percentile(99);
+            meanMs = (double) sumMs / completed;
+            meanBytesRead = sumBytes / completed;
+        }
+
+        /** Nearest-rank percentile: the upper bound of its bucket, capped at the exact maximum. */
+        private long percentile(int p) {
+            long rank = Math.max(1, (long) Math.ceil(p / 100.0 * completed));
+            long seen = 0;
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                seen += latencyCounts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundMs(i), msMax);
+                }
+            }
+            return msMax;
+        }
+
+        static int bucketOf(long ms) {
+            if (ms <= 100) {
+                return (int) Math.max(0, ms);
+            } else if (ms <= 1_000) {
+                return 100 + (int) ((ms - 100 + 9) / 10);
+            } else if (ms <= 10_000) {
+                return 190 + (int) ((ms - 1_000 + 99) / 100);
+            }
+            return LATENCY_BUCKETS - 1;
+        }
+
+        /** Largest latency in bucket {@code i}, {@link Long#MAX_VALUE} for the open bucket. */
+        static long upperBoundMs(int i) {
+            if (i <= 100) {
+                return i;
+            } else if (i <= 190) {
+                return 100 + (i - 100) * 10L;
+            } else if (i <= 280) {
+                return 1_000 + (i - 190) * 100L;
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /** Speed headroom search: one probe window at one playback speed. */
+    public static class SpeedProbe {
+        @SerializedName("speed")
+        public final float speed;
+        @SerializedName("window_ms")
+        public final long windowMs;
+        @SerializedName("frames_rendered")
+        public final long framesRendered;
+        @SerializedName("frames_dropped")
+        public final long framesDropped;
+        @SerializedName("drop_pct")
+        public final double dropPct;
+        @SerializedName("sustained")
+        public final boolean sustained;
+        /** Process CPU time over the window's wall time: 2.0 is two cores kept busy. */
+        @SerializedName("cpu_util")
+        public final double cpuUtil;
+        @SerializedName("thermal_status")
+        public final int thermalStatus;
+
+        public SpeedProbe(float speed, long windowMs, long framesRendered, long framesDropped,
+                          double dropPct, boolean sustained, long cpuMs, int thermalStatus) {
+            this.speed = speed;
+            this.windowMs = windowMs;
+            this.framesRendered = framesRendered;
+            this.framesDropped = framesDropped;
+            this.dropPct = dropPct;
+            this.sustained = sustained;
+            this.cpuUtil = windowMs > 0 ? (double) cpuMs / windowMs : 0.0;
+            this.thermalStatus = thermalStatus;
+        }
+    }
+
+    /**
+     * Speed headroom search of one clip: the fastest playback speed found that stays under the drop
+     * threshold, 0 if even real time did not.
+     */
+    public static class SpeedHeadroom {
+        @SerializedName("file_name")
+        public final String fileName;
+        @SerializedName("decoder_name")
+        public final String decoderName;
+        @SerializedName("mime_type")
+        public final String mimeType;
+        @SerializedName("drop_threshold_pct")
+        public final int dropThresholdPct;
+        @SerializedName("max_speed_searched")
+        public final float maxSpeedSearched;
+        @SerializedName("headroom")
+        public final float headroom;
+        @SerializedName("probe_count")
+        public final int probeCount;
+        /** Null in the copy kept in the summary; the speed headroom file has every probe. */
+        @SerializedName("probes")
+        public final List<SpeedProbe> probes;
+
+        public SpeedHeadroom(String fileName, String decoderName, String mimeType, int dropThresholdPct,
+                             float maxSpeedSearched, float headroom, List<SpeedProbe> probes) {
+            this.fileName = fileName;
+            this.decoderName = decoderName;
+            this.mimeType = mimeType;
+            this.dropThresholdPct = dropThresholdPct;
+            this.maxSpeedSearched = maxSpeedSearched;
+            this.headroom = headroom;
+            this.probeCount = probes.size();
+            this.probes = new ArrayList<>(probes);
+        }
+
+        private SpeedHeadroom(SpeedHeadroom full) {
+            this.fileName = full.fileName;
+            this.decoderName = full.decoderName;
+            this.mimeType = full.mimeType;
+            this.dropThresholdPct = full.dropThresholdPct;
+            this.maxSpeedSearched = full.maxSpeedSearched;
+            this.headroom = full.headroom;
+            this.probeCount = full.probeCount;
+            this.probes = null;
+        }
+
+        SpeedHeadroom withoutProbes() {
+            return new SpeedHeadroom(this);
+        }
+    }
+
+    /** Speed headroom of every clip searched on one decoder. */
+    public static class DecoderHeadroom {
+        @SerializedName("clips")
+        public long clips = 0;
+        @SerializedName("probes")
+        public long probes = 0;
+        @SerializedName("headroom_min")
+        public float headroomMin = -1f;
+        @SerializedName("headroom_mean")
+        public double headroomMean = -1.0;
+        @SerializedName("headroom_max")
+        public float headroomMax = -1f;
+
+        private transient double sum = 0.0;
+
+        void add(SpeedHeadroom clip) {
+            clips++;
+            probes += clip.probeCount;
+            sum += clip.headroom;
+            headroomMean = sum / clips;
+            headroomMin = headroomMin < 0 ? clip.headroom : Math.min(headroomMin, clip.headroom);
+            headroomMax = Math.max(headroomMax, clip.headroom);
+        }
+    }
+
+    /** Concurrent decode stress: one instance of a step. */
+    public static class StressInstance {
+        @SerializedName("index")
+        public final int index;
+        @SerializedName("decoder_name")
+        public final String decoderName;
+        @SerializedName("frames_rendered")
+        public final long framesRendered;
+        @SerializedName("frames_dropped")
+        public final long framesDropped;
+        @SerializedName("fps")
+        public final double fps;
+        /** The decoder could not be created, typically a hardware instance limit. */
+        @SerializedName("init_failed")
+        public final boolean initFailed;
+        @SerializedName("error")
+        public final String error;
+
+        public StressInstance(int index, String decoderName, long framesRendered, long framesDropped,
+                              double fps, boolean initFailed, String error) {
+            this.index = index;
+            this.decoderName = decoderName;
+            this.framesRendered = framesRendered;
+            this.framesDropped = framesDropped;
+            this.fps = fps;
+            this.initFailed = initFailed;
+            this.error = error;
+        }
+    }
+
+    /** Concurrent decode stress: N instances decoding the same clip at once. */
+    public static class StressStep {
+        @SerializedName("file_name")
+        public final String fileName;
+        @SerializedName("instances")
+        public final int instances;
+        @SerializedName("duration_ms")
+        public final long durationMs;
+        @SerializedName("frames_rendered")
+        public final long framesRendered;
+        @SerializedName("frames_dropped")
+        public final long framesDropped;
+        /** Sum of the per-instance rates of the instances that decoded. */
+        @SerializedName("fps_total")
+        public final double fpsTotal;
+        /** Slowest instance that decoded, -1 if none did. */
+        @SerializedName("fps_min")
+        public final double fpsMin;
+        @SerializedName("init_failures")
+        public final int initFailures;
+        @SerializedName("playback_failures")
+        public final int playbackFailures;
+        @SerializedName("cpu_ms_per_frame")
+        public final double cpuMsPerFrame;
+        @SerializedName("thermal_status")
+        public final int thermalStatus;
+        @SerializedName("energy_mj")
+        public final double energyMj;
+        @SerializedName("avg_power_mw")
+        public final double avgPowerMw;
+        @SerializedName("energy_per_frame_mj")
+        public final double energyPerFrameMj;
+        @SerializedName("per_instance")
+        public final List<StressInstance> perInstance;
+
+        public StressStep(String fileName, int instances, long durationMs, List<StressInstance> perInstance,
+                          long cpuMs, int thermalStatus, EnergyIntegrator.Snapshot energy) {
+            this.fileName = fileName;
+            this.instances = instances;
+            this.durationMs = durationMs;
+            this.perInstance = new ArrayList<>(perInstance);
+
+            long rendered = 0, dropped = 0;
+            int initFailures = 0, playbackFailures = 0;
+            double fpsTotal = 0.0, fpsMin = -1.0;
+            for (StressInstance i : perInstance) {
+                rendered += i.framesRendered;
+                dropped += i.framesDropped;
+                if (i.initFailed) {
+                    initFailures++;
+                } else if (i.error != null) {
+                    playbackFailures++;
+                }
+                if (i.fps > 0) {
+                    fpsTotal += i.fps;
+                    fpsMin = (fpsMin < 0) ? i.fps : Math.min(fpsMin, i.fps);
+                }
+            }
+            this.framesRendered = rendered;
+            this.framesDropped = dropped;
+            this.initFailures = initFailures;
+            this.playbackFailures = playbackFailures;
+            this.fpsTotal = fpsTotal;
+            this.fpsMin = fpsMin;
+            this.cpuMsPerFrame = rendered > 0 ? (double) cpuMs / rendered : -1.0;
+            this.thermalStatus = thermalStatus;
+            this.energyMj = energy.energyMj;
+            this.avgPowerMw = energy.averagePowerMw();
+            this.energyPerFrameMj = energy.energyPerFrameMj(rendered);
+        }
+    }
+
+    /** Concurrent decode stress: every step run at one instance count. */
+    public static class StressLevel {
+        @SerializedName("steps")
+        public long steps = 0;
+        @SerializedName("frames_rendered")
+        public long framesRendered = 0;
+        @SerializedName("frames_dropped")
+        public long framesDropped = 0;
+        /** Best fps_total of any step, -1 until one decoded. */
+        @SerializedName("fps_total_max")
+        public double fpsTotalMax = -1.0;
+        /** Slowest instance of any step, -1 until one decoded. */
+        @SerializedName("fps_min")
+        public double fpsMin = -1.0;
+        @SerializedName("init_failures")
+        public long initFailures = 0;
+        @SerializedName("playback_failures")
+        public long playbackFailures = 0;
+
+        void add(StressStep step) {
+            steps++;
+            framesRendered += step.framesRendered;
+            framesDropped += step.framesDropped;
+            if (step.fpsTotal > 0) {
+                fpsTotalMax = Math.max(fpsTotalMax, step.fpsTotal);
+            }
+            if (step.fpsMin >= 0) {
+                fpsMin = fpsMin < 0 ? step.fpsMin : Math.min(fpsMin, step.fpsMin);
+            }
+            initFailures += step.initFailures;
+            playbackFailures += step.playbackFailures;
+        }
+    }
+
+    @SerializedName("session_start")
+    private final long sessionStart;
+
+    @SerializedName("energy_sample_hz")
+    private final int energySampleHz;
+
+    @SerializedName("read_latency_bucket_us")
+    private final long[] readLatencyBucketUs = IoStats.LATENCY_BUCKET_US.clone();
+
+    @SerializedName("frames_rendered")
+    private long framesRendered = 0;
+
+    @SerializedName("frames_dropped")
+    private long framesDropped = 0;
+
+    @SerializedName("energy_mj")
+    private double energyMj = 0.0;
+
+    @SerializedName("avg_power_mw")
+    private double avgPowerMw = -1.0;
+
+    @SerializedName("energy_per_frame_mj")
+    private double energyPerFrameMj = -1.0;
+
+    @SerializedName("clip_count")
+    private long clipCount = 0;
+
+    // the last CLIPS_KEPT of clip_count, oldest first
+    @SerializedName("clips")
+    private final ArrayDeque<ClipSummary> clips = new ArrayDeque<>();
+
+    // added since the clips file was last appended to
+    private final transient List<ClipSummary> unappendedClips = new ArrayList<>();
+
+    @SerializedName("startup_bucket_ms")
+    private final long[] startupBucketMs = STARTUP_BUCKET_MS.clone();
+
+    @SerializedName("startup_by_decoder")
+    private final Map<String, DecoderStartup> startupByDecoder = new TreeMap<>();
+
+    // only present when a decoder plugin publishes metrics
+    @SerializedName("plugin_metrics")
+    private Map<String, PluginMetric> pluginMetrics = null;
+
+    // only present for concurrent stress runs: the last STRESS_STEPS_KEPT of stress_step_count,
+    // oldest first, and every step rolled up by instance count
+    @SerializedName("stress_step_count")
+    private Long stressStepCount = null;
+
+    @SerializedName("stress_steps")
+    private ArrayDeque<StressStep> stressSteps = null;
+
+    @SerializedName("stress_by_instances")
+    private Map<Integer, StressLevel> stressByInstances = null;
+
+    // added since the stress steps file was last appended to
+    private final transient List<StressStep> unappendedStressSteps = new ArrayList<>();
+
+    // only present for thread sweep runs, keyed by decoder name
+    @SerializedName("thread_scaling")
+    private Map<String, ThreadCurve> threadScaling = null;
+
+    // only present for seek benchmark runs, keyed by decoder name and container
+    @SerializedName("seek_latency")
+    private Map<String, SeekLatency> seekLatency = null;
+
+    // only present for speed headroom runs: the last SPEED_HEADROOM_KEPT of speed_headroom_count,
+    // oldest first and without their probes, and every search rolled up by decoder name
+    @SerializedName("speed_headroom_count")
+    private Long speedHeadroomCount = null;
+
+    @SerializedName("speed_headroom")
+    private ArrayDeque<SpeedHeadroom> speedHeadroom = null;
+
+    @SerializedName("headroom_by_decoder")
+    private Map<String, DecoderHeadroom> headroomByDecoder = null;
+
+    // added since the speed headroom file was last appended to, probes included
+    private final transient List<SpeedHeadroom> unappendedSpeedHeadroom = new ArrayList<>();
+
+    // only present when the pre-flight check left clips out of the run
+    @SerializedName("preflight_skipped")
+    private List<String> preflightSkipped = null;
+
+    public SessionSummary(long sessionStart, int energySampleHz) {
+        this.sessionStart = sessionStart;
+        this.energySampleHz = energySampleHz;
+    }
+
+    /**
+     * Add a finished clip and refresh the session totals.
+     * @param clip the clip rollup
+     * @param sessionEnergy energy integrated since the start of the session
+     */
+    public synchronized void addClip(ClipSummary clip, EnergyIntegrator.Snapshot sessionEnergy) {
+        this.clips.addLast(clip);
+        if (this.clips.size() > CLIPS_KEPT) {
+            this.clips.removeFirst();
+        }
+        this.clipCount++;
+        this.unappendedClips.add(clip);
+        this.framesRendered += clip.framesRendered;
+        this.framesDropped += clip.framesDropped;
+        this.energyMj = sessionEnergy.energyMj;
+        this.avgPowerMw = sessionEnergy.averagePowerMw();
+        this.energyPerFrameMj = sessionEnergy.energyPerFrameMj(this.framesRendered);
+    }
+
+    /** Roll a clip's startup milestones into the histograms of the decoder it ran on. */
+    public synchronized void addStartup(String decoderName, ClipStartup startup) {
+        String key = decoderName != null ? decoderName : "unknown";
+        DecoderStartup d = this.startupByDecoder.get(key);
+        if (d == null) {
+            d = new DecoderStartup();
+            this.startupByDecoder.put(key, d);
+        }
+        d.add(startup);
+    }
+
+    public synchronized Map<String, DecoderStartup> getStartupByDecoder() {
+        return new TreeMap<>(this.startupByDecoder);
+    }
+
+    /**
+     * Add a finished concurrent stress step and refresh the session totals.
+     * @param step the step rollup
+     * @param sessionEnergy energy integrated since the start of the session
+     */
+    public synchronized void addStressStep(StressStep step, EnergyIntegrator.Snapshot sessionEnergy) {
+        if (this.stressSteps == null) {
+            this.stressSteps = new ArrayDeque<>();
+            this.stressByInstances = new TreeMap<>();
+            this.stressStepCount = 0L;
+        }
+        this.stressSteps.addLast(step);
+        if (this.stressSteps.size() > STRESS_STEPS_KEPT) {
+            this.stressSteps.removeFirst();
+        }
+        this.stressStepCount++;
+        this.unappendedStressSteps.add(step);
+        StressLevel level = this.stressByInstances.get(step.instances);
+        if (level == null) {
+            level = new StressLevel();
+            this.stressByInstances.put(step.instances, level);
+        }
+        level.add(step);
+        this.framesRendered += step.framesRendered;
+        this.framesDropped += step.framesDropped;
+        this.energyMj = sessionEnergy.energyMj;
+        this.avgPowerMw = sessionEnergy.averagePowerMw();
+        this.energyPerFrameMj = sessionEnergy.energyPerFrameMj(this.framesRendered);
+    }
+
+    /** Add one clip decoded at {@code threads} to the scaling curve of the decoder it ran on. */
+    public synchronized void addThreadStep(String decoderName, String mimeType, int threads, long framesDecoded,
+                                           double decodeMs, long framesDropped, long cpuMs, double energyMj) {
+        if (this.threadScaling == null) {
+            this.threadScaling = new TreeMap<>();
+        }
+        String key = decoderName != null ? decoderName : "unknown";
+        ThreadCurve curve = this.threadScaling.get(key);
+        if (curve == null) {
+            curve = new ThreadCurve(mimeType);
+            this.threadScaling.put(key, curve);
+        }
+        curve.add(threads, framesDecoded, decodeMs, framesDropped, cpuMs, energyMj);
+    }
+
+    /** Scaling curves by decoder name; empty unless this is a thread sweep. */
+    public synchronized Map<String, ThreadCurve> getThreadScaling() {
+        return this.threadScaling != null ? new TreeMap<>(this.threadScaling) : new TreeMap<>();
+    }
+
+    /** Add a clip's seeks to the latency of the decoder and container it ran on. */
+    public synchronized void addSeekLatency(SeekLatency clip) {
+        if (this.seekLatency == null) {
+            this.seekLatency = new TreeMap<>();
+        }
+        String key = (clip.decoderName != null ? clip.decoderName : "unknown") + "|" + clip.container;
+        SeekLatency total = this.seekLatency.get(key);
+        if (total == null) {
+            total = new SeekLatency(clip.decoderName, clip.container);
+            this.seekLatency.put(key, total);
+        }
+        total.addAll(clip);
+    }
+
+    /** Add a clip's headroom search; its probes only go to the speed headroom file. */
+    public synchronized void addSpeedHeadroom(SpeedHeadroom clip) {
+        if (this.speedHeadroom == null) {
+            this.speedHeadroom = new ArrayDeque<>();
+            this.headroomByDecoder = new TreeMap<>();
+            this.speedHeadroomCount = 0L;
+        }
+        this.speedHeadroom.addLast(clip.withoutProbes());
+        if (this.speedHeadroom.size() > SPEED_HEADROOM_KEPT) {
+            this.speedHeadroom.removeFirst();
+        }
+        this.speedHeadroomCount++;
+        this.unappendedSpeedHeadroom.add(clip);
+        String key = clip.decoderName != null ? clip.decoderName : "unknown";
+        DecoderHeadroom d = this.headroomByDecoder.get(key);
+        if (d == null) {
+            d = new DecoderHeadroom();
+            this.headroomByDecoder.put(key, d);
+        }
+        d.add(clip);
+    }
+
+    /** Replace the plugin metric rollups with the latest ones. */
+    public synchronized void setPluginMetrics(Map<String, PluginMetric> metrics) {
+        this.pluginMetrics = metrics.isEmpty() ? null : new TreeMap<>(metrics);
+    }
+
+    /** File names of the playlist clips the pre-flight check left out. */
+    public synchronized void setPreflightSkipped(List<String> fileNames) {
+        this.preflightSkipped = fileNames.isEmpty() ? null : new ArrayList<>(fileNames);
+    }
+
+    /** The most recent clip rollups, oldest first; at most {@link #CLIPS_KEPT}. */
+    public synchronized List<ClipSummary> getClips() {
+        return new ArrayList<>(this.clips);
+    }
+
+    public synchronized long getClipCount() {
+        return this.clipCount;
+    }
+
+    /** Clip rollups added since the last call, for the summary writer to append to the clips file. */
+    public synchronized List<ClipSummary> takeUnappendedClips() {
+        List<ClipSummary> out = new ArrayList<>(this.unappendedClips);
+        this.unappendedClips.clear();
+        return out;
+    }
+
+    /** Stress steps by instance count, over every step of the session; empty unless this is a stress run. */
+    public synchronized Map<Integer, StressLevel> getStressByInstances() {
+        return this.stressByInstances != null ? new TreeMap<>(this.stressByInstances) : new TreeMap<>();
+    }
+
+    /** The most recent stress steps, oldest first; at most {@link #STRESS_STEPS_KEPT}. */
+    public synchronized List<StressStep> getStressSteps() {
+        return this.stressSteps != null ? new ArrayList<>(this.stressSteps) : new ArrayList<>();
+    }
+
+    /** Stress steps added since the last call, for the summary writer to append to their file. */
+    public synchronized List<StressStep> takeUnappendedStressSteps() {
+        List<StressStep> out = new ArrayList<>(this.unappendedStressSteps);
+        this.unappendedStressSteps.clear();
+        return out;
+    }
+
+    /** Headroom by decoder name, over every search of the session; empty unless this is a headroom run. */
+    public synchronized Map<String, DecoderHeadroom> getHeadroomByDecoder() {
+        return this.headroomByDecoder != null ? new TreeMap<>(this.headroomByDecoder) : new TreeMap<>();
+    }
+
+    /** The most recent headroom searches without their probes, oldest first; at most {@link #SPEED_HEADROOM_KEPT}. */
+    public synchronized List<SpeedHeadroom> getSpeedHeadroom() {
+        return this.speedHeadroom != null ? new ArrayList<>(this.speedHeadroom) : new ArrayList<>();
+    }
+
+    /** Headroom searches added since the last call, probes included, for the summary writer to append. */
+    public synchronized List<SpeedHeadroom> takeUnappendedSpeedHeadroom() {
+        List<SpeedHeadroom> out = new ArrayList<>(this.unappendedSpeedHeadroom);
+        this.unappendedSpeedHeadroom.clear();
+        return out;
+    }
+
+    public synchronized String toJson() {
+        return gson.toJson(this);
+    }
+}
@@ -43,8 +43,10 @@ import android.os.Build;
 import android.os.PowerManager;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
 import androidx.documentfile.provider.DocumentFile;
 
+import com.roncatech.vcat.decoder_plugin.VcatDecoderManager;
 import com.roncatech.vcat.models.SessionHeader;
 import com.roncatech.vcat.models.RunConfig;
 import com.roncatech.vcat.tools.AppMemoryInfo;
@@ -62,16 +64,23 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Logs telemetry data to csv file, inserting empty column for missing fields.
- * columns are written in the order of the 'Colum' enumeration.
+ * columns are written in the order of the 'Colum' enumeration, followed by one
+ * 'plugin.<id>.<metric>' column per metric published by a decoder plugin (see PluginMetrics).
  */
 public class TelemetryLogger {
     private static final String TAG = "TelemetryLogger";
+    // One writer for the process; loggers are created per run and never closed explicitly.
+    private static final ExecutorService SUMMARY_WRITER = Executors.newSingleThreadExecutor();
 
     /**
      * Column definitions uses to generater header and write rows.  The header labels will be in the
@@ -97,7 +106,62 @@ public class TelemetryLogger {
         TEST_RESTART          ("test.restart"),
         TEST_END_OF_CUR_FILE  ("test.end_of_cur_file"),
         TEST_SYSTEM_MEMORY ("test.memory.system"),
-        TEST_VCAT_MEMORY("test.memory.vcat");
+        TEST_VCAT_MEMORY("test.memory.vcat"),
+        VIDEO_FRAMES_RENDERED ("video.frames_rendered"),
+        ENERGY_MJ             ("energy.mj"),          // integrated since the start of the current clip
+        POWER_AVG_MW          ("power.avg_mw"),
+        ENERGY_PER_FRAME_MJ   ("energy.per_frame_mj"),
+        TEST_TRANSITION_MS    ("test.transition_ms"),  // end of previous clip to first frame of this one
+        CPU_MS_PER_FRAME      ("cpu.ms_per_frame"),    // vcat process CPU time; excludes hw codecs in the media server
+        BENCH_FRAMES_DECODED  ("bench.frames_decoded"),
+        BENCH_DECODED_FPS     ("bench.decoded_fps"),
+        BENCH_FRAME_MS_P50    ("bench.frame_ms.p50"),
+        BENCH_FRAME_MS_P90    ("bench.frame_ms.p90"),
+        BENCH_FRAME_MS_P99    ("bench.frame_ms.p99"),
+        STRESS_INSTANCES      ("stress.instances"),
+        STRESS_FPS_TOTAL      ("stress.fps.total"),
+        STRESS_FPS_MIN        ("stress.fps.min"),
+        STRESS_FPS_PER_INSTANCE("stress.fps.per_instance"), // ';' separated, in instance order
+        STRESS_INIT_FAILURES  ("stress.init_failures"),
+        STRESS_PLAYBACK_FAILURES("stress.playback_failures"),
+        IO_PRELOADED          ("io.preloaded"),        // clip played from RAM rather than storage
+        IO_BYTES_READ         ("io.bytes_read"),       // data source bytes since the start of the clip
+        IO_READ_CALLS         ("io.read_calls"),
+        IO_READ_US_P50        ("io.read_us.p50"),      // latency bucket upper bound, see IoStats
+        IO_READ_US_P99        ("io.read_us.p99"),
+        IO_READ_MB_S          ("io.read_mb_s"),        // bytes over wall time inside reads
+        IO_READ_CPU_MS_PER_MB ("io.read_cpu_ms_per_mb"), // loading-thread CPU in reads, compare across io modes
+        IO_UNDERRUNS          ("io.underruns"),        // READY -> BUFFERING during the clip
+        BUFFER_MS             ("buffer.ms"),           // buffered ahead, as the load control last saw it
+        BUFFER_AVG_MS         ("buffer.avg_ms"),
+        BUFFER_LOW_FRACTION   ("buffer.low_fraction"), // share of buffer samples under IoStats.LOW_BUFFER_MS
+        STARTUP_PREPARE_MS    ("startup.prepare_ms"),  // from set-media-item (prewarmed: the back buffer's), -1 until reached
+        STARTUP_DECODER_READY_MS("startup.decoder_ready_ms"),
+        STARTUP_DECODER_INIT_MS("startup.decoder_init_ms"), // the decoder's own create/configure time
+        STARTUP_FIRST_FRAME_MS("startup.first_frame_ms"),
+        STARTUP_MOOV_PARSE_MS ("startup.moov_parse_ms"), // stbl walk (or cache read), part of prepare; -1 if no moov
+        STARTUP_MOOV_SETUP_MS ("startup.moov_setup_ms"),
+        STARTUP_MOOV_CACHED   ("startup.moov_cached"),
+        INTEGRITY_RESULT      ("integrity.result"),    // pass/fail/unverified at end of clip, empty when off
+        INTEGRITY_FRAMES_HASHED("integrity.frames_hashed"),
+        INTEGRITY_MISMATCHES  ("integrity.mismatches"),
+        INTEGRITY_HASH_MS     ("integrity.hash_ms"),   // time spent hashing, on the playback thread
+        INTEGRITY_HASH_MS_PER_FRAME("integrity.hash_ms_per_frame"),
+        SWEEP_THREADS         ("sweep.threads"),       // decoder threads of this row, thread sweep only
+        CPU_PLACEMENT         ("cpu.placement"),       // placement asked of the plugin decoder, or why none applied
+        CPU_CLUSTER_UTIL      ("cpu.cluster_util"),    // per cluster share of its cores used by vcat, e.g. little:0.120;big:0.400
+        SEEK_PATTERN          ("seek.pattern"),        // seek benchmark only, the rest of seek.* too
+        SEEK_COUNT            ("seek.count"),          // seeks issued so far in the clip, timeouts included
+        SEEK_TIMEOUTS         ("seek.timeouts"),       // seeks with no frame within SeekBenchmark.SEEK_TIMEOUT_MS
+        SEEK_MS_P50           ("seek.ms.p50"),         // seek to first frame rendered at the target
+        SEEK_MS_P90           ("seek.ms.p90"),
+        SEEK_MS_P99           ("seek.ms.p99"),
+        SEEK_MS_MAX           ("seek.ms.max"),
+        SEEK_BYTES_MEAN       ("seek.bytes_mean"),     // media bytes read per seek, seek to first frame
+        HEADROOM_SPEED        ("headroom.speed"),      // speed headroom search only: playback speed of the current probe
+        HEADROOM_PROBES       ("headroom.probes"),     // probe windows finished so far in the clip
+        HEADROOM_MAX_SPEED    ("headroom.max_speed"),  // fastest speed sustained so far, 0 if real time was not
+        DISPLAY_ON            ("display.on");          // screen on at the time of the row; display-off runs integrate energy only while it is false
 
         private final String name;
         Column(String name) { this.name = name; }
@@ -107,9 +171,19 @@ public class TelemetryLogger {
 
     private final Context ctx;
     private final String csvFileName;
+    private final String summaryFileName;
     private DocumentFile csvDocFile;
     private final int numCpus;
     private final CpuUsageSampler cpuSampler = new CpuUsageSampler();
+    private final PluginMetrics pluginMetrics;
+    private final String clipsFileName;
+    private final String stressStepsFileName;
+    private final String speedHeadroomFileName;
+    private final AtomicBoolean summaryQueued = new AtomicBoolean(false);
+    // summary writer thread only
+    private DocumentFile summaryDocFile;
+    // open record files by name
+    private final Map<String, OutputStream> recordStreams = new HashMap<>();
 
     public static class VideoInfo{
         public final String fileName;
@@ -146,7 +220,12 @@ public class TelemetryLogger {
     public TelemetryLogger(Context ctx, String csvFileName){
         this.ctx = ctx.getApplicationContext();
         this.csvFileName = csvFileName;
+        this.summaryFileName = csvFileName.replaceFirst("\\.csv$", "") + "_summary.json";
+        this.clipsFileName = csvFileName.replaceFirst("\\.csv$", "") + "_clips.jsonl";
+        this.stressStepsFileName = csvFileName.replaceFirst("\\.csv$", "") + "_stress_steps.jsonl";
+        this.speedHeadroomFileName = csvFileName.replaceFirst("\\.csv$", "") + "_speed_headroom.jsonl";
         this.numCpus = getTotalCpus();
+        this.pluginMetrics = PluginMetrics.fromDecoders(VcatDecoderManager.getInstance().getDecoders());
     }
 
     private DocumentFile getOrCreateCsvDocFile() {
@@ -200,6 +279,7 @@ public class TelemetryLogger {
                 hdr.add(col.getName());
             }
         }
+        hdr.addAll(this.pluginMetrics.getColumnNames());
 
         writeRow(String.join(",", hdr));
     }
@@ -235,6 +315,16 @@ public class TelemetryLogger {
      * @param isResume true if the test was resumed
      */
     public void logTelemetryRow(Context ct, long startTimeMS, VideoInfo vi, Integer frameDrops, boolean isResume, boolean isEndOfCurFile){
+        logTelemetryRow(ct, startTimeMS, vi, frameDrops, isResume, isEndOfCurFile, null);
+    }
+
+    /**
+     * Log one Row, as above, with additional cells supplied by the caller.
+     * @param extras values for columns the logger does not collect itself (energy, frame counts, ...),
+     *               applied after the built-in columns. May be null.
+     */
+    public void logTelemetryRow(Context ct, long startTimeMS, VideoInfo vi, Integer frameDrops, boolean isResume,
+                                boolean isEndOfCurFile, Map<Column, String> extras){
         Map<Column, Object> row = initRow(this.numCpus);
 
         Long curTime = System.currentTimeMillis();
@@ -267,6 +357,7 @@ public class TelemetryLogger {
         }
 
         row.put(Column.SYSTEM_THERMAL_STATUS, thermalCode.toString());
+        row.put(Column.DISPLAY_ON, Boolean.toString(powerManager.isInteractive()));
 
         Double[] cpuFreqs = getCurrentCpuFreq(this.numCpus);
         String[] strCpuFreqs = new String[cpuFreqs.length];
@@ -292,6 +383,13 @@ public class TelemetryLogger {
         row.put(Column.TEST_VCAT_MEMORY, vcatMemUsed.toString());
         row.put(Column.TEST_SYSTEM_MEMORY, sysMemUsed.toString());
 
+        if (extras != null) {
+            for (Map.Entry<Column, String> e : extras.entrySet()) {
+                if (e.getKey() != Column.CPU_FREQ && e.getValue() != null) {
+                    row.put(e.getKey(), e.getValue());
+                }
+            }
+        }
 
         // build row string in same order as column defiinitions
         List<String> values = new ArrayList<>();
@@ -317,6 +415,11 @@ public class TelemetryLogger {
             }
         }
 
+        this.pluginMetrics.sample();
+        for (int i = 0; i < this.pluginMetrics.size(); ++i) {
+            values.add(Long.toString(this.pluginMetrics.getValue(i)));
+        }
+
         String rowStr = String.join(",", values);
         writeRow(rowStr);
     }
@@ -494,6 +597,133 @@ public class TelemetryLogger {
         writeRow("");
         writeRow("");
     }
+
+    /**
+     * Create a binary sidecar next to the csv log, named after it with {@code suffix} appended.
+     * Returns null if the results folder or the file is not available.
+     */
+    @Nullable
+    public OutputStream openSidecar(String suffix) throws IOException {
+        DocumentFile dir = StorageManager.getFolder(ctx, StorageManager.VCATFolder.TEST_RESULTS);
+        if (dir == null) {
+            Log.e(TAG, "TEST_RESULTS folder not available, sidecar not written");
+            return null;
+        }
+        String name = csvFileName.replaceFirst("\\.csv$", "") + "_" + suffix;
+        DocumentFile docFile = dir.createFile("application/octet-stream", name);
+        if (docFile == null) {
+            Log.e(TAG, "Cannot create " + name);
+            return null;
+        }
+        return ctx.getContentResolver().openOutputStream(docFile.getUri(), "w");
+    }
+
+    /**
+     * Write (replace) the session summary json next to the csv log, with the plugin metrics so far,
+     * and append the clips, stress steps and headroom searches added since the last write to their
+     * record files, one JSON line each. Serializing and the SAF
+     * writes both run on a background writer, so the caller (a clip transition) only pays for the
+     * plugin metric rollup. Writes requested while one is queued collapse into it, since it
+     * serializes the summary as it is when it runs.
+     */
+    public void writeSessionSummary(SessionSummary summary){
+        summary.setPluginMetrics(this.pluginMetrics.toSummary());
+        if (this.summaryQueued.compareAndSet(false, true)) {
+            SUMMARY_WRITER.execute(() -> {
+                this.summaryQueued.set(false);
+                appendRecords(clipsFileName, summary.takeUnappendedClips());
+                appendRecords(stressStepsFileName, summary.takeUnappendedStressSteps());
+                appendRecords(speedHeadroomFileName, summary.takeUnappendedSpeedHeadroom());
+                flushSessionSummary(summary.toJson());
+            });
+        }
+    }
+
+    /**
+     * Close the record files once the session summary writes queued so far have run. Safe to call
+     * more than once; a summary written after closing reopens them in append mode.
+     */
+    public void close(){
+        SUMMARY_WRITER.execute(() -> {
+            for (Map.Entry<String, OutputStream> e : recordStreams.entrySet()) {
+                try {
+                    e.getValue().close();
+                } catch (IOException ex) {
+                    Log.e(TAG, "Error closing " + e.getKey() + ": " + ex.getLocalizedMessage());
+                }
+            }
+            recordStreams.clear();
+        });
+    }
+
+    private void appendRecords(String fileName, List<?> records){
+        if (records.isEmpty()) {
+            return;
+        }
+        OutputStream os = recordStreams.get(fileName);
+        if (os == null) {
+            DocumentFile dir = StorageManager.getFolder(ctx, StorageManager.VCATFolder.TEST_RESULTS);
+            if (dir == null) {
+                Log.e(TAG, "TEST_RESULTS folder not available, " + fileName + " not written");
+                return;
+            }
+            DocumentFile docFile = dir.findFile(fileName);
+            if (docFile == null) {
+                docFile = dir.createFile("application/x-ndjson", fileName);
+            }
+            if (docFile == null) {
+                Log.e(TAG, "Cannot create " + fileName);
+                return;
+            }
+            try {
+                os = ctx.getContentResolver().openOutputStream(docFile.getUri(), "wa");
+            } catch (IOException e) {
+                Log.e(TAG, "Error opening " + fileName + ": " + e.getLocalizedMessage());
+            }
+            if (os == null) {
+                return;
+            }
+            recordStreams.put(fileName, os);
+        }
+        StringBuilder lines = new StringBuilder();
+        for (Object record : records) {
+            lines.append(SessionSummary.lineGson.toJson(record)).append('\n');
+        }
+        try {
+            os.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+            os.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing " + fileName + ": " + e.getLocalizedMessage());
+        }
+    }
+
+    private void flushSessionSummary(String json){
+        if (summaryDocFile == null) {
+            DocumentFile dir = StorageManager.getFolder(ctx, StorageManager.VCATFolder.TEST_RESULTS);
+            if (dir == null) {
+                Log.e(TAG, "TEST_RESULTS folder not available, session summary not written");
+                return;
+            }
+            DocumentFile docFile = dir.findFile(summaryFileName);
+            if (docFile == null) {
+                docFile = dir.createFile("application/json", summaryFileName);
+            }
+            if (docFile == null) {
+                Log.e(TAG, "Cannot create " + summaryFileName);
+                return;
+            }
+            summaryDocFile = docFile;
+        }
+        try (OutputStream os = ctx.getContentResolver().openOutputStream(summaryDocFile.getUri(), "wt")) {
+            if (os == null) {
+                Log.e(TAG, "openOutputStream returned null for " + summaryDocFile.getUri());
+                return;
+            }
+            os.write(json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing session summary: " + e.getLocalizedMessage());
+        }
+    }
 }
 
 
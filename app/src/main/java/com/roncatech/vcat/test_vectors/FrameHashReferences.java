@@ -0,0 +1,191 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.test_vectors;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.documentfile.provider.DocumentFile;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import com.roncatech.vcat.models.TestVectorManifests;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reference frame hashes of the local test vectors, for benchmark-integrity mode. The playlist
+ * only carries media uris, so the {@code frame_crc32} of each video manifest is kept under the app
+ * files dir when the vector is set up, keyed by file name and length, and looked up for the whole
+ * playlist when a run starts. Loading does file and provider I/O; call it off the main thread.
+ */
+public final class FrameHashReferences {
+    private static final String TAG = "FrameHashReferences";
+    private static final String DIR = "frame_crc32";
+
+    /** Expected CRC32 of frames 0, interval, 2 * interval, ... of one clip. */
+    public static final class Reference {
+        @SerializedName("frame_crc32_interval")
+        public final int interval;
+
+        @SerializedName("frame_crc32")
+        public final List<String> crc32Hex;
+
+        Reference(int interval, List<String> crc32Hex) {
+            this.interval = interval;
+            this.crc32Hex = crc32Hex;
+        }
+
+        /** The hashes as numbers, or null if any is not valid hex. */
+        @Nullable
+        public long[] toCrc32() {
+            long[] out = new long[crc32Hex.size()];
+            try {
+                for (int i = 0; i < out.length; i++) {
+                    out[i] = Long.parseLong(crc32Hex.get(i).trim(), 16);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            return out;
+        }
+    }
+
+    private FrameHashReferences() {}
+
+    /** Keep the reference hashes of {@code asset}, if its manifest has any. */
+    public static void save(@NonNull Context ctx, @NonNull String fileName,
+                            @NonNull TestVectorManifests.VideoAsset asset) {
+        if (asset.frameCrc32 == null || asset.frameCrc32.isEmpty()) {
+            return;
+        }
+        int interval = asset.frameCrc32Interval != null ? asset.frameCrc32Interval : 1;
+        if (interval < 1) {
+            Log.w(TAG, "Ignoring frame hashes of " + fileName + ": interval " + interval);
+            return;
+        }
+        File dir = new File(ctx.getFilesDir(), DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "Cannot create " + dir);
+            return;
+        }
+        try (Writer w = new FileWriter(new File(dir, keyFor(fileName, asset.lengthBytes)))) {
+            new Gson().toJson(new Reference(interval, asset.frameCrc32), w);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot save frame hashes of " + fileName, e);
+        }
+    }
+
+    /**
+     * The reference hashes of each of {@code clips}, null where a clip has none. The reference
+     * directory is listed once, and a clip that appears more than once is read once.
+     */
+    @NonNull
+    public static Reference[] loadAll(@NonNull Context ctx, @NonNull List<Uri> clips) {
+        Reference[] refs = new Reference[clips.size()];
+        String[] names = new File(ctx.getFilesDir(), DIR).list();
+        if (names == null || names.length == 0) {
+            return refs;
+        }
+        Set<String> saved = new HashSet<>(Arrays.asList(names));
+        Map<Uri, Reference> byUri = new HashMap<>();
+        for (int i = 0; i < refs.length; i++) {
+            Uri uri = clips.get(i);
+            if (!byUri.containsKey(uri)) {
+                byUri.put(uri, load(ctx, uri, saved));
+            }
+            refs[i] = byUri.get(uri);
+        }
+        return refs;
+    }
+
+    /** The reference hashes of the clip at {@code uri}, or null if it has none in {@code saved}. */
+    @Nullable
+    private static Reference load(Context ctx, Uri uri, Set<String> saved) {
+        String name;
+        long length;
+        String scheme = uri.getScheme();
+        if ("file".equals(scheme) && uri.getPath() != null) {
+            File file = new File(uri.getPath());
+            name = file.getName();
+            length = file.length();
+        } else if ("content".equals(scheme)) {
+            DocumentFile document = DocumentFile.fromSingleUri(ctx, uri);
+            if (document == null) {
+                return null;
+            }
+            name = document.getName();
+            length = document.length();
+        } else {
+            return null;
+        }
+        if (name == null || length <= 0) {
+            return null;
+        }
+        String key = keyFor(name, length);
+        if (!saved.contains(key)) {
+            return null;
+        }
+
+        File file = new File(new File(ctx.getFilesDir(), DIR), key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (Reader r = new FileReader(file)) {
+            Reference ref = new Gson().fromJson(r, Reference.class);
+            return (ref != null && ref.crc32Hex != null && ref.interval >= 1) ? ref : null;
+        } catch (IOException | JsonParseException e) {
+            Log.w(TAG, "Cannot read frame hashes " + file, e);
+            return null;
+        }
+    }
+
+    static String keyFor(String fileName, long length) {
+        return fileName.replaceAll("[^A-Za-z0-9._-]", "_") + "_" + length + ".json";
+    }
+}
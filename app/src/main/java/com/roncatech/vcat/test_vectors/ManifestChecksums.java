@@ -0,0 +1,100 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.test_vectors;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The manifest SHA-256 of each local test vector, by the uri it was set up at. The playlist only
+ * carries media uris, so the checksum, verified against the file when the vector is set up, is
+ * kept under the app files dir and read back when a run starts; the parsed-moov cache keys on it.
+ * Both do file I/O; call them off the main thread.
+ */
+public final class ManifestChecksums {
+    private static final String TAG = "ManifestChecksums";
+    private static final String FILE = "clip_sha256.json";
+    private static final Type MAP_TYPE = new TypeToken<HashMap<String, String>>() {}.getType();
+
+    private ManifestChecksums() {}
+
+    /** Record that the file at {@code uri} has the manifest checksum {@code sha256}. */
+    public static synchronized void save(@NonNull Context ctx, @NonNull Uri uri, @NonNull String sha256) {
+        Map<String, String> all = loadAll(ctx);
+        if (sha256.equals(all.put(uri.toString(), sha256))) {
+            return;
+        }
+        try (Writer w = new FileWriter(new File(ctx.getFilesDir(), FILE))) {
+            new Gson().toJson(all, MAP_TYPE, w);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot save the checksum of " + uri, e);
+        }
+    }
+
+    /** Every recorded checksum by uri string; empty if none are, or the file cannot be read. */
+    @NonNull
+    public static synchronized Map<String, String> loadAll(@NonNull Context ctx) {
+        File file = new File(ctx.getFilesDir(), FILE);
+        if (!file.isFile()) {
+            return new HashMap<>();
+        }
+        try (Reader r = new FileReader(file)) {
+            Map<String, String> all = new Gson().fromJson(r, MAP_TYPE);
+            if (all == null) {
+                return new HashMap<>();
+            }
+            all.values().removeIf(v -> v == null);
+            return all;
+        } catch (IOException | JsonParseException e) {
+            Log.w(TAG, "Cannot read " + file, e);
+            return new HashMap<>();
+        }
+    }
+}
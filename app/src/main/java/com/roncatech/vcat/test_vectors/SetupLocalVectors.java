@@ -138,7 +138,12 @@ public class SetupLocalVectors {
                 }
             }
 
-            // 6) add to result
+            // 6) keep its reference frame hashes for benchmark-integrity runs, and its verified
+            //    checksum for the parsed-moov cache
+            FrameHashReferences.save(ctx, fileName, vm.mediaAsset);
+            ManifestChecksums.save(ctx, destDocFile.getUri(), vm.mediaAsset.checksum);
+
+            // 7) add to result
             result.put(cur.uuid, new TestVectorMediaAsset(vm, destDocFile.getUri()));
         }
 
@@ -111,6 +111,122 @@ public class CpuInfo {
         return Objects.hash(armArchitecture, cores);
     }
 
+    /**
+     * Cluster index of each core, 0 being the slowest cluster. A cluster is the cores sharing a core
+     * type and max frequency, ordered by max frequency and then by first CPU number (the little
+     * cores come first when a capped big cluster reports the same frequency).
+     */
+    public int[] getClusterOfCore() {
+        List<String> keys = new ArrayList<>();
+        Map<String, Integer> maxMHz = new HashMap<>();
+        int[] keyOfCore = new int[cores.size()];
+        for (int i = 0; i < cores.size(); i++) {
+            CpuCore c = cores.get(i);
+            String key = c.cpu_part + "@" + c.maxMHz;
+            int k = keys.indexOf(key);
+            if (k < 0) {
+                k = keys.size();
+                keys.add(key);
+                maxMHz.put(key, c.maxMHz);
+            }
+            keyOfCore[i] = k;
+        }
+        // keys are in first-seen order, so a stable sort on frequency breaks ties by CPU number
+        List<String> order = new ArrayList<>(keys);
+        order.sort(Comparator.comparingInt(maxMHz::get));
+
+        int[] cluster = new int[cores.size()];
+        for (int i = 0; i < cluster.length; i++) {
+            cluster[i] = order.indexOf(keys.get(keyOfCore[i]));
+        }
+        return cluster;
+    }
+
+    public int getClusterCount() {
+        int max = -1;
+        for (int c : getClusterOfCore()) {
+            max = Math.max(max, c);
+        }
+        return max + 1;
+    }
+
+    /** @return the CPUs of the slowest cluster */
+    public int[] getLittleCpus() {
+        return cpusWhere(getClusterOfCore(), true);
+    }
+
+    /** @return every CPU outside the slowest cluster, or every CPU if there is only one cluster */
+    public int[] getBigCpus() {
+        int[] cluster = getClusterOfCore();
+        int[] big = cpusWhere(cluster, false);
+        return big.length > 0 ? big : cpusWhere(cluster, true);
+    }
+
+    private static int[] cpusWhere(int[] cluster, boolean little) {
+        int n = 0;
+        for (int c : cluster) {
+            if ((c == 0) == little) n++;
+        }
+        int[] out = new int[n];
+        n = 0;
+        for (int i = 0; i < cluster.length; i++) {
+            if ((cluster[i] == 0) == little) out[n++] = i;
+        }
+        return out;
+    }
+
+    /**
+     * Parse a CPU list in the kernel's cpuset notation, e.g. "0-3,6".
+     *
+     * @return the sorted CPUs, or null if the list is malformed or names a CPU that does not exist
+     */
+    public static int[] parseCpuList(String list, int coreCount) {
+        if (list == null || list.trim().isEmpty()) {
+            return null;
+        }
+        TreeSet<Integer> cpus = new TreeSet<>();
+        try {
+            for (String part : list.trim().split("\\s*,\\s*")) {
+                String[] range = part.split("-", 2);
+                int from = Integer.parseInt(range[0].trim());
+                int to = range.length == 2 ? Integer.parseInt(range[1].trim()) : from;
+                if (from < 0 || to < from || to >= coreCount) {
+                    return null;
+                }
+                for (int c = from; c <= to; c++) {
+                    cpus.add(c);
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        int[] out = new int[cpus.size()];
+        int i = 0;
+        for (int c : cpus) {
+            out[i++] = c;
+        }
+        return out;
+    }
+
+    /** "little"/"big", or "little"/"mid"/"big", for two and three clusters; "clusterN" otherwise. */
+    public static String clusterLabel(int cluster, int clusterCount) {
+        if (clusterCount == 2 || clusterCount == 3) {
+            if (cluster == 0) return "little";
+            if (cluster == clusterCount - 1) return "big";
+            return "mid";
+        }
+        return "cluster" + cluster;
+    }
+
+    public String[] getClusterLabels() {
+        int n = getClusterCount();
+        String[] labels = new String[n];
+        for (int i = 0; i < n; i++) {
+            labels[i] = clusterLabel(i, n);
+        }
+        return labels;
+    }
+
     /**
      * Static inner adapter to handle custom JSON serialization/deserialization
      */
@@ -0,0 +1,389 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.tools;
+
+import android.content.Context;
+import android.media.MediaCodecInfo.CodecCapabilities;
+import android.media.MediaCodecInfo.CodecProfileLevel;
+import android.media.MediaCodecInfo.VideoCapabilities;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.mediacodec.MediaCodecInfo;
+import com.google.android.exoplayer2.mediacodec.MediaCodecUtil;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import com.roncatech.vcat.BuildConfig;
+import com.roncatech.vcat.decoder_plugin.VcatDecoderManager;
+import com.roncatech.vcat.decoder_plugin_api.VcatDecoder;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The video decoders of each {@link VideoDecoderEnumerator.MimeType}, plugins first and then
+ * MediaCodec, with what MediaCodec reports about each: profiles and levels, max size and frame
+ * rate. Querying MediaCodec is slow and every {@code new RunConfig()} needs the decoder names, so
+ * the result is kept in one json file under the cache dir.
+ *
+ * <p>The file is keyed by the build fingerprint, the app version and the loaded plugins with their
+ * versions; an OTA, an app update or a plugin change rebuilds it. {@link #loadAsync} starts loading
+ * at app start, after the plugins are registered, and then fills in the MIME types the file lacks
+ * one at a time. A caller that needs a MIME type before that waits only for that type, enumerating
+ * it itself if nobody has yet; code on the main thread uses {@link #peekDecoderNames}, which never
+ * waits.
+ */
+public final class DecoderCapabilityCache {
+    private static final String TAG = "DecoderCapabilityCache";
+    private static final String FILE_NAME = "decoder_capabilities.json";
+
+    /** One decoder, in the order the renderer factory tries them. */
+    public static final class Decoder {
+        /** Plugin id or MediaCodec name, as stored in {@code DecoderConfig}. */
+        @SerializedName("name")
+        public final String name;
+        @SerializedName("plugin")
+        public final boolean plugin;
+        /** Plugin version; null for MediaCodec. */
+        @SerializedName("version")
+        public final String version;
+
+        // MediaCodec only, absent for plugins
+        /** Whether the device vendor provides the codec rather than the platform. */
+        @SerializedName("vendor")
+        public Boolean vendor;
+        @SerializedName("hardware_accelerated")
+        public Boolean hardwareAccelerated;
+        @SerializedName("software_only")
+        public Boolean softwareOnly;
+        /** {profile, level} pairs, {@code MediaCodecInfo.CodecProfileLevel} constants. */
+        @SerializedName("profile_levels")
+        public int[][] profileLevels;
+        @SerializedName("max_width")
+        public Integer maxWidth;
+        @SerializedName("max_height")
+        public Integer maxHeight;
+        @SerializedName("max_frame_rate")
+        public Integer maxFrameRate;
+        @SerializedName("max_instances")
+        public Integer maxInstances;
+
+        Decoder(String name, boolean plugin, @Nullable String version) {
+            this.name = name;
+            this.plugin = plugin;
+            this.version = version;
+        }
+
+        /** e.g. "HW, up to 4096x2176 @ 120 fps", for the decoder settings. */
+        public String describe() {
+            if (plugin) {
+                return "plugin " + version;
+            }
+            StringBuilder sb = new StringBuilder(Boolean.TRUE.equals(hardwareAccelerated) ? "HW" : "SW");
+            if (maxWidth != null && maxHeight != null) {
+                sb.append(", up to ").append(maxWidth).append('x').append(maxHeight);
+                if (maxFrameRate != null) {
+                    sb.append(" @ ").append(maxFrameRate).append(" fps");
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /** The file's content. */
+    static final class Snapshot {
+        @SerializedName("key")
+        final String key;
+        /** MIME type string to its decoders. */
+        @SerializedName("decoders")
+        final Map<String, List<Decoder>> decoders;
+
+        Snapshot(String key, Map<String, List<Decoder>> decoders) {
+            this.key = key;
+            this.decoders = decoders;
+        }
+    }
+
+    private static final DecoderCapabilityCache instance = new DecoderCapabilityCache();
+
+    public static DecoderCapabilityCache getInstance() {
+        return instance;
+    }
+
+    // guards file, key and fileRead; held for the small json read and write only
+    private final Object fileLock = new Object();
+    @Nullable private File file = null;
+    @Nullable private String key = null;
+    private boolean fileRead = false;
+
+    /** MIME type string to its decoders, for the types known so far. */
+    private final Map<String, List<Decoder>> decoders = new ConcurrentHashMap<>();
+    /** One lock per MIME type, so enumerating one type never waits on another. */
+    private final Map<String, Object> enumerationLocks = new ConcurrentHashMap<>();
+
+    private DecoderCapabilityCache() {}
+
+    /** Load or rebuild the cache on a background thread; call once the plugins are registered. */
+    public void loadAsync(Context context) {
+        synchronized (fileLock) {
+            this.file = new File(context.getCacheDir(), FILE_NAME);
+        }
+        new Thread(() -> {
+            for (VideoDecoderEnumerator.MimeType mimeType : VideoDecoderEnumerator.MimeType.values()) {
+                decodersFor(mimeType.toString());
+            }
+        }, "vcat-decoder-caps").start();
+    }
+
+    /** The decoder names for {@code mimeType}, plugins first; waits if that type is still being enumerated. */
+    public List<String> getDecoderNames(VideoDecoderEnumerator.MimeType mimeType) {
+        return names(getDecoders(mimeType.toString()));
+    }
+
+    /**
+     * The decoder names for {@code mimeType} if the cache already has them, or null. Never waits, so
+     * it is what the main thread uses.
+     */
+    @Nullable
+    public List<String> peekDecoderNames(VideoDecoderEnumerator.MimeType mimeType) {
+        List<Decoder> known = decoders.get(mimeType.toString());
+        return known != null ? names(known) : null;
+    }
+
+    /** As {@link #find}, from the types the cache already has; null if not known yet. Never waits. */
+    @Nullable
+    public Decoder peek(String mimeType, String name) {
+        List<Decoder> known = decoders.get(mimeType);
+        if (known != null) {
+            for (Decoder d : known) {
+                if (d.name.equalsIgnoreCase(name)) {
+                    return d;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<String> names(List<Decoder> decoders) {
+        List<String> names = new ArrayList<>();
+        for (Decoder d : decoders) {
+            names.add(d.name);
+        }
+        return names;
+    }
+
+    public List<Decoder> getDecoders(String mimeType) {
+        List<Decoder> known = decodersFor(mimeType);
+        return known != null ? Collections.unmodifiableList(known) : Collections.emptyList();
+    }
+
+    /** The MediaCodec decoder or plugin called {@code name} for {@code mimeType}, or null. */
+    @Nullable
+    public Decoder find(String mimeType, String name) {
+        for (Decoder d : getDecoders(mimeType)) {
+            if (d.name.equalsIgnoreCase(name)) {
+                return d;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The decoders of {@code mimeType}, from the file or enumerated now if the file does not have
+     * them. Null for a type outside {@link VideoDecoderEnumerator.MimeType}.
+     */
+    @Nullable
+    private List<Decoder> decodersFor(String mimeType) {
+        if (VideoDecoderEnumerator.MimeType.fromString(mimeType) == null) {
+            return null;
+        }
+        readFile();
+        List<Decoder> known = decoders.get(mimeType);
+        if (known != null) {
+            return known;
+        }
+        synchronized (enumerationLocks.computeIfAbsent(mimeType, m -> new Object())) {
+            known = decoders.get(mimeType);
+            if (known == null) {
+                long startMs = System.currentTimeMillis();
+                known = enumerate(mimeType);
+                Log.i(TAG, "Enumerated " + mimeType + " decoders in "
+                        + (System.currentTimeMillis() - startMs) + " ms");
+                decoders.put(mimeType, known);
+                writeFile();
+            }
+        }
+        return known;
+    }
+
+    /** Takes the file's MIME types if it was written for this build and these plugins. Once. */
+    private void readFile() {
+        synchronized (fileLock) {
+            if (fileRead || file == null) {
+                return;
+            }
+            fileRead = true;
+            List<String> plugins = new ArrayList<>();
+            for (VcatDecoder p : VcatDecoderManager.getInstance().getDecoders()) {
+                plugins.add(p.getId() + "@" + p.getVersion());
+            }
+            key = cacheKey(Build.FINGERPRINT, BuildConfig.VERSION_CODE, plugins);
+            Snapshot s = read(file);
+            if (s != null && key.equals(s.key) && s.decoders != null) {
+                for (Map.Entry<String, List<Decoder>> e : s.decoders.entrySet()) {
+                    decoders.putIfAbsent(e.getKey(), e.getValue());
+                }
+            }
+        }
+    }
+
+    /** Rewrites the file with every MIME type known so far. */
+    private void writeFile() {
+        synchronized (fileLock) {
+            if (file != null && key != null) {
+                write(file, new Snapshot(key, new HashMap<>(decoders)));
+            }
+        }
+    }
+
+    /** @param plugins "id@version" of each registered plugin */
+    static String cacheKey(String fingerprint, int versionCode, List<String> plugins) {
+        // registration order does not change what the file holds
+        List<String> ids = new ArrayList<>(plugins);
+        Collections.sort(ids);
+        return fingerprint + "|" + versionCode + "|" + String.join(",", ids);
+    }
+
+    /** Plugins for {@code mime}, then what MediaCodec has for it. */
+    private static List<Decoder> enumerate(String mime) {
+        List<Decoder> decoders = new ArrayList<>();
+        for (VcatDecoder p : VcatDecoderManager.getInstance().getDecodersForMimeType(mime)) {
+            decoders.add(new Decoder(p.getId(), true, p.getVersion()));
+        }
+
+        List<MediaCodecInfo> codecInfos;
+        try {
+            codecInfos = MediaCodecUtil.getDecoderInfos(mime, false, false);
+        } catch (MediaCodecUtil.DecoderQueryException e) {
+            Log.w(TAG, "Decoder query failed for " + mime, e);
+            codecInfos = new ArrayList<>();
+        }
+        for (MediaCodecInfo info : codecInfos) {
+            decoders.add(fromCodecInfo(info));
+        }
+        return decoders;
+    }
+
+    private static Decoder fromCodecInfo(MediaCodecInfo info) {
+        Decoder d = new Decoder(info.name, false, null);
+        d.vendor = info.vendor;
+        d.hardwareAccelerated = info.hardwareAccelerated;
+        d.softwareOnly = info.softwareOnly;
+        d.maxInstances = info.getMaxSupportedInstances();
+
+        CodecCapabilities caps = info.capabilities;
+        if (caps != null) {
+            CodecProfileLevel[] pls = info.getProfileLevels();
+            d.profileLevels = new int[pls.length][];
+            for (int i = 0; i < pls.length; i++) {
+                d.profileLevels[i] = new int[] {pls[i].profile, pls[i].level};
+            }
+            VideoCapabilities video = caps.getVideoCapabilities();
+            if (video != null) {
+                d.maxWidth = video.getSupportedWidths().getUpper();
+                d.maxHeight = video.getSupportedHeights().getUpper();
+                d.maxFrameRate = video.getSupportedFrameRates().getUpper();
+            }
+        }
+        return d;
+    }
+
+    @Nullable
+    static Snapshot read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (Reader r = new FileReader(file)) {
+            Snapshot s = new Gson().fromJson(r, Snapshot.class);
+            if (s != null && !isComplete(s)) {
+                // a partly valid file could hide decoders; enumerate everything again instead
+                Log.w(TAG, "Ignoring incomplete " + file);
+                return null;
+            }
+            return s;
+        } catch (IOException | JsonParseException e) {
+            Log.w(TAG, "Ignoring unreadable " + file, e);
+            return null;
+        }
+    }
+
+    /** Whether every MIME type in {@code s} has a list of named decoders. */
+    static boolean isComplete(Snapshot s) {
+        if (s.key == null || s.decoders == null) {
+            return false;
+        }
+        for (Map.Entry<String, List<Decoder>> e : s.decoders.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null) {
+                return false;
+            }
+            for (Decoder d : e.getValue()) {
+                if (d == null || d.name == null) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    static void write(File file, @NonNull Snapshot snapshot) {
+        try (Writer w = new FileWriter(file)) {
+            new Gson().toJson(snapshot, w);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write " + file, e);
+        }
+    }
+}
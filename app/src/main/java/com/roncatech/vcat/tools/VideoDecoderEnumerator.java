@@ -31,13 +31,9 @@
  */
 
 package com.roncatech.vcat.tools;
-import android.media.MediaCodecInfo;
-import android.media.MediaCodecList;
-import android.media.MediaCodec;
 
 import androidx.annotation.NonNull;
 
-import com.google.android.exoplayer2.mediacodec.MediaCodecUtil;
 import com.roncatech.vcat.decoder_plugin.VcatDecoderManager;
 import com.roncatech.vcat.decoder_plugin_api.VcatDecoder;
 import com.roncatech.vcat.video.StrictRenderersFactoryV2;
@@ -110,26 +106,9 @@ public class VideoDecoderEnumerator {
         return "";
     }
 
+    /** Plugins for the MIME type, then MediaCodec decoders, from {@link DecoderCapabilityCache}. */
     public static DecoderSet getDecodersForMimeType(MimeType mimeType){
-
-        List<com.google.android.exoplayer2.mediacodec.MediaCodecInfo> codecInfos;
-        try {
-            codecInfos = MediaCodecUtil.getDecoderInfos(mimeType.toString(), false, false);
-        } catch (MediaCodecUtil.DecoderQueryException e) {
-            codecInfos = new ArrayList<>();
-        }
-
-        List<String> decoders = new ArrayList<>();
-
-        for(VcatDecoder cur : VcatDecoderManager.getInstance().getDecodersForMimeType(mimeType.toString())){
-            decoders.add(cur.getId());
-        }
-
-        for (com.google.android.exoplayer2.mediacodec.MediaCodecInfo codecInfo : codecInfos) {
-            decoders.add(codecInfo.name);
-        }
-
-        return new DecoderSet(mimeType, decoders);
+        return new DecoderSet(mimeType, DecoderCapabilityCache.getInstance().getDecoderNames(mimeType));
     }
 
     public static List<DecoderSet> getAllDecoders(List<MimeType> mimeTypes) {
@@ -32,6 +32,8 @@
 
 package com.roncatech.vcat.ui;
 
+import android.app.Activity;
+import android.app.AlertDialog;
 import android.content.Context;
 import android.content.Intent;
 import android.database.Cursor;
@@ -57,6 +59,7 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.roncatech.vcat.R;
 import com.roncatech.vcat.models.ResumeInfo;
+import com.roncatech.vcat.models.RunConfig;
 import com.roncatech.vcat.models.SessionHeader;
 import com.roncatech.vcat.models.SharedViewModel;
 import com.roncatech.vcat.tools.BatteryInfo;
@@ -64,11 +67,14 @@ import com.roncatech.vcat.tools.CpuInfo;
 import com.roncatech.vcat.tools.DeviceInfo;
 import com.roncatech.vcat.tools.StorageManager;
 import com.roncatech.vcat.video.FullScreenPlayerActivity;
+import com.roncatech.vcat.video.PlaylistPreflight;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class FragmentMain extends Fragment implements PlaylistUpdates {
     private final static String TAG = "MainFragment";
@@ -76,6 +82,7 @@ public class FragmentMain extends Fragment implements PlaylistUpdates {
     private TextView playlistFolderText;
     private TableLayout playlistTable;
     private SharedViewModel viewModel;
+    private final ExecutorService exec = Executors.newSingleThreadExecutor();
 
     public FragmentMain()  {
     }
@@ -292,10 +299,10 @@ public class FragmentMain extends Fragment implements PlaylistUpdates {
                 int batteryLevel = BatteryInfo.getBatteryLevel(getContext());
                 if ((this.viewModel.getRunConfig().runMode.name().equals("BATTERY")) && (this.viewModel.getRunConfig().runLimit >= (batteryLevel - 1))) {
                     Toast.makeText(requireContext(), "Battery limit must be at least 2% less than the current battery level", Toast.LENGTH_SHORT).show();
+                } else if (this.viewModel.getRunConfig().preflight) {
+                    runPreflight(playlistDoc);
                 } else {
-                    this.viewModel.curTestDetails.startTest(playlistDoc.getUri().toString());
-                    Intent i = new Intent(getActivity(), FullScreenPlayerActivity.class);
-                    startActivity(i);
+                    startTest(playlistDoc, new int[0]);
                 }
                 return true;
             } else if (id == R.id.menu_delete) {
@@ -308,6 +315,77 @@ public class FragmentMain extends Fragment implements PlaylistUpdates {
         popupMenu.show();
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        exec.shutdownNow();
+    }
+
+    private void startTest(DocumentFile playlistDoc, int[] skipClips) {
+        this.viewModel.curTestDetails.startTest(playlistDoc.getUri().toString());
+        Intent i = new Intent(getActivity(), FullScreenPlayerActivity.class);
+        i.putExtra(FullScreenPlayerActivity.EXTRA_SKIP_CLIPS, skipClips);
+        startActivity(i);
+    }
+
+    /** Predict each clip from past runs, or a probe decode if it has none, off the main thread, then let the user run all, skip the flagged ones, or cancel. */
+    private void runPreflight(DocumentFile playlistDoc) {
+        Context ctx = requireContext().getApplicationContext();
+        RunConfig runConfig = new RunConfig(this.viewModel.getRunConfig());
+        Toast.makeText(requireContext(), "Checking playlist against past runs…", Toast.LENGTH_SHORT).show();
+        exec.execute(() -> {
+            PlaylistPreflight.Report report;
+            try {
+                report = PlaylistPreflight.run(ctx, runConfig, playlistDoc.getUri());
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Pre-flight of " + playlistDoc.getUri() + " failed", e);
+                runOnUiIfAdded(() -> showPreflightFailure(playlistDoc, e));
+                return;
+            }
+            runOnUiIfAdded(() -> showPreflight(playlistDoc, report));
+        });
+    }
+
+    /** Run {@code r} on the UI thread, unless the fragment has gone by then. */
+    private void runOnUiIfAdded(Runnable r) {
+        Activity activity = getActivity();
+        if (activity == null) return;
+        activity.runOnUiThread(() -> {
+            if (!isAdded()) return;
+            r.run();
+        });
+    }
+
+    private void showPreflightFailure(DocumentFile playlistDoc, Exception e) {
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Pre-flight: " + playlistDoc.getName())
+                .setMessage("The pre-flight check failed: " + e.getMessage()
+                        + "\n\nRun the playlist without it?")
+                .setPositiveButton("Run All", (d, w) -> startTest(playlistDoc, new int[0]))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showPreflight(DocumentFile playlistDoc, PlaylistPreflight.Report report) {
+        int[] flagged = report.getFlaggedIndices();
+        AlertDialog.Builder builder = new AlertDialog.Builder(requireContext())
+                .setTitle("Pre-flight: " + playlistDoc.getName())
+                .setMessage(report.describe(new int[0]))
+                .setPositiveButton("Run All", (d, w) -> startTest(playlistDoc, new int[0]))
+                .setNegativeButton("Cancel", null);
+        if (flagged.length > 0 && flagged.length < report.clips.size()) {
+            String estimate = report.describe(flagged);
+            builder.setNeutralButton("Skip " + flagged.length + " Flagged", (d, w) ->
+                    new AlertDialog.Builder(requireContext())
+                            .setTitle("Without flagged clips")
+                            .setMessage(estimate)
+                            .setPositiveButton("Run", (d2, w2) -> startTest(playlistDoc, flagged))
+                            .setNegativeButton("Cancel", null)
+                            .show());
+        }
+        builder.show();
+    }
+
     void deletePlaylist(DocumentFile playlistDoc) {
         if (playlistDoc.delete()) {
             Log.i(TAG, "Deleted playlist: " + playlistDoc.getUri());
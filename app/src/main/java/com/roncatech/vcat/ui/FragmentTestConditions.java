@@ -36,6 +36,8 @@ import android.app.Dialog;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -57,11 +59,10 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 
-import com.google.android.exoplayer2.mediacodec.MediaCodecInfo;
-import com.google.android.exoplayer2.mediacodec.MediaCodecUtil;
 import com.roncatech.vcat.models.RunConfig;
 import com.roncatech.vcat.models.SharedViewModel;
 
+import com.roncatech.vcat.tools.DecoderCapabilityCache;
 import com.roncatech.vcat.tools.VideoDecoderEnumerator;
 import com.roncatech.vcat.R;
 import com.roncatech.vcat.BuildConfig;
@@ -85,6 +86,24 @@ public class FragmentTestConditions extends Fragment {
     EditText httpPortEditText;
 
     private Spinner videoOrientationSpinner;
+    private Spinner energySampleHzSpinner;
+    private Spinner clipTransitionSpinner;
+    private Spinner testModeSpinner;
+    private Spinner maxInstancesSpinner;
+    private Spinner fragmentReadAheadSpinner;
+    private Spinner ioModeSpinner;
+    private Spinner preloadBudgetSpinner;
+    private CheckBox bitstreamTraceCheckBox;
+    private Spinner frameHashIntervalSpinner;
+    private Spinner sweepClipSecondsSpinner;
+    private Spinner seekPatternSpinner;
+    private Spinner seeksPerClipSpinner;
+    private Spinner headroomMaxSpeedSpinner;
+    private Spinner headroomDropPctSpinner;
+    private Spinner corePlacementSpinner;
+    private EditText placementCpuSetEditText;
+    private Spinner decoderThreadPrioritySpinner;
+    private CheckBox preflightCheckBox;
 
     ImageButton aboutButton;
 
@@ -236,6 +255,402 @@ public class FragmentTestConditions extends Fragment {
 
         }
 
+        // Energy sampling rate, options are 1..10 Hz so position == Hz - 1
+        energySampleHzSpinner = view.findViewById(R.id.energySampleHzDropdown);
+
+        if (energySampleHzSpinner != null) {
+            ArrayAdapter<CharSequence> hzAdapter = ArrayAdapter.createFromResource(
+                    getContext(), R.array.energy_sample_hz_options, android.R.layout.simple_spinner_item);
+            hzAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            energySampleHzSpinner.setAdapter(hzAdapter);
+
+            energySampleHzSpinner.setSelection(Math.max(0, Math.min(hzAdapter.getCount() - 1, runConfig.energySampleHz - 1)));
+
+            energySampleHzSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                    runConfig.energySampleHz = Integer.parseInt(parent.getItemAtPosition(position).toString());
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        clipTransitionSpinner = view.findViewById(R.id.clipTransitionDropdown);
+
+        if (clipTransitionSpinner != null) {
+            ArrayAdapter<RunConfig.ClipTransition> adapter = new ArrayAdapter<RunConfig.ClipTransition>(
+                    requireContext(),
+                    android.R.layout.simple_spinner_item,
+                    RunConfig.ClipTransition.values()
+            ) {
+                @NonNull @Override public View getView(int pos, View convertView, @NonNull ViewGroup parent) {
+                    TextView tv = (TextView) super.getView(pos, convertView, parent);
+                    tv.setText(getItem(pos).label);
+                    return tv;
+                }
+                @Override public View getDropDownView(int pos, View convertView, @NonNull ViewGroup parent) {
+                    TextView tv = (TextView) super.getDropDownView(pos, convertView, parent);
+                    tv.setText(getItem(pos).label);
+                    return tv;
+                }
+            };
+            adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            clipTransitionSpinner.setAdapter(adapter);
+
+            clipTransitionSpinner.setSelection(runConfig.clipTransition.ordinal(), false);
+            clipTransitionSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override public void onItemSelected(AdapterView<?> parent, View v, int pos, long id) {
+                    runConfig.clipTransition = (RunConfig.ClipTransition) parent.getItemAtPosition(pos);
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        testModeSpinner = view.findViewById(R.id.testModeDropdown);
+
+        if (testModeSpinner != null) {
+            ArrayAdapter<RunConfig.TestMode> adapter = new ArrayAdapter<RunConfig.TestMode>(
+                    requireContext(),
+                    android.R.layout.simple_spinner_item,
+                    RunConfig.TestMode.values()
+            ) {
+                @NonNull @Override public View getView(int pos, View convertView, @NonNull ViewGroup parent) {
+                    TextView tv = (TextView) super.getView(pos, convertView, parent);
+                    tv.setText(getItem(pos).label);
+                    return tv;
+                }
+                @Override public View getDropDownView(int pos, View convertView, @NonNull ViewGroup parent) {
+                    TextView tv = (TextView) super.getDropDownView(pos, convertView, parent);
+                    tv.setText(getItem(pos).label);
+                    return tv;
+                }
+            };
+            adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            testModeSpinner.setAdapter(adapter);
+
+            testModeSpinner.setSelection(runConfig.testMode.ordinal(), false);
+            testModeSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override public void onItemSelected(AdapterView<?> parent, View v, int pos, long id) {
+                    runConfig.testMode = (RunConfig.TestMode) parent.getItemAtPosition(pos);
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        // Concurrent stress ramp limit, options are 1..8 so position == instances - 1
+        maxInstancesSpinner = view.findViewById(R.id.maxInstancesDropdown);
+
+        if (maxInstancesSpinner != null) {
+            ArrayAdapter<CharSequence> nAdapter = ArrayAdapter.createFromResource(
+                    getContext(), R.array.concurrent_instances_options, android.R.layout.simple_spinner_item);
+            nAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            maxInstancesSpinner.setAdapter(nAdapter);
+
+            maxInstancesSpinner.setSelection(Math.max(0, Math.min(nAdapter.getCount() - 1, runConfig.maxConcurrentInstances - 1)));
+
+            maxInstancesSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                    runConfig.maxConcurrentInstances = Integer.parseInt(parent.getItemAtPosition(position).toString());
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        // fMP4 read-ahead, options are not contiguous so select by value
+        fragmentReadAheadSpinner = view.findViewById(R.id.fragmentReadAheadDropdown);
+
+        if (fragmentReadAheadSpinner != null) {
+            ArrayAdapter<CharSequence> raAdapter = ArrayAdapter.createFromResource(
+                    getContext(), R.array.fragment_read_ahead_options, android.R.layout.simple_spinner_item);
+            raAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            fragmentReadAheadSpinner.setAdapter(raAdapter);
+
+            int raPos = raAdapter.getPosition(String.valueOf(runConfig.fragmentReadAhead));
+            fragmentReadAheadSpinner.setSelection(Math.max(0, raPos));
+
+            fragmentReadAheadSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                    runConfig.fragmentReadAhead = Integer.parseInt(parent.getItemAtPosition(position).toString());
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        ioModeSpinner = view.findViewById(R.id.ioModeDropdown);
+
+        if (ioModeSpinner != null) {
+            ArrayAdapter<RunConfig.IoMode> adapter = new ArrayAdapter<RunConfig.IoMode>(
+                    requireContext(),
+                    android.R.layout.simple_spinner_item,
+                    RunConfig.IoMode.values()
+            ) {
+                @NonNull @Override public View getView(int pos, View convertView, @NonNull ViewGroup parent) {
+                    TextView tv = (TextView) super.getView(pos, convertView, parent);
+                    tv.setText(getItem(pos).label);
+                    return tv;
+                }
+                @Override public View getDropDownView(int pos, View convertView, @NonNull ViewGroup parent) {
+                    TextView tv = (TextView) super.getDropDownView(pos, convertView, parent);
+                    tv.setText(getItem(pos).label);
+                    return tv;
+                }
+            };
+            adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            ioModeSpinner.setAdapter(adapter);
+
+            ioModeSpinner.setSelection(runConfig.ioMode.ordinal(), false);
+            ioModeSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override public void onItemSelected(AdapterView<?> parent, View v, int pos, long id) {
+                    runConfig.ioMode = (RunConfig.IoMode) parent.getItemAtPosition(pos);
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        // RAM preload budget, select by value
+        preloadBudgetSpinner = view.findViewById(R.id.preloadBudgetDropdown);
+
+        if (preloadBudgetSpinner != null) {
+            ArrayAdapter<CharSequence> pbAdapter = ArrayAdapter.createFromResource(
+                    getContext(), R.array.preload_budget_mb_options, android.R.layout.simple_spinner_item);
+            pbAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            preloadBudgetSpinner.setAdapter(pbAdapter);
+
+            int pbPos = pbAdapter.getPosition(String.valueOf(runConfig.preloadBudgetMb));
+            preloadBudgetSpinner.setSelection(Math.max(0, pbPos));
+
+            preloadBudgetSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                    runConfig.preloadBudgetMb = Integer.parseInt(parent.getItemAtPosition(position).toString());
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        // per-sample bitstream trace sidecar
+        bitstreamTraceCheckBox = view.findViewById(R.id.bitstreamTraceCheckBox);
+
+        if (bitstreamTraceCheckBox != null) {
+            bitstreamTraceCheckBox.setChecked(runConfig.bitstreamTrace);
+            bitstreamTraceCheckBox.setOnCheckedChangeListener(
+                    (button, isChecked) -> runConfig.bitstreamTrace = isChecked);
+        }
+
+        // benchmark-integrity frame hashing, select by value (0 = off)
+        frameHashIntervalSpinner = view.findViewById(R.id.frameHashIntervalDropdown);
+
+        if (frameHashIntervalSpinner != null) {
+            ArrayAdapter<CharSequence> fhAdapter = ArrayAdapter.createFromResource(
+                    getContext(), R.array.frame_hash_interval_options, android.R.layout.simple_spinner_item);
+            fhAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            frameHashIntervalSpinner.setAdapter(fhAdapter);
+
+            int fhPos = fhAdapter.getPosition(String.valueOf(runConfig.frameHashInterval));
+            frameHashIntervalSpinner.setSelection(Math.max(0, fhPos));
+
+            frameHashIntervalSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                    runConfig.frameHashInterval = Integer.parseInt(parent.getItemAtPosition(position).toString());
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        // thread sweep slice per clip, select by value (0 = whole clip)
+        sweepClipSecondsSpinner = view.findViewById(R.id.sweepClipSecondsDropdown);
+
+        if (sweepClipSecondsSpinner != null) {
+            ArrayAdapter<CharSequence> scAdapter = ArrayAdapter.createFromResource(
+                    getContext(), R.array.sweep_clip_seconds_options, android.R.layout.simple_spinner_item);
+            scAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            sweepClipSecondsSpinner.setAdapter(scAdapter);
+
+            int scPos = scAdapter.getPosition(String.valueOf(runConfig.sweepClipSeconds));
+            sweepClipSecondsSpinner.setSelection(Math.max(0, scPos));
+
+            sweepClipSecondsSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                    runConfig.sweepClipSeconds = Integer.parseInt(parent.getItemAtPosition(position).toString());
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        // seek benchmark pattern and seeks per clip
+        seekPatternSpinner = view.findViewById(R.id.seekPatternDropdown);
+
+        if (seekPatternSpinner != null) {
+            ArrayAdapter<RunConfig.SeekPattern> adapter = new ArrayAdapter<RunConfig.SeekPattern>(
+                    requireContext(),
+                    android.R.layout.simple_spinner_item,
+                    RunConfig.SeekPattern.values()
+            ) {
+                @NonNull @Override public View getView(int pos, View convertView, @NonNull ViewGroup parent) {
+                    TextView tv = (TextView) super.getView(pos, convertView, parent);
+                    tv.setText(getItem(pos).label);
+                    return tv;
+                }
+                @Override public View getDropDownView(int pos, View convertView, @NonNull ViewGroup parent) {
+                    TextView tv = (TextView) super.getDropDownView(pos, convertView, parent);
+                    tv.setText(getItem(pos).label);
+                    return tv;
+                }
+            };
+            adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            seekPatternSpinner.setAdapter(adapter);
+
+            seekPatternSpinner.setSelection(runConfig.seekPattern.ordinal(), false);
+            seekPatternSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override public void onItemSelected(AdapterView<?> parent, View v, int pos, long id) {
+                    runConfig.seekPattern = (RunConfig.SeekPattern) parent.getItemAtPosition(pos);
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        seeksPerClipSpinner = view.findViewById(R.id.seeksPerClipDropdown);
+
+        if (seeksPerClipSpinner != null) {
+            ArrayAdapter<CharSequence> spAdapter = ArrayAdapter.createFromResource(
+                    getContext(), R.array.seeks_per_clip_options, android.R.layout.simple_spinner_item);
+            spAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            seeksPerClipSpinner.setAdapter(spAdapter);
+
+            int spPos = spAdapter.getPosition(String.valueOf(runConfig.seeksPerClip));
+            seeksPerClipSpinner.setSelection(Math.max(0, spPos));
+
+            seeksPerClipSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                    runConfig.seeksPerClip = Integer.parseInt(parent.getItemAtPosition(position).toString());
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        headroomMaxSpeedSpinner = view.findViewById(R.id.headroomMaxSpeedDropdown);
+
+        if (headroomMaxSpeedSpinner != null) {
+            ArrayAdapter<CharSequence> hsAdapter = ArrayAdapter.createFromResource(
+                    getContext(), R.array.headroom_max_speed_options, android.R.layout.simple_spinner_item);
+            hsAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            headroomMaxSpeedSpinner.setAdapter(hsAdapter);
+
+            int hsPos = hsAdapter.getPosition(String.valueOf(runConfig.headroomMaxSpeed));
+            headroomMaxSpeedSpinner.setSelection(Math.max(0, hsPos));
+
+            headroomMaxSpeedSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                    runConfig.headroomMaxSpeed = Integer.parseInt(parent.getItemAtPosition(position).toString());
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        headroomDropPctSpinner = view.findViewById(R.id.headroomDropPctDropdown);
+
+        if (headroomDropPctSpinner != null) {
+            ArrayAdapter<CharSequence> hdAdapter = ArrayAdapter.createFromResource(
+                    getContext(), R.array.headroom_drop_pct_options, android.R.layout.simple_spinner_item);
+            hdAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            headroomDropPctSpinner.setAdapter(hdAdapter);
+
+            int hdPos = hdAdapter.getPosition(String.valueOf(runConfig.headroomDropPct));
+            headroomDropPctSpinner.setSelection(Math.max(0, hdPos));
+
+            headroomDropPctSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                    runConfig.headroomDropPct = Integer.parseInt(parent.getItemAtPosition(position).toString());
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        // plugin decoder thread placement; the CPU set only applies to CPU_SET
+        corePlacementSpinner = view.findViewById(R.id.corePlacementDropdown);
+        placementCpuSetEditText = view.findViewById(R.id.placementCpuSetEditText);
+
+        if (corePlacementSpinner != null) {
+            ArrayAdapter<RunConfig.CorePlacement> adapter = new ArrayAdapter<RunConfig.CorePlacement>(
+                    requireContext(),
+                    android.R.layout.simple_spinner_item,
+                    RunConfig.CorePlacement.values()
+            ) {
+                @NonNull @Override public View getView(int pos, View convertView, @NonNull ViewGroup parent) {
+                    TextView tv = (TextView) super.getView(pos, convertView, parent);
+                    tv.setText(getItem(pos).label);
+                    return tv;
+                }
+                @Override public View getDropDownView(int pos, View convertView, @NonNull ViewGroup parent) {
+                    TextView tv = (TextView) super.getDropDownView(pos, convertView, parent);
+                    tv.setText(getItem(pos).label);
+                    return tv;
+                }
+            };
+            adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            corePlacementSpinner.setAdapter(adapter);
+
+            corePlacementSpinner.setSelection(runConfig.corePlacement.ordinal(), false);
+            corePlacementSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override public void onItemSelected(AdapterView<?> parent, View v, int pos, long id) {
+                    runConfig.corePlacement = (RunConfig.CorePlacement) parent.getItemAtPosition(pos);
+                    if (placementCpuSetEditText != null) {
+                        placementCpuSetEditText.setEnabled(runConfig.corePlacement == RunConfig.CorePlacement.CPU_SET);
+                    }
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        if (placementCpuSetEditText != null) {
+            placementCpuSetEditText.setText(runConfig.placementCpuSet);
+            placementCpuSetEditText.setEnabled(runConfig.corePlacement == RunConfig.CorePlacement.CPU_SET);
+            placementCpuSetEditText.addTextChangedListener(new TextWatcher() {
+                @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+                @Override public void onTextChanged(CharSequence s, int start, int before, int count) {}
+                @Override public void afterTextChanged(Editable s) {
+                    runConfig.placementCpuSet = s.toString().trim();
+                }
+            });
+        }
+
+        // plugin decoder thread priority, select by value (0 = leave as is)
+        decoderThreadPrioritySpinner = view.findViewById(R.id.decoderThreadPriorityDropdown);
+
+        if (decoderThreadPrioritySpinner != null) {
+            ArrayAdapter<CharSequence> tpAdapter = ArrayAdapter.createFromResource(
+                    getContext(), R.array.decoder_thread_priority_options, android.R.layout.simple_spinner_item);
+            tpAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            decoderThreadPrioritySpinner.setAdapter(tpAdapter);
+
+            int tpPos = tpAdapter.getPosition(String.valueOf(runConfig.decoderThreadPriority));
+            decoderThreadPrioritySpinner.setSelection(Math.max(0, tpPos));
+
+            decoderThreadPrioritySpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                    runConfig.decoderThreadPriority = Integer.parseInt(parent.getItemAtPosition(position).toString());
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        // per-clip real-time prediction before a run starts
+        preflightCheckBox = view.findViewById(R.id.preflightCheckBox);
+
+        if (preflightCheckBox != null) {
+            preflightCheckBox.setChecked(runConfig.preflight);
+            preflightCheckBox.setOnCheckedChangeListener(
+                    (button, isChecked) -> runConfig.preflight = isChecked);
+        }
+
         // ✅ Radio Buttons for Run Mode
         runModeRadioGroup = view.findViewById(R.id.radioGroup);
         batteryPickerText = view.findViewById(R.id.batteryPickerText);
@@ -290,19 +705,19 @@ public class FragmentTestConditions extends Fragment {
         setupDecoderSelection();
     }
 
+    /**
+     * One spinner per MIME type, filled from what the decoder cache already has. Types it does not
+     * have yet are enumerated on a background thread and their spinners filled when they arrive, so
+     * opening the page never waits on MediaCodec enumeration.
+     */
     private void setupDecoderSelection() {
         decoderContainer.removeAllViews();
 
         VideoDecoderEnumerator.MimeType[] decoderMimeTypes = VideoDecoderEnumerator.MimeType.values();
+        DecoderCapabilityCache cache = DecoderCapabilityCache.getInstance();
+        List<Runnable> pending = new ArrayList<>();
 
         for (VideoDecoderEnumerator.MimeType mimeType : decoderMimeTypes) {
-            List<MediaCodecInfo> codecInfos;
-            try {
-                codecInfos = MediaCodecUtil.getDecoderInfos(mimeType.toString(), false, false);
-            } catch (MediaCodecUtil.DecoderQueryException e) {
-                codecInfos = new ArrayList<>();
-            }
-
             LinearLayout row = new LinearLayout(getContext());
             row.setOrientation(LinearLayout.VERTICAL);
 
@@ -310,33 +725,66 @@ public class FragmentTestConditions extends Fragment {
             mimeTypeText.setText(mimeType.toString());
 
             Spinner decoderSpinner = new Spinner(getContext());
-
-            VideoDecoderEnumerator.DecoderSet decoders = VideoDecoderEnumerator.getDecodersForMimeType(mimeType);
-
-            ArrayAdapter<String> decoderAdapter = new ArrayAdapter<>(getContext(), android.R.layout.simple_spinner_item, decoders.decoders);
-            decoderAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-            decoderSpinner.setAdapter(decoderAdapter);
+            TextView capsText = new TextView(getContext());
 
             row.addView(mimeTypeText);
             row.addView(decoderSpinner);
+            row.addView(capsText);
             decoderContainer.addView(row);
 
-            if (this.runConfig.decoderCfg.contains(mimeType)) {
-                int idx = decoderAdapter.getPosition(this.runConfig.decoderCfg.getDecoder(mimeType));
-                decoderSpinner.post(() -> decoderSpinner.setSelection(idx, false));
+            List<String> known = cache.peekDecoderNames(mimeType);
+            if (known != null) {
+                fillDecoderSpinner(mimeType, decoderSpinner, capsText, known);
+            } else {
+                decoderSpinner.setEnabled(false);
+                capsText.setText(R.string.decoders_loading);
+                pending.add(() -> {
+                    List<String> names = cache.getDecoderNames(mimeType);
+                    decoderContainer.post(() -> {
+                        if (getView() == null) {
+                            return; // the page was closed meanwhile
+                        }
+                        decoderSpinner.setEnabled(true);
+                        capsText.setText("");
+                        fillDecoderSpinner(mimeType, decoderSpinner, capsText, names);
+                    });
+                });
             }
-
-            decoderSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
-                @Override
-                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                    String selectedItem = (String) parent.getItemAtPosition(position);
-                    runConfig.decoderCfg.setDecoder(mimeType, selectedItem);
+        }
+        if (!pending.isEmpty()) {
+            new Thread(() -> {
+                for (Runnable load : pending) {
+                    load.run();
                 }
-                @Override public void onNothingSelected(AdapterView<?> parent) {}
-            });
+            }, "vcat-decoder-list").start();
         }
     }
 
+    private void fillDecoderSpinner(VideoDecoderEnumerator.MimeType mimeType, Spinner decoderSpinner,
+                                    TextView capsText, List<String> decoders) {
+        ArrayAdapter<String> decoderAdapter = new ArrayAdapter<>(getContext(), android.R.layout.simple_spinner_item, decoders);
+        decoderAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        decoderSpinner.setAdapter(decoderAdapter);
+
+        if (this.runConfig.decoderCfg.contains(mimeType)) {
+            int idx = decoderAdapter.getPosition(this.runConfig.decoderCfg.getDecoder(mimeType));
+            decoderSpinner.post(() -> decoderSpinner.setSelection(idx, false));
+        }
+
+        decoderSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                String selectedItem = (String) parent.getItemAtPosition(position);
+                runConfig.decoderCfg.setDecoder(mimeType, selectedItem);
+                // the spinner is only filled once its type is in the cache, so this never waits
+                DecoderCapabilityCache.Decoder caps =
+                        DecoderCapabilityCache.getInstance().peek(mimeType.toString(), selectedItem);
+                capsText.setText(caps != null ? caps.describe() : "");
+            }
+            @Override public void onNothingSelected(AdapterView<?> parent) {}
+        });
+    }
+
     @Override
     public void onPause() {
         super.onPause();// ✅ Apply changes when the user exits
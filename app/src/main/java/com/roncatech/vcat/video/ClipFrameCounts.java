@@ -0,0 +1,152 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.decoder.DecoderCounters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The current clip's rendered, dropped and skipped output buffers. A player's video decoder
+ * counters run for as long as their renderer stays enabled, which in a gapless playlist spans
+ * clips, and a renderer enabled for a clip of another codec brings a fresh counters object while
+ * the previous one may still be finishing its clip. Each counters object is therefore tracked from
+ * its own base, and a disabled one leaves what it counted for the clip behind.
+ */
+final class ClipFrameCounts {
+
+    private static final class Tracked {
+        final DecoderCounters counters;
+        long renderedBase, droppedBase, skippedBase;
+
+        Tracked(DecoderCounters counters) {
+            this.counters = counters;
+        }
+
+        void rebase() {
+            counters.ensureUpdated();
+            renderedBase = counters.renderedOutputBufferCount;
+            droppedBase = counters.droppedBufferCount;
+            skippedBase = counters.skippedOutputBufferCount;
+        }
+    }
+
+    // in the order they were enabled
+    private final List<Tracked> live = new ArrayList<>();
+    // counted for the clip by counters since disabled
+    private long renderedCarry, droppedCarry, skippedCarry;
+
+    /** A video renderer was enabled; its counters are new, so all they count is the current clip's. */
+    void onEnabled(@NonNull DecoderCounters counters) {
+        if (find(counters) == null) {
+            live.add(new Tracked(counters));
+        }
+    }
+
+    /** A video renderer was disabled: keep what its counters added to the clip. */
+    void onDisabled(@NonNull DecoderCounters counters) {
+        Tracked t = find(counters);
+        if (t == null) {
+            return;
+        }
+        counters.ensureUpdated();
+        renderedCarry += counters.renderedOutputBufferCount - t.renderedBase;
+        droppedCarry += counters.droppedBufferCount - t.droppedBase;
+        skippedCarry += counters.skippedOutputBufferCount - t.skippedBase;
+        live.remove(t);
+    }
+
+    /** A clip boundary within the same player: every counters object counts from here. */
+    void startClip() {
+        renderedCarry = droppedCarry = skippedCarry = 0;
+        for (Tracked t : live) {
+            t.rebase();
+        }
+    }
+
+    /** A new player: forget the previous one's counters, its renderers report nothing more. */
+    void reset() {
+        live.clear();
+        renderedCarry = droppedCarry = skippedCarry = 0;
+    }
+
+    /** The counters of the most recently enabled video renderer, null if none is enabled. */
+    @Nullable
+    DecoderCounters latest() {
+        return live.isEmpty() ? null : live.get(live.size() - 1).counters;
+    }
+
+    long rendered() {
+        long n = renderedCarry;
+        for (Tracked t : live) {
+            t.counters.ensureUpdated();
+            n += t.counters.renderedOutputBufferCount - t.renderedBase;
+        }
+        return n;
+    }
+
+    long dropped() {
+        long n = droppedCarry;
+        for (Tracked t : live) {
+            t.counters.ensureUpdated();
+            n += t.counters.droppedBufferCount - t.droppedBase;
+        }
+        return n;
+    }
+
+    /** Every output buffer the decoders produced for the clip, whether released or not. */
+    long decoded() {
+        long n = renderedCarry + droppedCarry + skippedCarry;
+        for (Tracked t : live) {
+            t.counters.ensureUpdated();
+            n += (t.counters.renderedOutputBufferCount - t.renderedBase)
+                    + (t.counters.droppedBufferCount - t.droppedBase)
+                    + (t.counters.skippedOutputBufferCount - t.skippedBase);
+        }
+        return n;
+    }
+
+    @Nullable
+    private Tracked find(DecoderCounters counters) {
+        for (Tracked t : live) {
+            if (t.counters == counters) {
+                return t;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The activity's once-a-second beat: stall logging, counter polling and back-buffer prewarming all
+ * run from it. It belongs to the session, not to a player; player swaps restart it once the new
+ * player is current, and releasing the old player leaves it alone.
+ */
+final class ClipHeartbeat {
+    static final long PERIOD_MS = 1000;
+
+    private final Handler handler;
+    private final Runnable tick;
+    private boolean running = false;
+
+    ClipHeartbeat(@NonNull Handler handler, @NonNull Runnable beat) {
+        this.handler = handler;
+        this.tick = new Runnable() {
+            @Override public void run() {
+                beat.run();
+                handler.postDelayed(this, PERIOD_MS);
+            }
+        };
+    }
+
+    /** Beat now and every {@link #PERIOD_MS} after, dropping any beat already scheduled. */
+    void restart() {
+        handler.removeCallbacks(tick);
+        handler.post(tick);
+        running = true;
+    }
+
+    void stop() {
+        handler.removeCallbacks(tick);
+        running = false;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+}
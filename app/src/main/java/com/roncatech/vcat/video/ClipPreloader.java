@@ -0,0 +1,320 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.os.SharedMemory;
+import android.os.SystemClock;
+import android.system.ErrnoException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads whole clips into memory ahead of playback, so a preloaded clip decodes without touching
+ * storage. At most the current clip and the next one are held, and only while their total size
+ * stays within the memory budget; a clip that does not fit plays from storage as usual.
+ *
+ * <p>Clips are held in {@link SharedMemory} rather than direct buffers so that a dropped clip is
+ * unmapped as soon as its last reader is done instead of whenever the collector gets to it, and the
+ * budget counts memory that is really held. Readers take a {@link Lease} and close it when done.
+ *
+ * <p>{@link #retain} only records which clips are wanted; sizing and loading run one clip at a time
+ * on a background thread. {@link #acquire} is called from the player's loading thread and blocks
+ * until the clip is in memory, so a clip's playback never starts on a partial load.
+ */
+final class ClipPreloader {
+    private static final String TAG = "ClipPreloader";
+
+    private static final class Entry {
+        final Uri uri;
+        Future<ByteBuffer> data;
+        // guarded by the preloader
+        long size;
+        @Nullable SharedMemory memory;
+        @Nullable ByteBuffer mapping;
+        /** Open leases, plus the loader while it is reading into the memory. */
+        int readers;
+        boolean dropped;
+
+        Entry(Uri uri) {
+            this.uri = uri;
+        }
+    }
+
+    /** A reader's hold on a preloaded clip; the memory stays mapped until every lease is closed. */
+    final class Lease {
+        private final Entry entry;
+        private final ByteBuffer data;
+        private boolean closed;
+
+        private Lease(Entry entry, ByteBuffer data) {
+            this.entry = entry;
+            this.data = data;
+        }
+
+        /** The clip's bytes, a view of its own; not valid after {@link #close}. */
+        ByteBuffer data() {
+            return data;
+        }
+
+        void close() {
+            synchronized (ClipPreloader.this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                entry.readers--;
+                if (entry.dropped) {
+                    free(entry);
+                }
+            }
+        }
+    }
+
+    private final Context context;
+    private final long budgetBytes;
+    private final ExecutorService loader;
+    private final Map<Uri, Entry> entries = new HashMap<>();
+    private long heldBytes = 0;
+
+    ClipPreloader(@NonNull Context context, long budgetBytes) {
+        this.context = context.getApplicationContext();
+        this.budgetBytes = budgetBytes;
+        this.loader = Executors.newSingleThreadExecutor(r -> new Thread(r, "vcat-preload"));
+    }
+
+    /**
+     * Drops every clip but {@code current} and {@code next}, then queues loads for whichever of the
+     * two is not held yet, current first. Does no I/O, so it is safe on the main thread.
+     */
+    synchronized void retain(@NonNull Uri current, @Nullable Uri next) {
+        Iterator<Map.Entry<Uri, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Uri, Entry> e = it.next();
+            if (!e.getKey().equals(current) && !e.getKey().equals(next)) {
+                drop(e.getValue());
+                it.remove();
+            }
+        }
+        queue(current);
+        if (next != null) {
+            queue(next);
+        }
+    }
+
+    private void queue(Uri uri) {
+        if (entries.containsKey(uri)) {
+            return;
+        }
+        Entry entry = new Entry(uri);
+        entries.put(uri, entry);
+        entry.data = loader.submit(() -> load(entry));
+    }
+
+    /** Loader thread: sizes the clip, reserves it against the budget and reads it, or returns null. */
+    @Nullable
+    private ByteBuffer load(Entry entry) throws IOException {
+        long size = sizeOf(entry.uri);
+        if (size <= 0 || size > Integer.MAX_VALUE) {
+            Log.i(TAG, "Not preloading " + entry.uri + ", size " + size);
+            return null;
+        }
+        SharedMemory memory;
+        ByteBuffer mapping;
+        synchronized (this) {
+            if (entry.dropped) {
+                return null;
+            }
+            if (heldBytes + size > budgetBytes) {
+                Log.i(TAG, "Not preloading " + entry.uri + ": " + size + " bytes would exceed the "
+                        + budgetBytes + " byte budget (" + heldBytes + " held)");
+                return null;
+            }
+            try {
+                memory = SharedMemory.create("vcat-preload", (int) size);
+                mapping = memory.mapReadWrite();
+            } catch (ErrnoException e) {
+                throw new IOException("Cannot allocate " + size + " bytes for " + entry.uri, e);
+            }
+            entry.size = size;
+            entry.memory = memory;
+            entry.mapping = mapping;
+            entry.readers = 1;
+            heldBytes += size;
+        }
+
+        boolean loaded = false;
+        try {
+            read(entry.uri, mapping.duplicate());
+            loaded = true;
+        } finally {
+            synchronized (this) {
+                entry.readers--;
+                if (!loaded) {
+                    entry.dropped = true;
+                }
+                if (entry.dropped) {
+                    free(entry);
+                }
+            }
+        }
+        synchronized (this) {
+            return entry.mapping != null ? entry.mapping.asReadOnlyBuffer() : null;
+        }
+    }
+
+    private long sizeOf(Uri uri) {
+        try (ParcelFileDescriptor pfd = context.getContentResolver().openFileDescriptor(uri, "r")) {
+            return pfd != null ? pfd.getStatSize() : -1;
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "Cannot size " + uri, e);
+            return -1;
+        }
+    }
+
+    private void read(Uri uri, ByteBuffer buffer) throws IOException {
+        long startMs = SystemClock.elapsedRealtime();
+        int size = buffer.remaining();
+        try (ParcelFileDescriptor pfd = context.getContentResolver().openFileDescriptor(uri, "r")) {
+            if (pfd == null) {
+                throw new IOException("No descriptor for " + uri);
+            }
+            try (FileInputStream in = new FileInputStream(pfd.getFileDescriptor());
+                 FileChannel channel = in.getChannel()) {
+                while (buffer.hasRemaining()) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedIOException();
+                    }
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException("Unexpected end of " + uri + " at " + buffer.position());
+                    }
+                }
+            }
+        }
+        Log.i(TAG, "Preloaded " + uri + ", " + size + " bytes in "
+                + (SystemClock.elapsedRealtime() - startMs) + " ms");
+    }
+
+    /** Stops the entry's load and frees its memory now, or once its last lease is closed. */
+    private void drop(Entry entry) {
+        entry.dropped = true;
+        entry.data.cancel(/* mayInterruptIfRunning= */ true);
+        free(entry);
+    }
+
+    /** Unmaps a dropped entry's memory if nothing reads it any more. Called holding the lock. */
+    private void free(Entry entry) {
+        if (entry.readers > 0 || entry.memory == null) {
+            return;
+        }
+        if (entry.mapping != null) {
+            SharedMemory.unmap(entry.mapping);
+        }
+        entry.memory.close();
+        entry.memory = null;
+        entry.mapping = null;
+        heldBytes -= entry.size;
+    }
+
+    /**
+     * Waits for {@code uri} to finish loading and returns a lease on its bytes, or null if the clip
+     * is not being preloaded or its load failed. The caller must close the lease.
+     */
+    @Nullable
+    Lease acquire(@NonNull Uri uri) throws InterruptedIOException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(uri);
+        }
+        if (entry == null) {
+            return null;
+        }
+        ByteBuffer loaded;
+        try {
+            loaded = entry.data.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException | CancellationException e) {
+            Log.w(TAG, "Preload of " + uri + " failed, reading from storage", e);
+            return null;
+        }
+        synchronized (this) {
+            if (loaded == null || entry.dropped || entry.mapping == null) {
+                return null;
+            }
+            entry.readers++;
+            return new Lease(entry, loaded.duplicate());
+        }
+    }
+
+    /** Whether {@code uri} is held in memory, fully loaded. */
+    synchronized boolean isPreloaded(@NonNull Uri uri) {
+        Entry entry = entries.get(uri);
+        if (entry == null || !entry.data.isDone() || entry.data.isCancelled()) {
+            return false;
+        }
+        try {
+            return entry.data.get() != null && entry.mapping != null;
+        } catch (ExecutionException | InterruptedException e) {
+            return false;
+        }
+    }
+
+    /** Drops every clip; memory still being read is freed when its lease is closed. */
+    synchronized void release() {
+        for (Entry e : entries.values()) {
+            drop(e);
+        }
+        entries.clear();
+        loader.shutdownNow();
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import android.net.Uri;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlayer;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.MediaItem;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.analytics.AnalyticsListener;
+import com.google.android.exoplayer2.decoder.DecoderCounters;
+import com.google.android.exoplayer2.decoder.DecoderReuseEvaluation;
+import com.google.android.exoplayer2.mediacodec.MediaCodecRenderer;
+import com.roncatech.vcat.telemetry.EnergyIntegrator;
+import com.roncatech.vcat.telemetry.SessionSummary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * One step of the concurrent decode stress: N independent players decoding the same clip at the
+ * same time, each with its own renderers (so its own plugin or MediaCodec instance) and its own
+ * {@link DiscardingSurface}. Playback is real-time, as for calls and multi-view, so an instance that
+ * cannot keep up shows as drops rather than as a lower rate.
+ *
+ * <p>The step is complete once every instance has ended or failed. A decoder that cannot be created
+ * (usually a hardware codec out of instances) fails only its own instance; the others keep running
+ * so the step still reports what the device sustained. All callbacks arrive on the main thread.
+ */
+final class ConcurrentDecodeStress {
+    private static final String TAG = "ConcurrentDecodeStress";
+
+    interface Callback {
+        /** Every instance has ended or failed; the players are already released. */
+        void onStepComplete(@NonNull ConcurrentDecodeStress step);
+    }
+
+    /** One player of the step. */
+    static final class Instance implements AnalyticsListener {
+        final int index;
+        private final ExoPlayer player;
+        private final DiscardingSurface surface;
+        private final ConcurrentDecodeStress owner;
+
+        @Nullable private DecoderCounters counters;
+        @Nullable private String decoderName;
+        @Nullable private Format format;
+        @Nullable private String error;
+        private boolean initFailed = false;
+        private boolean done = false;
+        private long firstFrameMs = -1;
+        private long endMs = -1;
+        private long rendered = 0;
+        private long dropped = 0;
+
+        private Instance(int index, ExoPlayer player, ConcurrentDecodeStress owner) {
+            this.index = index;
+            this.player = player;
+            this.owner = owner;
+            this.surface = new DiscardingSurface();
+        }
+
+        private void start(Uri clip) {
+            player.addAnalyticsListener(this);
+            // nothing to hear, and every instance would otherwise hold an audio track too
+            player.setTrackSelectionParameters(player.getTrackSelectionParameters()
+                    .buildUpon()
+                    .setTrackTypeDisabled(C.TRACK_TYPE_AUDIO, true)
+                    .build());
+            player.setVideoSurface(surface.getSurface());
+            player.setMediaItem(MediaItem.fromUri(clip));
+            player.prepare();
+            player.play();
+        }
+
+        private void finish() {
+            if (done) {
+                return;
+            }
+            done = true;
+            endMs = SystemClock.elapsedRealtime();
+            DecoderCounters c = counters;
+            if (c != null) {
+                c.ensureUpdated();
+                rendered = c.renderedOutputBufferCount;
+                dropped = c.droppedBufferCount;
+            }
+            owner.onInstanceDone(this);
+        }
+
+        private void release() {
+            player.removeAnalyticsListener(this);
+            player.release();
+            surface.release();
+        }
+
+        /** Rendered frames over first frame to end, or -1 if the instance never showed a frame. */
+        double getFps() {
+            long spanMs = endMs - firstFrameMs;
+            return (firstFrameMs < 0 || spanMs <= 0) ? -1.0 : rendered * 1000.0 / spanMs;
+        }
+
+        @Nullable
+        String getDecoderName() {
+            return decoderName;
+        }
+
+        @Nullable
+        Format getFormat() {
+            return format;
+        }
+
+        SessionSummary.StressInstance toSummary() {
+            return new SessionSummary.StressInstance(index, decoderName, rendered, dropped, getFps(),
+                    initFailed, error);
+        }
+
+        @Override
+        public void onVideoEnabled(@NonNull EventTime et, @NonNull DecoderCounters counters) {
+            this.counters = counters;
+        }
+
+        @Override
+        public void onVideoDecoderInitialized(@NonNull EventTime et, @NonNull String decoderName,
+                                              long initializedTimestampMs, long initializationDurationMs) {
+            this.decoderName = decoderName;
+        }
+
+        @Override
+        public void onVideoInputFormatChanged(@NonNull EventTime et, @NonNull Format format,
+                                              @Nullable DecoderReuseEvaluation reuse) {
+            this.format = format;
+        }
+
+        @Override
+        public void onRenderedFirstFrame(@NonNull EventTime et, @NonNull Object output, long renderTimeMs) {
+            if (firstFrameMs < 0) {
+                firstFrameMs = SystemClock.elapsedRealtime();
+            }
+        }
+
+        @Override
+        public void onPlaybackStateChanged(@NonNull EventTime et, int state) {
+            if (state == Player.STATE_ENDED) {
+                finish();
+            }
+        }
+
+        @Override
+        public void onPlayerError(@NonNull EventTime et, @NonNull PlaybackException e) {
+            initFailed = e.getCause() instanceof MediaCodecRenderer.DecoderInitializationException;
+            error = e.getErrorCodeName() + ": " + e.getMessage();
+            Log.w(TAG, "Instance " + index + " failed (init=" + initFailed + "): " + error);
+            finish();
+        }
+    }
+
+    final int clipIndex;
+    final Uri clip;
+    final int instanceCount;
+
+    private final Callback callback;
+    private final List<Instance> instances = new ArrayList<>();
+    private final EnergyIntegrator.Snapshot energyStart;
+    @Nullable private final EnergyIntegrator energy;
+
+    private long startMs;
+    private long endMs = -1;
+    private long cpuStartMs;
+    private long cpuEndMs;
+    private int remaining;
+    private boolean stopped = false;
+
+    /**
+     * @param players builds one player per instance; each call must return a new player with its own renderers
+     */
+    ConcurrentDecodeStress(int clipIndex, @NonNull Uri clip, int instanceCount,
+                           @NonNull Supplier<ExoPlayer> players, @Nullable EnergyIntegrator energy,
+                           @NonNull Callback callback) {
+        this.clipIndex = clipIndex;
+        this.clip = clip;
+        this.instanceCount = instanceCount;
+        this.callback = callback;
+        this.energy = energy;
+        this.energyStart = energy != null ? energy.snapshot() : EnergyIntegrator.Snapshot.empty;
+
+        for (int i = 0; i < instanceCount; i++) {
+            this.instances.add(new Instance(i, players.get(), this));
+        }
+        this.remaining = instanceCount;
+    }
+
+    void start() {
+        Log.i(TAG, "Starting " + instanceCount + " concurrent instances of clip " + clipIndex);
+        startMs = SystemClock.elapsedRealtime();
+        cpuStartMs = Process.getElapsedCpuTime();
+        for (Instance i : instances) {
+            i.start(clip);
+        }
+    }
+
+    /** Abandon the step without reporting it. */
+    void stop() {
+        stopped = true;
+        releaseAll();
+    }
+
+    private void onInstanceDone(Instance i) {
+        if (stopped || --remaining > 0) {
+            return;
+        }
+        endMs = SystemClock.elapsedRealtime();
+        cpuEndMs = Process.getElapsedCpuTime();
+        releaseAll();
+        callback.onStepComplete(this);
+    }
+
+    private void releaseAll() {
+        for (Instance i : instances) {
+            i.release();
+        }
+    }
+
+    List<Instance> getInstances() {
+        return Collections.unmodifiableList(instances);
+    }
+
+    /** The first instance that got as far as a format, for the csv row's video columns. */
+    @Nullable
+    Instance getReferenceInstance() {
+        for (Instance i : instances) {
+            if (i.format != null) {
+                return i;
+            }
+        }
+        return null;
+    }
+
+    long getDurationMs() {
+        return (endMs < 0 ? SystemClock.elapsedRealtime() : endMs) - startMs;
+    }
+
+    SessionSummary.StressStep toSummary(String fileName, int thermalStatus) {
+        List<SessionSummary.StressInstance> per = new ArrayList<>(instances.size());
+        for (Instance i : instances) {
+            per.add(i.toSummary());
+        }
+        EnergyIntegrator.Snapshot stepEnergy = energy != null
+                ? energy.snapshot().since(energyStart) : EnergyIntegrator.Snapshot.empty;
+        return new SessionSummary.StressStep(fileName, instanceCount, getDurationMs(), per,
+                cpuEndMs - cpuStartMs, thermalStatus, stepEnergy);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+
+package com.roncatech.vcat.video;
+
+import java.util.Arrays;
+
+/**
+ * Frame output timing for one clip of the decode benchmark.
+ *
+ * <p>With pacing removed the renderer releases a frame as soon as the decoder produces it, so the
+ * wall-clock interval between consecutive output frames is the decoder's effective per-frame cost
+ * at saturation (including any pipelining inside the decoder). Intervals are kept raw in a
+ * primitive array so percentiles are exact; a long clip costs 8 bytes per frame.
+ *
+ * <p>Written on the playback thread, read on the main thread.
+ */
+public final class DecodeBenchmarkStats {
+
+    private long[] intervalsNs = new long[4096];
+    private int intervalCount = 0;
+
+    private long frames = 0;
+    private long firstFrameNs = -1;
+    private long lastFrameNs = -1;
+
+    // sorted copy of the first sortedCount intervals, rebuilt when frames were added since
+    private final Object sortLock = new Object();
+    private long[] sortedNs = new long[0];
+    private int sortedCount = 0;
+
+    synchronized void onFrameOutput(long nowNs) {
+        if (lastFrameNs >= 0) {
+            if (intervalCount == intervalsNs.length) {
+                intervalsNs = Arrays.copyOf(intervalsNs, intervalsNs.length * 2);
+            }
+            intervalsNs[intervalCount++] = nowNs - lastFrameNs;
+        } else {
+            firstFrameNs = nowNs;
+        }
+        lastFrameNs = nowNs;
+        frames++;
+    }
+
+    /** Frames released by the renderer. */
+    public synchronized long getFramesOutput() {
+        return frames;
+    }
+
+    /** First to last output frame, in ms. */
+    public synchronized double getOutputSpanMs() {
+        return frames < 2 ? 0.0 : (lastFrameNs - firstFrameNs) / 1_000_000.0;
+    }
+
+    /**
+     * Frames per second over the output span.
+     * @param decodedFrames frames decoded over the same span, which may exceed the frames output
+     *                      when the renderer dropped some; pass {@link #getFramesOutput()} otherwise
+     * @return fps, or -1 if fewer than two frames were output
+     */
+    public synchronized double getFps(long decodedFrames) {
+        double spanMs = getOutputSpanMs();
+        return spanMs > 0 ? (decodedFrames - 1) * 1000.0 / spanMs : -1.0;
+    }
+
+    /**
+     * Nearest-rank percentile of the per-frame interval. The intervals are sorted once per frame
+     * count, so the several percentiles of one report share a sort; the sort runs outside the lock
+     * the playback thread takes for every frame.
+     * @param p percentile, 0-100
+     * @return interval in ms, or -1 if fewer than two frames were output
+     */
+    public double percentileMs(double p) {
+        synchronized (sortLock) {
+            int count;
+            synchronized (this) {
+                count = intervalCount;
+                if (count != sortedCount) {
+                    sortedNs = Arrays.copyOf(intervalsNs, count);
+                }
+            }
+            if (count == 0) {
+                return -1.0;
+            }
+            if (count != sortedCount) {
+                Arrays.sort(sortedNs);
+                sortedCount = count;
+            }
+            int rank = (int) Math.ceil(p / 100.0 * count);
+            int idx = Math.max(0, Math.min(count - 1, rank - 1));
+            return sortedNs[idx] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+
+package com.roncatech.vcat.video;
+
+import android.media.MediaFormat;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlaybackException;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.PlaybackParameters;
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.RendererCapabilities;
+import com.google.android.exoplayer2.RendererConfiguration;
+import com.google.android.exoplayer2.analytics.PlayerId;
+import com.google.android.exoplayer2.source.SampleStream;
+import com.google.android.exoplayer2.util.MediaClock;
+import com.google.android.exoplayer2.video.VideoFrameMetadataListener;
+
+import java.io.IOException;
+
+/**
+ * Wraps a video renderer (plugin or {@code MediaCodecVideoRenderer}) so it decodes as fast as it
+ * can instead of in step with the playback clock.
+ *
+ * <p>Renderers release a frame only when it is due relative to the position they are given, and
+ * drop or skip to a keyframe when it is late, so they cannot simply be handed a fast clock. Instead
+ * the position handed to the delegate is derived from its own output: after each released frame
+ * the position is moved to just short of the next frame's expected timestamp, so the next frame is
+ * always on time. Each {@link #render} keeps re-driving the delegate while it makes progress (up to
+ * {@link #RENDER_BUDGET_NS}), so throughput is not capped by the player's 10 ms work loop.
+ *
+ * <p>The wrapper is also the player's {@link MediaClock}, so the playback position follows the
+ * decoder: read samples are discarded and loading continues as the decoder advances, and the
+ * player ends when the decoder does. Only one renderer may provide a clock, so audio must be
+ * disabled while benchmarking.
+ */
+final class DecodeThroughputRenderer implements Renderer, MediaClock, VideoFrameMetadataListener {
+    private static final String TAG = "DecodeThroughputRenderer";
+
+    /** Longest one render() call keeps re-driving the delegate before returning to the player. */
+    static final long RENDER_BUDGET_NS = 8_000_000L;
+
+    /** The paced position is held this far short of the next frame's expected timestamp. */
+    static final long PACE_MARGIN_US = 1_000L;
+
+    /** Frame interval assumed until two frames have been output, when the format has no frame rate. */
+    static final long DEFAULT_FRAME_DELTA_US = 33_333L;
+
+    private final Renderer delegate;
+    private final DecodeBenchmarkStats stats;
+    @Nullable private VideoFrameMetadataListener downstream;
+
+    // renderer time = media time + stream offset
+    private long streamOffsetUs = 0;
+    private long lastKnownPositionUs = 0;
+    private volatile long pacedPositionUs = C.TIME_UNSET;
+    private long lastFramePtsUs = C.TIME_UNSET;
+    private long lastFrameDeltaUs = 0;
+    private volatile long framesOut = 0;
+
+    DecodeThroughputRenderer(@NonNull Renderer delegate, @NonNull DecodeBenchmarkStats stats) {
+        this.delegate = delegate;
+        this.stats = stats;
+        try {
+            delegate.handleMessage(MSG_SET_VIDEO_FRAME_METADATA_LISTENER, this);
+        } catch (ExoPlaybackException e) {
+            Log.e(TAG, "Cannot observe output frames of " + delegate.getName(), e);
+        }
+    }
+
+    private void resetPacing(long positionUs) {
+        lastKnownPositionUs = positionUs;
+        pacedPositionUs = C.TIME_UNSET;
+        lastFramePtsUs = C.TIME_UNSET;
+        lastFrameDeltaUs = 0;
+    }
+
+    // ---- VideoFrameMetadataListener ----
+
+    @Override
+    public void onVideoFrameAboutToBeRendered(long presentationTimeUs, long releaseTimeNs,
+                                              @NonNull Format format, @Nullable MediaFormat mediaFormat) {
+        long ptsUs = presentationTimeUs + streamOffsetUs;
+        if (lastFramePtsUs != C.TIME_UNSET && ptsUs > lastFramePtsUs) {
+            lastFrameDeltaUs = ptsUs - lastFramePtsUs;
+        }
+        lastFramePtsUs = ptsUs;
+
+        long deltaUs = lastFrameDeltaUs;
+        if (deltaUs == 0) {
+            deltaUs = format.frameRate > 0 ? (long) (1_000_000L / format.frameRate) : DEFAULT_FRAME_DELTA_US;
+        }
+        long next = ptsUs + Math.max(0, deltaUs - PACE_MARGIN_US);
+        long paced = pacedPositionUs;
+        pacedPositionUs = (paced == C.TIME_UNSET) ? next : Math.max(paced, next);
+
+        framesOut++;
+        stats.onFrameOutput(System.nanoTime());
+
+        VideoFrameMetadataListener l = downstream;
+        if (l != null) {
+            l.onVideoFrameAboutToBeRendered(presentationTimeUs, releaseTimeNs, format, mediaFormat);
+        }
+    }
+
+    // ---- MediaClock ----
+
+    @Override
+    public long getPositionUs() {
+        long paced = pacedPositionUs;
+        return paced == C.TIME_UNSET ? lastKnownPositionUs : paced;
+    }
+
+    @Override
+    public void setPlaybackParameters(@NonNull PlaybackParameters playbackParameters) {
+        // speed has no meaning when not paced
+    }
+
+    @NonNull
+    @Override
+    public PlaybackParameters getPlaybackParameters() {
+        return PlaybackParameters.DEFAULT;
+    }
+
+    // ---- Renderer ----
+
+    @Override
+    public void render(long positionUs, long elapsedRealtimeUs) throws ExoPlaybackException {
+        long startNs = System.nanoTime();
+        long deadlineNs = startNs + RENDER_BUDGET_NS;
+        while (true) {
+            long before = framesOut;
+            long paced = pacedPositionUs;
+            long elapsedNowUs = elapsedRealtimeUs + (System.nanoTime() - startNs) / 1000;
+            delegate.render(paced == C.TIME_UNSET ? positionUs : paced, elapsedNowUs);
+            if (framesOut == before || delegate.isEnded() || System.nanoTime() >= deadlineNs) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void handleMessage(int messageType, @Nullable Object message) throws ExoPlaybackException {
+        if (messageType == MSG_SET_VIDEO_FRAME_METADATA_LISTENER) {
+            // keep ours installed, forward to the app's
+            downstream = (VideoFrameMetadataListener) message;
+            return;
+        }
+        delegate.handleMessage(messageType, message);
+    }
+
+    @Override
+    public void enable(RendererConfiguration configuration, Format[] formats, SampleStream stream,
+                       long positionUs, boolean joining, boolean mayRenderStartOfStream,
+                       long startPositionUs, long offsetUs) throws ExoPlaybackException {
+        streamOffsetUs = offsetUs;
+        resetPacing(positionUs);
+        delegate.enable(configuration, formats, stream, positionUs, joining, mayRenderStartOfStream,
+                startPositionUs, offsetUs);
+    }
+
+    @Override
+    public void replaceStream(Format[] formats, SampleStream stream, long startPositionUs, long offsetUs)
+            throws ExoPlaybackException {
+        streamOffsetUs = offsetUs;
+        delegate.replaceStream(formats, stream, startPositionUs, offsetUs);
+    }
+
+    @Override
+    public void resetPosition(long positionUs) throws ExoPlaybackException {
+        resetPacing(positionUs);
+        delegate.resetPosition(positionUs);
+    }
+
+    @Nullable
+    @Override
+    public MediaClock getMediaClock() {
+        return this;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public int getTrackType() {
+        return delegate.getTrackType();
+    }
+
+    @Override
+    public RendererCapabilities getCapabilities() {
+        return delegate.getCapabilities();
+    }
+
+    @Override
+    public void init(int index, PlayerId playerId) {
+        delegate.init(index, playerId);
+    }
+
+    @Override
+    public int getState() {
+        return delegate.getState();
+    }
+
+    @Override
+    public void start() throws ExoPlaybackException {
+        delegate.start();
+    }
+
+    @Nullable
+    @Override
+    public SampleStream getStream() {
+        return delegate.getStream();
+    }
+
+    @Override
+    public boolean hasReadStreamToEnd() {
+        return delegate.hasReadStreamToEnd();
+    }
+
+    @Override
+    public long getReadingPositionUs() {
+        return delegate.getReadingPositionUs();
+    }
+
+    @Override
+    public void setCurrentStreamFinal() {
+        delegate.setCurrentStreamFinal();
+    }
+
+    @Override
+    public boolean isCurrentStreamFinal() {
+        return delegate.isCurrentStreamFinal();
+    }
+
+    @Override
+    public void maybeThrowStreamError() throws IOException {
+        delegate.maybeThrowStreamError();
+    }
+
+    @Override
+    public void setPlaybackSpeed(float currentPlaybackSpeed, float targetPlaybackSpeed)
+            throws ExoPlaybackException {
+        delegate.setPlaybackSpeed(currentPlaybackSpeed, targetPlaybackSpeed);
+    }
+
+    @Override
+    public boolean isReady() {
+        return delegate.isReady();
+    }
+
+    @Override
+    public boolean isEnded() {
+        return delegate.isEnded();
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+    }
+
+    @Override
+    public void disable() {
+        delegate.disable();
+    }
+
+    @Override
+    public void reset() {
+        delegate.reset();
+    }
+}
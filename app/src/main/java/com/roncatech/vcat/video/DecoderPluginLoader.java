@@ -62,9 +62,12 @@ public final class DecoderPluginLoader {
     private static class PluginManifest {
         final String pluginClass;
         @Nullable final String loaderClass;
-        PluginManifest(String pluginClass, @Nullable String loaderClass) {
+        // plugin-API version the plugin was built against; older plugins do not declare it
+        @Nullable final String pluginApiVersion;
+        PluginManifest(String pluginClass, @Nullable String loaderClass, @Nullable String pluginApiVersion) {
             this.pluginClass = pluginClass;
             this.loaderClass = loaderClass;
+            this.pluginApiVersion = pluginApiVersion;
         }
     }
 
@@ -150,8 +153,9 @@ public final class DecoderPluginLoader {
 
             Class<?> clazz = loader.loadClass(manifest.pluginClass);
             VcatDecoder plugin = (VcatDecoder) clazz.getDeclaredConstructor().newInstance();
-            boolean registered = VcatDecoderManager.getInstance().registerDecoder(plugin);
-            Log.i(TAG, (registered ? "Registered" : "Already registered") + " decoder plugin: " + plugin.getId());
+            boolean registered = VcatDecoderManager.getInstance().registerDecoder(plugin, manifest.pluginApiVersion);
+            Log.i(TAG, (registered ? "Registered" : "Already registered") + " decoder plugin: " + plugin.getId()
+                    + " (plugin API " + VcatDecoderManager.getInstance().getPluginApiVersion(plugin) + ")");
         } catch (Exception e) {
             Log.e(TAG, "Failed to load decoder plugin: " + fileName, e);
         }
@@ -180,7 +184,9 @@ public final class DecoderPluginLoader {
             String pluginClass = obj.get("pluginClass").getAsString();
             String loaderClass = obj.has("loaderClass")
                     ? obj.get("loaderClass").getAsString() : null;
-            return new PluginManifest(pluginClass, loaderClass);
+            String pluginApiVersion = obj.has("pluginApiVersion")
+                    ? obj.get("pluginApiVersion").getAsString() : null;
+            return new PluginManifest(pluginClass, loaderClass, pluginApiVersion);
         }
     }
 
@@ -0,0 +1,99 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+
+package com.roncatech.vcat.video;
+
+import android.graphics.ImageFormat;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.Surface;
+
+/**
+ * An offscreen output surface that consumes and immediately discards every frame, so decoders
+ * can run without a display, compositor or vsync in the loop.
+ *
+ * <p>Backed by an {@link ImageReader}. The producer (MediaCodec or a plugin's ANativeWindow) sets
+ * its own buffer geometry, so the reader size is only a default. If a producer queues a pixel
+ * format the reader was not configured for, acquire throws after the buffer has already been
+ * returned to the queue; that is counted and otherwise ignored, the frame is discarded either way.
+ */
+final class DiscardingSurface {
+    private static final String TAG = "DiscardingSurface";
+
+    private static final int MAX_IMAGES = 4;
+    private static final int DEFAULT_WIDTH = 1920;
+    private static final int DEFAULT_HEIGHT = 1080;
+
+    private final HandlerThread thread;
+    private final ImageReader reader;
+
+    private volatile long framesDiscarded = 0;
+    private volatile long formatMismatches = 0;
+
+    DiscardingSurface() {
+        thread = new HandlerThread("vcat-discard");
+        thread.start();
+        reader = ImageReader.newInstance(DEFAULT_WIDTH, DEFAULT_HEIGHT, ImageFormat.PRIVATE, MAX_IMAGES);
+        reader.setOnImageAvailableListener(this::discard, new Handler(thread.getLooper()));
+    }
+
+    private void discard(ImageReader r) {
+        try {
+            Image image = r.acquireNextImage();
+            if (image != null) {
+                image.close();
+                framesDiscarded++;
+            }
+        } catch (UnsupportedOperationException | IllegalStateException e) {
+            if (formatMismatches++ == 0) {
+                Log.w(TAG, "Discarding frames the reader cannot map: " + e.getMessage());
+            }
+        }
+    }
+
+    Surface getSurface() {
+        return reader.getSurface();
+    }
+
+    long getFramesDiscarded() {
+        return framesDiscarded + formatMismatches;
+    }
+
+    void release() {
+        reader.close();
+        thread.quitSafely();
+    }
+}
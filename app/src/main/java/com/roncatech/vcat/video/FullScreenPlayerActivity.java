@@ -37,11 +37,17 @@ import static android.content.pm.ActivityInfo.SCREEN_ORIENTATION_SENSOR_LANDSCAP
 import static android.content.pm.ActivityInfo.SCREEN_ORIENTATION_SENSOR_PORTRAIT;
 
 import android.app.AlertDialog;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.ActivityInfo;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.PowerManager;
+import android.os.Process;
 import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
@@ -51,18 +57,22 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.DefaultLoadControl;
 import com.google.android.exoplayer2.ExoPlayer;
 import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.PlaybackParameters;
 import com.google.android.exoplayer2.RenderersFactory;
+import com.google.android.exoplayer2.SeekParameters;
 import com.google.android.exoplayer2.decoder.DecoderCounters;
 import com.google.android.exoplayer2.decoder.DecoderReuseEvaluation;
-import com.google.android.exoplayer2.extractor.Extractor;
 import com.google.android.exoplayer2.mediacodec.MediaCodecRenderer;
 import com.google.android.exoplayer2.source.DefaultMediaSourceFactory;
 import com.google.android.exoplayer2.source.TrackGroupArray;
 import com.google.android.exoplayer2.trackselection.TrackSelection;
 import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
 import com.google.android.exoplayer2.ui.PlayerControlView;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DefaultDataSource;
 
 
 import androidx.annotation.NonNull;
@@ -74,30 +84,59 @@ import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.MediaItem;
 import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.Tracks;
 import com.google.android.exoplayer2.analytics.AnalyticsListener;
 import com.google.android.exoplayer2.ui.PlayerView;
 
 import com.google.android.exoplayer2.video.VideoSize;
+import com.roncatech.vcat.decoder_plugin.VcatDecoderManager;
+import com.roncatech.vcat.decoder_plugin_api.ThreadPlacement;
+import com.roncatech.vcat.decoder_plugin_api.VcatDecoder;
 import com.roncatech.vcat.models.TestStatus;
 import com.roncatech.vcat.models.RunConfig;
 import com.roncatech.vcat.models.SharedViewModel;
 import com.roncatech.vcat.service.PlayerCommandBus;
+import com.roncatech.vcat.telemetry.ClipStartup;
+import com.roncatech.vcat.telemetry.ClusterUtilization;
+import com.roncatech.vcat.telemetry.EnergyIntegrator;
+import com.roncatech.vcat.telemetry.FrameIntegrity;
+import com.roncatech.vcat.telemetry.IoStats;
+import com.roncatech.vcat.telemetry.PerfDatabase;
+import com.roncatech.vcat.telemetry.SessionSummary;
 import com.roncatech.vcat.telemetry.TelemetryLogger;
 import com.roncatech.vcat.tools.BatteryInfo;
+import com.roncatech.vcat.tools.CpuInfo;
+import com.roncatech.vcat.tools.DecoderCapabilityCache;
+import com.roncatech.vcat.service.PlaybackKeepAliveService;
 import com.roncatech.vcat.tools.UriUtils;
 import com.roncatech.vcat.tools.VideoDecoderEnumerator;
 import com.roncatech.vcat.tools.XspfParser;
 import com.roncatech.vcat.R;
-import com.roncatech.vcat.parsers.ivf.VcatIvfExtractor;
+import com.roncatech.vcat.BuildConfig;
+import com.roncatech.vcat.parsers.SampleTrace;
+import com.roncatech.vcat.parsers.VcatExtractorsFactory;
+import com.roncatech.vcat.parsers.mp4.ParsedMoovCache;
 import com.roncatech.vcat.parsers.mp4.VcatMp4Extractor;
+import com.roncatech.vcat.test_vectors.FrameHashReferences;
+import com.roncatech.vcat.test_vectors.ManifestChecksums;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 public class FullScreenPlayerActivity extends AppCompatActivity implements PlayerCommandBus.Listener {
 
     private static final String TAG = "FullScreenPlayerActivity";
 
+    /** int[]: indices of playlist clips to leave out of the run, from the pre-flight check. */
+    public static final String EXTRA_SKIP_CLIPS = "com.roncatech.vcat.SKIP_CLIPS";
+
     private SharedViewModel viewModel;
     private ExoPlayer exoPlayer;
 
@@ -110,12 +149,88 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
 
     private TelemetryLogger tl;
 
-    @Nullable private DecoderCounters videoCounters = null;
+    // energy is integrated for the whole session; clips are windows on the same integrator
+    private EnergyIntegrator energy;
+    private ParsedMoovCache moovCache;
+    @Nullable private ClipPreloader clipPreloader = null;
+    private SessionSummary sessionSummary;
+    private EnergyIntegrator.Snapshot sessionEnergyStart = EnergyIntegrator.Snapshot.empty;
+    private EnergyIntegrator.Snapshot clipEnergyStart = EnergyIntegrator.Snapshot.empty;
+    // display-off mode: energy is integrated only while the screen is off, and the run starts once it is
+    private boolean screenOff = false;
+    private boolean runWaitingForScreenOff = false;
+    @Nullable private BroadcastReceiver screenStateReceiver = null;
+
+    // media reads and buffer health of the player now on screen; each player has its own, so a
+    // back buffer or a stress instance never counts towards another player's clip
+    private IoStats ioStats = new IoStats();
+    private IoStats.Snapshot clipIoStart = IoStats.Snapshot.empty;
+    private int lastPlaybackState = Player.STATE_IDLE;
+    // a seek was reported and its rebuffer is not an underrun
+    private boolean seekPending = false;
+
+    // set-media-item -> prepared -> decoder initialized -> first frame, per clip
+    private final ClipStartup clipStartup = new ClipStartup();
+    private long clipStartMs = 0;
+
+    // double-buffered clip scheduling: the next clip's player, prepared while the current one plays
+    @Nullable private PreparedClip nextClip = null;
+    private long transitionStartMs = -1;
+    private long clipTransitionMs = -1;
+    private boolean clipPrewarmed = false;
+    private boolean telemetryStartedForClip = false;
+
+    // gapless mode: what the renderer reported for each playlist window, indexed like testClips.
+    // Renderers read ahead of playback, so at a boundary the player's current format may already
+    // belong to the next clip; these keep the per-clip rows attributed to the right clip.
+    @Nullable private Format[] gaplessFormats;
+    @Nullable private String[] gaplessDecoders;
+    @Nullable private Boolean[] gaplessDecoderReused;
+    // decoder counters run across the whole timeline in gapless mode, clips are deltas
+    private final ClipFrameCounts clipFrames = new ClipFrameCounts();
+    private long clipCpuStartMs = 0;
+
+    // decode benchmark mode: frames go to an offscreen sink, one stats object per clip
+    @Nullable private DiscardingSurface discardingSurface = null;
+    @Nullable private DecodeBenchmarkStats clipBenchmark = null;
+
+    // benchmark-integrity mode: reference hashes per clip (null entries: none), one check per clip
+    @Nullable private FrameHashReferences.Reference[] frameReferences = null;
+    @Nullable private FrameIntegrity clipIntegrity = null;
+
+    // placement handed to the plugin decoders for the session, the ids of those that applied it,
+    // and this process's CPU time per cluster to see where decoding actually ran
+    private ThreadPlacement threadPlacement = ThreadPlacement.DEFAULT;
+    private final Set<String> placementHonored = new HashSet<>();
+    @Nullable private ClusterUtilization clusterUtil = null;
+    @Nullable private ClusterUtilization.Snapshot clusterUtilStart = null;
+
+    // what each decoder sustained, added to as clips finish so the next pre-flight can predict
+    @Nullable private PerfDatabase perfDb = null;
+    @Nullable private File perfDbFile = null;
+
+    // thread sweep: the thread count the current clip runs at
+    @Nullable private ThreadSweep threadSweep = null;
+
+    // seek benchmark: the current clip's seeks, set once its playback is first ready; one runnable
+    // both issues the next seek and times out the pending one
+    @Nullable private SeekBenchmark seekBench = null;
+    private final Runnable seekStep = this::nextSeek;
+
+    // speed headroom mode: the current clip's search, set once its playback is first ready; one
+    // runnable both opens a probe window after the settle time and closes it
+    @Nullable private SpeedHeadroomSearch headroomSearch = null;
+    private final Runnable headroomStep = this::nextHeadroomStep;
+
+    // concurrent stress mode: the step in flight, and how many instances the next one runs
+    @Nullable private ConcurrentDecodeStress stressStep = null;
+    private int stressInstances = 1;
+
     private AnalyticsListener analyticsListener;
 
     private Player.Listener playbackStateListener;
 
-    RenderersFactory renderersFactory;
+    StrictRenderersFactoryV2 renderersFactory;
 
 
     private static class FrameDrops{
@@ -146,7 +261,7 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
 
     private final Handler hb = new Handler(Looper.getMainLooper());
     private long lastPos = -1, lastBeatUptime = 0;
-    private final Runnable heartbeat = new Runnable() {
+    private final ClipHeartbeat heartbeat = new ClipHeartbeat(hb, new Runnable() {
         @Override public void run() {
             if (exoPlayer != null) {
                 long pos = exoPlayer.getCurrentPosition();
@@ -154,6 +269,7 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
                 boolean playing = exoPlayer.getPlayWhenReady() && state == Player.STATE_READY;
 
                 // poll counters if we have them
+                DecoderCounters videoCounters = clipFrames.latest();
                 if (videoCounters != null) {
                     videoCounters.ensureUpdated();
                     Log.d(TAG, "COUNTERS rendered=" + videoCounters.renderedOutputBufferCount
@@ -168,10 +284,13 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
                 }
                 lastPos = pos;
                 lastBeatUptime = SystemClock.uptimeMillis();
+
+                if (playing) {
+                    maybePrewarmNextClip();
+                }
             }
-            hb.postDelayed(this, 1000);
         }
-    };
+    });
 
     private static boolean hasValidVideoSize(@Nullable VideoSize vs) {
         return vs != null && vs.width > 0 && vs.height > 0;
@@ -244,21 +363,36 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
     private void stopTestAndCleanup() {
         // 1) stop your periodic telemetry
         stopTelemetryTimer();
+        stopEnergySampling();
         // 2) reset the test details
         viewModel.curTestDetails.reset();
         // 3) tear down playback & exit
+        releaseNextClip();
+        stopStressStep();
+        heartbeat.stop();
+        hb.removeCallbacks(seekStep);
+        this.seekBench = null;
+        hb.removeCallbacks(headroomStep);
+        this.headroomSearch = null;
         if (exoPlayer != null) {
             exoPlayer.stop();
             exoPlayer.release();
             exoPlayer = null;
         }
+        releaseDiscardingSurface();
+        if (isDisplayOff()) {
+            PlaybackKeepAliveService.stop(this);
+        }
+        if (this.tl != null) {
+            this.tl.close();
+        }
 
         this.curDecoder = emptyDecoder;
         setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_UNSPECIFIED);
         finish();
     }
 
-    private com.google.android.exoplayer2.DefaultRenderersFactory getRendersFactory() {
+    private StrictRenderersFactoryV2 getRendersFactory() {
         // forcedJoinMs = 500 (tweak as you like)
         return new StrictRenderersFactoryV2(this, this.viewModel);
     }
@@ -275,19 +409,26 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
 
         this.renderersFactory = getRendersFactory();
 
+        // parsed moov atoms outlive the session, so later loops and runs skip reading them
+        this.moovCache = new ParsedMoovCache(new File(getCacheDir(), "moov"),
+                ParsedMoovCache.DEFAULT_MAX_BYTES,
+                BuildConfig.VERSION_CODE + "/" + BuildConfig.BUILD_TIME);
+        if (viewModel.getRunConfig().ioMode == RunConfig.IoMode.RAM_PRELOAD) {
+            this.clipPreloader = new ClipPreloader(this, viewModel.getRunConfig().preloadBudgetMb * 1024L * 1024L);
+        }
+
         this.playbackStateListener = new Player.Listener() {
             @Override
             public void onPlaybackStateChanged(int state) {
                 if (state == Player.STATE_READY) {
                     onPlaybackStarted();
                 } else if (state == Player.STATE_ENDED) {
-                    logTelemetry(true);
-                    if (shouldStopTesting()) {
-                        stopTestAndCleanup();
-                    } else {
-                        advanceToNextClip();
-                        startClipWithFreshPlayer();
+                    SeekBenchmark seeks = seekBench;
+                    if (seeks != null && !seeks.isFinished()) {
+                        // played into the end between seeks; the next seek brings it back
+                        return;
                     }
+                    onClipEnded();
                 }
             }
 
@@ -338,6 +479,15 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
 
             @Override
             public void onMediaItemTransition(@Nullable com.google.android.exoplayer2.MediaItem mediaItem, int reason) {
+                if (isGapless() && (reason == Player.MEDIA_ITEM_TRANSITION_REASON_AUTO
+                        || reason == Player.MEDIA_ITEM_TRANSITION_REASON_REPEAT)) {
+                    if (!onGaplessClipBoundary()) {
+                        return;
+                    }
+                } else if (reason == Player.MEDIA_ITEM_TRANSITION_REASON_REPEAT) {
+                    // a speed headroom clip looping; same clip, same orientation
+                    return;
+                }
                 orientationCommittedForClip = false;
                 if (mode != RunConfig.VideoOrientation.MATCH_VIDEO) {
                     maybeApplyOrientationForClip(mode, /*vs=*/null);
@@ -352,6 +502,22 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
             public void onPlaybackStateChanged(EventTime et, int state) {
                 long pos = exoPlayer == null ? -1 : exoPlayer.getCurrentPosition();
                 Log.d(TAG, "state=" + stateName(state) + " pos=" + pos);
+                if (state == Player.STATE_BUFFERING && lastPlaybackState == Player.STATE_READY && !seekPending) {
+                    ioStats.onUnderrun();
+                }
+                if (state != Player.STATE_BUFFERING) {
+                    seekPending = false;
+                }
+                lastPlaybackState = state;
+            }
+
+            @Override
+            public void onPositionDiscontinuity(EventTime et, Player.PositionInfo oldPosition,
+                                                Player.PositionInfo newPosition, int reason) {
+                // the player rebuffers at the target of a seek; that is not a starved buffer
+                if (reason == Player.DISCONTINUITY_REASON_SEEK) {
+                    seekPending = true;
+                }
             }
 
             @Override
@@ -367,10 +533,20 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
             // ---- Decoder / format info ----
             @Override
             public void onVideoDecoderInitialized(
-                    EventTime et, String decoderName, long initializationDurationMs, long initializationDelayMs) {
+                    EventTime et, String decoderName, long initializedTimestampMs, long initializationDurationMs) {
                 Log.i(TAG, "Video decoder initialized: " + decoderName
-                        + " initMs=" + initializationDurationMs + " delayMs=" + initializationDelayMs);
+                        + " at=" + initializedTimestampMs + " initMs=" + initializationDurationMs);
+                clipStartup.onDecoderInitialized(initializedTimestampMs, initializationDurationMs);
                 FullScreenPlayerActivity.this.curDecoder = decoderName;
+                if (gaplessDecoders != null && et.windowIndex >= 0 && et.windowIndex < gaplessDecoders.length) {
+                    gaplessDecoders[et.windowIndex] = decoderName;
+                }
+            }
+
+            @Override
+            public void onTracksChanged(EventTime et, Tracks tracks) {
+                // the period is prepared once its tracks are known
+                clipStartup.onPrepared(SystemClock.elapsedRealtime());
             }
 
             @Override
@@ -378,11 +554,21 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
                     EventTime et, Format format, @Nullable DecoderReuseEvaluation reuse) {
                 Log.i(TAG, "format " + format.sampleMimeType + " "
                         + format.width + "x" + format.height + " @" + format.frameRate
-                        + " color=" + format.colorInfo);
+                        + " color=" + format.colorInfo
+                        + (reuse != null ? " reuse=" + reuse.result : ""));
+                if (gaplessFormats != null && et.windowIndex >= 0 && et.windowIndex < gaplessFormats.length) {
+                    gaplessFormats[et.windowIndex] = format;
+                    gaplessDecoderReused[et.windowIndex] =
+                            reuse != null && reuse.result != DecoderReuseEvaluation.REUSE_RESULT_NO;
+                }
+                if (reuse != null) {
+                    checkPluginDecoderReuse(reuse);
+                }
             }
             @Override
             public void onVideoEnabled(EventTime et, DecoderCounters counters) {
-                videoCounters = counters;                    // keep reference to poll later
+                // a codec change at a gapless boundary brings new counters, counted from zero
+                clipFrames.onEnabled(counters);
                 Log.d(TAG, "videoEnabled: counters attached");
             }
 
@@ -392,7 +578,7 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
                 Log.i(TAG, "videoDisabled rendered=" + counters.renderedOutputBufferCount
                         + " dropped=" + counters.droppedBufferCount
                         + " skipped=" + counters.skippedOutputBufferCount);
-                videoCounters = null;
+                clipFrames.onDisabled(counters);
             }
 
             // ---- First frame / output target ----
@@ -400,6 +586,13 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
             public void onRenderedFirstFrame(EventTime et, Object output, long renderTimeMs) {
                 String out = (output == null) ? "null" : output.getClass().getSimpleName();
                 Log.i(TAG, "firstFrame output=" + out + " t=" + renderTimeMs + "ms");
+                clipStartup.onFirstFrame(SystemClock.elapsedRealtime());
+                onSeekFirstFrame();
+                if (transitionStartMs >= 0) {
+                    clipTransitionMs = SystemClock.elapsedRealtime() - transitionStartMs;
+                    transitionStartMs = -1;
+                    Log.i(TAG, "Clip transition " + clipTransitionMs + "ms (prewarmed=" + clipPrewarmed + ")");
+                }
             }
 
             @Override
@@ -425,7 +618,9 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
         initialize();
 
         playerView = findViewById(R.id.playerView);
-        getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+        if (!isDisplayOff()) {
+            getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+        }
 
         // Lookups for the overlay controls that live OUTSIDE the PlayerView
         LinearLayout buttonRow   = findViewById(R.id.buttonRow);
@@ -460,6 +655,23 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
             onToggleVideoInfo();
         });
 
+        if (isBenchmark() || isConcurrentStress()) {
+            // nothing reaches the PlayerView, keep the controls and the live numbers up
+            if (isBenchmark()) {
+                this.discardingSurface = new DiscardingSurface();
+            }
+            playerView.setUseController(false);
+            buttonRow.setVisibility(View.VISIBLE);
+            videoOverlay.setVisibility(View.VISIBLE);
+            videoOverlay.bringToFront();
+        } else if (isDisplayOff()) {
+            // decoded frames go nowhere visible; the service keeps the run going once the screen is off
+            this.discardingSurface = new DiscardingSurface();
+            playerView.setUseController(false);
+            buttonRow.setVisibility(View.VISIBLE);
+            PlaybackKeepAliveService.start(this);
+        }
+
         // setup telemetry file
         long startTime = System.currentTimeMillis();
         String telemetryFileName = "vcatd_log_" + startTime + ".csv";
@@ -469,18 +681,132 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
         this.tl.writeHeaderRows(this, viewModel.curTestDetails.getPlaylistFileName(), this.viewModel.getRunConfig(), startTime);
         this.tl.writeCsvHeader();
 
+        int energySampleHz = EnergyIntegrator.clampSampleHz(this.viewModel.getRunConfig().energySampleHz);
+        this.sessionSummary = new SessionSummary(startTime, energySampleHz);
+        this.perfDbFile = new File(getFilesDir(), PerfDatabase.FILE_NAME);
+        this.energy = new EnergyIntegrator(this, energySampleHz);
+        if (isDisplayOff()) {
+            watchScreenState();
+        } else {
+            this.energy.start();
+        }
+        this.sessionEnergyStart = this.energy.snapshot();
+
+        CpuInfo cpuInfo = new CpuInfo();
+        applyThreadPlacement(cpuInfo);
+        this.clusterUtil = new ClusterUtilization(cpuInfo.getClusterOfCore(), cpuInfo.getClusterLabels(),
+                ClusterUtilization.clockTicksPerSecond());
+        this.clusterUtil.start();
+
         testClips = XspfParser.parsePlaylist(this, Uri.parse(viewModel.curTestDetails.getPlaylist()));
         for (int i = 0; i < testClips.size(); i++) {
             testClips.set(i, UriUtils.resolveMediaUri(this, testClips.get(i)));
         }
+        skipPreflightFlagged(getIntent().getIntArrayExtra(EXTRA_SKIP_CLIPS));
         curFileIndex = 0;
+        if (isThreadSweep()) {
+            int cores = cpuInfo.cores.size();
+            this.threadSweep = new ThreadSweep(cores > 0 ? cores : Runtime.getRuntime().availableProcessors());
+        }
         if (testClips.isEmpty()) {
             finish();  // nothing to play
             return;
         }
 
         if (curFileIndex < 0) curFileIndex = 0;
-        startClipWithFreshPlayer();
+        loadRunDataThenStart();
+    }
+
+    private void startRun() {
+        if (isDisplayOff() && !this.screenOff) {
+            this.runWaitingForScreenOff = true;
+            this.videoOverlay.setText(R.string.display_off_waiting);
+            this.videoOverlay.setVisibility(View.VISIBLE);
+            this.videoOverlay.bringToFront();
+            Log.i(TAG, "Display-off run waiting for the screen to turn off");
+            return;
+        }
+        if (isConcurrentStress()) {
+            startStressStep();
+        } else if (isGapless()) {
+            startGaplessPlaylist();
+        } else {
+            startClipWithFreshPlayer();
+        }
+    }
+
+    /**
+     * Display-off: integrate energy only while the screen is off, so the run's energy is that of
+     * display-off playback, and hold the run until the screen first goes off.
+     */
+    private void watchScreenState() {
+        PowerManager pm = (PowerManager) getSystemService(POWER_SERVICE);
+        this.screenOff = pm != null && !pm.isInteractive();
+        if (this.screenOff) {
+            this.energy.start();
+        }
+        this.screenStateReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                onScreenStateChanged(Intent.ACTION_SCREEN_OFF.equals(intent.getAction()));
+            }
+        };
+        IntentFilter filter = new IntentFilter(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        registerReceiver(this.screenStateReceiver, filter);
+    }
+
+    private void onScreenStateChanged(boolean off) {
+        this.screenOff = off;
+        if (off) {
+            this.energy.start();
+        } else {
+            // stopping keeps the total and breaks the interval, so the lit stretch is left out
+            this.energy.stop();
+            if (!this.runWaitingForScreenOff) {
+                Log.w(TAG, "Screen turned on during a display-off run, energy is not integrated until it is off again");
+            }
+        }
+        if (off && this.runWaitingForScreenOff) {
+            this.runWaitingForScreenOff = false;
+            this.videoOverlay.setVisibility(View.GONE);
+            startRun();
+        }
+    }
+
+    private void unwatchScreenState() {
+        if (this.screenStateReceiver != null) {
+            unregisterReceiver(this.screenStateReceiver);
+            this.screenStateReceiver = null;
+        }
+    }
+
+    /**
+     * Read what the run keeps from storage on a background thread, and start the run when it is in:
+     * the performance database, which the finished clips are added to, the vectors' manifest
+     * checksums the moov cache keys on, and in integrity mode every clip's reference hashes, needed
+     * before its first frame (a provider query per clip).
+     */
+    private void loadRunDataThenStart() {
+        Context app = getApplicationContext();
+        File dbFile = this.perfDbFile;
+        List<Uri> clips = isIntegrityCheck() ? new ArrayList<>(this.testClips) : null;
+        new Thread(() -> {
+            PerfDatabase db = PerfDatabase.load(dbFile);
+            Map<String, String> checksums = ManifestChecksums.loadAll(app);
+            FrameHashReferences.Reference[] refs = clips != null ? FrameHashReferences.loadAll(app, clips) : null;
+            hb.post(() -> {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
+                this.perfDb = db;
+                this.frameReferences = refs;
+                if (this.moovCache != null) {
+                    this.moovCache.setManifestChecksums(checksums);
+                }
+                startRun();
+            });
+        }, "vcat-run-data").start();
     }
 
     private static String rendererTypeName(int t) {
@@ -498,6 +824,19 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (this.moovCache != null) {
+            this.moovCache.release();
+        }
+        if (this.clipPreloader != null) {
+            this.clipPreloader.release();
+        }
+        if (this.tl != null) {
+            this.tl.close();
+        }
+        if (isDisplayOff()) {
+            unwatchScreenState();
+            PlaybackKeepAliveService.stop(this);
+        }
         setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_UNSPECIFIED);
     }
 
@@ -510,17 +849,16 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
         // Keep a handle to the old player so we can release it after swap
         ExoPlayer old = exoPlayer;
 
+        // benchmark stats are per clip; the factory wraps the renderers of the player built next
+        this.clipBenchmark = isBenchmark() ? new DecodeBenchmarkStats() : null;
+        this.renderersFactory.setDecodeBenchmark(this.clipBenchmark);
+        this.clipIntegrity = newClipIntegrity();
+        this.renderersFactory.setFrameIntegrity(this.clipIntegrity);
+        this.renderersFactory.setThreadsOverride(this.threadSweep != null ? this.threadSweep.getThreads() : 0);
+
         // Build a new player using your existing RenderersFactory (dav1d, etc.)
-        ExoPlayer newPlayer =
-                new ExoPlayer.Builder(this, renderersFactory)
-                        .setMediaSourceFactory(
-                                new DefaultMediaSourceFactory(
-                                        this,
-                                        () -> new Extractor[] { new VcatIvfExtractor(), new VcatMp4Extractor(/* flags if any */) } // IVF (DKIF) first, then MP4
-                                )
-                        )
-                        .setVideoChangeFrameRateStrategy(C.VIDEO_CHANGE_FRAME_RATE_STRATEGY_OFF)
-                        .build();        newPlayer.setRepeatMode(Player.REPEAT_MODE_OFF);
+        IoStats playerIo = new IoStats();
+        ExoPlayer newPlayer = buildPlayer(playerIo);
 
         // Wire listeners you already use
         newPlayer.addListener(this.playbackStateListener);
@@ -528,19 +866,33 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
             newPlayer.addAnalyticsListener(this.analyticsListener);
         }
 
-        hb.removeCallbacks(heartbeat);
-        hb.post(heartbeat);
-
         if (mode != RunConfig.VideoOrientation.MATCH_VIDEO) {
             maybeApplyOrientationForClip(mode, /*vs=*/null);
         }
 
-        // Attach it to the PlayerView
-        playerView.setPlayer(newPlayer);
+        if (isBenchmark()) {
+            attachBenchmarkOutput(newPlayer);
+        } else if (isDisplayOff()) {
+            // audio stays on and paces playback as in PLAYBACK, only the video output differs
+            newPlayer.setVideoSurface(this.discardingSurface.getSurface());
+        } else {
+            // Attach it to the PlayerView
+            playerView.setPlayer(newPlayer);
+        }
+        if (isSpeedHeadroom()) {
+            // the probes measure the video decoder: audio would be time-stretched on the same CPU
+            // at every probed speed, and its sink would pace the video
+            newPlayer.setTrackSelectionParameters(newPlayer.getTrackSelectionParameters()
+                    .buildUpon()
+                    .setTrackTypeDisabled(C.TRACK_TYPE_AUDIO, true)
+                    .build());
+        }
 
         // Load & play the current clip
         Uri clip = this.testClips.get(this.curFileIndex);
-        newPlayer.setMediaItem(MediaItem.fromUri(clip));
+        this.ioStats = playerIo;
+        beginClipAccounting();
+        newPlayer.setMediaItem(clipMediaItem(clip));
         newPlayer.prepare();
         newPlayer.play();
 
@@ -556,15 +908,524 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
         Log.d(TAG, "videoRendererCount=" + videoRenderers);
 
         // Release the old one after we've fully switched the view
+        releasePlayer(old);
+        heartbeat.restart();
+    }
+
+    /** A player whose reads and buffer levels go to {@code stats}, one per player. */
+    private ExoPlayer buildPlayer(IoStats stats) {
+        return buildPlayer(stats, this::moovListenerFor);
+    }
+
+    /** As {@link #buildPlayer(IoStats)}, with {@code moovListeners} hearing its moov timings. */
+    private ExoPlayer buildPlayer(IoStats stats, Function<Uri, VcatMp4Extractor.MoovListener> moovListeners) {
+        ExoPlayer player =
+                new ExoPlayer.Builder(this, renderersFactory)
+                        .setLoadControl(new InstrumentedLoadControl(new DefaultLoadControl(), stats))
+                        .setMediaSourceFactory(
+                                new DefaultMediaSourceFactory(
+                                        new InstrumentedDataSource.Factory(dataSourceFactory(), stats),
+                                        new VcatExtractorsFactory(this, this.moovCache,
+                                                viewModel.getRunConfig().fragmentReadAhead, traceSinks(),
+                                                moovListeners)
+                                )
+                        )
+                        .setVideoChangeFrameRateStrategy(C.VIDEO_CHANGE_FRAME_RATE_STRATEGY_OFF)
+                        .build();
+        player.setRepeatMode(Player.REPEAT_MODE_OFF);
+        return player;
+    }
+
+    /** Where each clip's bitstream trace goes, or null when tracing is off. */
+    @Nullable
+    private Function<Uri, SampleTrace.Sink> traceSinks() {
+        RunConfig rc = viewModel.getRunConfig();
+        // stress instances all decode the same clip, so their traces would only repeat each other
+        if (!rc.bitstreamTrace || rc.testMode == RunConfig.TestMode.CONCURRENT_STRESS || this.tl == null) {
+            return null;
+        }
+        TelemetryLogger logger = this.tl;
+        return uri -> () -> logger.openSidecar(UriUtils.fileNameFromURI(uri) + ".vtrace");
+    }
+
+    /**
+     * Moov timings arrive on the loading thread and count towards the clip now playing that uri.
+     * A back buffer preparing the next clip reports to its own {@link PreparedClip#startup}.
+     */
+    private VcatMp4Extractor.MoovListener moovListenerFor(Uri uri) {
+        return (parseMs, setupMs, fromCache) -> hb.post(() -> {
+            if (this.testClips != null && this.curFileIndex < this.testClips.size()
+                    && uri.equals(this.testClips.get(this.curFileIndex))) {
+                this.clipStartup.onMoovReady(parseMs, setupMs, fromCache);
+            }
+        });
+    }
+
+    private DataSource.Factory dataSourceFactory() {
+        switch (viewModel.getRunConfig().ioMode) {
+            case MEMORY_MAPPED:
+                return new MappedFileDataSource.Factory(this);
+            case RAM_PRELOAD:
+                if (this.clipPreloader != null) {
+                    // clips over the budget are read from storage by the platform source, so their
+                    // read cost compares with PLATFORM rather than MEMORY_MAPPED (preloaded=false)
+                    return new PreloadedDataSource.Factory(this.clipPreloader, new DefaultDataSource.Factory(this));
+                }
+                break;
+        }
+        return new DefaultDataSource.Factory(this);
+    }
+
+    /**
+     * RAM_PRELOAD: hold clip {@code index} and the one after it in memory, dropping the rest. The
+     * player's first read of the clip waits for its load, so playback starts from memory.
+     */
+    private void preloadAround(int index) {
+        if (this.clipPreloader == null || this.testClips == null || this.testClips.isEmpty()) {
+            return;
+        }
+        boolean last = index + 1 >= this.testClips.size();
+        Uri next = (last && this.viewModel.getRunConfig().runMode == RunConfig.RunMode.ONCE)
+                ? null : this.testClips.get((index + 1) % this.testClips.size());
+        this.clipPreloader.retain(this.testClips.get(index), next);
+    }
+
+    private boolean isCurClipPreloaded() {
+        return this.clipPreloader != null && this.testClips != null
+                && this.clipPreloader.isPreloaded(this.testClips.get(this.curFileIndex));
+    }
+
+    private void releasePlayer(@Nullable ExoPlayer old) {
         if (old != null) {
             // Defensive: clear media & listeners before release
             old.clearMediaItems();
             old.removeListener(this.playbackStateListener);
             if (this.analyticsListener != null) old.removeAnalyticsListener(this.analyticsListener);
-            hb.removeCallbacks(heartbeat);
+            // the heartbeat belongs to the session: the swap restarts it for the new player
             old.release();
         }
     }
+
+    private boolean isGapless() {
+        // the benchmark measures each clip on its own player, whatever transition is configured;
+        // frame hashes count frames per player, so integrity checks need one player per clip too
+        return this.viewModel.getRunConfig().testMode == RunConfig.TestMode.PLAYBACK
+                && this.viewModel.getRunConfig().clipTransition == RunConfig.ClipTransition.GAPLESS
+                && !isIntegrityCheck();
+    }
+
+    private boolean isBenchmark() {
+        // the thread sweep is the decode benchmark, repeated per thread count
+        return this.viewModel.getRunConfig().testMode == RunConfig.TestMode.DECODE_BENCHMARK
+                || isThreadSweep();
+    }
+
+    private boolean isThreadSweep() {
+        return this.viewModel.getRunConfig().testMode == RunConfig.TestMode.THREAD_SWEEP;
+    }
+
+    private boolean isSeekBenchmark() {
+        return this.viewModel.getRunConfig().testMode == RunConfig.TestMode.SEEK_BENCHMARK;
+    }
+
+    private boolean isSpeedHeadroom() {
+        return this.viewModel.getRunConfig().testMode == RunConfig.TestMode.SPEED_HEADROOM;
+    }
+
+    private boolean isDisplayOff() {
+        return this.viewModel.getRunConfig().testMode == RunConfig.TestMode.DISPLAY_OFF;
+    }
+
+    /** The clip as played: the thread sweep can decode only the start of each clip. */
+    private MediaItem clipMediaItem(Uri clip) {
+        int seconds = this.viewModel.getRunConfig().sweepClipSeconds;
+        if (!isThreadSweep() || seconds <= 0) {
+            return MediaItem.fromUri(clip);
+        }
+        return new MediaItem.Builder()
+                .setUri(clip)
+                .setClippingConfiguration(new MediaItem.ClippingConfiguration.Builder()
+                        .setEndPositionMs(seconds * 1000L)
+                        .build())
+                .build();
+    }
+
+    /**
+     * Thread sweep: move the current clip to its next thread count.
+     * @return false once the clip has run at every count, or is not on a plugin decoder
+     */
+    private boolean nextSweepStep() {
+        ThreadSweep sweep = this.threadSweep;
+        if (sweep == null) {
+            return false;
+        }
+        // MediaCodec decoders take no thread count, one pass shows all there is
+        Format f = this.exoPlayer != null ? this.exoPlayer.getVideoFormat() : null;
+        if (f == null || pluginForMime(f.sampleMimeType) == null) {
+            sweep.restart();
+            return false;
+        }
+        return sweep.next();
+    }
+
+    /**
+     * End of a thread sweep: offer to save each plugin decoder's recommended thread count as the
+     * count for its MIME type, then close.
+     */
+    private void offerThreadRecommendations() {
+        stopTelemetryTimer();
+        Map<VideoDecoderEnumerator.MimeType, Integer> recommended = new EnumMap<>(VideoDecoderEnumerator.MimeType.class);
+        StringBuilder msg = new StringBuilder();
+        if (this.sessionSummary != null) {
+            for (Map.Entry<String, SessionSummary.ThreadCurve> e : this.sessionSummary.getThreadScaling().entrySet()) {
+                SessionSummary.ThreadCurve curve = e.getValue();
+                VideoDecoderEnumerator.MimeType mt = VideoDecoderEnumerator.MimeType.fromString(curve.mimeType);
+                // a single point is a decoder the sweep could not vary
+                if (mt == null || curve.recommendedThreads == null || curve.points.size() < 2) {
+                    continue;
+                }
+                recommended.put(mt, curve.recommendedThreads);
+                msg.append(String.format(Locale.US, "%s (%s): %d threads\n",
+                        curve.mimeType, e.getKey(), curve.recommendedThreads));
+            }
+        }
+        if (recommended.isEmpty()) {
+            stopTestAndCleanup();
+            return;
+        }
+
+        msg.append("\nSave as the decoder thread count for these formats?");
+        AlertDialog dlg = new AlertDialog.Builder(this)
+                .setTitle("Thread Sweep Complete")
+                .setMessage(msg.toString())
+                .setPositiveButton("Save", (d, which) -> {
+                    RunConfig rc = new RunConfig(this.viewModel.getRunConfig());
+                    for (Map.Entry<VideoDecoderEnumerator.MimeType, Integer> e : recommended.entrySet()) {
+                        rc.decoderCfg.setThreads(e.getKey(), e.getValue());
+                    }
+                    this.viewModel.setRunConfig(rc);
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+        dlg.setOnDismissListener(d -> stopTestAndCleanup());
+    }
+
+    private boolean isConcurrentStress() {
+        return this.viewModel.getRunConfig().testMode == RunConfig.TestMode.CONCURRENT_STRESS;
+    }
+
+    /** Hash decoded frames and check them against the vectors' references (playback and benchmark). */
+    private boolean isIntegrityCheck() {
+        return this.viewModel.getRunConfig().frameHashInterval > 0 && !isConcurrentStress();
+    }
+
+    /** A fresh integrity check for {@link #curFileIndex}, or null when the mode is off. */
+    @Nullable
+    private FrameIntegrity newClipIntegrity() {
+        if (!isIntegrityCheck()) {
+            return null;
+        }
+        FrameHashReferences.Reference ref = (this.frameReferences != null && this.curFileIndex < this.frameReferences.length)
+                ? this.frameReferences[this.curFileIndex] : null;
+        if (ref == null) {
+            return new FrameIntegrity(this.viewModel.getRunConfig().frameHashInterval, null, 1);
+        }
+        return new FrameIntegrity(this.viewModel.getRunConfig().frameHashInterval, ref.toCrc32(), ref.interval);
+    }
+
+    /**
+     * Run {@link #stressInstances} players on {@link #curFileIndex} at once. Each clip is ramped
+     * 1..maxConcurrentInstances, one step per pass through the clip, so every row of the csv is one
+     * point on the clip's concurrency curve.
+     */
+    private void startStressStep() {
+        if (isFinishing()) {
+            return;
+        }
+        // stress instances play in real time, no benchmark wrapping
+        this.renderersFactory.setDecodeBenchmark(null);
+        this.renderersFactory.setFrameIntegrity(null);
+        preloadAround(this.curFileIndex);
+        this.stressStep = new ConcurrentDecodeStress(this.curFileIndex, this.testClips.get(this.curFileIndex),
+                this.stressInstances, () -> buildPlayer(new IoStats()), this.energy, this::onStressStepComplete);
+        this.videoOverlay.setText(String.format(Locale.US, "Concurrent stress\nClip: %s\nInstances: %d",
+                UriUtils.fileNameFromURI(this.testClips.get(this.curFileIndex).toString()), this.stressInstances));
+        this.stressStep.start();
+    }
+
+    private void onStressStepComplete(ConcurrentDecodeStress step) {
+        this.stressStep = null;
+        SessionSummary.StressStep result = logStressStep(step);
+
+        int max = Math.max(1, this.viewModel.getRunConfig().maxConcurrentInstances);
+        if (result.initFailures > 0 || this.stressInstances >= max) {
+            // the clip's ramp is done; past the first decoder that cannot be created, more will not help
+            if (shouldStopTesting()) {
+                stopTestAndCleanup();
+                return;
+            }
+            advanceToNextClip();
+            this.stressInstances = 1;
+        } else {
+            this.stressInstances++;
+        }
+        // let the released players finish unwinding their callbacks before building the next set
+        hb.post(this::startStressStep);
+    }
+
+    private void stopStressStep() {
+        if (this.stressStep != null) {
+            this.stressStep.stop();
+            this.stressStep = null;
+        }
+    }
+
+    private SessionSummary.StressStep logStressStep(ConcurrentDecodeStress step) {
+        TelemetryLogger.VideoInfo vi = stressVideoInfo(step);
+        SessionSummary.StressStep result = step.toSummary(vi.fileName, currentThermalStatus());
+
+        StringBuilder perInstance = new StringBuilder();
+        for (SessionSummary.StressInstance i : result.perInstance) {
+            if (perInstance.length() > 0) {
+                perInstance.append(';');
+            }
+            perInstance.append(String.format(Locale.US, "%.2f", i.fps));
+        }
+
+        Map<TelemetryLogger.Column, String> m = new EnumMap<>(TelemetryLogger.Column.class);
+        m.put(TelemetryLogger.Column.STRESS_INSTANCES, Integer.toString(result.instances));
+        m.put(TelemetryLogger.Column.STRESS_FPS_TOTAL, String.format(Locale.US, "%.2f", result.fpsTotal));
+        m.put(TelemetryLogger.Column.STRESS_FPS_MIN, String.format(Locale.US, "%.2f", result.fpsMin));
+        m.put(TelemetryLogger.Column.STRESS_FPS_PER_INSTANCE, perInstance.toString());
+        m.put(TelemetryLogger.Column.STRESS_INIT_FAILURES, Integer.toString(result.initFailures));
+        m.put(TelemetryLogger.Column.STRESS_PLAYBACK_FAILURES, Integer.toString(result.playbackFailures));
+        m.put(TelemetryLogger.Column.VIDEO_FRAMES_RENDERED, Long.toString(result.framesRendered));
+        m.put(TelemetryLogger.Column.ENERGY_MJ, String.format(Locale.US, "%.1f", result.energyMj));
+        m.put(TelemetryLogger.Column.POWER_AVG_MW, String.format(Locale.US, "%.1f", result.avgPowerMw));
+        m.put(TelemetryLogger.Column.ENERGY_PER_FRAME_MJ, String.format(Locale.US, "%.4f", result.energyPerFrameMj));
+        m.put(TelemetryLogger.Column.CPU_MS_PER_FRAME, String.format(Locale.US, "%.3f", result.cpuMsPerFrame));
+
+        this.tl.logTelemetryRow(this, this.viewModel.curTestDetails.getStartTimeAsEpoch(), vi,
+                (int) result.framesDropped, false, true, m);
+
+        if (this.sessionSummary != null) {
+            this.sessionSummary.addStressStep(result, this.energy.snapshot().since(this.sessionEnergyStart));
+            this.tl.writeSessionSummary(this.sessionSummary);
+        }
+
+        Log.i(TAG, String.format(Locale.US, "Stress step: %d instances, %.1f fps total, min %.1f, %d dropped, %d init failures",
+                result.instances, result.fpsTotal, result.fpsMin, result.framesDropped, result.initFailures));
+        return result;
+    }
+
+    private TelemetryLogger.VideoInfo stressVideoInfo(ConcurrentDecodeStress step) {
+        ConcurrentDecodeStress.Instance ref = step.getReferenceInstance();
+        Format fmt = ref != null ? ref.getFormat() : null;
+        if (fmt == null) {
+            // no instance got as far as a format, most likely none could create a decoder
+            return new TelemetryLogger.VideoInfo(step.clip.toString(), "", "", "", "Unknown", "Unknown", emptyDecoder, -1f);
+        }
+        return new TelemetryLogger.VideoInfo(
+                step.clip.toString(),
+                String.valueOf(fmt.width),
+                String.valueOf(fmt.height),
+                fmt.sampleMimeType,
+                formatBitrate(String.valueOf(fmt.bitrate)),
+                mimeTypeToCodecName(fmt.sampleMimeType),
+                ref.getDecoderName() != null ? ref.getDecoderName() : emptyDecoder,
+                fmt.frameRate > 0 ? fmt.frameRate : -1f);
+    }
+
+    private int currentThermalStatus() {
+        PowerManager pm = (PowerManager) getSystemService(POWER_SERVICE);
+        return pm != null ? pm.getCurrentThermalStatus() : PowerManager.THERMAL_STATUS_NONE;
+    }
+
+    /**
+     * Decode benchmark output: video to the discarding surface, audio disabled. The wrapped video
+     * renderer is the playback clock, and the player accepts only one renderer clock, so audio
+     * cannot stay enabled; it would also pace nothing.
+     */
+    private void attachBenchmarkOutput(ExoPlayer player) {
+        player.setTrackSelectionParameters(player.getTrackSelectionParameters()
+                .buildUpon()
+                .setTrackTypeDisabled(C.TRACK_TYPE_AUDIO, true)
+                .build());
+        if (this.discardingSurface != null) {
+            player.setVideoSurface(this.discardingSurface.getSurface());
+        }
+    }
+
+    private void releaseDiscardingSurface() {
+        if (this.discardingSurface != null) {
+            this.discardingSurface.release();
+            this.discardingSurface = null;
+        }
+    }
+
+    /**
+     * Feed the whole playlist to one player as a single timeline. Renderers are created once; a
+     * decoder survives a boundary whenever its renderer judges the next format reusable. Clip
+     * boundaries are reported through onMediaItemTransition.
+     */
+    private void startGaplessPlaylist() {
+        orientationCommittedForClip = false;
+        final RunConfig rc = viewModel.getRunConfig();
+
+        int n = this.testClips.size();
+        this.gaplessFormats = new Format[n];
+        this.gaplessDecoders = new String[n];
+        this.gaplessDecoderReused = new Boolean[n];
+
+        IoStats playerIo = new IoStats();
+        ExoPlayer player = buildPlayer(playerIo);
+        // ONCE ends with the last clip, the other run modes loop until shouldStopTesting() at a boundary
+        player.setRepeatMode(rc.runMode == RunConfig.RunMode.ONCE ? Player.REPEAT_MODE_OFF : Player.REPEAT_MODE_ALL);
+
+        player.addListener(this.playbackStateListener);
+        if (this.analyticsListener != null) {
+            player.addAnalyticsListener(this.analyticsListener);
+        }
+
+        heartbeat.restart();
+
+        if (rc.videoOrientation != RunConfig.VideoOrientation.MATCH_VIDEO) {
+            maybeApplyOrientationForClip(rc.videoOrientation, /*vs=*/null);
+        }
+
+        playerView.setPlayer(player);
+
+        List<MediaItem> items = new ArrayList<>(n);
+        for (Uri clip : this.testClips) {
+            items.add(MediaItem.fromUri(clip));
+        }
+        this.ioStats = playerIo;
+        beginClipAccounting();
+        player.setMediaItems(items, this.curFileIndex, C.TIME_UNSET);
+        player.prepare();
+        player.play();
+
+        exoPlayer = player;
+        Log.i(TAG, "Gapless playlist started, " + n + " clips, repeat=" + player.getRepeatMode());
+    }
+
+    /**
+     * Close out the clip that just finished and open the one the player moved to.
+     * @return false if the run was stopped
+     */
+    private boolean onGaplessClipBoundary() {
+        logTelemetry(true);
+        if (shouldStopTesting()) {
+            stopTestAndCleanup();
+            return false;
+        }
+        this.curFileIndex = exoPlayer.getCurrentMediaItemIndex();
+        beginClipAccounting();
+        // the player stays READY across the boundary; the running telemetry chain carries on
+        this.telemetryStartedForClip = true;
+        return true;
+    }
+
+    /** Start {@link #curFileIndex}, from the prepared back buffer when it holds that clip. */
+    private void startNextClip() {
+        PreparedClip next = this.nextClip;
+        this.nextClip = null;
+
+        if (next != null && next.clipIndex == this.curFileIndex && !next.hasFailed()) {
+            startClipWithPreparedPlayer(next);
+        } else {
+            if (next != null) {
+                Log.w(TAG, "Prepared clip " + next.clipIndex + " unusable (failed=" + next.hasFailed()
+                        + "), starting clip " + this.curFileIndex + " with a fresh player");
+                next.release();
+            }
+            startClipWithFreshPlayer();
+        }
+    }
+
+    /**
+     * Promote the back buffer: the player is already prepared, so the boundary costs a surface
+     * swap and play() instead of renderer creation, decoder init and extractor sniffing.
+     */
+    private void startClipWithPreparedPlayer(PreparedClip next) {
+        orientationCommittedForClip = false;
+        final RunConfig.VideoOrientation mode = viewModel.getRunConfig().videoOrientation;
+
+        ExoPlayer old = exoPlayer;
+        ExoPlayer newPlayer = next.player;
+
+        // take over what the back buffer captured before our listeners were attached
+        next.detach();
+        this.curDecoder = next.getDecoderName() != null ? next.getDecoderName() : emptyDecoder;
+
+        newPlayer.addListener(this.playbackStateListener);
+        if (this.analyticsListener != null) {
+            newPlayer.addAnalyticsListener(this.analyticsListener);
+        }
+
+        // the media item transition and size change already happened while prewarming
+        if (mode != RunConfig.VideoOrientation.MATCH_VIDEO || hasValidVideoSize(newPlayer.getVideoSize())) {
+            maybeApplyOrientationForClip(mode, newPlayer.getVideoSize());
+        }
+
+        playerView.setPlayer(newPlayer);
+
+        this.ioStats = next.ioStats;
+        beginClipAccounting();
+        if (next.getCounters() != null) {
+            this.clipFrames.onEnabled(next.getCounters());
+        }
+        // the reads made and milestones reached while prewarming were for this clip
+        this.clipIoStart = IoStats.Snapshot.empty;
+        this.clipStartup.takePrewarmed(next.startup);
+        this.clipPrewarmed = true;
+        newPlayer.play();
+
+        exoPlayer = newPlayer;
+        Log.i(TAG, "Started prepared clip " + next.clipIndex + " (prepare took " + next.getPrepareMs() + "ms)");
+
+        releasePlayer(old);
+        heartbeat.restart();
+
+        // READY was reached before our listener was attached, so it will not be reported again
+        if (newPlayer.getPlaybackState() == Player.STATE_READY) {
+            onPlaybackStarted();
+        }
+    }
+
+    /**
+     * Fill the back buffer with the clip that follows the current one once the current clip is
+     * within {@link PreparedClip#PREWARM_LEAD_MS} of its end, unless the run ends with the current clip.
+     * Called from the heartbeat while playing.
+     */
+    private void maybePrewarmNextClip() {
+        RunConfig rc = this.viewModel.getRunConfig();
+        // the back buffer's renderers are built before its clip's integrity check exists
+        if (rc.clipTransition != RunConfig.ClipTransition.PREWARM || rc.testMode != RunConfig.TestMode.PLAYBACK
+                || isIntegrityCheck() || this.nextClip != null || this.exoPlayer == null) {
+            return;
+        }
+        if (!PreparedClip.isPrewarmDue(this.exoPlayer.getDuration(), this.exoPlayer.getCurrentPosition())) {
+            return;
+        }
+        if (rc.runMode == RunConfig.RunMode.ONCE && this.curFileIndex + 1 >= this.testClips.size()) {
+            return;
+        }
+        int idx = (this.curFileIndex + 1) % this.testClips.size();
+        IoStats nextIo = new IoStats();
+        ClipStartup nextStartup = new ClipStartup();
+        VcatMp4Extractor.MoovListener nextMoov = (parseMs, setupMs, fromCache) ->
+                hb.post(() -> nextStartup.onMoovReady(parseMs, setupMs, fromCache));
+        this.nextClip = new PreparedClip(buildPlayer(nextIo, uri -> nextMoov), nextIo, nextStartup,
+                idx, this.testClips.get(idx));
+    }
+
+    private void releaseNextClip() {
+        if (this.nextClip != null) {
+            this.nextClip.release();
+            this.nextClip = null;
+        }
+    }
     private void playCurClip() {
         Uri clip = this.testClips.get(this.curFileIndex);
         exoPlayer.setMediaItem(MediaItem.fromUri(clip));
@@ -590,7 +1451,9 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
 
     @Override protected void onStart() {
         super.onStart();
-        getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+        if (!isDisplayOff()) {
+            getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+        }
     }
 
     @Override
@@ -608,10 +1471,14 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
         }
 
         if (isFinishing()) {
+            releaseNextClip();
+            stopStressStep();
             if (exoPlayer != null) {
                 exoPlayer.release();
                 exoPlayer = null;
             }
+            releaseDiscardingSurface();
+            stopEnergySampling();
             onPlaybackStopped();
         }
     }
@@ -641,7 +1508,8 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
     };
 
     private void startTelemetryTimer() {
-        // kick off immediately
+        // kick off immediately, restarting rather than stacking a second chain on the previous clip's
+        telemetryHandler.removeCallbacks(telemetryRunnable);
         telemetryHandler.post(telemetryRunnable);
     }
 
@@ -651,7 +1519,136 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
 
     // call this after exoPlayer.play()
     private void onPlaybackStarted() {
-        startTelemetryTimer();
+        // READY repeats after every rebuffer and seek; the timer only restarts with a new clip
+        if (!this.telemetryStartedForClip) {
+            this.telemetryStartedForClip = true;
+            startTelemetryTimer();
+        }
+        if (isSeekBenchmark() && this.seekBench == null) {
+            startSeekBenchmark();
+        }
+        if (isSpeedHeadroom() && this.headroomSearch == null) {
+            startHeadroomSearch();
+        }
+    }
+
+    /** The clip has played out (or, in the seek benchmark, done its seeks): report it and move on. */
+    private void onClipEnded() {
+        transitionStartMs = SystemClock.elapsedRealtime();
+        logTelemetry(true);
+        // the next clip plans its own seeks once it is ready
+        hb.removeCallbacks(seekStep);
+        this.seekBench = null;
+        hb.removeCallbacks(headroomStep);
+        this.headroomSearch = null;
+        if (nextSweepStep()) {
+            // same clip again at the next thread count
+            startClipWithFreshPlayer();
+        } else if (isThreadSweep() && shouldStopTesting()) {
+            offerThreadRecommendations();
+        } else if (shouldStopTesting() || isGapless()) {
+            // a gapless timeline only ends when the run does (ONCE mode, last clip)
+            stopTestAndCleanup();
+        } else {
+            advanceToNextClip();
+            startNextClip();
+        }
+    }
+
+    /**
+     * Seek benchmark: plan the current clip's seeks now that its duration is known, and issue the
+     * first after the usual spacing so it starts from steady playback.
+     */
+    private void startSeekBenchmark() {
+        RunConfig rc = this.viewModel.getRunConfig();
+        long durationMs = this.exoPlayer.getDuration();
+        String container = SeekBenchmark.containerOf(
+                UriUtils.fileNameFromURI(this.testClips.get(this.curFileIndex).toString()));
+        this.seekBench = new SeekBenchmark(rc.seekPattern, rc.seeksPerClip,
+                durationMs == C.TIME_UNSET ? -1 : durationMs, this.curFileIndex,
+                this.curDecoder.equals(emptyDecoder) ? null : this.curDecoder, container);
+        if (!this.seekBench.hasNext()) {
+            Log.w(TAG, "Clip " + this.curFileIndex + " has no known duration, it plays through without seeks");
+            this.seekBench.finish();
+            return;
+        }
+        // keyframe-aligned seeks land on the sync sample before the target; the rest decode up to it
+        this.exoPlayer.setSeekParameters(rc.seekPattern == RunConfig.SeekPattern.KEYFRAME
+                ? SeekParameters.PREVIOUS_SYNC : SeekParameters.EXACT);
+        hb.postDelayed(seekStep, SeekBenchmark.SEEK_SPACING_MS);
+    }
+
+    /** Time out the pending seek if there is one, then issue the next or end the clip. */
+    private void nextSeek() {
+        SeekBenchmark seeks = this.seekBench;
+        if (seeks == null || this.exoPlayer == null) {
+            return;
+        }
+        if (seeks.isPending()) {
+            Log.w(TAG, "Seek " + seeks.getIssued() + " of clip " + this.curFileIndex + " showed no frame in "
+                    + SeekBenchmark.SEEK_TIMEOUT_MS + "ms");
+            seeks.timeout();
+        }
+        if (!seeks.hasNext()) {
+            seeks.finish();
+            onClipEnded();
+            return;
+        }
+        long targetMs = seeks.begin(SystemClock.elapsedRealtime(), this.ioStats.snapshot().bytesRead);
+        this.exoPlayer.seekTo(targetMs);
+        // a seek while ended leaves the player ended unless it is told to play again
+        this.exoPlayer.play();
+        hb.postDelayed(seekStep, SeekBenchmark.SEEK_TIMEOUT_MS);
+    }
+
+    /**
+     * Speed headroom: start the search at real time; the first window opens after the settle time.
+     * The clip loops until the search is over, so a clip shorter than a probe at the probed speed
+     * keeps playing through the window and the frame counters carry on across the wrap.
+     */
+    private void startHeadroomSearch() {
+        RunConfig rc = this.viewModel.getRunConfig();
+        this.headroomSearch = new SpeedHeadroomSearch(rc.headroomMaxSpeed, rc.headroomDropPct);
+        this.exoPlayer.setRepeatMode(Player.REPEAT_MODE_ONE);
+        this.exoPlayer.setPlaybackParameters(new PlaybackParameters(this.headroomSearch.getSpeed()));
+        hb.postDelayed(headroomStep, SpeedHeadroomSearch.SETTLE_MS);
+    }
+
+    /** Open a probe window, or close the open one and move to the next speed or the next clip. */
+    private void nextHeadroomStep() {
+        SpeedHeadroomSearch search = this.headroomSearch;
+        if (search == null || this.exoPlayer == null) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (!search.inWindow()) {
+            search.beginWindow(now, renderedFrameCount(), droppedFrameCount(), Process.getElapsedCpuTime());
+            hb.postDelayed(headroomStep, SpeedHeadroomSearch.WINDOW_MS);
+            return;
+        }
+        float probed = search.getSpeed();
+        boolean done = search.endWindow(now, renderedFrameCount(), droppedFrameCount(),
+                Process.getElapsedCpuTime(), currentThermalStatus());
+        SessionSummary.SpeedProbe p = search.getProbes().get(search.getProbes().size() - 1);
+        Log.i(TAG, String.format(Locale.US, "Headroom probe %.2fx: %.2f%% dropped, %s",
+                probed, p.dropPct, p.sustained ? "sustained" : "not sustained"));
+        if (done) {
+            onClipEnded();
+            return;
+        }
+        this.exoPlayer.setPlaybackParameters(new PlaybackParameters(search.getSpeed()));
+        hb.postDelayed(headroomStep, SpeedHeadroomSearch.SETTLE_MS);
+    }
+
+    /** Seek benchmark: the first frame after a seek ends its timing; the next follows after the spacing. */
+    private void onSeekFirstFrame() {
+        SeekBenchmark seeks = this.seekBench;
+        if (seeks == null || !seeks.isPending()) {
+            return;
+        }
+        seeks.complete(SystemClock.elapsedRealtime(), this.ioStats.snapshot().bytesRead);
+        hb.removeCallbacks(seekStep);
+        hb.postDelayed(seekStep, SeekBenchmark.SEEK_SPACING_MS);
     }
 
     // call this when playback ends or in onStop()
@@ -659,13 +1656,386 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
 
     }
 
+    private void stopEnergySampling() {
+        // a screen change after the run must not start sampling again
+        unwatchScreenState();
+        if (this.energy != null) {
+            this.energy.stop();
+        }
+        if (this.clusterUtil != null) {
+            this.clusterUtil.stop();
+        }
+        // plugins outlive the session; later sessions and the settings screen get the defaults back
+        if (this.threadPlacement != ThreadPlacement.DEFAULT) {
+            for (VcatDecoder d : VcatDecoderManager.getInstance().getDecoders()) {
+                d.setThreadPlacement(ThreadPlacement.DEFAULT);
+            }
+            this.threadPlacement = ThreadPlacement.DEFAULT;
+        }
+    }
+
+    /**
+     * Resolve the run config's core placement against this device's clusters and hand it to every
+     * plugin decoder, before any renderer of the session is created.
+     */
+    private void applyThreadPlacement(CpuInfo cpuInfo) {
+        this.threadPlacement = resolveThreadPlacement(this.viewModel.getRunConfig(), cpuInfo);
+        this.placementHonored.clear();
+        for (VcatDecoder d : VcatDecoderManager.getInstance().getDecoders()) {
+            if (d.setThreadPlacement(this.threadPlacement)) {
+                this.placementHonored.add(d.getId());
+            }
+        }
+        Log.i(TAG, "Decoder thread placement " + this.threadPlacement + ", applied by " + this.placementHonored);
+    }
+
+    private static ThreadPlacement resolveThreadPlacement(RunConfig rc, CpuInfo cpuInfo) {
+        int priority = rc.decoderThreadPriority;
+        switch (rc.corePlacement) {
+            case BIG_ONLY:
+                return new ThreadPlacement(ThreadPlacement.Policy.BIG_ONLY, cpuInfo.getBigCpus(), priority);
+            case LITTLE_ONLY:
+                return new ThreadPlacement(ThreadPlacement.Policy.LITTLE_ONLY, cpuInfo.getLittleCpus(), priority);
+            case CPU_SET:
+                int[] cpus = CpuInfo.parseCpuList(rc.placementCpuSet, cpuInfo.cores.size());
+                if (cpus != null) {
+                    return new ThreadPlacement(ThreadPlacement.Policy.CPU_SET, cpus, priority);
+                }
+                Log.w(TAG, "Ignoring CPU set '" + rc.placementCpuSet + "', not a set of this device's CPUs");
+                break;
+            default:
+                break;
+        }
+        return priority != 0
+                ? new ThreadPlacement(ThreadPlacement.Policy.ALL, new int[0], priority) : ThreadPlacement.DEFAULT;
+    }
+
+    /** Leave the clips the user chose to skip at pre-flight out of the run. */
+    private void skipPreflightFlagged(@Nullable int[] skip) {
+        if (skip == null || skip.length == 0) {
+            return;
+        }
+        List<String> skipped = new ArrayList<>();
+        for (int i = this.testClips.size() - 1; i >= 0; i--) {
+            if (PlaylistPreflight.contains(skip, i)) {
+                skipped.add(0, UriUtils.fileNameFromURI(this.testClips.remove(i)));
+            }
+        }
+        Log.i(TAG, "Pre-flight skipped " + skipped);
+        this.sessionSummary.setPreflightSkipped(skipped);
+    }
+
+    /**
+     * Add a finished clip to the performance database. Only plain playback and decode benchmark
+     * clips count: the thread sweep changes the thread count, frame hashing slows the decode, seeks
+     * and speed probes do not play at a steady 1x, display-off power leaves out the panel that the
+     * pre-flight estimates include, and a clip that ran on another decoder than the one configured
+     * would be filed under the wrong one.
+     */
+    private void recordPerformance(TelemetryLogger.VideoInfo vi, long rendered, long dropped, long decoded,
+                                   @Nullable DecodeBenchmarkStats bench, EnergyIntegrator.Snapshot clipEnergy) {
+        PerfDatabase db = this.perfDb;
+        if (db == null || this.threadSweep != null || this.clipIntegrity != null
+                || isSeekBenchmark() || isSpeedHeadroom() || isDisplayOff()
+                || vi.mimeType == null || vi.fps <= 0) {
+            return;
+        }
+        String decoder = PlaylistPreflight.decoderFor(this.viewModel.getRunConfig(), vi.mimeType);
+        // main thread: only what the cache already holds; the pre-flight has loaded the playlist's types
+        DecoderCapabilityCache.Decoder known = DecoderCapabilityCache.getInstance().peek(vi.mimeType, decoder);
+        if (decoder.isEmpty() || (known != null && !known.plugin && !decoder.equalsIgnoreCase(vi.decoderName))) {
+            return;
+        }
+        int width, height;
+        try {
+            width = Integer.parseInt(vi.width);
+            height = Integer.parseInt(vi.height);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        long frames = bench != null ? decoded : rendered + dropped;
+        int bitrate = getVideoBitrate();
+        PerfDatabase.ClipFormat f = new PerfDatabase.ClipFormat(vi.mimeType, width, height, vi.fps,
+                Math.max(0, bitrate), (long) (frames * 1000.0 / vi.fps));
+        // on the charger the battery current is not the device's draw
+        double powerMw = clipEnergy.chargingSamples == 0 ? clipEnergy.averagePowerMw() : -1.0;
+        long now = System.currentTimeMillis();
+
+        if (bench != null) {
+            db.recordBenchmark(decoder, f, bench.getFps(decoded), powerMw, now);
+        } else {
+            long spanMs = SystemClock.elapsedRealtime() - this.clipStartMs - this.clipStartup.getFirstFrameMs();
+            if (spanMs <= 0 || this.clipStartup.getFirstFrameMs() < 0 || frames <= 0) {
+                return;
+            }
+            db.recordPlayback(decoder, f, rendered * 1000.0 / spanMs, (double) dropped / frames, powerMw, now);
+        }
+        db.recordClip(this.testClips.get(this.curFileIndex).toString(), f);
+        db.saveAsync(this.perfDbFile);
+    }
+
+    /** The placement the clip's decoder ran with, or why it had none. */
+    private String clipPlacement(String mime) {
+        VcatDecoder d = pluginForMime(mime);
+        if (d == null) {
+            return "n/a (hardware)";
+        }
+        return this.placementHonored.contains(d.getId()) ? this.threadPlacement.toString() : "unsupported";
+    }
+
+    /** Start the per-clip energy window; call just before the clip is handed to the player. */
+    private void beginClipAccounting() {
+        preloadAround(this.curFileIndex);
+        this.clipIoStart = this.ioStats.snapshot();
+        this.seekPending = false;
+        this.clipStartup.begin(SystemClock.elapsedRealtime());
+        if (!isGapless()) {
+            // a fresh player starts from IDLE; in a gapless playlist the player carries on
+            this.lastPlaybackState = Player.STATE_IDLE;
+            this.clipFrames.reset();
+        } else {
+            this.clipFrames.startClip();
+        }
+        this.clipStartMs = SystemClock.elapsedRealtime();
+        this.clipEnergyStart = (this.energy != null) ? this.energy.snapshot() : EnergyIntegrator.Snapshot.empty;
+        this.clipTransitionMs = -1;
+        this.clipPrewarmed = false;
+        this.telemetryStartedForClip = false;
+        this.clipCpuStartMs = Process.getElapsedCpuTime();
+        this.clusterUtilStart = (this.clusterUtil != null) ? this.clusterUtil.snapshot() : null;
+    }
+
+    private long renderedFrameCount() {
+        return this.clipFrames.rendered();
+    }
+
+    private long droppedFrameCount() {
+        return this.clipFrames.dropped();
+    }
+
+    /** Every output buffer the decoder produced, whether the renderer released it or not. */
+    private long decodedFrameCount() {
+        return this.clipFrames.decoded();
+    }
+
+    /**
+     * CPU time of the vcat process since the clip started, per frame. Software decoders run in
+     * this process; hardware codecs run in the media server and are not counted.
+     */
+    private double cpuMsPerFrame(long frames) {
+        if (frames <= 0) {
+            return -1.0;
+        }
+        return (double) (Process.getElapsedCpuTime() - this.clipCpuStartMs) / frames;
+    }
+
+    /** A latency percentile from {@link IoStats}: the bucket bound, or ">last bound" for the open bucket. */
+    private static String latencyBucketLabel(long us) {
+        if (us == Long.MAX_VALUE) {
+            return ">" + IoStats.LATENCY_BUCKET_US[IoStats.LATENCY_BUCKET_US.length - 1];
+        }
+        return Long.toString(us);
+    }
+
+    private EnergyIntegrator.Snapshot clipEnergy() {
+        return (this.energy != null) ? this.energy.snapshot().since(this.clipEnergyStart) : EnergyIntegrator.Snapshot.empty;
+    }
+
+    /**
+     * Energy columns for the current clip. On end of file the clip is also rolled into the session
+     * summary, which is rewritten so the headline numbers survive an interrupted run.
+     */
+    private Map<TelemetryLogger.Column, String> clipMetrics(TelemetryLogger.VideoInfo vi, boolean endOfFile) {
+        Map<TelemetryLogger.Column, String> m = new EnumMap<>(TelemetryLogger.Column.class);
+
+        long rendered = renderedFrameCount();
+        EnergyIntegrator.Snapshot clipEnergy = clipEnergy();
+
+        m.put(TelemetryLogger.Column.VIDEO_FRAMES_RENDERED, Long.toString(rendered));
+        m.put(TelemetryLogger.Column.ENERGY_MJ, String.format(Locale.US, "%.1f", clipEnergy.energyMj));
+        m.put(TelemetryLogger.Column.POWER_AVG_MW, String.format(Locale.US, "%.1f", clipEnergy.averagePowerMw()));
+        m.put(TelemetryLogger.Column.ENERGY_PER_FRAME_MJ, String.format(Locale.US, "%.4f", clipEnergy.energyPerFrameMj(rendered)));
+        m.put(TelemetryLogger.Column.TEST_TRANSITION_MS, Long.toString(this.clipTransitionMs));
+        boolean preloaded = isCurClipPreloaded();
+        m.put(TelemetryLogger.Column.IO_PRELOADED, Boolean.toString(preloaded));
+        IoStats.Snapshot clipIo = this.ioStats.snapshot().since(this.clipIoStart);
+        m.put(TelemetryLogger.Column.IO_BYTES_READ, Long.toString(clipIo.bytesRead));
+        m.put(TelemetryLogger.Column.IO_READ_CALLS, Long.toString(clipIo.readCalls));
+        m.put(TelemetryLogger.Column.IO_READ_US_P50, latencyBucketLabel(clipIo.latencyPercentileUs(50)));
+        m.put(TelemetryLogger.Column.IO_READ_US_P99, latencyBucketLabel(clipIo.latencyPercentileUs(99)));
+        m.put(TelemetryLogger.Column.IO_READ_MB_S, String.format(Locale.US, "%.1f", clipIo.readMbPerSecond()));
+        m.put(TelemetryLogger.Column.IO_READ_CPU_MS_PER_MB, String.format(Locale.US, "%.3f", clipIo.readCpuMsPerMb()));
+        m.put(TelemetryLogger.Column.IO_UNDERRUNS, Long.toString(clipIo.underruns));
+        m.put(TelemetryLogger.Column.BUFFER_MS, Long.toString(clipIo.lastBufferMs));
+        m.put(TelemetryLogger.Column.BUFFER_AVG_MS, String.format(Locale.US, "%.0f", clipIo.averageBufferMs()));
+        m.put(TelemetryLogger.Column.BUFFER_LOW_FRACTION, String.format(Locale.US, "%.3f", clipIo.lowBufferFraction()));
+        m.put(TelemetryLogger.Column.STARTUP_PREPARE_MS, Long.toString(this.clipStartup.getPrepareMs()));
+        m.put(TelemetryLogger.Column.STARTUP_DECODER_READY_MS, Long.toString(this.clipStartup.getDecoderReadyMs()));
+        m.put(TelemetryLogger.Column.STARTUP_DECODER_INIT_MS, Long.toString(this.clipStartup.getDecoderInitMs()));
+        m.put(TelemetryLogger.Column.STARTUP_FIRST_FRAME_MS, Long.toString(this.clipStartup.getFirstFrameMs()));
+        m.put(TelemetryLogger.Column.STARTUP_MOOV_PARSE_MS, Long.toString(this.clipStartup.getMoovParseMs()));
+        m.put(TelemetryLogger.Column.STARTUP_MOOV_SETUP_MS, Long.toString(this.clipStartup.getMoovSetupMs()));
+        if (this.clipStartup.getMoovParseMs() >= 0) {
+            m.put(TelemetryLogger.Column.STARTUP_MOOV_CACHED, Boolean.toString(this.clipStartup.isMoovCached()));
+        }
+
+        DecodeBenchmarkStats bench = this.clipBenchmark;
+        long decoded = decodedFrameCount();
+        double cpuPerFrame = cpuMsPerFrame(bench != null ? decoded : rendered);
+        m.put(TelemetryLogger.Column.CPU_MS_PER_FRAME, String.format(Locale.US, "%.3f", cpuPerFrame));
+        if (bench != null) {
+            m.put(TelemetryLogger.Column.BENCH_FRAMES_DECODED, Long.toString(decoded));
+            m.put(TelemetryLogger.Column.BENCH_DECODED_FPS, String.format(Locale.US, "%.2f", bench.getFps(decoded)));
+            m.put(TelemetryLogger.Column.BENCH_FRAME_MS_P50, String.format(Locale.US, "%.3f", bench.percentileMs(50)));
+            m.put(TelemetryLogger.Column.BENCH_FRAME_MS_P90, String.format(Locale.US, "%.3f", bench.percentileMs(90)));
+            m.put(TelemetryLogger.Column.BENCH_FRAME_MS_P99, String.format(Locale.US, "%.3f", bench.percentileMs(99)));
+        }
+        ThreadSweep sweep = this.threadSweep;
+        if (sweep != null) {
+            m.put(TelemetryLogger.Column.SWEEP_THREADS, Integer.toString(sweep.getThreads()));
+        }
+        SeekBenchmark seeks = this.seekBench;
+        if (seeks != null) {
+            SessionSummary.SeekLatency sl = seeks.result;
+            m.put(TelemetryLogger.Column.SEEK_PATTERN, seeks.pattern.name());
+            m.put(TelemetryLogger.Column.SEEK_COUNT, Long.toString(sl.seeks));
+            m.put(TelemetryLogger.Column.SEEK_TIMEOUTS, Long.toString(sl.timeouts));
+            m.put(TelemetryLogger.Column.SEEK_MS_P50, Long.toString(sl.msP50));
+            m.put(TelemetryLogger.Column.SEEK_MS_P90, Long.toString(sl.msP90));
+            m.put(TelemetryLogger.Column.SEEK_MS_P99, Long.toString(sl.msP99));
+            m.put(TelemetryLogger.Column.SEEK_MS_MAX, Long.toString(sl.msMax));
+            m.put(TelemetryLogger.Column.SEEK_BYTES_MEAN, Long.toString(sl.meanBytesRead));
+        }
+        SpeedHeadroomSearch search = this.headroomSearch;
+        if (search != null) {
+            m.put(TelemetryLogger.Column.HEADROOM_SPEED, String.format(Locale.US, "%.2f", search.getSpeed()));
+            m.put(TelemetryLogger.Column.HEADROOM_PROBES, Integer.toString(search.getProbes().size()));
+            m.put(TelemetryLogger.Column.HEADROOM_MAX_SPEED, String.format(Locale.US, "%.2f", search.getHeadroom()));
+        }
+        String placement = clipPlacement(vi.mimeType);
+        m.put(TelemetryLogger.Column.CPU_PLACEMENT, placement);
+        double[] clusterUtil = null;
+        if (this.clusterUtil != null && this.clusterUtilStart != null) {
+            clusterUtil = this.clusterUtil.utilization(this.clusterUtilStart, this.clusterUtil.snapshot());
+            m.put(TelemetryLogger.Column.CPU_CLUSTER_UTIL, this.clusterUtil.format(clusterUtil));
+        }
+        FrameIntegrity integrity = this.clipIntegrity;
+        if (integrity != null) {
+            // mid-clip rows cannot yet tell a frame that never came out from one still to come
+            m.put(TelemetryLogger.Column.INTEGRITY_RESULT, endOfFile ? integrity.getResult(true).label : "");
+            m.put(TelemetryLogger.Column.INTEGRITY_FRAMES_HASHED, Long.toString(integrity.getFramesHashed()));
+            m.put(TelemetryLogger.Column.INTEGRITY_MISMATCHES, Long.toString(integrity.getMismatches()));
+            m.put(TelemetryLogger.Column.INTEGRITY_HASH_MS, String.format(Locale.US, "%.3f", integrity.getHashingMs()));
+            m.put(TelemetryLogger.Column.INTEGRITY_HASH_MS_PER_FRAME,
+                    String.format(Locale.US, "%.4f", integrity.getHashingMsPerFrame()));
+        }
+
+        if (endOfFile && this.sessionSummary != null) {
+            SessionSummary.ClipSummary clip = new SessionSummary.ClipSummary(vi.fileName, vi.decoderName, vi.mimeType,
+                    SystemClock.elapsedRealtime() - this.clipStartMs,
+                    rendered, droppedFrameCount(), clipEnergy);
+            if (this.clipTransitionMs >= 0) {
+                clip.transitionMs = this.clipTransitionMs;
+            }
+            clip.prewarmed = this.clipPrewarmed;
+            if (this.gaplessDecoderReused != null && this.curFileIndex < this.gaplessDecoderReused.length) {
+                clip.decoderReused = this.gaplessDecoderReused[this.curFileIndex];
+            }
+            if (cpuPerFrame >= 0) {
+                clip.cpuMsPerFrame = cpuPerFrame;
+            }
+            clip.ioMode = this.viewModel.getRunConfig().ioMode.name();
+            clip.preloaded = preloaded;
+            clip.setIo(clipIo);
+            clip.setStartup(this.clipStartup);
+            this.sessionSummary.addStartup(vi.decoderName, this.clipStartup);
+            if (bench != null) {
+                clip.framesDecoded = decoded;
+                clip.decodedFps = bench.getFps(decoded);
+                clip.frameMsP50 = bench.percentileMs(50);
+                clip.frameMsP90 = bench.percentileMs(90);
+                clip.frameMsP99 = bench.percentileMs(99);
+            }
+            if (integrity != null) {
+                clip.setIntegrity(integrity, true);
+            }
+            clip.threadPlacement = placement;
+            if (clusterUtil != null) {
+                clip.clusterUtil = this.clusterUtil.toMap(clusterUtil);
+            }
+            if (sweep != null && bench != null) {
+                clip.threads = sweep.getThreads();
+                this.sessionSummary.addThreadStep(vi.decoderName, vi.mimeType, sweep.getThreads(), decoded,
+                        bench.getOutputSpanMs(), droppedFrameCount(),
+                        Process.getElapsedCpuTime() - this.clipCpuStartMs, clipEnergy.energyMj);
+            }
+            if (seeks != null && seeks.result.seeks > 0) {
+                this.sessionSummary.addSeekLatency(seeks.result);
+            }
+            if (search != null) {
+                this.sessionSummary.addSpeedHeadroom(search.toSummary(vi.fileName, vi.decoderName, vi.mimeType));
+            }
+            recordPerformance(vi, rendered, droppedFrameCount(), decoded, bench, clipEnergy);
+            this.sessionSummary.addClip(clip, this.energy.snapshot().since(this.sessionEnergyStart));
+            this.tl.writeSessionSummary(this.sessionSummary);
+        }
+        return m;
+    }
+
     /**
-     * Plugin-SPI version reported by the decoder plugin registered for {@code mime}, so the
+     * Plugin-SPI version the decoder plugin registered for {@code mime} was built against, so the
      * overlay can show whether the active decoder is on the new {@code VcatDecoder} SPI
-     * ("0.1.0") or the legacy {@code VcatDecoderPlugin} SPI ("0.1"). Hardware-only codecs
-     * (no registered plugin) show "n/a".
+     * ("0.3.0") or the legacy {@code VcatDecoderPlugin} SPI ("0.0.1"). Hardware-only codecs
+     * (no registered plugin) show "n/a", plugins that declare no version "unknown".
      */
     private String pluginApiForMime(String mime) {
+        com.roncatech.vcat.decoder_plugin_api.VcatDecoder d = pluginForMime(mime);
+        if (d == null) {
+            return "n/a (hardware)";
+        }
+        String version = com.roncatech.vcat.decoder_plugin.VcatDecoderManager.getInstance().getPluginApiVersion(d);
+        return version != null ? version : "unknown";
+    }
+
+    /**
+     * Compare the reuse a plugin renderer reported with what its decoder declares through
+     * {@code VcatDecoder#canReuseDecoder}. A renderer that discards a decoder its plugin says it
+     * could keep does not forward the SPI, and every gapless boundary pays a full decoder init.
+     */
+    private void checkPluginDecoderReuse(DecoderReuseEvaluation reuse) {
+        com.roncatech.vcat.decoder_plugin_api.VcatDecoder d = pluginForMime(reuse.newFormat.sampleMimeType);
+        if (d == null) {
+            return;
+        }
+        // plugins built against an SPI without canReuseDecoder always get the discarding default
+        String version = com.roncatech.vcat.decoder_plugin.VcatDecoderManager.getInstance().getPluginApiVersion(d);
+        if (version == null || !isPluginApiAtLeast(version, 0, 3)) {
+            return;
+        }
+        DecoderReuseEvaluation declared = d.canReuseDecoder(reuse.decoderName, reuse.oldFormat, reuse.newFormat);
+        if (declared.result != DecoderReuseEvaluation.REUSE_RESULT_NO
+                && reuse.result == DecoderReuseEvaluation.REUSE_RESULT_NO) {
+            Log.w(TAG, "Plugin " + d.getId() + " can reuse " + reuse.decoderName
+                    + " for this format change, but its renderer discarded it (reasons="
+                    + reuse.discardReasons + ")");
+        }
+    }
+
+    /** Whether a "major.minor[.patch]" plugin-API version is at least {@code major.minor}. */
+    static boolean isPluginApiAtLeast(String version, int major, int minor) {
+        String[] parts = version.split("\\.");
+        try {
+            int vMajor = Integer.parseInt(parts[0]);
+            int vMinor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            return vMajor != major ? vMajor > major : vMinor >= minor;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /** The plugin that decodes {@code mime} in this run, or null if it goes to MediaCodec. */
+    @Nullable
+    private com.roncatech.vcat.decoder_plugin_api.VcatDecoder pluginForMime(String mime) {
         com.roncatech.vcat.decoder_plugin.VcatDecoderManager mgr =
                 com.roncatech.vcat.decoder_plugin.VcatDecoderManager.getInstance();
         com.roncatech.vcat.decoder_plugin_api.VcatDecoder d = null;
@@ -682,7 +2052,7 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
                     mgr.getDecodersForMimeType(mime);
             if (!ds.isEmpty()) d = ds.get(0);
         }
-        return d == null ? "n/a (hardware)" : d.getPluginApiVersion();
+        return d;
     }
 
     private void logTelemetry(boolean endOfFile) {
@@ -692,7 +2062,8 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
         int frameDrops = this.fd.frameDrops;
         this.fd.reset();
 
-        this.tl.logTelemetryRow(this, this.viewModel.curTestDetails.getStartTimeAsEpoch(), vi, frameDrops, false, endOfFile);
+        this.tl.logTelemetryRow(this, this.viewModel.curTestDetails.getStartTimeAsEpoch(), vi, frameDrops, false, endOfFile,
+                clipMetrics(vi, endOfFile));
 
         if(!this.viewModel.curTestDetails.getCurrentTestVideo().getFileName().equals(vi.fileName)){
             // update test details
@@ -716,6 +2087,7 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
                             "Decoder: %s\n" +
                             "Plugin API: %s\n" +
                             "Framerate: %.2f fps\n"+
+                            "Power: %.0f mW (%.3f mJ/frame)\n" +
                             "Display: %d%%\n" +
                             "Run Mode: %s\n" +
                             "Battery Level: %d%%\n"+
@@ -729,11 +2101,33 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
                     vi.decoderName,
                     pluginApiForMime(vi.mimeType),
                     vi.fps,
+                    clipEnergy().averagePowerMw(),
+                    clipEnergy().energyPerFrameMj(renderedFrameCount()),
                     this.viewModel.getRunConfig().screenBrightness,
                     this.viewModel.getRunConfig().runModeStr(),
                     (int) BatteryInfo.getBatteryLevel(this),
                     this.viewModel.curTestDetails.getElapsedSinceStartHms()
             ));
+            DecodeBenchmarkStats bench = this.clipBenchmark;
+            if (bench != null) {
+                this.videoOverlay.append(String.format(Locale.US,
+                        "\nDecode: %.1f fps (p50 %.2f / p99 %.2f ms)",
+                        bench.getFps(decodedFrameCount()), bench.percentileMs(50), bench.percentileMs(99)));
+            }
+            ThreadSweep sweep = this.threadSweep;
+            if (sweep != null) {
+                this.videoOverlay.append(String.format(Locale.US, "\nSweep: %d threads", sweep.getThreads()));
+            }
+            SeekBenchmark seeks = this.seekBench;
+            if (seeks != null) {
+                this.videoOverlay.append(String.format(Locale.US, "\nSeeks: %d/%d (p50 %d / p99 %d ms)",
+                        seeks.getIssued(), seeks.getCount(), seeks.result.msP50, seeks.result.msP99));
+            }
+            SpeedHeadroomSearch search = this.headroomSearch;
+            if (search != null) {
+                this.videoOverlay.append(String.format(Locale.US, "\nHeadroom: probing %.2fx, sustained %.2fx",
+                        search.getSpeed(), search.getHeadroom()));
+            }
         }
     }
 
@@ -771,8 +2165,18 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
         if(this.exoPlayer == null) {
             return TelemetryLogger.VideoInfo.empty;
         }
-        // Grab the video track’s Format from ExoPlayer
-        Format fmt = exoPlayer.getVideoFormat();
+        // Grab the video track’s Format from ExoPlayer (in gapless mode, the one recorded for this clip)
+        Format fmt = null;
+        String decoderName = this.curDecoder;
+        if (this.gaplessFormats != null && this.curFileIndex < this.gaplessFormats.length) {
+            fmt = this.gaplessFormats[this.curFileIndex];
+            if (this.gaplessDecoders[this.curFileIndex] != null) {
+                decoderName = this.gaplessDecoders[this.curFileIndex];
+            }
+        }
+        if (fmt == null) {
+            fmt = exoPlayer.getVideoFormat();
+        }
         if (fmt == null) {
             // No video track info available yet
             return TelemetryLogger.VideoInfo.empty;
@@ -801,7 +2205,7 @@ public class FullScreenPlayerActivity extends AppCompatActivity implements Playe
                 /* mimeType = */ mime,
                 /* bitrate  = */ bitrate,
                 /* codec    = */ codec,
-                /* decoder  = */ this.curDecoder,    // or whatever decoder name you track
+                /* decoder  = */ decoderName,        // or whatever decoder name you track
                 /* fps      = */ fps
         );
 
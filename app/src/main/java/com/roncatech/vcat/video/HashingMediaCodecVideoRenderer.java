@@ -0,0 +1,163 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import android.content.Context;
+import android.media.MediaCodecInfo.CodecCapabilities;
+import android.media.MediaCrypto;
+import android.media.MediaFormat;
+import android.os.Handler;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.ExoPlaybackException;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.mediacodec.MediaCodecAdapter;
+import com.google.android.exoplayer2.mediacodec.MediaCodecInfo;
+import com.google.android.exoplayer2.mediacodec.MediaCodecSelector;
+import com.google.android.exoplayer2.video.MediaCodecVideoRenderer;
+import com.google.android.exoplayer2.video.VideoRendererEventListener;
+import com.roncatech.vcat.decoder_plugin_api.FrameHashSink;
+
+import java.nio.ByteBuffer;
+
+/**
+ * MediaCodec video renderer for benchmark-integrity mode. The codec is configured without an output
+ * surface so decoded frames come back as ByteBuffers, which are hashed ({@link YuvFrameHasher})
+ * before the normal timing, drop and release logic runs on them. Nothing reaches the screen, but
+ * rendered and dropped counts still follow the playback clock.
+ *
+ * <p>The codec never holds a surface, so a surface change reinitializes it rather than calling
+ * {@code setOutputSurface}, which a surfaceless codec rejects.
+ */
+final class HashingMediaCodecVideoRenderer extends MediaCodecVideoRenderer {
+    private static final String TAG = "HashingMediaCodecRenderer";
+
+    private final int hashEveryNthFrame;
+    private final FrameHashSink sink;
+    private final YuvFrameHasher hasher = new YuvFrameHasher();
+
+    private long frameIndex = 0;
+    private int lastBufferIndex = -1;
+    private long lastBufferTimeUs = Long.MIN_VALUE;
+
+    HashingMediaCodecVideoRenderer(Context context, MediaCodecSelector selector, long allowedJoiningTimeMs,
+                                   boolean enableDecoderFallback, @Nullable Handler eventHandler,
+                                   @Nullable VideoRendererEventListener eventListener,
+                                   int maxDroppedFramesToNotify, int hashEveryNthFrame,
+                                   @NonNull FrameHashSink sink) {
+        super(context, selector, allowedJoiningTimeMs, enableDecoderFallback, eventHandler, eventListener,
+                maxDroppedFramesToNotify);
+        this.hashEveryNthFrame = Math.max(1, hashEveryNthFrame);
+        this.sink = sink;
+    }
+
+    @NonNull
+    @Override
+    public String getName() {
+        return TAG;
+    }
+
+    @NonNull
+    @Override
+    protected MediaCodecAdapter.Configuration getMediaCodecConfiguration(
+            @NonNull MediaCodecInfo codecInfo, @NonNull Format format, @Nullable MediaCrypto crypto,
+            float codecOperatingRate) {
+        MediaCodecAdapter.Configuration c =
+                super.getMediaCodecConfiguration(codecInfo, format, crypto, codecOperatingRate);
+        MediaFormat mediaFormat = c.mediaFormat;
+        // planar or semi-planar YUV in a layout the format describes, rather than a vendor tiling
+        mediaFormat.setInteger(MediaFormat.KEY_COLOR_FORMAT, CodecCapabilities.COLOR_FormatYUV420Flexible);
+        return MediaCodecAdapter.Configuration.createForVideoDecoding(
+                c.codecInfo, mediaFormat, c.format, /* surface= */ null, c.crypto);
+    }
+
+    @Override
+    protected void onOutputFormatChanged(@NonNull Format format, @Nullable MediaFormat mediaFormat) {
+        super.onOutputFormatChanged(format, mediaFormat);
+        if (mediaFormat == null) {
+            return;
+        }
+        int colorFormat = getInt(mediaFormat, MediaFormat.KEY_COLOR_FORMAT, -1);
+        int width = getInt(mediaFormat, MediaFormat.KEY_WIDTH, format.width);
+        int height = getInt(mediaFormat, MediaFormat.KEY_HEIGHT, format.height);
+        int cropLeft = getInt(mediaFormat, "crop-left", 0);
+        int cropTop = getInt(mediaFormat, "crop-top", 0);
+        if (mediaFormat.containsKey("crop-right") && mediaFormat.containsKey("crop-bottom")) {
+            width = mediaFormat.getInteger("crop-right") - cropLeft + 1;
+            height = mediaFormat.getInteger("crop-bottom") - cropTop + 1;
+        }
+        int stride = getInt(mediaFormat, MediaFormat.KEY_STRIDE, width);
+        int sliceHeight = getInt(mediaFormat, MediaFormat.KEY_SLICE_HEIGHT, height);
+        if (!hasher.setFormat(colorFormat, width, height, stride, sliceHeight, cropLeft, cropTop)) {
+            Log.w(TAG, "Cannot hash color format " + colorFormat + ", frames will not be hashed");
+        }
+    }
+
+    @Override
+    protected boolean codecNeedsSetOutputSurfaceWorkaround(@NonNull String name) {
+        return true;
+    }
+
+    @Override
+    protected boolean processOutputBuffer(long positionUs, long elapsedRealtimeUs,
+                                          @Nullable MediaCodecAdapter codec, @Nullable ByteBuffer buffer,
+                                          int bufferIndex, int bufferFlags, int sampleCount,
+                                          long bufferPresentationTimeUs, boolean isDecodeOnly,
+                                          boolean isLastBuffer, @NonNull Format format)
+            throws ExoPlaybackException {
+        // a buffer that is not released yet is offered again on the next render call
+        boolean newBuffer = bufferIndex != lastBufferIndex || bufferPresentationTimeUs != lastBufferTimeUs;
+        if (newBuffer && !isDecodeOnly && buffer != null) {
+            lastBufferIndex = bufferIndex;
+            lastBufferTimeUs = bufferPresentationTimeUs;
+            if (frameIndex % hashEveryNthFrame == 0 && hasher.hasFormat()) {
+                long startNs = System.nanoTime();
+                long crc = hasher.hash(buffer);
+                long hashingNs = System.nanoTime() - startNs;
+                if (crc >= 0) {
+                    sink.onFrameHashed(frameIndex, bufferPresentationTimeUs, crc, hashingNs);
+                }
+            }
+            frameIndex++;
+        }
+        return super.processOutputBuffer(positionUs, elapsedRealtimeUs, codec, buffer, bufferIndex, bufferFlags,
+                sampleCount, bufferPresentationTimeUs, isDecodeOnly, isLastBuffer, format);
+    }
+
+    private static int getInt(MediaFormat f, String key, int fallback) {
+        return f.containsKey(key) ? f.getInteger(key) : fallback;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import android.net.Uri;
+import android.os.Debug;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.roncatech.vcat.telemetry.IoStats;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Feeds {@link IoStats} from a player's data sources. Transfers and bytes come from a
+ * {@link TransferListener} registered on the wrapped source, so they are counted whichever inner
+ * source (mapped, preloaded or platform) serves the uri; the wrapper itself only times each read
+ * call, in wall time and in CPU time of the loading thread.
+ */
+final class InstrumentedDataSource implements DataSource {
+
+    static final class Factory implements DataSource.Factory {
+        private final DataSource.Factory upstream;
+        private final IoStats stats;
+
+        Factory(@NonNull DataSource.Factory upstream, @NonNull IoStats stats) {
+            this.upstream = upstream;
+            this.stats = stats;
+        }
+
+        @NonNull
+        @Override
+        public DataSource createDataSource() {
+            return new InstrumentedDataSource(upstream.createDataSource(), stats);
+        }
+    }
+
+    /** Counts what the wrapped source reports; one per source, the callbacks come in order. */
+    private static final class StatsListener implements TransferListener {
+        private final IoStats stats;
+
+        StatsListener(IoStats stats) {
+            this.stats = stats;
+        }
+
+        @Override
+        public void onTransferInitializing(@NonNull DataSource source, @NonNull DataSpec dataSpec, boolean isNetwork) {}
+
+        @Override
+        public void onTransferStart(@NonNull DataSource source, @NonNull DataSpec dataSpec, boolean isNetwork) {
+            stats.onTransferStart();
+        }
+
+        @Override
+        public void onBytesTransferred(@NonNull DataSource source, @NonNull DataSpec dataSpec, boolean isNetwork,
+                                       int bytesTransferred) {
+            stats.onBytesTransferred(bytesTransferred);
+        }
+
+        @Override
+        public void onTransferEnd(@NonNull DataSource source, @NonNull DataSpec dataSpec, boolean isNetwork) {}
+    }
+
+    private final DataSource upstream;
+    private final IoStats stats;
+
+    private InstrumentedDataSource(DataSource upstream, IoStats stats) {
+        this.upstream = upstream;
+        this.stats = stats;
+        upstream.addTransferListener(new StatsListener(stats));
+    }
+
+    @Override
+    public void addTransferListener(@NonNull TransferListener transferListener) {
+        upstream.addTransferListener(transferListener);
+    }
+
+    @Override
+    public long open(@NonNull DataSpec dataSpec) throws IOException {
+        return upstream.open(dataSpec);
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+        long startNs = System.nanoTime();
+        long startCpuNs = Debug.threadCpuTimeNanos();
+        int read = upstream.read(buffer, offset, length);
+        long cpuNs = startCpuNs >= 0 ? Debug.threadCpuTimeNanos() - startCpuNs : 0;
+        stats.onRead(System.nanoTime() - startNs, cpuNs);
+        return read;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return upstream.getUri();
+    }
+
+    @NonNull
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+        return upstream.getResponseHeaders();
+    }
+
+    @Override
+    public void close() throws IOException {
+        upstream.close();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.exoplayer2.LoadControl;
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.ExoTrackSelection;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.roncatech.vcat.telemetry.IoStats;
+
+/**
+ * A {@link LoadControl} that reports the buffered duration it is asked about to {@link IoStats}, at
+ * most every {@link #SAMPLE_INTERVAL_MS}, and otherwise defers to the wrapped control. The player
+ * consults it on the playback thread every few milliseconds while loading.
+ */
+final class InstrumentedLoadControl implements LoadControl {
+    private static final long SAMPLE_INTERVAL_MS = 100;
+
+    private final LoadControl delegate;
+    private final IoStats stats;
+    private long lastSampleMs = Long.MIN_VALUE;
+
+    InstrumentedLoadControl(@NonNull LoadControl delegate, @NonNull IoStats stats) {
+        this.delegate = delegate;
+        this.stats = stats;
+    }
+
+    private void sample(long bufferedDurationUs) {
+        long now = SystemClock.elapsedRealtime();
+        if (now - lastSampleMs >= SAMPLE_INTERVAL_MS) {
+            lastSampleMs = now;
+            stats.onBufferLevel(bufferedDurationUs / 1000);
+        }
+    }
+
+    @Override
+    public void onPrepared() {
+        delegate.onPrepared();
+    }
+
+    @Override
+    public void onTracksSelected(@NonNull Renderer[] renderers, @NonNull TrackGroupArray trackGroups,
+                                 @NonNull ExoTrackSelection[] trackSelections) {
+        delegate.onTracksSelected(renderers, trackGroups, trackSelections);
+    }
+
+    @Override
+    public void onStopped() {
+        delegate.onStopped();
+    }
+
+    @Override
+    public void onReleased() {
+        delegate.onReleased();
+    }
+
+    @NonNull
+    @Override
+    public Allocator getAllocator() {
+        return delegate.getAllocator();
+    }
+
+    @Override
+    public long getBackBufferDurationUs() {
+        return delegate.getBackBufferDurationUs();
+    }
+
+    @Override
+    public boolean retainBackBufferFromKeyframe() {
+        return delegate.retainBackBufferFromKeyframe();
+    }
+
+    @Override
+    public boolean shouldContinueLoading(long playbackPositionUs, long bufferedDurationUs, float playbackSpeed) {
+        sample(bufferedDurationUs);
+        return delegate.shouldContinueLoading(playbackPositionUs, bufferedDurationUs, playbackSpeed);
+    }
+
+    @Override
+    public boolean shouldStartPlayback(long bufferedDurationUs, float playbackSpeed, boolean rebuffering,
+                                       long targetLiveOffsetUs) {
+        sample(bufferedDurationUs);
+        return delegate.shouldStartPlayback(bufferedDurationUs, playbackSpeed, rebuffering, targetLiveOffsetUs);
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.upstream.BaseDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceException;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultDataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serves local vectors (file:// and SAF content:// uris) from a memory mapping of the file instead of
+ * read() calls into a heap buffer: each read is one copy out of the page cache, with no syscall once
+ * the pages are resident. The file is mapped in windows of {@link #WINDOW_SIZE} aligned to multiples of
+ * it. ExoPlayer reopens its source for every load and seek, so the windows are kept by the factory
+ * and reused by each reopen of the same file rather than mapped again; Android has no explicit
+ * unmap, and a fresh mapping per open would leave each one to the collector.
+ *
+ * <p>Anything that cannot be mapped (network uris, providers that hand back a pipe or socket rather
+ * than a seekable file) is opened through a {@link DefaultDataSource} instead, so the factory can
+ * be used for every media item. Read throughput is logged when each mapped source is closed.
+ */
+final class MappedFileDataSource extends BaseDataSource {
+    private static final String TAG = "MappedFileDataSource";
+
+    /** Largest region mapped at once; 4K vectors are often bigger than is wise to map whole. */
+    static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * Creates a {@link MappedFileDataSource} per player loader. The sources share the factory's
+     * {@link MappedFile}, so use one factory per player.
+     */
+    static final class Factory implements DataSource.Factory {
+        private final Context context;
+        private final DefaultDataSource.Factory fallback;
+        @Nullable private MappedFile current;
+
+        Factory(@NonNull Context context) {
+            this.context = context.getApplicationContext();
+            this.fallback = new DefaultDataSource.Factory(this.context);
+        }
+
+        @NonNull
+        @Override
+        public DataSource createDataSource() {
+            return new MappedFileDataSource(context, fallback.createDataSource(), this);
+        }
+
+        /**
+         * The mappings of {@code uri}, reused if it was the last file opened and has not changed size.
+         * Opening another file drops the previous one's windows; a player reads one clip at a time.
+         */
+        synchronized MappedFile acquire(Uri uri, long fileSize) {
+            MappedFile file = current;
+            if (file == null || !file.uri.equals(uri) || file.size != fileSize) {
+                file = new MappedFile(uri, fileSize);
+                current = file;
+            }
+            return file;
+        }
+    }
+
+    /** The windows mapped so far for one file, each mapped once and kept for the factory's file. */
+    static final class MappedFile {
+        final Uri uri;
+        final long size;
+        private final MappedByteBuffer[] windows;
+
+        MappedFile(Uri uri, long size) {
+            this.uri = uri;
+            this.size = size;
+            this.windows = new MappedByteBuffer[(int) ((size + WINDOW_SIZE - 1) / WINDOW_SIZE)];
+        }
+
+        /**
+         * The window holding {@code position}, mapped through {@code channel} on first use. A mapping
+         * outlives the channel it came from, so later opens reuse it with their own descriptor.
+         */
+        synchronized MappedByteBuffer window(long position, FileChannel channel) throws IOException {
+            int index = (int) (position / WINDOW_SIZE);
+            MappedByteBuffer mapped = windows[index];
+            if (mapped == null) {
+                long start = index * WINDOW_SIZE;
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+                windows[index] = mapped;
+            }
+            return mapped;
+        }
+    }
+
+    private final Context context;
+    private final DataSource fallback;
+    private final Factory factory;
+
+    @Nullable private Uri uri;
+    @Nullable private ParcelFileDescriptor descriptor;
+    @Nullable private FileInputStream stream;
+    @Nullable private FileChannel channel;
+    @Nullable private MappedFile file;
+    /** This source's view of the current shared window, with its own position. */
+    @Nullable private ByteBuffer window;
+    private boolean usingFallback;
+    private boolean opened;
+
+    private long fileSize;
+    private long windowStart;
+    private long position;
+    private long bytesRemaining;
+
+    private long bytesRead;
+    private long readNs;
+
+    private MappedFileDataSource(Context context, DataSource fallback, Factory factory) {
+        super(/* isNetwork= */ false);
+        this.context = context;
+        this.fallback = fallback;
+        this.factory = factory;
+    }
+
+    @Override
+    public void addTransferListener(@NonNull TransferListener transferListener) {
+        super.addTransferListener(transferListener);
+        fallback.addTransferListener(transferListener);
+    }
+
+    @Override
+    public long open(@NonNull DataSpec dataSpec) throws IOException {
+        uri = dataSpec.uri;
+        if (!openMapped(dataSpec.uri)) {
+            usingFallback = true;
+            return fallback.open(dataSpec);
+        }
+
+        transferInitializing(dataSpec);
+        if (dataSpec.position > fileSize) {
+            throw new DataSourceException(PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE);
+        }
+        position = dataSpec.position;
+        bytesRemaining = dataSpec.length != C.LENGTH_UNSET
+                ? Math.min(dataSpec.length, fileSize - position)
+                : fileSize - position;
+        bytesRead = 0;
+        readNs = 0;
+        opened = true;
+        transferStarted(dataSpec);
+        return bytesRemaining;
+    }
+
+    /**
+     * Opens {@code uri} as a seekable file channel, or returns false if it is not something that can
+     * be mapped, leaving nothing open.
+     */
+    private boolean openMapped(Uri uri) throws IOException {
+        String scheme = uri.getScheme();
+        try {
+            if (ContentResolver.SCHEME_CONTENT.equals(scheme)) {
+                descriptor = context.getContentResolver().openFileDescriptor(uri, "r");
+            } else if (scheme == null || ContentResolver.SCHEME_FILE.equals(scheme)) {
+                String path = uri.getPath();
+                if (path == null) {
+                    return false;
+                }
+                descriptor = ParcelFileDescriptor.open(new File(path), ParcelFileDescriptor.MODE_READ_ONLY);
+            } else {
+                return false;
+            }
+        } catch (FileNotFoundException | SecurityException e) {
+            throw new DataSourceException(e, PlaybackException.ERROR_CODE_IO_FILE_NOT_FOUND);
+        }
+        if (descriptor == null) {
+            return false;
+        }
+
+        // pipes and sockets report no size; only a regular file can be mapped
+        if (descriptor.getStatSize() < 0) {
+            Log.i(TAG, "Not a seekable file, reading through the default source: " + uri);
+            closeQuietly();
+            return false;
+        }
+        stream = new FileInputStream(descriptor.getFileDescriptor());
+        channel = stream.getChannel();
+        try {
+            fileSize = channel.size();
+        } catch (IOException e) {
+            Log.i(TAG, "Cannot size " + uri + ", reading through the default source", e);
+            closeQuietly();
+            return false;
+        }
+        window = null;
+        file = factory.acquire(uri, fileSize);
+        return true;
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+        if (usingFallback) {
+            return fallback.read(buffer, offset, length);
+        }
+        if (length == 0) {
+            return 0;
+        }
+        if (bytesRemaining == 0) {
+            return C.RESULT_END_OF_INPUT;
+        }
+
+        long startNs = SystemClock.elapsedRealtimeNanos();
+        ByteBuffer mapped = windowFor(position);
+        int windowOffset = (int) (position - windowStart);
+        int toRead = (int) Math.min(Math.min(length, bytesRemaining), mapped.capacity() - windowOffset);
+        mapped.position(windowOffset);
+        mapped.get(buffer, offset, toRead);
+        readNs += SystemClock.elapsedRealtimeNanos() - startNs;
+
+        position += toRead;
+        bytesRemaining -= toRead;
+        bytesRead += toRead;
+        bytesTransferred(toRead);
+        return toRead;
+    }
+
+    /** The window covering {@code position}, from the file's shared mappings if it is not the current one. */
+    private ByteBuffer windowFor(long position) throws IOException {
+        ByteBuffer mapped = window;
+        if (mapped != null && position >= windowStart && position < windowStart + mapped.capacity()) {
+            return mapped;
+        }
+        MappedFile f = file;
+        FileChannel ch = channel;
+        if (f == null || ch == null) {
+            throw new DataSourceException(PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+        }
+        try {
+            mapped = f.window(position, ch).duplicate();
+        } catch (IOException e) {
+            throw new DataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+        }
+        window = mapped;
+        windowStart = position - position % WINDOW_SIZE;
+        return mapped;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return usingFallback ? fallback.getUri() : uri;
+    }
+
+    @NonNull
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+        return usingFallback ? fallback.getResponseHeaders() : Collections.emptyMap();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (usingFallback) {
+            usingFallback = false;
+            uri = null;
+            fallback.close();
+            return;
+        }
+        if (opened && bytesRead > 0) {
+            double seconds = readNs / 1e9;
+            Log.i(TAG, String.format(Locale.US, "%s: %d bytes in %.1f ms of read time (%.0f MB/s)",
+                    uri, bytesRead, readNs / 1e6, seconds > 0 ? bytesRead / 1e6 / seconds : 0.0));
+        }
+        uri = null;
+        closeQuietly();
+        if (opened) {
+            opened = false;
+            transferEnded();
+        }
+    }
+
+    private void closeQuietly() {
+        // the windows stay with the factory's MappedFile for the next open of this file
+        window = null;
+        file = null;
+        channel = null;
+        try {
+            if (stream != null) {
+                stream.close();
+            }
+            if (descriptor != null) {
+                descriptor.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Error closing " + uri, e);
+        } finally {
+            stream = null;
+            descriptor = null;
+        }
+    }
+}
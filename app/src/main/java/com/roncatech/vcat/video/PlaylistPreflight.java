@@ -0,0 +1,480 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import android.content.Context;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.documentfile.provider.DocumentFile;
+
+import com.roncatech.vcat.models.RunConfig;
+import com.roncatech.vcat.telemetry.PerfDatabase;
+import com.roncatech.vcat.tools.BatteryInfo;
+import com.roncatech.vcat.tools.CpuInfo;
+import com.roncatech.vcat.tools.DecoderCapabilityCache;
+import com.roncatech.vcat.tools.UriUtils;
+import com.roncatech.vcat.tools.XspfParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Before a run: which clips of the playlist the configured decoders will play in real time, from
+ * {@link PerfDatabase}, and how long the run and how much battery it will take. Clips that are too
+ * slow or beyond what the decoder declares can be left out of the run.
+ *
+ * <p>Each clip's format comes from the database if it played before, else from the platform
+ * extractor; reading containers it does not know (IVF, some VVC) gives no format, and the clip
+ * shows as unknown until it has played once.
+ *
+ * <p>A clip the database can say nothing about gets a short probe decode of its first frames when
+ * its decoder is a MediaCodec one, which the platform extractor can feed directly. Plugins decode
+ * only inside the player, so clips of a plugin stay unknown until they have played once. Does I/O
+ * and decoding, so run it off the main thread.
+ */
+public final class PlaylistPreflight {
+    private static final String TAG = "PlaylistPreflight";
+
+    /** Nominal Li-ion cell voltage, to turn the design capacity in mAh into energy. */
+    static final double NOMINAL_BATTERY_VOLTS = 3.85;
+
+    /** Frames a probe decode times after its first output, and the wall time it may take at most. */
+    static final int PROBE_FRAMES = 60;
+    static final long PROBE_MAX_MS = 1500;
+    /** Fewer timed frames than this and the probe says nothing. */
+    static final int PROBE_MIN_FRAMES = 10;
+    private static final long PROBE_DEQUEUE_US = 10_000;
+
+    /** One clip of the playlist. */
+    public static final class ClipPlan {
+        public final int index;
+        public final String fileName;
+        @Nullable public final PerfDatabase.ClipFormat format;
+        /** Plugin id or MediaCodec name expected to decode it, empty if none. */
+        public final String decoder;
+        public final PerfDatabase.Prediction prediction;
+        /** The prediction comes from a probe decode rather than from past runs. */
+        public final boolean probed;
+
+        ClipPlan(int index, String fileName, @Nullable PerfDatabase.ClipFormat format, String decoder,
+                 PerfDatabase.Prediction prediction, boolean probed) {
+            this.index = index;
+            this.fileName = fileName;
+            this.format = format;
+            this.decoder = decoder;
+            this.prediction = prediction;
+            this.probed = probed;
+        }
+
+        /** Too slow or unsupported: worth skipping. */
+        public boolean isFlagged() {
+            return prediction.verdict == PerfDatabase.Verdict.TOO_SLOW
+                    || prediction.verdict == PerfDatabase.Verdict.UNSUPPORTED;
+        }
+    }
+
+    /** The plan of every clip and the estimates for the run. */
+    public static final class Report {
+        public final List<ClipPlan> clips;
+        final RunConfig runConfig;
+        final int stepsPerClip;
+        final double averagePowerMw;
+        final double batteryMwh;
+        final int batteryLevel;
+
+        Report(List<ClipPlan> clips, RunConfig runConfig, int stepsPerClip, double averagePowerMw,
+               double batteryMwh, int batteryLevel) {
+            this.clips = Collections.unmodifiableList(clips);
+            this.runConfig = runConfig;
+            this.stepsPerClip = stepsPerClip;
+            this.averagePowerMw = averagePowerMw;
+            this.batteryMwh = batteryMwh;
+            this.batteryLevel = batteryLevel;
+        }
+
+        public int[] getFlaggedIndices() {
+            List<Integer> out = new ArrayList<>();
+            for (ClipPlan c : clips) {
+                if (c.isFlagged()) {
+                    out.add(c.index);
+                }
+            }
+            int[] indices = new int[out.size()];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = out.get(i);
+            }
+            return indices;
+        }
+
+        /** How long one clip takes in this test mode, or -1 if its duration is unknown. */
+        long clipRunMs(ClipPlan c) {
+            if (c.format == null || c.format.durationMs <= 0) {
+                return -1;
+            }
+            long ms = c.format.durationMs;
+            switch (runConfig.testMode) {
+                case CONCURRENT_STRESS:
+                    return ms * runConfig.maxConcurrentInstances;
+                case THREAD_SWEEP:
+                    if (runConfig.sweepClipSeconds > 0) {
+                        ms = Math.min(ms, runConfig.sweepClipSeconds * 1000L);
+                    }
+                    return unpaced(c, ms) * stepsPerClip;
+                case DECODE_BENCHMARK:
+                    return unpaced(c, ms);
+                case SEEK_BENCHMARK:
+                    // one spacing of playback before each seek, plus the time to the frame after it
+                    return runConfig.seeksPerClip * SeekBenchmark.SEEK_SPACING_MS * 3 / 2;
+                case SPEED_HEADROOM:
+                    // the clip loops until the search is over, so its length does not matter
+                    return SpeedHeadroomSearch.maxProbes(runConfig.headroomMaxSpeed)
+                            * (SpeedHeadroomSearch.SETTLE_MS + SpeedHeadroomSearch.WINDOW_MS);
+                default:
+                    return ms;
+            }
+        }
+
+        // without pacing a clip takes as long as the decoder needs for its frames
+        private static long unpaced(ClipPlan c, long ms) {
+            double fps = c.prediction.fps;
+            return (fps > 0 && c.format.fps > 0) ? (long) (ms * c.format.fps / fps) : ms;
+        }
+
+        /**
+         * One pass over the playlist without {@code skipped}: {duration ms, energy mWh}; either is
+         * -1 if a clip's duration or power is unknown.
+         */
+        public double[] passEstimate(int[] skipped) {
+            long totalMs = 0;
+            double mwh = 0;
+            for (ClipPlan c : clips) {
+                if (contains(skipped, c.index)) {
+                    continue;
+                }
+                long ms = clipRunMs(c);
+                if (ms < 0) {
+                    return new double[] {-1, -1};
+                }
+                totalMs += ms;
+                double power = c.prediction.powerMw > 0 ? c.prediction.powerMw : averagePowerMw;
+                mwh = (power > 0 && mwh >= 0) ? mwh + power * ms / 3_600_000.0 : -1;
+            }
+            return new double[] {totalMs, mwh};
+        }
+
+        /** The whole run per the run mode: {duration ms, share of the battery}; -1 where unknown. */
+        public double[] runEstimate(int[] skipped) {
+            double[] pass = passEstimate(skipped);
+            double passMs = pass[0];
+            double passMwh = pass[1];
+            double powerMw = (passMs > 0 && passMwh >= 0) ? passMwh * 3_600_000.0 / passMs : -1;
+            double runMs;
+            switch (runConfig.runMode) {
+                case TIME:
+                    runMs = runConfig.runLimit * 60_000.0;
+                    break;
+                case BATTERY:
+                    double drainMwh = (batteryLevel - runConfig.runLimit) / 100.0 * batteryMwh;
+                    runMs = (powerMw > 0 && batteryMwh > 0 && batteryLevel > 0)
+                            ? drainMwh / powerMw * 3_600_000.0 : -1;
+                    break;
+                default:
+                    runMs = passMs;
+                    break;
+            }
+            double battery = (runMs > 0 && powerMw > 0 && batteryMwh > 0)
+                    ? powerMw * runMs / 3_600_000.0 / batteryMwh : -1;
+            return new double[] {runMs, battery};
+        }
+
+        public String describe(int[] skipped) {
+            StringBuilder sb = new StringBuilder();
+            for (ClipPlan c : clips) {
+                sb.append(contains(skipped, c.index) ? "skip  " : "").append(c.fileName).append('\n');
+                sb.append("    ");
+                if (c.format != null) {
+                    sb.append(String.format(Locale.US, "%dx%d@%.0f ", c.format.width, c.format.height, c.format.fps));
+                }
+                sb.append(c.decoder.isEmpty() ? "no decoder" : c.decoder).append(": ").append(c.prediction.verdict.label);
+                if (c.prediction.fps > 0) {
+                    sb.append(String.format(Locale.US, ", ~%.0f fps%s", c.prediction.fps,
+                            c.prediction.measured ? "" : c.probed ? " (probe)" : " (scaled)"));
+                }
+                sb.append('\n');
+            }
+            double[] run = runEstimate(skipped);
+            sb.append('\n').append("Estimated run: ").append(run[0] > 0 ? formatDuration((long) run[0]) : "unknown");
+            sb.append("\nEstimated battery: ")
+                    .append(run[1] >= 0 ? String.format(Locale.US, "%.0f%%", run[1] * 100) : "unknown");
+            return sb.toString();
+        }
+    }
+
+    private PlaylistPreflight() {}
+
+    /** Plan the playlist with the current decoder settings. */
+    @NonNull
+    public static Report run(Context ctx, RunConfig runConfig, Uri playlist) {
+        PerfDatabase db = PerfDatabase.load(new File(ctx.getFilesDir(), PerfDatabase.FILE_NAME));
+        List<Uri> uris = XspfParser.parsePlaylist(ctx, playlist);
+        List<ClipPlan> plans = new ArrayList<>(uris.size());
+        for (int i = 0; i < uris.size(); i++) {
+            Uri uri = UriUtils.resolveMediaUri(ctx, uris.get(i));
+            PerfDatabase.ClipFormat format = db.getClip(uri.toString());
+            if (format == null) {
+                format = probe(ctx, uri);
+            }
+            String decoder = format != null ? decoderFor(runConfig, format.mimeType) : "";
+            PerfDatabase.Prediction prediction = predict(db, decoder, format);
+            boolean probed = false;
+            if (prediction.verdict == PerfDatabase.Verdict.UNKNOWN && format != null && isMediaCodec(format, decoder)) {
+                double fps = probeDecode(ctx, uri, decoder);
+                if (fps > 0) {
+                    prediction = new PerfDatabase.Prediction(PerfDatabase.verdictFor(fps, format.fps), fps, false, -1);
+                    probed = true;
+                }
+            }
+            plans.add(new ClipPlan(i, UriUtils.fileNameFromURI(uri), format, decoder, prediction, probed));
+        }
+
+        int cores = new CpuInfo().cores.size();
+        double capacityMah = BatteryInfo.getBatteryDesignCapacity(ctx);
+        return new Report(plans, runConfig, ThreadSweep.stepsFor(cores).length, db.getAveragePowerMw(),
+                capacityMah > 0 ? capacityMah * NOMINAL_BATTERY_VOLTS : -1, BatteryInfo.getBatteryLevel(ctx));
+    }
+
+    /** The decoder the renderer factory will pick: the configured one, else the first for the MIME type. */
+    static String decoderFor(RunConfig runConfig, String mime) {
+        String selected = runConfig.decoderCfg.getDecoder(mime);
+        if (selected != null && !selected.isEmpty()) {
+            return selected;
+        }
+        List<DecoderCapabilityCache.Decoder> decoders = DecoderCapabilityCache.getInstance().getDecoders(mime);
+        return decoders.isEmpty() ? "" : decoders.get(0).name;
+    }
+
+    private static PerfDatabase.Prediction predict(PerfDatabase db, String decoder,
+                                                   @Nullable PerfDatabase.ClipFormat f) {
+        if (f == null) {
+            return PerfDatabase.Prediction.unknown;
+        }
+        if (decoder.isEmpty()) {
+            return new PerfDatabase.Prediction(PerfDatabase.Verdict.UNSUPPORTED, -1, false, -1);
+        }
+        DecoderCapabilityCache.Decoder caps = DecoderCapabilityCache.getInstance().find(f.mimeType, decoder);
+        if (caps != null && caps.maxWidth != null && caps.maxHeight != null
+                && !fits(f.width, f.height, caps.maxWidth, caps.maxHeight)) {
+            return new PerfDatabase.Prediction(PerfDatabase.Verdict.UNSUPPORTED, -1, false, -1);
+        }
+        return db.predict(decoder, f);
+    }
+
+    // decoders accept either orientation
+    static boolean fits(int width, int height, int maxWidth, int maxHeight) {
+        return (width <= maxWidth && height <= maxHeight) || (height <= maxWidth && width <= maxHeight);
+    }
+
+    /** The clip's video format from the platform extractor, or null if it cannot read it. */
+    @Nullable
+    static PerfDatabase.ClipFormat probe(Context ctx, Uri uri) {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(ctx, uri, null);
+            for (int t = 0; t < extractor.getTrackCount(); t++) {
+                MediaFormat mf = extractor.getTrackFormat(t);
+                String mime = mf.getString(MediaFormat.KEY_MIME);
+                if (mime == null || !mime.startsWith("video/")) {
+                    continue;
+                }
+                long durationMs = mf.containsKey(MediaFormat.KEY_DURATION) ? mf.getLong(MediaFormat.KEY_DURATION) / 1000 : -1;
+                long bitrate = mf.containsKey(MediaFormat.KEY_BIT_RATE) ? mf.getInteger(MediaFormat.KEY_BIT_RATE) : 0;
+                if (bitrate <= 0 && durationMs > 0) {
+                    // the whole file's rate; audio is small next to the video
+                    long length = lengthOf(ctx, uri);
+                    bitrate = length > 0 ? length * 8_000 / durationMs : 0;
+                }
+                return new PerfDatabase.ClipFormat(mime,
+                        mf.getInteger(MediaFormat.KEY_WIDTH), mf.getInteger(MediaFormat.KEY_HEIGHT),
+                        frameRate(mf), bitrate, durationMs);
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Cannot read the format of " + uri + ": " + e.getMessage());
+        } finally {
+            extractor.release();
+        }
+        return null;
+    }
+
+    private static boolean isMediaCodec(PerfDatabase.ClipFormat f, String decoder) {
+        if (decoder.isEmpty()) {
+            return false;
+        }
+        DecoderCapabilityCache.Decoder caps = DecoderCapabilityCache.getInstance().find(f.mimeType, decoder);
+        return caps != null && !caps.plugin;
+    }
+
+    /**
+     * Decodes the start of the clip's video track with MediaCodec {@code decoderName}, as fast as it
+     * goes and to buffers rather than a surface, and returns the output rate in fps, or -1 if too
+     * few frames came out. Timed from the first output frame, so codec start-up is not counted.
+     */
+    static double probeDecode(Context ctx, Uri uri, String decoderName) {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try {
+            extractor.setDataSource(ctx, uri, null);
+            MediaFormat format = null;
+            for (int t = 0; t < extractor.getTrackCount() && format == null; t++) {
+                MediaFormat mf = extractor.getTrackFormat(t);
+                String mime = mf.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("video/")) {
+                    extractor.selectTrack(t);
+                    format = mf;
+                }
+            }
+            if (format == null) {
+                return -1;
+            }
+            codec = MediaCodec.createByCodecName(decoderName);
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            long deadlineNs = System.nanoTime() + PROBE_MAX_MS * 1_000_000L;
+            boolean inputDone = false;
+            long firstOutNs = -1;
+            long lastOutNs = -1;
+            int timed = 0;
+            while (timed < PROBE_FRAMES && System.nanoTime() < deadlineNs) {
+                if (!inputDone) {
+                    int in = codec.dequeueInputBuffer(PROBE_DEQUEUE_US);
+                    if (in >= 0) {
+                        ByteBuffer buffer = codec.getInputBuffer(in);
+                        int size = buffer != null ? extractor.readSampleData(buffer, 0) : -1;
+                        if (size < 0) {
+                            codec.queueInputBuffer(in, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(in, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+                int out = codec.dequeueOutputBuffer(info, PROBE_DEQUEUE_US);
+                if (out < 0) {
+                    continue;
+                }
+                codec.releaseOutputBuffer(out, false);
+                if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    break;
+                }
+                if (info.size > 0) {
+                    lastOutNs = System.nanoTime();
+                    if (firstOutNs < 0) {
+                        firstOutNs = lastOutNs;
+                    } else {
+                        timed++;
+                    }
+                }
+            }
+            if (timed < PROBE_MIN_FRAMES || lastOutNs <= firstOutNs) {
+                Log.i(TAG, "Probe of " + uri + " with " + decoderName + " too short: " + timed + " frames");
+                return -1;
+            }
+            double fps = timed * 1e9 / (lastOutNs - firstOutNs);
+            Log.i(TAG, String.format(Locale.US, "Probe of %s with %s: %.1f fps over %d frames",
+                    uri, decoderName, fps, timed));
+            return fps;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Probe decode of " + uri + " with " + decoderName + " failed: " + e.getMessage());
+            return -1;
+        } finally {
+            if (codec != null) {
+                try {
+                    codec.stop();
+                } catch (RuntimeException ignored) {
+                    // never started
+                }
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+
+    // containers store it as an int or a float
+    private static double frameRate(MediaFormat mf) {
+        if (!mf.containsKey(MediaFormat.KEY_FRAME_RATE)) {
+            return -1;
+        }
+        try {
+            return mf.getInteger(MediaFormat.KEY_FRAME_RATE);
+        } catch (ClassCastException e) {
+            return mf.getFloat(MediaFormat.KEY_FRAME_RATE);
+        }
+    }
+
+    private static long lengthOf(Context ctx, Uri uri) {
+        if ("file".equals(uri.getScheme()) && uri.getPath() != null) {
+            return new File(uri.getPath()).length();
+        }
+        DocumentFile doc = DocumentFile.fromSingleUri(ctx, uri);
+        return doc != null ? doc.length() : -1;
+    }
+
+    static boolean contains(int[] indices, int index) {
+        for (int i : indices) {
+            if (i == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String formatDuration(long ms) {
+        long minutes = ms / 60_000;
+        return minutes >= 60
+                ? String.format(Locale.US, "%dh %02dm", minutes / 60, minutes % 60)
+                : String.format(Locale.US, "%dm", Math.max(1, minutes));
+    }
+}
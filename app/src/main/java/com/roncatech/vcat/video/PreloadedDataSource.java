@@ -0,0 +1,172 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.upstream.BaseDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceException;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.TransferListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves clips held by a {@link ClipPreloader} straight from memory, and everything else from the
+ * fallback source. Opening a clip that is still loading waits for the load to finish. The source
+ * holds a {@link ClipPreloader.Lease} from open to close, so the clip stays mapped while it reads.
+ */
+final class PreloadedDataSource extends BaseDataSource {
+
+    static final class Factory implements DataSource.Factory {
+        private final ClipPreloader preloader;
+        private final DataSource.Factory fallback;
+
+        Factory(@NonNull ClipPreloader preloader, @NonNull DataSource.Factory fallback) {
+            this.preloader = preloader;
+            this.fallback = fallback;
+        }
+
+        @NonNull
+        @Override
+        public DataSource createDataSource() {
+            return new PreloadedDataSource(preloader, fallback.createDataSource());
+        }
+    }
+
+    private final ClipPreloader preloader;
+    private final DataSource fallback;
+
+    @Nullable private Uri uri;
+    @Nullable private ClipPreloader.Lease lease;
+    @Nullable private ByteBuffer data;
+    private boolean usingFallback;
+    private long bytesRemaining;
+
+    private PreloadedDataSource(ClipPreloader preloader, DataSource fallback) {
+        super(/* isNetwork= */ false);
+        this.preloader = preloader;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public void addTransferListener(@NonNull TransferListener transferListener) {
+        super.addTransferListener(transferListener);
+        fallback.addTransferListener(transferListener);
+    }
+
+    @Override
+    public long open(@NonNull DataSpec dataSpec) throws IOException {
+        uri = dataSpec.uri;
+        @Nullable ClipPreloader.Lease held = preloader.acquire(dataSpec.uri);
+        if (held == null) {
+            usingFallback = true;
+            return fallback.open(dataSpec);
+        }
+        lease = held;
+
+        transferInitializing(dataSpec);
+        ByteBuffer view = held.data();
+        if (dataSpec.position > view.limit()) {
+            throw new DataSourceException(PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE);
+        }
+        view.position((int) dataSpec.position);
+        bytesRemaining = dataSpec.length != C.LENGTH_UNSET
+                ? Math.min(dataSpec.length, view.remaining())
+                : view.remaining();
+        data = view;
+        transferStarted(dataSpec);
+        return bytesRemaining;
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+        if (usingFallback) {
+            return fallback.read(buffer, offset, length);
+        }
+        if (length == 0) {
+            return 0;
+        }
+        ByteBuffer view = data;
+        if (bytesRemaining == 0 || view == null) {
+            return C.RESULT_END_OF_INPUT;
+        }
+        int toRead = (int) Math.min(length, bytesRemaining);
+        view.get(buffer, offset, toRead);
+        bytesRemaining -= toRead;
+        bytesTransferred(toRead);
+        return toRead;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return usingFallback ? fallback.getUri() : uri;
+    }
+
+    @NonNull
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+        return usingFallback ? fallback.getResponseHeaders() : Collections.emptyMap();
+    }
+
+    @Override
+    public void close() throws IOException {
+        uri = null;
+        if (usingFallback) {
+            usingFallback = false;
+            fallback.close();
+            return;
+        }
+        boolean transferring = data != null;
+        data = null;
+        ClipPreloader.Lease held = lease;
+        lease = null;
+        if (held != null) {
+            held.close();
+        }
+        if (transferring) {
+            transferEnded();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+
+package com.roncatech.vcat.video;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlayer;
+import com.google.android.exoplayer2.MediaItem;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.Tracks;
+import com.google.android.exoplayer2.analytics.AnalyticsListener;
+import com.google.android.exoplayer2.decoder.DecoderCounters;
+import com.roncatech.vcat.telemetry.ClipStartup;
+import com.roncatech.vcat.telemetry.IoStats;
+
+/**
+ * The back buffer of the clip scheduler: a player for the next clip that is built and prepared
+ * (paused, no surface) while the current clip is still playing, so the clip boundary is only a
+ * surface swap and {@code play()}.
+ *
+ * <p>The activity's listeners are attached only when the clip is promoted, so anything they would
+ * normally capture before first frame (decoder counters, decoder name, the prepare, decoder and
+ * moov startup milestones) is captured here and handed over at the swap.
+ */
+final class PreparedClip implements AnalyticsListener {
+    private static final String TAG = "PreparedClip";
+
+    /**
+     * The back buffer is filled this close to the end of the current clip, so the two players
+     * overlap for a few seconds instead of for the whole clip.
+     */
+    static final long PREWARM_LEAD_MS = 5000;
+
+    final ExoPlayer player;
+    /** What {@link #player} reads while prewarming and after it is promoted. */
+    final IoStats ioStats;
+    final int clipIndex;
+    final Uri uri;
+    /** Startup milestones from the back buffer's media item; moov times are fed by the activity. */
+    final ClipStartup startup;
+
+    private final long createdMs;
+    private long readyMs = -1;
+    @Nullable private DecoderCounters counters;
+    @Nullable private String decoderName;
+    private boolean failed = false;
+
+    PreparedClip(@NonNull ExoPlayer player, @NonNull IoStats ioStats, @NonNull ClipStartup startup,
+                 int clipIndex, @NonNull Uri uri) {
+        this.player = player;
+        this.ioStats = ioStats;
+        this.startup = startup;
+        this.clipIndex = clipIndex;
+        this.uri = uri;
+        this.createdMs = SystemClock.elapsedRealtime();
+        startup.begin(this.createdMs);
+
+        player.addAnalyticsListener(this);
+        player.setPlayWhenReady(false);
+        player.setMediaItem(MediaItem.fromUri(uri));
+        player.prepare();
+    }
+
+    /** Whether a clip at {@code positionMs} of {@code durationMs} is close enough to its end to prewarm the next. */
+    static boolean isPrewarmDue(long durationMs, long positionMs) {
+        return durationMs != C.TIME_UNSET && durationMs - positionMs <= PREWARM_LEAD_MS;
+    }
+
+    /** True once the player has buffered and decoded up to its first frame. */
+    boolean isReady() {
+        return !failed && player.getPlaybackState() == Player.STATE_READY;
+    }
+
+    boolean hasFailed() {
+        return failed;
+    }
+
+    @Nullable
+    DecoderCounters getCounters() {
+        return counters;
+    }
+
+    @Nullable
+    String getDecoderName() {
+        return decoderName;
+    }
+
+    /** Time from creation to STATE_READY, or -1 if it has not got there yet. */
+    long getPrepareMs() {
+        return readyMs < 0 ? -1 : readyMs - createdMs;
+    }
+
+    /** Stop capturing; the activity's own listeners take over from here. */
+    void detach() {
+        player.removeAnalyticsListener(this);
+    }
+
+    void release() {
+        detach();
+        player.release();
+    }
+
+    @Override
+    public void onPlaybackStateChanged(@NonNull EventTime et, int state) {
+        if (state == Player.STATE_READY && readyMs < 0) {
+            readyMs = SystemClock.elapsedRealtime();
+            Log.i(TAG, "Clip " + clipIndex + " prepared in " + getPrepareMs() + "ms");
+        }
+    }
+
+    @Override
+    public void onVideoEnabled(@NonNull EventTime et, @NonNull DecoderCounters counters) {
+        this.counters = counters;
+    }
+
+    @Override
+    public void onTracksChanged(@NonNull EventTime et, @NonNull Tracks tracks) {
+        startup.onPrepared(SystemClock.elapsedRealtime());
+    }
+
+    @Override
+    public void onVideoDecoderInitialized(@NonNull EventTime et, @NonNull String decoderName,
+                                          long initializedTimestampMs, long initializationDurationMs) {
+        this.decoderName = decoderName;
+        startup.onDecoderInitialized(initializedTimestampMs, initializationDurationMs);
+    }
+
+    @Override
+    public void onPlayerError(@NonNull EventTime et, @NonNull PlaybackException error) {
+        // Typically a decoder that cannot be instantiated twice; the scheduler falls back to a
+        // fresh player at the boundary.
+        Log.w(TAG, "Prewarm of clip " + clipIndex + " failed: " + error.getMessage());
+        failed = true;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import androidx.annotation.Nullable;
+
+import com.roncatech.vcat.models.RunConfig;
+import com.roncatech.vcat.telemetry.SessionSummary;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * The seeks of one clip in the seek benchmark. Targets come from {@link #targets}, seeded by clip
+ * index so every run and device seeks to the same places. Each seek is timed from the seek call to
+ * the first frame rendered after it, along with the media bytes read in between; playback then runs
+ * for {@link #SEEK_SPACING_MS} before the next seek.
+ */
+final class SeekBenchmark {
+    /** Playback between a frame showing and the next seek. */
+    static final long SEEK_SPACING_MS = 1_000;
+    /** A seek that shows no frame by then is counted as a timeout and the next one is issued. */
+    static final long SEEK_TIMEOUT_MS = 10_000;
+    /** Step between targets of {@link RunConfig.SeekPattern#FORWARD_HOPS}. */
+    static final long FORWARD_HOP_MS = 2_000;
+    /** Targets stay this far from the end, capped at a tenth of the clip, so a seek never lands on end of stream. */
+    static final long END_GUARD_MS = 1_000;
+
+    final RunConfig.SeekPattern pattern;
+    final SessionSummary.SeekLatency result;
+
+    private final long[] targetsMs;
+    private int next = 0;
+    private long pendingStartMs = -1;
+    private long pendingStartBytes = 0;
+    private boolean finished = false;
+
+    SeekBenchmark(RunConfig.SeekPattern pattern, int count, long durationMs, int clipIndex,
+                  @Nullable String decoderName, String container) {
+        this.pattern = pattern;
+        this.targetsMs = targets(pattern, count, durationMs, new Random(clipIndex));
+        this.result = new SessionSummary.SeekLatency(decoderName, container);
+    }
+
+    /**
+     * {@code count} seek targets in [0, duration - guard), or none if the duration is unknown.
+     * RANDOM and KEYFRAME are uniform (KEYFRAME differs only in the seek parameters the player uses),
+     * BACKWARD walks evenly from the end towards the start, and FORWARD_HOPS starts at a random point
+     * and steps {@link #FORWARD_HOP_MS} ahead, wrapping at the end.
+     */
+    static long[] targets(RunConfig.SeekPattern pattern, int count, long durationMs, Random random) {
+        long rangeMs = durationMs - Math.min(END_GUARD_MS, durationMs / 10);
+        if (count <= 0 || durationMs <= 0 || rangeMs <= 0) {
+            return new long[0];
+        }
+        long[] out = new long[count];
+        switch (pattern) {
+            case BACKWARD:
+                for (int i = 0; i < count; i++) {
+                    out[i] = rangeMs * (count - i) / (count + 1);
+                }
+                break;
+            case FORWARD_HOPS: {
+                long start = (long) (random.nextDouble() * rangeMs);
+                for (int i = 0; i < count; i++) {
+                    out[i] = (start + i * FORWARD_HOP_MS) % rangeMs;
+                }
+                break;
+            }
+            case RANDOM:
+            case KEYFRAME:
+            default:
+                for (int i = 0; i < count; i++) {
+                    out[i] = (long) (random.nextDouble() * rangeMs);
+                }
+                break;
+        }
+        return out;
+    }
+
+    /** Lower-case file extension, which is what the player picks the extractor by. */
+    static String containerOf(@Nullable String fileName) {
+        int dot = fileName == null ? -1 : fileName.lastIndexOf('.');
+        if (dot < 0 || dot == fileName.length() - 1) {
+            return "unknown";
+        }
+        return fileName.substring(dot + 1).toLowerCase(Locale.US);
+    }
+
+    boolean hasNext() {
+        return !finished && next < targetsMs.length;
+    }
+
+    boolean isPending() {
+        return pendingStartMs >= 0;
+    }
+
+    /** The clip stops seeking once this is set; until then the player reaching the end does not end the clip. */
+    boolean isFinished() {
+        return finished;
+    }
+
+    void finish() {
+        finished = true;
+        pendingStartMs = -1;
+    }
+
+    int getIssued() {
+        return next;
+    }
+
+    int getCount() {
+        return targetsMs.length;
+    }
+
+    /**
+     * Start timing the next seek.
+     *
+     * @return its target in ms
+     */
+    long begin(long nowMs, long bytesRead) {
+        pendingStartMs = nowMs;
+        pendingStartBytes = bytesRead;
+        return targetsMs[next++];
+    }
+
+    /** The first frame after the pending seek was rendered. */
+    void complete(long nowMs, long bytesRead) {
+        if (!isPending()) {
+            return;
+        }
+        result.add(nowMs - pendingStartMs, bytesRead - pendingStartBytes);
+        pendingStartMs = -1;
+    }
+
+    /** The pending seek showed no frame within {@link #SEEK_TIMEOUT_MS}. */
+    void timeout() {
+        if (!isPending()) {
+            return;
+        }
+        result.addTimeout();
+        pendingStartMs = -1;
+    }
+}
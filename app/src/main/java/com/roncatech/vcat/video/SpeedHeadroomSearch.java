@@ -0,0 +1,156 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import com.roncatech.vcat.telemetry.SessionSummary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Search for the fastest playback speed a clip sustains on its decoder. Each probe sets a speed,
+ * lets playback settle for {@link #SETTLE_MS}, then counts rendered and dropped frames over
+ * {@link #WINDOW_MS}; the speed is sustained while fewer than the threshold percentage of frames
+ * drop. Frames the renderer drops for being late count, as they do in real-time playback. The clip
+ * loops while the search runs, so the counts passed in keep growing across the wrap and a window may
+ * span several passes of a short clip.
+ *
+ * <p>Real time is probed first and ends the search if it fails. The top of the range is probed
+ * next, then the range is bisected on a {@link #RESOLUTION} grid until the bounds meet.
+ */
+final class SpeedHeadroomSearch {
+    /** Playback after a speed change, before the probe window opens. */
+    static final long SETTLE_MS = 1_000;
+    static final long WINDOW_MS = 4_000;
+    /** Speeds probed are multiples of this, and the search ends once the bounds are this close. */
+    static final float RESOLUTION = 0.25f;
+
+    final float maxSpeed;
+    final int dropThresholdPct;
+
+    private final List<SessionSummary.SpeedProbe> probes = new ArrayList<>();
+    // fastest speed sustained and slowest that was not
+    private float sustainedSpeed = 0f;
+    private float failedSpeed;
+    private float speed = 1f;
+    private boolean done = false;
+
+    private long windowStartMs = -1;
+    private long startRendered;
+    private long startDropped;
+    private long startCpuMs;
+
+    SpeedHeadroomSearch(int maxSpeed, int dropThresholdPct) {
+        this.maxSpeed = Math.max(1, maxSpeed);
+        this.dropThresholdPct = dropThresholdPct;
+        this.failedSpeed = this.maxSpeed + RESOLUTION;
+    }
+
+    /** Probes a search up to {@code maxSpeed} takes at most: real time, the top, then the bisection. */
+    static int maxProbes(int maxSpeed) {
+        float range = Math.max(1, maxSpeed) - 1f;
+        int probes = range > 0 ? 2 : 1;
+        for (float gap = range; gap > RESOLUTION; gap /= 2) {
+            probes++;
+        }
+        return probes;
+    }
+
+    /** Speed of the probe to run next, or of the one running. */
+    float getSpeed() {
+        return speed;
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    boolean inWindow() {
+        return windowStartMs >= 0;
+    }
+
+    /** Fastest speed sustained so far, 0 if real time was not. */
+    float getHeadroom() {
+        return sustainedSpeed;
+    }
+
+    List<SessionSummary.SpeedProbe> getProbes() {
+        return Collections.unmodifiableList(probes);
+    }
+
+    void beginWindow(long nowMs, long rendered, long dropped, long cpuMs) {
+        windowStartMs = nowMs;
+        startRendered = rendered;
+        startDropped = dropped;
+        startCpuMs = cpuMs;
+    }
+
+    /**
+     * Close the probe window and pick the next speed.
+     *
+     * @return true once the search is over
+     */
+    boolean endWindow(long nowMs, long rendered, long dropped, long cpuMs, int thermalStatus) {
+        long r = rendered - startRendered;
+        long d = dropped - startDropped;
+        // a window that showed nothing at all is not sustained either
+        double dropPct = r + d > 0 ? 100.0 * d / (r + d) : 100.0;
+        boolean sustained = r > 0 && dropPct < dropThresholdPct;
+        probes.add(new SessionSummary.SpeedProbe(speed, nowMs - windowStartMs, r, d, dropPct, sustained,
+                cpuMs - startCpuMs, thermalStatus));
+        windowStartMs = -1;
+        next(sustained);
+        return done;
+    }
+
+    private void next(boolean sustained) {
+        if (sustained) {
+            sustainedSpeed = speed;
+        } else {
+            failedSpeed = speed;
+        }
+        if (sustainedSpeed < 1f || sustainedSpeed >= maxSpeed || failedSpeed - sustainedSpeed <= RESOLUTION) {
+            done = true;
+        } else if (failedSpeed > maxSpeed) {
+            speed = maxSpeed;
+        } else {
+            speed = Math.round((sustainedSpeed + failedSpeed) / 2 / RESOLUTION) * RESOLUTION;
+        }
+    }
+
+    SessionSummary.SpeedHeadroom toSummary(String fileName, String decoderName, String mimeType) {
+        return new SessionSummary.SpeedHeadroom(fileName, decoderName, mimeType, dropThresholdPct, maxSpeed,
+                sustainedSpeed, probes);
+    }
+}
@@ -17,6 +17,8 @@ import com.google.android.exoplayer2.video.VideoRendererEventListener;
 import com.roncatech.vcat.decoder_plugin.VcatDecoderManager;
 import com.roncatech.vcat.decoder_plugin_api.VcatDecoder;
 import com.roncatech.vcat.models.SharedViewModel;
+import com.roncatech.vcat.telemetry.FrameIntegrity;
+import com.roncatech.vcat.tools.DecoderCapabilityCache;
 
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
@@ -28,6 +30,12 @@ public final class StrictRenderersFactoryV2 extends DefaultRenderersFactory {
     private final SharedViewModel viewModel;
     private final MediaCodecSelector customSelector;
 
+    // when set, video renderers built from now on are wrapped for the unpaced decode benchmark
+    @Nullable private volatile DecodeBenchmarkStats decodeBenchmark = null;
+    // when set, video renderers built from now on hash their output frames into it
+    @Nullable private volatile FrameIntegrity frameIntegrity = null;
+    // when > 0, plugin renderers built from now on use this many threads, whatever the config says
+    private volatile int threadsOverride = 0;
 
     public StrictRenderersFactoryV2(Context ctx, SharedViewModel viewModel) {
         super(ctx);
@@ -36,6 +44,14 @@ public final class StrictRenderersFactoryV2 extends DefaultRenderersFactory {
         // Respect the user-selected codec name if present; otherwise return full list.
         this.customSelector = (mimeType, requiresSecureDecoder, requiresTunnelingDecoder) -> {
             String selected = viewModel.getRunConfig().decoderCfg.getDecoder(mimeType);
+            if (selected != null && !selected.isEmpty()) {
+                // a plugin was picked, so no MediaCodec decoder can match; skip the query
+                DecoderCapabilityCache.Decoder known = DecoderCapabilityCache.getInstance().find(mimeType, selected);
+                if (known != null && known.plugin) {
+                    Log.i(TAG, "MediaCodecSelector for " + mimeType + " -> " + selected + " is a plugin");
+                    return new ArrayList<>();
+                }
+            }
             List<MediaCodecInfo> infos = MediaCodecUtil.getDecoderInfos(
                     mimeType, requiresSecureDecoder, requiresTunnelingDecoder);
 
@@ -53,6 +69,31 @@ public final class StrictRenderersFactoryV2 extends DefaultRenderersFactory {
         };
     }
 
+    /**
+     * Wrap the video renderers of subsequently built players in {@link DecodeThroughputRenderer},
+     * reporting into {@code stats}; null restores normal, clock-paced renderers.
+     */
+    public void setDecodeBenchmark(@Nullable DecodeBenchmarkStats stats) {
+        this.decodeBenchmark = stats;
+    }
+
+    /**
+     * Hash the output frames of the video renderers of subsequently built players into
+     * {@code integrity}; null restores normal renderers. MediaCodec then decodes to ByteBuffers,
+     * not the screen; plugins hash only if they support it.
+     */
+    public void setFrameIntegrity(@Nullable FrameIntegrity integrity) {
+        this.frameIntegrity = integrity;
+    }
+
+    /**
+     * Decoder threads for plugin renderers of subsequently built players, for the thread sweep;
+     * 0 restores the configured count (per MIME type, else {@code RunConfig.threads}).
+     */
+    public void setThreadsOverride(int threads) {
+        this.threadsOverride = threads;
+    }
+
     @Override
     protected void buildVideoRenderers(
             Context context,
@@ -64,6 +105,9 @@ public final class StrictRenderersFactoryV2 extends DefaultRenderersFactory {
             long allowedVideoJoiningTimeMs,
             ArrayList<Renderer> out
     )  {
+        int firstRenderer = out.size();
+        FrameIntegrity integrity = this.frameIntegrity;
+
         // 1) Software plugin decoders first so they can claim their formats before MediaCodec.
         //    Enumerate all distinct MIME types from registered plugins — no hardcoded codec list.
         LinkedHashSet<String> pluginMimeTypes = new LinkedHashSet<>();
@@ -73,20 +117,43 @@ public final class StrictRenderersFactoryV2 extends DefaultRenderersFactory {
         for (String mimeType : pluginMimeTypes) {
             String selected = viewModel.getRunConfig().decoderCfg.getDecoder(mimeType);
             addPluginRenderers(context, allowedVideoJoiningTimeMs, eventHandler, eventListener,
-                    mimeType, selected, out);
+                    mimeType, selected, integrity, out);
         }
 
         // 2) Always add MediaCodec as a fallback/default (after extensions).
-        out.add(new MediaCodecVideoRenderer(
-                context,
-                customSelector,
-                allowedVideoJoiningTimeMs,
-                enableDecoderFallback,
-                eventHandler,
-                eventListener,
-                MAX_DROPPED_VIDEO_FRAME_COUNT_TO_NOTIFY
-        ));
-        Log.i(TAG, "Added MediaCodecVideoRenderer.");
+        if (integrity != null) {
+            out.add(new HashingMediaCodecVideoRenderer(
+                    context,
+                    customSelector,
+                    allowedVideoJoiningTimeMs,
+                    enableDecoderFallback,
+                    eventHandler,
+                    eventListener,
+                    MAX_DROPPED_VIDEO_FRAME_COUNT_TO_NOTIFY,
+                    integrity.getHashEveryNthFrame(),
+                    integrity
+            ));
+            Log.i(TAG, "Added HashingMediaCodecVideoRenderer.");
+        } else {
+            out.add(new MediaCodecVideoRenderer(
+                    context,
+                    customSelector,
+                    allowedVideoJoiningTimeMs,
+                    enableDecoderFallback,
+                    eventHandler,
+                    eventListener,
+                    MAX_DROPPED_VIDEO_FRAME_COUNT_TO_NOTIFY
+            ));
+            Log.i(TAG, "Added MediaCodecVideoRenderer.");
+        }
+
+        DecodeBenchmarkStats stats = this.decodeBenchmark;
+        if (stats != null) {
+            for (int i = firstRenderer; i < out.size(); i++) {
+                out.set(i, new DecodeThroughputRenderer(out.get(i), stats));
+            }
+            Log.i(TAG, "Video renderers wrapped for decode benchmark.");
+        }
     }
 
     /**
@@ -102,6 +169,7 @@ public final class StrictRenderersFactoryV2 extends DefaultRenderersFactory {
             VideoRendererEventListener eventListener,
             String mimeType,
             String selectedId,
+            @Nullable FrameIntegrity integrity,
             ArrayList<Renderer> out) {
 
         List<VcatDecoder> candidates;
@@ -122,9 +190,17 @@ public final class StrictRenderersFactoryV2 extends DefaultRenderersFactory {
 
         for (VcatDecoder plugin : candidates) {
             try {
-                out.add(plugin.createVideoRenderer(context, allowedVideoJoiningTimeMs,
-                        eventHandler, eventListener,
-                        this.viewModel.getRunConfig().threads));
+                int threads = this.threadsOverride > 0 ? this.threadsOverride
+                        : this.viewModel.getRunConfig().decoderCfg.getThreads(mimeType,
+                                this.viewModel.getRunConfig().threads);
+                if (integrity != null && plugin.supportsFrameHashing()) {
+                    out.add(plugin.createVideoRenderer(context, allowedVideoJoiningTimeMs,
+                            eventHandler, eventListener, threads,
+                            integrity.getHashEveryNthFrame(), integrity));
+                } else {
+                    out.add(plugin.createVideoRenderer(context, allowedVideoJoiningTimeMs,
+                            eventHandler, eventListener, threads));
+                }
                 Log.i(TAG, "Added plugin renderer: " + plugin.getId());
             } catch (DecoderException e) {
                 Log.e(TAG, "Plugin renderer not added: " + plugin.getId(), e);
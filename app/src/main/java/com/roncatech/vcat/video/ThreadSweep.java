@@ -0,0 +1,89 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Where the thread sweep is within the current clip: the clip is decoded once per thread count, in
+ * {@link #stepsFor} order, before the run moves on to the next clip.
+ */
+final class ThreadSweep {
+    private final int[] steps;
+    private int index = 0;
+
+    ThreadSweep(int cores) {
+        this.steps = stepsFor(cores);
+    }
+
+    /** 1, 2, 4 ... while below {@code cores}, then {@code cores} itself. */
+    static int[] stepsFor(int cores) {
+        List<Integer> out = new ArrayList<>();
+        for (int t = 1; t < cores; t *= 2) {
+            out.add(t);
+        }
+        out.add(Math.max(1, cores));
+        int[] steps = new int[out.size()];
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = out.get(i);
+        }
+        return steps;
+    }
+
+    int getThreads() {
+        return steps[index];
+    }
+
+    int getStepCount() {
+        return steps.length;
+    }
+
+    /**
+     * Move to the next thread count for the same clip.
+     *
+     * @return false once the clip has run at every count; the sweep is then back at the first for the next clip
+     */
+    boolean next() {
+        if (++index < steps.length) {
+            return true;
+        }
+        index = 0;
+        return false;
+    }
+
+    /** Back to the first thread count, for a clip that has nothing more to show. */
+    void restart() {
+        index = 0;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import android.media.MediaCodecInfo;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Hashes MediaCodec ByteBuffer output in the canonical form of
+ * {@link com.roncatech.vcat.decoder_plugin_api.FrameHashSink}: CRC-32 of the cropped Y, U and V
+ * planes row by row, one byte per 8-bit sample, two little-endian bytes per deeper sample. So a
+ * hardware decoder's hashes compare with a plugin's and with the manifest's reference list.
+ *
+ * <p>Handles the layouts decoders give for {@code COLOR_FormatYUV420Flexible}: I420, NV12 and
+ * P010. The scratch row and the CRC are reused, so hashing a frame does not allocate beyond one
+ * buffer duplicate.
+ */
+final class YuvFrameHasher {
+    private final CRC32 crc = new CRC32();
+    private byte[] row = new byte[0];
+
+    private int colorFormat = -1;
+    private int width;
+    private int height;
+    private int stride;
+    private int sliceHeight;
+    private int cropLeft;
+    private int cropTop;
+
+    static boolean isSupported(int colorFormat) {
+        return colorFormat == MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Planar
+                || colorFormat == MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420SemiPlanar
+                || colorFormat == MediaCodecInfo.CodecCapabilities.COLOR_FormatYUVP010;
+    }
+
+    /**
+     * Set the layout of the frames that follow.
+     *
+     * @param width visible width, after cropping
+     * @param height visible height, after cropping
+     * @param stride bytes per luma row in the buffer
+     * @param sliceHeight luma rows in the buffer before the chroma plane(s)
+     * @return whether frames in this layout can be hashed
+     */
+    boolean setFormat(int colorFormat, int width, int height, int stride, int sliceHeight,
+                      int cropLeft, int cropTop) {
+        if (!isSupported(colorFormat) || width <= 0 || height <= 0) {
+            this.colorFormat = -1;
+            return false;
+        }
+        int bytesPerSample = colorFormat == MediaCodecInfo.CodecCapabilities.COLOR_FormatYUVP010 ? 2 : 1;
+        this.colorFormat = colorFormat;
+        this.width = width;
+        this.height = height;
+        this.stride = Math.max(stride, width * bytesPerSample);
+        this.sliceHeight = Math.max(sliceHeight, height);
+        this.cropLeft = cropLeft;
+        this.cropTop = cropTop;
+        if (row.length < this.stride) {
+            row = new byte[this.stride];
+        }
+        return true;
+    }
+
+    boolean hasFormat() {
+        return colorFormat != -1;
+    }
+
+    /**
+     * Hash the frame that starts at {@code data}'s position.
+     *
+     * @return the CRC-32, or -1 if no supported format is set or the buffer is too short
+     */
+    long hash(ByteBuffer data) {
+        if (colorFormat == -1) {
+            return -1;
+        }
+        ByteBuffer buf = data.duplicate();
+        buf.limit(buf.capacity());
+        int base = data.position();
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        int chromaBase = base + stride * sliceHeight;
+        crc.reset();
+        try {
+            switch (colorFormat) {
+                case MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Planar: {
+                    int chromaStride = stride / 2;
+                    hashPlane8(buf, base, stride, cropLeft, cropTop, width, height);
+                    hashPlane8(buf, chromaBase, chromaStride, cropLeft / 2, cropTop / 2, chromaWidth, chromaHeight);
+                    int vBase = chromaBase + chromaStride * (sliceHeight / 2);
+                    hashPlane8(buf, vBase, chromaStride, cropLeft / 2, cropTop / 2, chromaWidth, chromaHeight);
+                    break;
+                }
+                case MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420SemiPlanar:
+                    hashPlane8(buf, base, stride, cropLeft, cropTop, width, height);
+                    hashInterleaved(buf, chromaBase, 1, chromaWidth, chromaHeight, 0);
+                    hashInterleaved(buf, chromaBase, 1, chromaWidth, chromaHeight, 1);
+                    break;
+                default: // P010
+                    hashPlane16(buf, base, cropLeft, cropTop, width, height);
+                    hashInterleaved(buf, chromaBase, 2, chromaWidth, chromaHeight, 0);
+                    hashInterleaved(buf, chromaBase, 2, chromaWidth, chromaHeight, 1);
+                    break;
+            }
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            // the buffer does not hold the advertised layout
+            return -1;
+        }
+        return crc.getValue();
+    }
+
+    private void hashPlane8(ByteBuffer buf, int planeBase, int planeStride, int left, int top, int w, int h) {
+        for (int r = 0; r < h; r++) {
+            int start = planeBase + (top + r) * planeStride + left;
+            buf.limit(start + w);
+            buf.position(start);
+            crc.update(buf);
+            buf.limit(buf.capacity());
+        }
+    }
+
+    private void hashPlane16(ByteBuffer buf, int planeBase, int left, int top, int w, int h) {
+        for (int r = 0; r < h; r++) {
+            buf.position(planeBase + (top + r) * stride + left * 2);
+            buf.get(row, 0, w * 2);
+            toLowBits(w);
+            crc.update(row, 0, w * 2);
+        }
+    }
+
+    /**
+     * One chroma component of an interleaved UV plane: {@code component} 0 is U, 1 is V.
+     */
+    private void hashInterleaved(ByteBuffer buf, int planeBase, int bytesPerSample, int w, int h, int component) {
+        int left = (cropLeft / 2) * 2 * bytesPerSample;
+        for (int r = 0; r < h; r++) {
+            buf.position(planeBase + (cropTop / 2 + r) * stride + left);
+            buf.get(row, 0, w * 2 * bytesPerSample);
+            int out = 0;
+            for (int i = component * bytesPerSample; i < w * 2 * bytesPerSample; i += 2 * bytesPerSample) {
+                row[out++] = row[i];
+                if (bytesPerSample == 2) {
+                    row[out++] = row[i + 1];
+                }
+            }
+            if (bytesPerSample == 2) {
+                toLowBits(w);
+            }
+            crc.update(row, 0, w * bytesPerSample);
+        }
+    }
+
+    /** P010 keeps 10 bits in the high bits of each little-endian sample; move them down. */
+    private void toLowBits(int samples) {
+        for (int i = 0; i < samples * 2; i += 2) {
+            int v = ((row[i] & 0xFF) | ((row[i + 1] & 0xFF) << 8)) >>> 6;
+            row[i] = (byte) v;
+            row[i + 1] = (byte) (v >> 8);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.decoder_plugin;
+
+import android.content.Context;
+import android.os.Handler;
+
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.video.VideoRendererEventListener;
+import com.roncatech.vcat.decoder_plugin_api.ContainerParser;
+import com.roncatech.vcat.decoder_plugin_api.VcatDecoder;
+import com.roncatech.vcat.decoder_plugin_api.VcatDecoderPlugin;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class VcatDecoderManagerTest {
+
+    /** A plugin built against an SPI without getPluginApiVersion: it inherits the host's default. */
+    static class SilentDecoder implements VcatDecoder {
+        @Override public String getId() { return "test.silent"; }
+        @Override public String getDisplayName() { return "silent"; }
+        @Override public String getVersion() { return "0"; }
+        @Override public String getMimeType() { return "video/av01"; }
+        @Override public List<ContainerParser> getSupportedContainerParsers() { return Collections.emptyList(); }
+        @Override public Renderer createVideoRenderer(Context context, long allowedJoiningTimeMs,
+                Handler eventHandler, VideoRendererEventListener eventListener, int threads) {
+            return null;
+        }
+    }
+
+    /** A plugin that compiles its SPI version in. */
+    static class DeclaringDecoder extends SilentDecoder {
+        @Override public String getPluginApiVersion() { return "0.3.0"; }
+    }
+
+    /** Declared by a superclass inside the plugin. */
+    static final class DeclaringSubclass extends DeclaringDecoder {
+    }
+
+    static final class LegacyDecoder implements VcatDecoderPlugin {
+        @Override public String getId() { return "test.legacy"; }
+        @Override public String getDisplayName() { return "legacy"; }
+        @Override public String getVersion() { return "0"; }
+        @Override public String getMimeType() { return "video/vvc"; }
+        @Override public List<String> getSupportedProfiles() { return Collections.emptyList(); }
+        @Override public Renderer createVideoRenderer(Context context, long allowedJoiningTimeMs,
+                Handler eventHandler, VideoRendererEventListener eventListener, int threads) {
+            return null;
+        }
+    }
+
+    @Test
+    public void inheritedDefaultIsNotTrusted() {
+        SilentDecoder d = new SilentDecoder();
+        // what the host's default claims
+        assertEquals("0.3.0", d.getPluginApiVersion());
+        assertNull(VcatDecoderManager.pluginApiVersionOf(d, null));
+    }
+
+    @Test
+    public void manifestVersionWins() {
+        assertEquals("0.2.1", VcatDecoderManager.pluginApiVersionOf(new SilentDecoder(), "0.2.1"));
+        assertEquals("0.2.1", VcatDecoderManager.pluginApiVersionOf(new DeclaringDecoder(), "0.2.1"));
+    }
+
+    @Test
+    public void versionCompiledIntoThePluginIsUsed() {
+        assertEquals("0.3.0", VcatDecoderManager.pluginApiVersionOf(new DeclaringDecoder(), null));
+        assertEquals("0.3.0", VcatDecoderManager.pluginApiVersionOf(new DeclaringSubclass(), null));
+    }
+
+    @Test
+    public void legacyPluginsReportTheLegacyVersion() {
+        assertEquals("0.0.1", VcatDecoderManager.pluginApiVersionOf(new LegacyDecoder(), null));
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.parsers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.exoplayer2.C;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class SampleTraceTest {
+
+    /** Runs writes on the recording thread, so each test can read the sidecar right after close. */
+    private static final Executor DIRECT = Runnable::run;
+
+    @Test
+    public void drainsEveryRecordAcrossWraps() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SampleTrace trace = new SampleTrace(() -> out, /* capacity= */ 4, DIRECT);
+        for (int i = 0; i < 10; i++) {
+            if (i == 6) {
+                trace.markDiscontinuity();
+            }
+            trace.record(i * 33_333L, 1000 + i, i % 5 == 0 ? C.BUFFER_FLAG_KEY_FRAME : 0, 1L << i);
+        }
+        trace.close();
+        trace.close();
+
+        byte[] bytes = out.toByteArray();
+        assertEquals(SampleTrace.HEADER_SIZE + 10 * SampleTrace.RECORD_SIZE, bytes.length);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        assertEquals('V', in.readByte());
+        assertEquals('T', in.readByte());
+        assertEquals('R', in.readByte());
+        assertEquals('C', in.readByte());
+        assertEquals(SampleTrace.VERSION, in.readUnsignedShort());
+        assertEquals(SampleTrace.RECORD_SIZE, in.readUnsignedShort());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i * 33_333L, in.readLong());
+            assertEquals(1000 + i, in.readInt());
+            int flags = in.readUnsignedByte();
+            assertEquals(i % 5 == 0, (flags & SampleTrace.FLAG_KEY_FRAME) != 0);
+            assertEquals(i == 6, (flags & SampleTrace.FLAG_DISCONTINUITY) != 0);
+            assertEquals(1L << i, in.readLong());
+        }
+    }
+
+    @Test
+    public void noSidecarUntilSamplesAreRecorded() {
+        boolean[] opened = {false};
+        SampleTrace trace = new SampleTrace(() -> {
+            opened[0] = true;
+            return new ByteArrayOutputStream();
+        }, SampleTrace.DEFAULT_CAPACITY, DIRECT);
+        trace.close();
+        assertFalse(opened[0]);
+    }
+
+    @Test
+    public void nullSinkTurnsTraceOff() {
+        int[] opens = {0};
+        SampleTrace trace = new SampleTrace(() -> {
+            opens[0]++;
+            return null;
+        }, /* capacity= */ 2, DIRECT);
+        for (int i = 0; i < 8; i++) {
+            trace.record(i, 1, 0, 0);
+        }
+        trace.close();
+        assertEquals(1, opens[0]);
+    }
+
+    @Test
+    public void sidecarIsOpenedAndWrittenOnTheWriter() {
+        List<Runnable> queued = new ArrayList<>();
+        boolean[] opened = {false};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SampleTrace trace = new SampleTrace(() -> {
+            opened[0] = true;
+            return out;
+        }, /* capacity= */ 2, queued::add);
+        for (int i = 0; i < 4; i++) {
+            trace.record(i, 1, 0, 0);
+        }
+        trace.close();
+        assertFalse(opened[0]);
+        assertEquals(3, queued.size()); // two drains and the close
+
+        for (Runnable r : queued) {
+            r.run();
+        }
+        assertTrue(opened[0]);
+        assertEquals(SampleTrace.HEADER_SIZE + 4 * SampleTrace.RECORD_SIZE, out.size());
+    }
+
+    @Test
+    public void writerFallingBehindTurnsTraceOff() {
+        List<Runnable> queued = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SampleTrace trace = new SampleTrace(() -> out, /* capacity= */ 1, queued::add);
+        for (int i = 0; i < SampleTrace.BUFFERS + 3; i++) {
+            trace.record(i, 1, 0, 0);
+        }
+        trace.close();
+        // every buffer waited for the writer; the drain after them found none and stopped the trace
+        for (Runnable r : queued) {
+            r.run();
+        }
+        assertEquals(SampleTrace.BUFFERS + 1, queued.size());
+        assertEquals(0, out.size());
+    }
+}
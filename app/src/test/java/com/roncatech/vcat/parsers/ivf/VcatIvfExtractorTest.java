@@ -59,6 +59,7 @@ import org.junit.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -67,6 +68,7 @@ import java.util.List;
 public class VcatIvfExtractorTest {
 
     private static final int AV01 = Util.getIntegerCodeForString("AV01");
+    private static final byte KEY_MARK = 0x7f;
 
     // The manager is a process-wide singleton (first-registration wins), so use a single shared
     // stub registered once, and reset its captured state before each test.
@@ -170,6 +172,68 @@ public class VcatIvfExtractorTest {
         assertArrayEquals(first, out.track.samples.get(0));
     }
 
+    // ---------- seeking ----------
+
+    @Test public void seekMap_indexesKeyFramesAsRead() throws IOException {
+        CapturingOutput out = new CapturingOutput();
+        extract(new VcatIvfExtractor(), input(gop6()), out);
+
+        assertTrue(out.seekMap.isSeekable());
+        assertEquals(200_000L, out.seekMap.getDurationUs()); // 6 frames at 30 fps
+        assertTrue((out.track.flags.get(3) & C.BUFFER_FLAG_KEY_FRAME) != 0);
+        assertEquals(0, (out.track.flags.get(4) & C.BUFFER_FLAG_KEY_FRAME));
+
+        // frame 4 decodes from key frame 3; frame 2 from key frame 0
+        SeekMap.SeekPoints p = out.seekMap.getSeekPoints(133_333L);
+        assertEquals(100_000L, p.first.timeUs);
+        assertEquals(32 + 3 * 22, p.first.position);
+        p = out.seekMap.getSeekPoints(66_666L);
+        assertEquals(0L, p.first.timeUs);
+        assertEquals(32, p.first.position);
+        assertEquals(100_000L, p.second.timeUs);
+    }
+
+    @Test public void seekMap_durationUsesPtsStep_forFineTimeBase() throws IOException {
+        // time base 1/15360 (ffmpeg's default for AV1 in IVF): 30 fps is a pts step of 512 ticks
+        CapturingOutput out = new CapturingOutput();
+        extract(new VcatIvfExtractor(),
+                input(ivf("AV01", 15360, 1, 3, new long[]{0, 512, 1024},
+                        new byte[][]{payload(8), payload(8), payload(8)})),
+                out);
+
+        assertEquals(100_000L, out.seekMap.getDurationUs()); // 3 frames at 30 fps
+        assertEquals(33_333L, (long) out.track.timesUs.get(1));
+    }
+
+    @Test public void seekMap_singleFrame_durationUnset() throws IOException {
+        CapturingOutput out = new CapturingOutput();
+        extract(new VcatIvfExtractor(),
+                input(ivf("AV01", 15360, 1, 1, new long[]{0}, new byte[][]{payload(8)})),
+                out);
+
+        assertTrue(out.seekMap.isSeekable());
+        assertEquals(C.TIME_UNSET, out.seekMap.getDurationUs());
+    }
+
+    @Test public void seek_resumesAtIndexedKeyFrame() throws IOException {
+        VcatIvfExtractor ex = new VcatIvfExtractor();
+        CapturingOutput out = new CapturingOutput();
+        ByteArrayInput in = input(gop6());
+        extract(ex, in, out);
+
+        SeekMap.SeekPoints p = out.seekMap.getSeekPoints(150_000L);
+        ex.seek(p.first.position, 150_000L);
+        in.setPosition((int) p.first.position);
+        int before = out.track.samples.size();
+        extract(ex, in, out);
+
+        assertEquals(before + 3, out.track.samples.size());
+        assertEquals(100_000L, (long) out.track.timesUs.get(before));
+        assertTrue((out.track.flags.get(before) & C.BUFFER_FLAG_KEY_FRAME) != 0);
+        // the format is not parsed again
+        assertEquals(1, STUB.parseHeaderCalls);
+    }
+
     // ---------- IvfFileHeader ----------
 
     @Test public void ivfFileHeader_parse_fieldsCorrect() {
@@ -185,6 +249,16 @@ public class VcatIvfExtractorTest {
 
     // ===================== helpers =====================
 
+    /** Six 10-byte frames at 30 fps, key frames at 0 and 3. */
+    private static byte[] gop6() {
+        byte[][] frames = new byte[6][];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = payload(10);
+            if (i % 3 == 0) frames[i][0] = KEY_MARK;
+        }
+        return ivf("AV01", 30, 1, 6, new long[]{0, 1, 2, 3, 4, 5}, frames);
+    }
+
     private static byte[] payload(int n) {
         byte[] b = new byte[n];
         for (int i = 0; i < n; i++) b[i] = (byte) (i + 1);
@@ -235,7 +309,9 @@ public class VcatIvfExtractorTest {
 
     private static void extract(VcatIvfExtractor ex, ByteArrayInput input, CapturingOutput out)
             throws IOException {
-        ex.init(out);
+        if (!out.tracksEnded) {
+            ex.init(out); // not again when a test resumes after a seek
+        }
         PositionHolder ph = new PositionHolder();
         int result = Extractor.RESULT_CONTINUE;
         while (result != Extractor.RESULT_END_OF_INPUT) {
@@ -249,14 +325,21 @@ public class VcatIvfExtractorTest {
         boolean parseHeaderCalled = false;
         boolean peeked = false;
         int capturedFrameSize = -1;
+        int parseHeaderCalls = 0;
 
-        void reset() { parseHeaderCalled = false; peeked = false; capturedFrameSize = -1; }
+        void reset() { parseHeaderCalled = false; peeked = false; capturedFrameSize = -1; parseHeaderCalls = 0; }
 
         @Override public int ivfFourCc() { return AV01; }
 
+        // test frames mark a random access point with their first byte
+        @Override public boolean isKeyFrame(ByteBuffer frameStart) {
+            return frameStart.remaining() > 0 && frameStart.get(0) == KEY_MARK;
+        }
+
         @Override public VideoConfiguration parseHeader(ExtractorInput input, int frameSize)
                 throws IOException, InterruptedException {
             parseHeaderCalled = true;
+            parseHeaderCalls++;
             capturedFrameSize = frameSize;
             byte[] tmp = new byte[Math.min(frameSize, 4)];
             if (tmp.length > 0) {
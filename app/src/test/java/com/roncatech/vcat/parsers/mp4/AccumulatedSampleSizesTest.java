@@ -0,0 +1,138 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.parsers.mp4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.extractor.mp4.Track;
+import com.google.android.exoplayer2.util.MimeTypes;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class AccumulatedSampleSizesTest {
+
+    @Test
+    public void matchesFullMergeInReadOrder() {
+        TrackSampleTable[] tables = {
+                table(C.TRACK_TYPE_VIDEO, 10_000, 33_333, 7),
+                table(C.TRACK_TYPE_AUDIO, 14_000, 21_333, 11),
+        };
+        long[][] expected = fullMerge(tables);
+        AccumulatedSampleSizes lazy = new AccumulatedSampleSizes(tables);
+
+        // the extractor asks for each track's next sample as it reads
+        int[] next = new int[tables.length];
+        for (int n = 0; n < 24_000; n++) {
+            int t = -1;
+            for (int i = 0; i < tables.length; i++) {
+                if (next[i] < tables[i].sampleCount
+                        && (t < 0 || expected[i][next[i]] < expected[t][next[t]])) {
+                    t = i;
+                }
+            }
+            for (int i = 0; i < tables.length; i++) {
+                if (next[i] < tables[i].sampleCount) {
+                    assertEquals(expected[i][next[i]], lazy.get(i, next[i]));
+                }
+            }
+            next[t]++;
+        }
+        assertTrue(lazy.getCheckpointCount() > 1);
+    }
+
+    @Test
+    public void matchesFullMergeAfterSeeks() {
+        TrackSampleTable[] tables = {
+                table(C.TRACK_TYPE_VIDEO, 20_000, 16_667, 3),
+                table(C.TRACK_TYPE_AUDIO, 15_000, 23_220, 5),
+                table(C.TRACK_TYPE_TEXT, 50, 6_000_000, 2),
+        };
+        long[][] expected = fullMerge(tables);
+        AccumulatedSampleSizes lazy = new AccumulatedSampleSizes(tables);
+
+        Random random = new Random(42);
+        for (int n = 0; n < 2_000; n++) {
+            int t = random.nextInt(tables.length);
+            int s = random.nextInt(tables[t].sampleCount);
+            assertEquals(expected[t][s], lazy.get(t, s));
+        }
+    }
+
+    /** The whole-file merge the extractor used to run before its first sample. */
+    private static long[][] fullMerge(TrackSampleTable[] tables) {
+        long[][] sizes = new long[tables.length][];
+        int[] next = new int[tables.length];
+        for (int i = 0; i < tables.length; i++) {
+            sizes[i] = new long[tables[i].sampleCount];
+        }
+        long accumulated = 0;
+        while (true) {
+            long minTimeUs = Long.MAX_VALUE;
+            int t = -1;
+            for (int i = 0; i < tables.length; i++) {
+                if (next[i] < tables[i].sampleCount && tables[i].getTimestampUs(next[i]) <= minTimeUs) {
+                    t = i;
+                    minTimeUs = tables[i].getTimestampUs(next[i]);
+                }
+            }
+            if (t < 0) {
+                return sizes;
+            }
+            sizes[t][next[t]] = accumulated;
+            accumulated += tables[t].getSize(next[t]);
+            next[t]++;
+        }
+    }
+
+    private static TrackSampleTable table(int type, int count, long frameUs, int seed) {
+        Random random = new Random(seed);
+        long[] offsets = new long[count];
+        int[] sizes = new int[count];
+        long[] timestampsUs = new long[count];
+        int[] flags = new int[count];
+        for (int i = 0; i < count; i++) {
+            sizes[i] = 100 + random.nextInt(20_000);
+            timestampsUs[i] = i * frameUs;
+            flags[i] = C.BUFFER_FLAG_KEY_FRAME;
+        }
+        Format format = new Format.Builder().setSampleMimeType(MimeTypes.VIDEO_AV1).build();
+        Track track = new Track(seed, type, 1_000_000, 1_000, C.TIME_UNSET, format,
+                Track.TRANSFORMATION_NONE, null, 0, null, null);
+        return new TrackSampleTable(track, offsets, sizes, 20_100, timestampsUs, flags, count * frameUs);
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.parsers.mp4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.extractor.GaplessInfoHolder;
+import com.google.android.exoplayer2.extractor.mp4.Track;
+import com.google.android.exoplayer2.util.Log;
+import com.google.android.exoplayer2.util.MimeTypes;
+import com.google.android.exoplayer2.util.ParsableByteArray;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The compact table must be indistinguishable from the dense one: same parse in, same samples,
+ * timestamps, flags and sync searches out.
+ */
+public class CompactSampleTableTest {
+
+    private static final int VIDEO_TIMESCALE = 90_000;
+    private static final int MOVIE_TIMESCALE = 1_000;
+    private static final int FRAME_DELTA = 3_000;
+    private static final int SAMPLES_PER_CHUNK = 10;
+    private static final int GOP = 30;
+
+    @Before
+    public void setUp() {
+        Log.setLogLevel(Log.LOG_LEVEL_OFF);
+    }
+
+    @Test
+    public void videoWithoutEditList() throws Exception {
+        Atom.ContainerAtom stbl = videoStbl(3_000, true, true);
+        TrackSampleTable compact = assertSameTables(videoTrack(null, null), stbl);
+        assertTrue(compact.isCompact());
+    }
+
+    @Test
+    public void videoWithFixedSizesAllSync() throws Exception {
+        Atom.ContainerAtom stbl = videoStbl(1_000, false, false);
+        TrackSampleTable compact = assertSameTables(videoTrack(null, null), stbl);
+        assertTrue(compact.isCompact());
+    }
+
+    @Test
+    public void videoWithSingleEdit() throws Exception {
+        Atom.ContainerAtom stbl = videoStbl(3_000, true, true);
+        // starts mid-GOP and ends well before the last sample
+        Track track = videoTrack(new long[] {20_000}, new long[] {FRAME_DELTA * 45L + 1_000});
+        TrackSampleTable compact = assertSameTables(track, stbl);
+        assertTrue(compact.isCompact());
+    }
+
+    @Test
+    public void videoWithZeroDurationEdit() throws Exception {
+        Atom.ContainerAtom stbl = videoStbl(600, true, true);
+        TrackSampleTable compact = assertSameTables(videoTrack(new long[] {0}, new long[] {6_000}), stbl);
+        assertTrue(compact.isCompact());
+    }
+
+    @Test
+    public void videoWithMultipleEditsFallsBackToDense() throws Exception {
+        Atom.ContainerAtom stbl = videoStbl(600, true, true);
+        Track track = videoTrack(new long[] {1_000, 4_000}, new long[] {-1, 6_000});
+        TrackSampleTable compact = assertSameTables(track, stbl);
+        assertFalse(compact.isCompact());
+    }
+
+    @Test
+    public void audioWithGaplessEdit() throws Exception {
+        int timescale = 48_000;
+        int frame = 1_024;
+        int count = 100;
+        Format format = new Format.Builder()
+                .setSampleMimeType(MimeTypes.AUDIO_AAC)
+                .setSampleRate(timescale)
+                .setChannelCount(2)
+                .build();
+        Track track = new Track(2, C.TRACK_TYPE_AUDIO, timescale, MOVIE_TIMESCALE, C.TIME_UNSET,
+                format, Track.TRANSFORMATION_NONE, null, 0, new long[] {2_080}, new long[] {2_048});
+
+        int[] sizes = new int[count];
+        for (int i = 0; i < count; i++) {
+            sizes[i] = 300 + (i * 7) % 50;
+        }
+        Atom.ContainerAtom stbl = stbl(sizes, 0, count, frame, null, null);
+
+        GaplessInfoHolder denseGapless = new GaplessInfoHolder();
+        GaplessInfoHolder compactGapless = new GaplessInfoHolder();
+        TrackSampleTable dense = AtomParsers.parseStbl(track, stbl, denseGapless, false);
+        TrackSampleTable compact = AtomParsers.parseStbl(track, stbl, compactGapless, true);
+
+        assertTrue(compact.isCompact());
+        assertSame(dense, compact);
+        assertEquals(denseGapless.encoderDelay, compactGapless.encoderDelay);
+        assertEquals(denseGapless.encoderPadding, compactGapless.encoderPadding);
+        assertTrue(compactGapless.hasGaplessInfo());
+    }
+
+    @Test
+    public void tablesSurviveSerialization() throws Exception {
+        Atom.ContainerAtom stbl = videoStbl(3_000, true, true);
+        Track track = videoTrack(new long[] {20_000}, new long[] {FRAME_DELTA * 45L + 1_000});
+        for (boolean allowCompact : new boolean[] {true, false}) {
+            TrackSampleTable table = AtomParsers.parseStbl(track, stbl, new GaplessInfoHolder(), allowCompact);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            table.writeTo(new DataOutputStream(bytes));
+            TrackSampleTable restored = TrackSampleTable.readFrom(
+                    new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), track);
+
+            assertEquals(table.isCompact(), restored.isCompact());
+            assertSame(table, restored);
+        }
+    }
+
+    private static TrackSampleTable assertSameTables(Track track, Atom.ContainerAtom stbl)
+            throws Exception {
+        TrackSampleTable dense = AtomParsers.parseStbl(track, stbl, new GaplessInfoHolder(), false);
+        TrackSampleTable compact = AtomParsers.parseStbl(track, stbl, new GaplessInfoHolder(), true);
+        assertFalse(dense.isCompact());
+        assertSame(dense, compact);
+        return compact;
+    }
+
+    private static void assertSame(TrackSampleTable dense, TrackSampleTable compact) {
+        assertEquals(dense.sampleCount, compact.sampleCount);
+        assertEquals(dense.maximumSize, compact.maximumSize);
+        assertEquals(dense.durationUs, compact.durationUs);
+        for (int i = 0; i < dense.sampleCount; i++) {
+            assertEquals("offset " + i, dense.getOffset(i), compact.getOffset(i));
+            assertEquals("size " + i, dense.getSize(i), compact.getSize(i));
+            assertEquals("timestamp " + i, dense.getTimestampUs(i), compact.getTimestampUs(i));
+            assertEquals("flags " + i, dense.getFlags(i), compact.getFlags(i));
+        }
+        long endUs = dense.sampleCount > 0 ? dense.getTimestampUs(dense.sampleCount - 1) : 0;
+        for (long timeUs = -50_000; timeUs <= endUs + 50_000; timeUs += 7_919) {
+            assertEquals("before " + timeUs, dense.getIndexOfEarlierOrEqualSynchronizationSample(timeUs),
+                    compact.getIndexOfEarlierOrEqualSynchronizationSample(timeUs));
+            assertEquals("after " + timeUs, dense.getIndexOfLaterOrEqualSynchronizationSample(timeUs),
+                    compact.getIndexOfLaterOrEqualSynchronizationSample(timeUs));
+        }
+    }
+
+    private static Track videoTrack(long[] editListDurations, long[] editListMediaTimes) {
+        Format format = new Format.Builder().setSampleMimeType(MimeTypes.VIDEO_AV1).build();
+        return new Track(1, C.TRACK_TYPE_VIDEO, VIDEO_TIMESCALE, MOVIE_TIMESCALE, C.TIME_UNSET,
+                format, Track.TRANSFORMATION_NONE, null, 0, editListDurations, editListMediaTimes);
+    }
+
+    /** I P B B ... with a sync sample every GOP samples. */
+    private static Atom.ContainerAtom videoStbl(int count, boolean variableSizes, boolean bFrames) {
+        int[] sizes = new int[count];
+        for (int i = 0; i < count; i++) {
+            sizes[i] = variableSizes ? (i % GOP == 0 ? 40_000 : 2_000 + (i * 131) % 5_000) : 4_096;
+        }
+        int[] cttsOffsets = null;
+        if (bFrames) {
+            int[] pattern = {FRAME_DELTA, FRAME_DELTA * 3, 0, 0};
+            cttsOffsets = new int[count];
+            for (int i = 0; i < count; i++) {
+                cttsOffsets[i] = pattern[i % pattern.length];
+            }
+        }
+        int[] syncSamples = null;
+        if (variableSizes) {
+            syncSamples = new int[(count + GOP - 1) / GOP];
+            for (int i = 0; i < syncSamples.length; i++) {
+                syncSamples[i] = i * GOP + 1;
+            }
+        }
+        return stbl(sizes, 48, SAMPLES_PER_CHUNK, FRAME_DELTA, cttsOffsets, syncSamples);
+    }
+
+    /**
+     * Builds stsz, stco, stsc, stts and optionally ctts and stss. Chunks are laid out back to back
+     * with a {@code gap} between them; sizes all equal are written as a fixed-size stsz.
+     */
+    private static Atom.ContainerAtom stbl(int[] sizes, int gap, int samplesPerChunk, int delta,
+                                           int[] cttsOffsets, int[] syncSamples) {
+        int count = sizes.length;
+        Atom.ContainerAtom stbl = new Atom.ContainerAtom(Atom.TYPE_stbl, 0);
+
+        boolean fixed = true;
+        for (int s : sizes) {
+            fixed &= s == sizes[0];
+        }
+        ByteBuffer stsz = fullAtom(Atom.TYPE_stsz, 8 + (fixed ? 0 : 4 * count));
+        stsz.putInt(fixed ? sizes[0] : 0).putInt(count);
+        if (!fixed) {
+            for (int s : sizes) {
+                stsz.putInt(s);
+            }
+        }
+        stbl.add(leaf(Atom.TYPE_stsz, stsz));
+
+        int chunkCount = (count + samplesPerChunk - 1) / samplesPerChunk;
+        ByteBuffer stco = fullAtom(Atom.TYPE_stco, 4 + 4 * chunkCount);
+        stco.putInt(chunkCount);
+        int offset = 1_000;
+        for (int c = 0; c < chunkCount; c++) {
+            stco.putInt(offset);
+            for (int i = c * samplesPerChunk; i < Math.min(count, (c + 1) * samplesPerChunk); i++) {
+                offset += sizes[i];
+            }
+            offset += gap;
+        }
+        stbl.add(leaf(Atom.TYPE_stco, stco));
+
+        ByteBuffer stsc = fullAtom(Atom.TYPE_stsc, 4 + 12);
+        stsc.putInt(1).putInt(1).putInt(samplesPerChunk).putInt(1);
+        stbl.add(leaf(Atom.TYPE_stsc, stsc));
+
+        ByteBuffer stts = fullAtom(Atom.TYPE_stts, 4 + 8);
+        stts.putInt(1).putInt(count).putInt(delta);
+        stbl.add(leaf(Atom.TYPE_stts, stts));
+
+        if (cttsOffsets != null) {
+            ByteBuffer ctts = fullAtom(Atom.TYPE_ctts, 4 + 8 * count);
+            ctts.putInt(count);
+            for (int o : cttsOffsets) {
+                ctts.putInt(1).putInt(o);
+            }
+            stbl.add(leaf(Atom.TYPE_ctts, ctts));
+        }
+
+        if (syncSamples != null) {
+            ByteBuffer stss = fullAtom(Atom.TYPE_stss, 4 + 4 * syncSamples.length);
+            stss.putInt(syncSamples.length);
+            for (int s : syncSamples) {
+                stss.putInt(s);
+            }
+            stbl.add(leaf(Atom.TYPE_stss, stss));
+        }
+        return stbl;
+    }
+
+    private static ByteBuffer fullAtom(int type, int payloadSize) {
+        int size = Atom.FULL_HEADER_SIZE + payloadSize;
+        return ByteBuffer.allocate(size).putInt(size).putInt(type).putInt(0);
+    }
+
+    private static Atom.LeafAtom leaf(int type, ByteBuffer atom) {
+        return new Atom.LeafAtom(type, new ParsableByteArray(atom.array()));
+    }
+}
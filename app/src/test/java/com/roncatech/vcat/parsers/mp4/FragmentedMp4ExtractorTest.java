@@ -0,0 +1,207 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.parsers.mp4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.extractor.ChunkIndex;
+import com.google.android.exoplayer2.extractor.DefaultExtractorInput;
+import com.google.android.exoplayer2.extractor.ExtractorInput;
+import com.google.android.exoplayer2.extractor.mp4.Track;
+import com.google.android.exoplayer2.util.MimeTypes;
+import com.google.android.exoplayer2.util.ParsableByteArray;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/** The mfra seek index and the fragment read-ahead, which are not exercised by plain playback. */
+public class FragmentedMp4ExtractorTest {
+
+    private static final int VIDEO_ID = 1;
+    private static final int AUDIO_ID = 2;
+    private static final long FRAGMENTS_END = 10_000;
+
+    private static final IntFunction<Track> TRACKS = id ->
+            id == VIDEO_ID ? track(id, C.TRACK_TYPE_VIDEO, 90_000)
+                    : id == AUDIO_ID ? track(id, C.TRACK_TYPE_AUDIO, 48_000) : null;
+
+    // ---- mfra / tfra ----
+
+    @Test
+    public void mfraIndexesVideoFragments() {
+        ByteBuffer mfra = mfra(
+                tfra(AUDIO_ID, new long[] {0, 48_000}, new long[] {1_000, 6_000}),
+                // two sync samples in the first fragment share its offset
+                tfra(VIDEO_ID, new long[] {0, 45_000, 90_000, 180_000}, new long[] {1_000, 1_000, 4_000, 7_000}));
+
+        ChunkIndex index = FragmentedMp4Extractor.parseMfra(
+                new ParsableByteArray(mfra.array()), FRAGMENTS_END, 3_000_000L, TRACKS);
+
+        assertNotNull(index);
+        assertEquals(3, index.length);
+        assertArrayEquals(new long[] {1_000, 4_000, 7_000}, index.offsets);
+        assertArrayEquals(new long[] {0, 1_000_000, 2_000_000}, index.timesUs);
+        assertArrayEquals(new int[] {3_000, 3_000, 3_000}, index.sizes);
+        assertArrayEquals(new long[] {1_000_000, 1_000_000, 1_000_000}, index.durationsUs);
+    }
+
+    @Test
+    public void mfraWithoutKnownTrackIsNotAnIndex() {
+        ByteBuffer mfra = mfra(tfra(7, new long[] {0}, new long[] {1_000}));
+        assertNull(FragmentedMp4Extractor.parseMfra(
+                new ParsableByteArray(mfra.array()), FRAGMENTS_END, C.TIME_UNSET, TRACKS));
+    }
+
+    @Test
+    public void mfraWithDecreasingOffsetsIsNotAnIndex() {
+        ByteBuffer mfra = mfra(tfra(VIDEO_ID, new long[] {0, 90_000}, new long[] {4_000, 1_000}));
+        assertNull(FragmentedMp4Extractor.parseMfra(
+                new ParsableByteArray(mfra.array()), FRAGMENTS_END, C.TIME_UNSET, TRACKS));
+    }
+
+    @Test
+    public void tfraEntryCountIsBoundedByTheAtom() {
+        ByteBuffer tfra = tfra(VIDEO_ID, new long[] {0, 90_000}, new long[] {1_000, 4_000});
+        // claim two billion entries in an atom that holds two
+        tfra.putInt(20, Integer.MAX_VALUE);
+        ByteBuffer mfra = mfra(tfra);
+        assertNull(FragmentedMp4Extractor.parseMfra(
+                new ParsableByteArray(mfra.array()), FRAGMENTS_END, C.TIME_UNSET, TRACKS));
+    }
+
+    // ---- read-ahead ----
+
+    @Test
+    public void readAheadTakesWholeFragmentsUpToTheCount() throws Exception {
+        byte[] data = stream(100, 50, 200, 50, 300);
+        byte[] buffer = new byte[data.length];
+        int filled = FragmentedMp4Extractor.fillReadAhead(
+                input(data), buffer, 100, data.length, /* maxFragments= */ 2, new ParsableByteArray(16));
+        // the rest of the current mdat, then one moof and mdat
+        assertEquals(350, filled);
+        assertArrayEquals(Arrays.copyOf(data, filled), Arrays.copyOf(buffer, filled));
+    }
+
+    @Test
+    public void readAheadStopsAtAnAtomThatDoesNotFit() throws Exception {
+        byte[] data = stream(100, 50, 200, 50, 300);
+        int filled = FragmentedMp4Extractor.fillReadAhead(
+                input(data), new byte[data.length], 100, /* budget= */ 300, 4, new ParsableByteArray(16));
+        // the next mdat would straddle the budget, so the buffer ends after the moof
+        assertEquals(150, filled);
+    }
+
+    @Test
+    public void readAheadStopsAtEndOfInput() throws Exception {
+        byte[] data = stream(100, 50, 200, 50, 300);
+        ExtractorInput input = input(data);
+        int filled = FragmentedMp4Extractor.fillReadAhead(
+                input, new byte[1_000], 100, 1_000, 8, new ParsableByteArray(16));
+        assertEquals(data.length, filled);
+        assertEquals(data.length, input.getPosition());
+    }
+
+    // ===== helpers =====
+
+    private static Track track(int id, int type, long timescale) {
+        Format format = new Format.Builder().setSampleMimeType(
+                type == C.TRACK_TYPE_VIDEO ? MimeTypes.VIDEO_H264 : MimeTypes.AUDIO_AAC).build();
+        return new Track(id, type, timescale, 1_000, C.TIME_UNSET, format,
+                Track.TRANSFORMATION_NONE, null, 4, null, null);
+    }
+
+    /** A version 0 tfra with one-byte traf, trun and sample numbers. */
+    private static ByteBuffer tfra(int trackId, long[] times, long[] offsets) {
+        int size = Atom.FULL_HEADER_SIZE + 12 + times.length * (8 + 3);
+        ByteBuffer b = ByteBuffer.allocate(size);
+        b.putInt(size).putInt(Atom.TYPE_tfra).putInt(0).putInt(trackId).putInt(0).putInt(times.length);
+        for (int i = 0; i < times.length; i++) {
+            b.putInt((int) times[i]).putInt((int) offsets[i]).put((byte) 1).put((byte) 1).put((byte) 1);
+        }
+        return b;
+    }
+
+    private static ByteBuffer mfra(ByteBuffer... children) {
+        int size = Atom.HEADER_SIZE + 16;
+        for (ByteBuffer c : children) {
+            size += c.capacity();
+        }
+        ByteBuffer b = ByteBuffer.allocate(size);
+        b.putInt(size).putInt(Atom.TYPE_mfra);
+        for (ByteBuffer c : children) {
+            b.put(c.array());
+        }
+        b.putInt(16).putInt(Atom.TYPE_mfro).putInt(0).putInt(size);
+        return b;
+    }
+
+    /** {@code restOfMdat} payload bytes, then alternating moof and mdat atoms of the given sizes. */
+    private static byte[] stream(int restOfMdat, int... atomSizes) {
+        int total = restOfMdat;
+        for (int s : atomSizes) {
+            total += s;
+        }
+        ByteBuffer b = ByteBuffer.allocate(total);
+        for (int i = 0; i < restOfMdat; i++) {
+            b.put((byte) i);
+        }
+        for (int i = 0; i < atomSizes.length; i++) {
+            b.putInt(atomSizes[i]).putInt(i % 2 == 0 ? Atom.TYPE_moof : Atom.TYPE_mdat);
+            for (int j = Atom.HEADER_SIZE; j < atomSizes[i]; j++) {
+                b.put((byte) (i + j));
+            }
+        }
+        return b.array();
+    }
+
+    private static ExtractorInput input(byte[] data) {
+        int[] position = {0};
+        return new DefaultExtractorInput((target, offset, length) -> {
+            if (position[0] == data.length) {
+                return C.RESULT_END_OF_INPUT;
+            }
+            int n = Math.min(length, data.length - position[0]);
+            System.arraycopy(data, position[0], target, offset, n);
+            position[0] += n;
+            return n;
+        }, 0, data.length);
+    }
+}
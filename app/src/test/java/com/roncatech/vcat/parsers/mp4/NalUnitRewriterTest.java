@@ -0,0 +1,184 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.parsers.mp4;
+
+import static com.roncatech.vcat.parsers.mp4.NalUnitRewriter.NAL_HEADER_H264;
+import static com.roncatech.vcat.parsers.mp4.NalUnitRewriter.NAL_HEADER_H265;
+import static com.roncatech.vcat.parsers.mp4.NalUnitRewriter.NAL_HEADER_NONE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.google.android.exoplayer2.ParserException;
+import com.google.android.exoplayer2.util.MimeTypes;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+public class NalUnitRewriterTest {
+
+    private static final byte[][] NALS = {
+            {0x40, 0x01, 0x0c},
+            {},
+            {0x26, 0x01, (byte) 0xaf, 0x00, 0x00, 0x03, 0x7f},
+            {0x02},
+    };
+
+    @Test
+    public void rewritesFourByteLengthsInPlace() throws Exception {
+        byte[] sample = lengthPrefixed(NALS, 4);
+        NalUnitRewriter.rewriteInPlace(sample, sample.length, NAL_HEADER_H265);
+        assertArrayEquals(annexB(NALS), sample);
+    }
+
+    @Test
+    public void expandsShortLengths() throws Exception {
+        for (int lengthFieldLength : new int[] {1, 2}) {
+            byte[] sample = lengthPrefixed(NALS, lengthFieldLength);
+            int size = NalUnitRewriter.expandedSize(sample, sample.length, lengthFieldLength);
+            byte[] expected = annexB(NALS);
+            assertEquals(expected.length, size);
+
+            // pooled buffers are usually larger than the sample
+            byte[] target = new byte[size + 16];
+            NalUnitRewriter.expand(sample, sample.length, lengthFieldLength, target, NAL_HEADER_H265);
+            assertArrayEquals(expected, Arrays.copyOf(target, size));
+        }
+    }
+
+    @Test
+    public void matchesPerNalRewriteOnRandomSamples() throws Exception {
+        Random random = new Random(7);
+        for (int n = 0; n < 200; n++) {
+            byte[][] nals = new byte[1 + random.nextInt(40)][];
+            for (int i = 0; i < nals.length; i++) {
+                nals[i] = new byte[random.nextInt(300)];
+                random.nextBytes(nals[i]);
+            }
+            byte[] expected = annexB(nals);
+
+            byte[] inPlace = lengthPrefixed(nals, 4);
+            NalUnitRewriter.rewriteInPlace(inPlace, inPlace.length, NAL_HEADER_H264);
+            assertArrayEquals(expected, inPlace);
+
+            byte[] source = lengthPrefixed(nals, 2);
+            byte[] target = new byte[NalUnitRewriter.expandedSize(source, source.length, 2)];
+            NalUnitRewriter.expand(source, source.length, 2, target, NAL_HEADER_H264);
+            assertArrayEquals(expected, target);
+        }
+    }
+
+    @Test
+    public void collectsNalUnitTypes() throws Exception {
+        // NALS as HEVC: VPS (32), IDR_W_RADL (19), TRAIL_R (1); the empty unit has no header
+        long hevcTypes = (1L << 32) | (1L << 19) | (1L << 1);
+        byte[] sample = lengthPrefixed(NALS, 4);
+        assertEquals(hevcTypes, NalUnitRewriter.rewriteInPlace(sample, sample.length, NAL_HEADER_H265));
+
+        byte[] source = lengthPrefixed(NALS, 1);
+        byte[] target = new byte[NalUnitRewriter.expandedSize(source, source.length, 1)];
+        assertEquals(hevcTypes, NalUnitRewriter.expand(source, source.length, 1, target, NAL_HEADER_H265));
+
+        // the same headers read as H.264: types 0, 6 and 2
+        sample = lengthPrefixed(NALS, 4);
+        assertEquals((1L << 0) | (1L << 6) | (1L << 2),
+                NalUnitRewriter.rewriteInPlace(sample, sample.length, NAL_HEADER_H264));
+    }
+
+    @Test
+    public void otherCodecsReportNoNalUnitTypes() throws Exception {
+        assertEquals(NAL_HEADER_H264, NalUnitRewriter.nalHeaderOf(MimeTypes.VIDEO_H264));
+        assertEquals(NAL_HEADER_H265, NalUnitRewriter.nalHeaderOf(MimeTypes.VIDEO_H265));
+        assertEquals(NAL_HEADER_NONE, NalUnitRewriter.nalHeaderOf("video/vvc"));
+        assertEquals(NAL_HEADER_NONE, NalUnitRewriter.nalHeaderOf(MimeTypes.VIDEO_DOLBY_VISION));
+        assertEquals(NAL_HEADER_NONE, NalUnitRewriter.nalHeaderOf(null));
+
+        // the rewrite itself is unchanged, only the types are not collected
+        byte[] sample = lengthPrefixed(NALS, 4);
+        assertEquals(0L, NalUnitRewriter.rewriteInPlace(sample, sample.length, NAL_HEADER_NONE));
+        byte[] hevc = lengthPrefixed(NALS, 4);
+        NalUnitRewriter.rewriteInPlace(hevc, hevc.length, NAL_HEADER_H265);
+        assertArrayEquals(hevc, sample);
+    }
+
+    @Test
+    public void rejectsLengthPastEndOfSample() {
+        // the first NAL claims 127 bytes but the sample ends after its 3
+        byte[] sample = Arrays.copyOf(lengthPrefixed(NALS, 4), 4 + NALS[0].length);
+        sample[3] = 0x7f;
+        assertMalformed(sample, 4);
+
+        // a length field cut off by the end of the sample
+        byte[] truncated = Arrays.copyOf(lengthPrefixed(NALS, 2), 2 + NALS[0].length + 1);
+        assertMalformed(truncated, 2);
+    }
+
+    private static void assertMalformed(byte[] sample, int lengthFieldLength) {
+        try {
+            if (lengthFieldLength == 4) {
+                NalUnitRewriter.rewriteInPlace(sample, sample.length, NAL_HEADER_H265);
+            } else {
+                NalUnitRewriter.expandedSize(sample, sample.length, lengthFieldLength);
+            }
+            fail("expected ParserException");
+        } catch (ParserException expected) {
+            // expected
+        }
+    }
+
+    private static byte[] lengthPrefixed(byte[][] nals, int lengthFieldLength) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] nal : nals) {
+            for (int i = lengthFieldLength - 1; i >= 0; i--) {
+                out.write(nal.length >> (8 * i));
+            }
+            out.write(nal, 0, nal.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] annexB(byte[][] nals) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] nal : nals) {
+            out.write(0);
+            out.write(0);
+            out.write(0);
+            out.write(1);
+            out.write(nal, 0, nal.length);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.parsers.mp4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.container.CreationTime;
+import com.google.android.exoplayer2.container.Mp4LocationData;
+import com.google.android.exoplayer2.extractor.mp4.Track;
+import com.google.android.exoplayer2.metadata.Metadata;
+import com.google.android.exoplayer2.metadata.id3.ApicFrame;
+import com.google.android.exoplayer2.metadata.id3.CommentFrame;
+import com.google.android.exoplayer2.metadata.id3.InternalFrame;
+import com.google.android.exoplayer2.metadata.id3.TextInformationFrame;
+import com.google.android.exoplayer2.metadata.mp4.MdtaMetadataEntry;
+import com.google.android.exoplayer2.metadata.mp4.MotionPhotoMetadata;
+import com.google.android.exoplayer2.metadata.mp4.SlowMotionData;
+import com.google.android.exoplayer2.metadata.mp4.SmtaMetadataEntry;
+import com.google.android.exoplayer2.util.Log;
+import com.google.android.exoplayer2.util.MimeTypes;
+import com.google.android.exoplayer2.video.ColorInfo;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ParsedMoovCacheTest {
+
+    private static final String URI = "content://media/clip.mp4";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        Log.setLogLevel(Log.LOG_LEVEL_OFF);
+    }
+
+    @Test
+    public void formatSurvivesFieldByFieldRoundTrip() throws Exception {
+        Format format = videoFormat();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ParsedMoov.writeFormat(new DataOutputStream(bytes), format);
+        Format restored = ParsedMoov.readFormat(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(format, restored);
+        assertEquals(format.colorInfo, restored.colorInfo);
+        assertEquals(format.metadata, restored.metadata);
+        assertTrue(format.initializationDataEquals(restored));
+    }
+
+    @Test
+    public void everyMetadataEntryTheExtractorMakesRoundTrips() throws Exception {
+        Format video = videoFormat().buildUpon()
+                .setMetadata(new Metadata(
+                        new CreationTime(1_700_000_000_000L),
+                        new Mp4LocationData(47.6f, -122.3f),
+                        new MdtaMetadataEntry(MdtaMetadataEntry.KEY_ANDROID_CAPTURE_FPS,
+                                new byte[] {0x42, (byte) 0xf0, 0, 0}, 0, 23),
+                        new SmtaMetadataEntry(240f, 4),
+                        new SlowMotionData(Collections.singletonList(
+                                new SlowMotionData.Segment(1_000, 2_000, 8)))))
+                .build();
+        Format audio = new Format.Builder()
+                .setId("2")
+                .setSampleMimeType(MimeTypes.AUDIO_AAC)
+                .setChannelCount(2)
+                .setSampleRate(48_000)
+                .setMetadata(new Metadata(
+                        new TextInformationFrame("TIT2", null, Arrays.asList("Title")),
+                        new CommentFrame(C.LANGUAGE_UNDETERMINED, "iTunSMPB", " 00000000 00000840"),
+                        new InternalFrame("com.apple.iTunes", "iTunNORM", "0000"),
+                        new ApicFrame("image/jpeg", null, 3, new byte[] {1, 2, 3})))
+                .build();
+
+        for (Format format : Arrays.asList(video, audio)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ParsedMoov.writeFormat(new DataOutputStream(bytes), format);
+            Format restored = ParsedMoov.readFormat(
+                    new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            assertEquals(format, restored);
+            assertEquals(format.metadata, restored.metadata);
+        }
+    }
+
+    @Test
+    public void trackWithUnknownMetadataIsNotCacheable() {
+        assertTrue(moov().isCacheable());
+
+        Format format = videoFormat().buildUpon()
+                .setMetadata(new Metadata(new MotionPhotoMetadata(0, 1_000, 0, 1_000, 5_000)))
+                .build();
+        Track track = new Track(1, C.TRACK_TYPE_VIDEO, 90_000, 1_000, 10_000_000L, format,
+                Track.TRANSFORMATION_NONE, null, 4, null, null);
+        ParsedMoov.TrackEntry entry =
+                new ParsedMoov.TrackEntry(0, track, format, moov().tracks.get(0).sampleTable);
+        assertFalse(new ParsedMoov(Collections.singletonList(entry), 10_000_000L).isCacheable());
+    }
+
+    @Test
+    public void readsBackWhatItWrote() throws Exception {
+        ParsedMoovCache cache = new ParsedMoovCache(tmp.getRoot(), Long.MAX_VALUE, "build-1");
+        String key = ParsedMoovCache.key(URI, 1000, 2000);
+        assertNull(cache.read(key));
+
+        cache.writeNow(key, moov());
+        ParsedMoov read = cache.read(key);
+        assertNotNull(read);
+        assertEquals(10_000_000L, read.durationUs);
+        assertEquals(1, read.tracks.size());
+        assertEquals(videoFormat(), read.tracks.get(0).format);
+        assertEquals(300, read.tracks.get(0).sampleTable.sampleCount);
+    }
+
+    @Test
+    public void keyFollowsSizeAndModificationTime() {
+        String key = ParsedMoovCache.key(URI, 1000, 2000);
+        assertNotEquals(key, ParsedMoovCache.key(URI, 1001, 2000));
+        assertNotEquals(key, ParsedMoovCache.key(URI, 1000, 2001));
+        assertNotEquals(key, ParsedMoovCache.key("content://media/other.mp4", 1000, 2000));
+        // without both, a rewritten file could not be told apart, so nothing is cached
+        assertNull(ParsedMoovCache.key(URI, 0, 2000));
+        assertNull(ParsedMoovCache.key(URI, 1000, 0));
+    }
+
+    @Test
+    public void checksumKeyFollowsContentAndSize() {
+        String sha = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+        String key = ParsedMoovCache.checksumKey(sha, 1000);
+        assertNotNull(key);
+        assertEquals(key, ParsedMoovCache.checksumKey(sha.toUpperCase(), 1000));
+        assertNotEquals(key, ParsedMoovCache.checksumKey(sha.replace('9', '8'), 1000));
+        assertNotEquals(key, ParsedMoovCache.checksumKey(sha, 1001));
+        // never collides with a uri key
+        assertNotEquals(key, ParsedMoovCache.key(URI, 1000, 2000));
+        // a manifest without a usable checksum falls back to the file key
+        assertNull(ParsedMoovCache.checksumKey(null, 1000));
+        assertNull(ParsedMoovCache.checksumKey("", 1000));
+        assertNull(ParsedMoovCache.checksumKey("not-a-sha256", 1000));
+        assertNull(ParsedMoovCache.checksumKey(sha, 0));
+    }
+
+    @Test
+    public void replacedFileOfSameSizeMissesOnChecksum() throws Exception {
+        ParsedMoovCache cache = new ParsedMoovCache(tmp.getRoot(), Long.MAX_VALUE, "build-1");
+        String sha = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+        cache.writeNow(ParsedMoovCache.checksumKey(sha, 1000), moov());
+        assertNotNull(cache.read(ParsedMoovCache.checksumKey(sha, 1000)));
+        // same uri, size and (provider-reported) modification time, different content
+        assertNull(cache.read(ParsedMoovCache.checksumKey(sha.replace('9', '8'), 1000)));
+    }
+
+    @Test
+    public void fileReplacedAtSameUriMissesDespiteStaleChecksum() throws Exception {
+        ParsedMoovCache cache = new ParsedMoovCache(tmp.getRoot(), Long.MAX_VALUE, "build-1");
+        String sha = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+        cache.setManifestChecksums(Collections.singletonMap(URI, sha));
+        File clip = tmp.newFile("clip.mp4");
+        Files.write(clip.toPath(), new byte[1000]);
+        String before = cache.keyFor(URI, clip.length(), clip.lastModified());
+        cache.writeNow(before, moov());
+        assertNotNull(cache.read(before));
+
+        // another clip is copied over the same uri; the recorded checksum is now stale
+        Files.write(clip.toPath(), new byte[1200]);
+        String after = cache.keyFor(URI, clip.length(), clip.lastModified());
+        assertNotEquals(before, after);
+        assertNull(cache.read(after));
+    }
+
+    @Test
+    public void rewrittenFileMisses() throws Exception {
+        ParsedMoovCache cache = new ParsedMoovCache(tmp.getRoot(), Long.MAX_VALUE, "build-1");
+        cache.writeNow(ParsedMoovCache.key(URI, 1000, 2000), moov());
+        assertNull(cache.read(ParsedMoovCache.key(URI, 1000, 3000)));
+    }
+
+    @Test
+    public void entryFromAnotherBuildIsDropped() throws Exception {
+        String key = ParsedMoovCache.key(URI, 1000, 2000);
+        new ParsedMoovCache(tmp.getRoot(), Long.MAX_VALUE, "build-1").writeNow(key, moov());
+        assertEquals(1, entries().length);
+
+        assertNull(new ParsedMoovCache(tmp.getRoot(), Long.MAX_VALUE, "build-2").read(key));
+        assertEquals(0, entries().length);
+    }
+
+    @Test
+    public void corruptEntryIsDropped() throws Exception {
+        ParsedMoovCache cache = new ParsedMoovCache(tmp.getRoot(), Long.MAX_VALUE, "build-1");
+        String key = ParsedMoovCache.key(URI, 1000, 2000);
+        cache.writeNow(key, moov());
+        File entry = entries()[0];
+        byte[] truncated = Arrays.copyOf(Files.readAllBytes(entry.toPath()), 40);
+        try (FileOutputStream out = new FileOutputStream(entry)) {
+            out.write(truncated);
+        }
+
+        assertNull(cache.read(key));
+        assertFalse(entry.exists());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedOverBudget() throws Exception {
+        File probeDir = tmp.newFolder();
+        new ParsedMoovCache(probeDir, Long.MAX_VALUE, "build-1").writeNow("probe", moov());
+        long entryBytes = probeDir.listFiles()[0].length();
+
+        File dir = tmp.newFolder();
+        ParsedMoovCache cache = new ParsedMoovCache(dir, entryBytes * 2 + entryBytes / 2, "build-1");
+        String a = ParsedMoovCache.key(URI, 1, 1);
+        String b = ParsedMoovCache.key(URI, 2, 2);
+        String c = ParsedMoovCache.key(URI, 3, 3);
+        cache.writeNow(a, moov());
+        cache.writeNow(b, moov());
+        long now = System.currentTimeMillis();
+        for (File f : dir.listFiles()) {
+            f.setLastModified(now - 60_000);
+        }
+        // reading a makes b the least recently used
+        assertNotNull(cache.read(a));
+
+        cache.writeNow(c, moov());
+        assertEquals(2, dir.listFiles().length);
+        assertNotNull(cache.read(a));
+        assertNotNull(cache.read(c));
+        assertNull(cache.read(b));
+    }
+
+    private File[] entries() {
+        File[] files = tmp.getRoot().listFiles((dir, name) -> name.endsWith(".moov"));
+        return files != null ? files : new File[0];
+    }
+
+    private static Format videoFormat() {
+        return new Format.Builder()
+                .setId("1")
+                .setLanguage("und")
+                .setSampleMimeType(MimeTypes.VIDEO_H265)
+                .setCodecs("hvc1.2.4.L120.B0")
+                .setMaxInputSize(120_030)
+                .setInitializationData(Collections.singletonList(new byte[] {0, 0, 0, 1, 0x40, 1}))
+                .setWidth(1920)
+                .setHeight(1080)
+                .setFrameRate(30f)
+                .setRotationDegrees(90)
+                .setColorInfo(new ColorInfo.Builder()
+                        .setColorSpace(C.COLOR_SPACE_BT2020)
+                        .setColorRange(C.COLOR_RANGE_LIMITED)
+                        .setColorTransfer(C.COLOR_TRANSFER_ST2084)
+                        .setHdrStaticInfo(new byte[25])
+                        .build())
+                // every mp4 track carries the mvhd creation time
+                .setMetadata(new Metadata(new CreationTime(1_700_000_000_000L)))
+                .build();
+    }
+
+    private static ParsedMoov moov() {
+        int count = 300;
+        long[] offsets = new long[count];
+        int[] sizes = new int[count];
+        long[] timestampsUs = new long[count];
+        int[] flags = new int[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = 48 + i * 4_000L;
+            sizes[i] = 4_000;
+            timestampsUs[i] = i * 33_333L;
+            flags[i] = i % 30 == 0 ? C.BUFFER_FLAG_KEY_FRAME : 0;
+        }
+        Format format = videoFormat();
+        Track track = new Track(1, C.TRACK_TYPE_VIDEO, 90_000, 1_000, 10_000_000L, format,
+                Track.TRANSFORMATION_NONE, null, 4, null, null);
+        TrackSampleTable table =
+                new TrackSampleTable(track, offsets, sizes, 4_000, timestampsUs, flags, 10_000_000L);
+        return new ParsedMoov(Collections.singletonList(
+                new ParsedMoov.TrackEntry(0, track, format, table)), 10_000_000L);
+    }
+}
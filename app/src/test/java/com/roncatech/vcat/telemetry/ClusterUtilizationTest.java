@@ -0,0 +1,122 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.telemetry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ClusterUtilizationTest {
+
+    private static final double EPS = 1e-9;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** A task stat line with the given command, CPU times and last CPU; other fields are filler. */
+    private static String statLine(int tid, String comm, long utime, long stime, int cpu) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(tid).append(" (").append(comm).append(") S");
+        // fields 4..52, utime is field 14, stime 15, processor 39
+        for (int field = 4; field <= 52; field++) {
+            long v = field == 14 ? utime : field == 15 ? stime : field == 39 ? cpu : 0;
+            sb.append(' ').append(v);
+        }
+        return sb.toString();
+    }
+
+    private void writeTask(File dir, int tid, long utime, long stime, int cpu) throws IOException {
+        File task = new File(dir, Integer.toString(tid));
+        task.mkdirs();
+        try (FileWriter w = new FileWriter(new File(task, "stat"))) {
+            w.write(statLine(tid, "dav1d-worker", utime, stime, cpu) + "\n");
+        }
+    }
+
+    @Test
+    public void parsesTimesAndCpuPastTheCommandName() {
+        long[] stat = ClusterUtilization.parseTaskStat(statLine(42, "a) (b c", 120, 30, 6));
+        assertNotNull(stat);
+        assertEquals(150L, stat[0]);
+        assertEquals(6L, stat[1]);
+
+        assertNull(ClusterUtilization.parseTaskStat(null));
+        assertNull(ClusterUtilization.parseTaskStat("42 (short) S 1 2 3"));
+    }
+
+    @Test
+    public void chargesEachThreadsTicksToItsCluster() throws IOException {
+        File dir = tmp.newFolder("task");
+        // cpus 0-3 little, 4-5 big; 100 ticks per second, so a tick is 10 ms
+        ClusterUtilization cu = new ClusterUtilization(dir, new int[] {0, 0, 0, 0, 1, 1},
+                new String[] {"little", "big"}, 100);
+
+        writeTask(dir, 10, 500, 0, 1);
+        writeTask(dir, 11, 300, 0, 4);
+        cu.sample(); // baselines only
+        ClusterUtilization.Snapshot start = cu.snapshot(1_000L);
+
+        writeTask(dir, 10, 540, 0, 2);  // 40 ticks on little
+        writeTask(dir, 11, 300, 60, 5); // 60 ticks on big
+        writeTask(dir, 12, 20, 0, 4);   // new thread, all 20 ticks on big
+        cu.sample();
+        new File(new File(dir, "11"), "stat").delete();
+        cu.sample(); // an exited thread is dropped, not charged
+
+        ClusterUtilization.Snapshot end = cu.snapshot(2_000L);
+        double[] util = cu.utilization(start, end);
+        // little: 400 ms over 1 s on 4 cores; big: 800 ms over 1 s on 2 cores
+        assertEquals(0.1, util[0], EPS);
+        assertEquals(0.4, util[1], EPS);
+        assertEquals("little:0.100;big:0.400", cu.format(util));
+
+        Map<String, Double> map = cu.toMap(util);
+        assertEquals(0.4, map.get("big"), EPS);
+    }
+
+    @Test
+    public void emptyWindowIsUnknown() {
+        ClusterUtilization cu = new ClusterUtilization(new File("/nonexistent"), new int[] {0, 0},
+                new String[] {"cluster0"}, 100);
+        cu.sample();
+        ClusterUtilization.Snapshot s = cu.snapshot(5L);
+        assertEquals(-1.0, cu.utilization(s, s)[0], EPS);
+    }
+}
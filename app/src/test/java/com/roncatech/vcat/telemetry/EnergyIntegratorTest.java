@@ -0,0 +1,111 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+
+package com.roncatech.vcat.telemetry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EnergyIntegratorTest {
+
+    private static final double EPS = 1e-6;
+
+    @Test
+    public void constantDraw_integratesToPowerTimesTime() {
+        EnergyIntegrator.Accumulator acc = new EnergyIntegrator.Accumulator();
+        // 500 mA discharging at 4.0 V = 2000 mW, sampled at 10 Hz for one second
+        for (int i = 0; i <= 10; ++i) {
+            acc.add(i * 100L, -500_000L, 4000, false);
+        }
+        EnergyIntegrator.Snapshot s = acc.snapshot();
+
+        assertEquals(2000.0, s.energyMj, EPS);
+        assertEquals(1000L, s.durationMs);
+        assertEquals(11L, s.samples);
+        assertEquals(0L, s.chargingSamples);
+        assertEquals(2000.0, s.averagePowerMw(), EPS);
+        assertEquals(20.0, s.energyPerFrameMj(100), EPS);
+    }
+
+    @Test
+    public void rampingDraw_usesTrapezoidRule() {
+        EnergyIntegrator.Accumulator acc = new EnergyIntegrator.Accumulator();
+        acc.add(0L, -250_000L, 4000, false);     // 1000 mW
+        acc.add(1000L, -750_000L, 4000, false);  // 3000 mW
+
+        assertEquals(2000.0, acc.snapshot().energyMj, EPS);
+    }
+
+    @Test
+    public void snapshotsDiffIntoWindows() {
+        EnergyIntegrator.Accumulator acc = new EnergyIntegrator.Accumulator();
+        acc.add(0L, -500_000L, 4000, false);
+        acc.add(1000L, -500_000L, 4000, false);
+        EnergyIntegrator.Snapshot clipStart = acc.snapshot();
+        acc.add(1500L, -500_000L, 4000, false);
+
+        EnergyIntegrator.Snapshot clip = acc.snapshot().since(clipStart);
+        assertEquals(1000.0, clip.energyMj, EPS);
+        assertEquals(500L, clip.durationMs);
+        assertEquals(1L, clip.samples);
+    }
+
+    @Test
+    public void invalidSamples_areIgnored_andBreakResetsInterval() {
+        EnergyIntegrator.Accumulator acc = new EnergyIntegrator.Accumulator();
+        acc.add(0L, -500_000L, -1, false);          // no voltage
+        acc.add(100L, Long.MIN_VALUE, 4000, false); // property unsupported
+        assertEquals(0L, acc.snapshot().samples);
+
+        acc.add(200L, 500_000L, 4000, true);        // charging
+        acc.breakInterval();
+        acc.add(60_200L, 500_000L, 4000, true);     // a minute later, not integrated as one step
+
+        EnergyIntegrator.Snapshot s = acc.snapshot();
+        assertEquals(0.0, s.energyMj, EPS);
+        assertEquals(2L, s.chargingSamples);
+        assertEquals(-1.0, s.averagePowerMw(), EPS);
+        assertEquals(-1.0, s.energyPerFrameMj(0), EPS);
+    }
+
+    @Test
+    public void chargingComesFromTheBatteryStatus_notTheCurrentSign() {
+        EnergyIntegrator.Accumulator acc = new EnergyIntegrator.Accumulator();
+        // positive is discharging on some devices
+        acc.add(0L, 500_000L, 4000, false);
+        acc.add(100L, -500_000L, 4000, true);
+
+        assertEquals(1L, acc.snapshot().chargingSamples);
+    }
+}
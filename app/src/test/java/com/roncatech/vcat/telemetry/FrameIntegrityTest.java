@@ -0,0 +1,91 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.telemetry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameIntegrityTest {
+
+    @Test
+    public void passWhenEveryReferenceMatches() {
+        // references for frames 0, 2, 4; every frame hashed
+        FrameIntegrity fi = new FrameIntegrity(1, new long[] {0xA0L, 0xA2L, 0xA4L}, 2);
+        for (int i = 0; i < 6; i++) {
+            fi.onFrameHashed(i, i * 33_333L, 0xA0L + i, 1_000_000L);
+        }
+        assertEquals(FrameIntegrity.Result.PASS, fi.getResult(true));
+        assertEquals(6, fi.getFramesHashed());
+        assertEquals(0, fi.getMismatches());
+        assertEquals(-1, fi.getFirstMismatchFrame());
+        assertEquals(6.0, fi.getHashingMs(), 1e-9);
+        assertEquals(1.0, fi.getHashingMsPerFrame(), 1e-9);
+    }
+
+    @Test
+    public void failOnMismatch() {
+        FrameIntegrity fi = new FrameIntegrity(1, new long[] {1, 2, 3}, 1);
+        fi.onFrameHashed(0, 0, 1, 0);
+        fi.onFrameHashed(1, 0, 7, 0);
+        fi.onFrameHashed(2, 0, 9, 0);
+        assertEquals(FrameIntegrity.Result.FAIL, fi.getResult(false));
+        assertEquals(2, fi.getMismatches());
+        assertEquals(1, fi.getFirstMismatchFrame());
+    }
+
+    @Test
+    public void missingReferenceFrameFailsOnlyOnceClipIsComplete() {
+        // hash every 2nd frame, references every 3rd: frames 0 and 6 of 0..8 are checked
+        FrameIntegrity fi = new FrameIntegrity(2, new long[] {5, 5, 5}, 3);
+        assertEquals(2, fi.expectedComparisons());
+        fi.onFrameHashed(0, 0, 5, 0);
+        fi.onFrameHashed(2, 0, 1, 0);
+        assertEquals(FrameIntegrity.Result.PASS, fi.getResult(false));
+        assertEquals(FrameIntegrity.Result.FAIL, fi.getResult(true));
+        fi.onFrameHashed(6, 0, 5, 0);
+        assertEquals(FrameIntegrity.Result.PASS, fi.getResult(true));
+    }
+
+    @Test
+    public void unverifiedWithoutReference() {
+        FrameIntegrity fi = new FrameIntegrity(1, null, 1);
+        fi.onFrameHashed(0, 0, 42, 0);
+        assertEquals(FrameIntegrity.Result.UNVERIFIED, fi.getResult(true));
+        assertEquals(1, fi.getFramesHashed());
+
+        FrameIntegrity none = new FrameIntegrity(1, new long[] {1}, 1);
+        assertEquals(FrameIntegrity.Result.UNVERIFIED, none.getResult(true));
+        assertEquals(-1.0, none.getHashingMsPerFrame(), 0.0);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.telemetry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IoStatsTest {
+
+    private static final double EPS = 1e-9;
+
+    @Test
+    public void latencyBucketsAndPercentiles() {
+        IoStats s = new IoStats();
+        assertEquals(-1L, s.snapshot().latencyPercentileUs(50));
+
+        // 90 fast reads, 9 at 3 ms, 1 at half a second
+        for (int i = 0; i < 90; i++) {
+            s.onRead(20_000L, 0L);
+        }
+        for (int i = 0; i < 9; i++) {
+            s.onRead(3_000_000L, 0L);
+        }
+        s.onRead(500_000_000L, 0L);
+
+        IoStats.Snapshot snap = s.snapshot();
+        assertEquals(100L, snap.readCalls);
+        assertEquals(50L, snap.latencyPercentileUs(50));
+        assertEquals(50L, snap.latencyPercentileUs(90));
+        assertEquals(5_000L, snap.latencyPercentileUs(99));
+        assertEquals(Long.MAX_VALUE, snap.latencyPercentileUs(100));
+
+        long[] histogram = snap.getLatencyHistogram();
+        assertEquals(IoStats.LATENCY_BUCKET_US.length + 1, histogram.length);
+        assertEquals(90L, histogram[0]);
+        assertEquals(9L, histogram[6]);
+        assertEquals(1L, histogram[histogram.length - 1]);
+    }
+
+    @Test
+    public void bucketBoundsAreInclusive() {
+        IoStats s = new IoStats();
+        s.onRead(100_000L, 0L); // exactly 100 us
+        assertEquals(1L, s.snapshot().getLatencyHistogram()[1]);
+    }
+
+    @Test
+    public void sinceWindowsEveryCounter() {
+        IoStats s = new IoStats();
+        s.onTransferStart();
+        s.onBytesTransferred(1000);
+        s.onRead(10_000L, 0L);
+        s.onUnderrun();
+        s.onBufferLevel(100);
+        IoStats.Snapshot start = s.snapshot();
+
+        s.onTransferStart();
+        s.onBytesTransferred(4096);
+        s.onBytesTransferred(4096);
+        s.onRead(200_000L, 50_000L);
+        s.onRead(200_000L, 30_000L);
+        s.onBufferLevel(2000);
+        s.onBufferLevel(400);
+
+        IoStats.Snapshot clip = s.snapshot().since(start);
+        assertEquals(8192L, clip.bytesRead);
+        assertEquals(400_000L, clip.readNs);
+        assertEquals(80_000L, clip.readCpuNs);
+        assertEquals(2L, clip.readCalls);
+        assertEquals(1L, clip.transfers);
+        assertEquals(0L, clip.underruns);
+        assertEquals(0L, clip.getLatencyHistogram()[0]);
+        assertEquals(2L, clip.getLatencyHistogram()[2]);
+        assertEquals(1200.0, clip.averageBufferMs(), EPS);
+        assertEquals(0.5, clip.lowBufferFraction(), EPS);
+        assertEquals(400L, clip.lastBufferMs);
+    }
+
+    @Test
+    public void readThroughputAndCpuPerMb() {
+        IoStats s = new IoStats();
+        assertEquals(-1.0, s.snapshot().readMbPerSecond(), EPS);
+        assertEquals(-1.0, s.snapshot().readCpuMsPerMb(), EPS);
+
+        // 4 MB in 20 ms of reads, 2 ms of it on the CPU
+        s.onBytesTransferred(4_000_000);
+        s.onRead(10_000_000L, 1_500_000L);
+        s.onRead(10_000_000L, 500_000L);
+        s.onRead(1_000L, -1L); // no thread CPU clock: counted as 0
+
+        IoStats.Snapshot snap = s.snapshot();
+        assertEquals(200.0, snap.readMbPerSecond(), 0.1);
+        assertEquals(0.5, snap.readCpuMsPerMb(), EPS);
+    }
+
+    @Test
+    public void emptyWindow() {
+        IoStats.Snapshot snap = IoStats.Snapshot.empty;
+        assertEquals(-1.0, snap.averageBufferMs(), EPS);
+        assertEquals(-1.0, snap.lowBufferFraction(), EPS);
+        assertEquals(-1L, snap.lastBufferMs);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.telemetry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class PerfDatabaseTest {
+
+    private static final double EPS = 1e-9;
+    private static final String AV1 = "video/av01";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static PerfDatabase.ClipFormat clip(int width, int height, double fps, long bitrate) {
+        return new PerfDatabase.ClipFormat(AV1, width, height, fps, bitrate, 60_000L);
+    }
+
+    @Test
+    public void exactPlaybackDecidesOnDrops() {
+        PerfDatabase db = new PerfDatabase();
+        PerfDatabase.ClipFormat smooth = clip(1920, 1080, 30.0, 4_000_000L);
+        PerfDatabase.ClipFormat choppy = clip(3840, 2160, 60.0, 16_000_000L);
+        db.recordPlayback("dav1d", smooth, 30.0, 0.0, 900.0, 1L);
+        db.recordPlayback("dav1d", choppy, 40.0, 0.30, 2100.0, 1L);
+
+        PerfDatabase.Prediction p = db.predict("dav1d", smooth);
+        assertEquals(PerfDatabase.Verdict.REALTIME, p.verdict);
+        assertTrue(p.measured);
+        assertEquals(900.0, p.powerMw, EPS);
+
+        p = db.predict("dav1d", choppy);
+        assertEquals(PerfDatabase.Verdict.TOO_SLOW, p.verdict);
+        assertEquals(40.0, p.fps, EPS);
+    }
+
+    @Test
+    public void benchmarkScalesToOtherSizes() {
+        PerfDatabase db = new PerfDatabase();
+        db.recordBenchmark("dav1d", clip(1920, 1080, 30.0, 4_000_000L), 120.0, -1.0, 1L);
+
+        // four times the pixels: a quarter of the rate
+        PerfDatabase.Prediction p = db.predict("dav1d", clip(3840, 2160, 30.0, 16_000_000L));
+        assertFalse(p.measured);
+        assertEquals(30.0, p.fps, EPS);
+        assertEquals(PerfDatabase.Verdict.MARGINAL, p.verdict);
+
+        p = db.predict("dav1d", clip(1280, 720, 60.0, 2_000_000L));
+        assertEquals(270.0, p.fps, EPS);
+        assertEquals(PerfDatabase.Verdict.REALTIME, p.verdict);
+
+        assertEquals(PerfDatabase.Verdict.UNKNOWN, db.predict("c2.android.av1.decoder",
+                clip(1920, 1080, 30.0, 4_000_000L)).verdict);
+    }
+
+    @Test
+    public void smoothPlaybackIsOnlyALowerBound() {
+        PerfDatabase db = new PerfDatabase();
+        db.recordPlayback("dav1d", clip(1920, 1080, 30.0, 4_000_000L), 30.0, 0.0, -1.0, 1L);
+
+        assertEquals(PerfDatabase.Verdict.REALTIME,
+                db.predict("dav1d", clip(1280, 720, 30.0, 2_000_000L)).verdict);
+        // kept up at 1080p30 says nothing about whether 4K would
+        assertEquals(PerfDatabase.Verdict.UNKNOWN,
+                db.predict("dav1d", clip(3840, 2160, 30.0, 16_000_000L)).verdict);
+    }
+
+    @Test
+    public void averagesRunsAndPower() {
+        PerfDatabase db = new PerfDatabase();
+        PerfDatabase.ClipFormat f = clip(1920, 1080, 30.0, 4_000_000L);
+        db.recordBenchmark("dav1d", f, 100.0, 1000.0, 1L);
+        db.recordBenchmark("dav1d", f, 140.0, 2000.0, 2L);
+        db.recordPlayback("c2.android.av1.decoder", f, 30.0, 0.0, 600.0, 3L);
+
+        assertEquals(120.0, db.predict("dav1d", f).fps, EPS);
+        assertEquals(1500.0, db.predict("dav1d", f).powerMw, EPS);
+        assertEquals(1050.0, db.getAveragePowerMw(), EPS);
+        assertEquals(-1.0, new PerfDatabase().getAveragePowerMw(), EPS);
+    }
+
+    @Test
+    public void nearbyBitratesShareAnEntry() {
+        assertEquals(PerfDatabase.keyFor("dav1d", clip(1920, 1080, 30.0, 4_000_000L)),
+                PerfDatabase.keyFor("dav1d", clip(1920, 1080, 30.0, 4_200_000L)));
+        assertNotEquals(PerfDatabase.keyFor("dav1d", clip(1920, 1080, 30.0, 4_000_000L)),
+                PerfDatabase.keyFor("dav1d", clip(1920, 1080, 30.0, 8_000_000L)));
+    }
+
+    @Test
+    public void saveAndLoadRoundTrip() throws IOException {
+        File file = new File(tmp.getRoot(), PerfDatabase.FILE_NAME);
+        assertEquals(PerfDatabase.Verdict.UNKNOWN,
+                PerfDatabase.load(file).predict("dav1d", clip(1920, 1080, 30.0, 0L)).verdict);
+
+        PerfDatabase db = new PerfDatabase();
+        PerfDatabase.ClipFormat f = clip(1920, 1080, 30.0, 0L);
+        db.recordBenchmark("dav1d", f, 25.0, -1.0, 1L);
+        db.recordClip("content://clips/a.mp4", f);
+        db.save(file);
+
+        PerfDatabase loaded = PerfDatabase.load(file);
+        assertEquals(PerfDatabase.Verdict.TOO_SLOW, loaded.predict("dav1d", f).verdict);
+        PerfDatabase.ClipFormat back = loaded.getClip("content://clips/a.mp4");
+        assertNotNull(back);
+        assertEquals(1920, back.width);
+        assertEquals(30.0, back.fps, EPS);
+        assertNull(loaded.getClip("content://clips/b.mp4"));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.telemetry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.roncatech.vcat.decoder_plugin_api.DecoderMetrics;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PluginMetricsTest {
+
+    private static final class FakeMetrics implements DecoderMetrics {
+        final List<Metric> metrics;
+        final LongBuffer values;
+
+        FakeMetrics(Metric... metrics) {
+            this.metrics = Arrays.asList(metrics);
+            // as a native plugin would allocate it
+            this.values = ByteBuffer.allocateDirect(8 * metrics.length)
+                    .order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+
+        @Override public List<Metric> getMetrics() { return metrics; }
+        @Override public LongBuffer getValues() { return values; }
+    }
+
+    @Test
+    public void columnsPerMetricInDecoderOrder() {
+        FakeMetrics dav1d = new FakeMetrics(
+                new DecoderMetrics.Metric("decode_us", DecoderMetrics.Kind.COUNTER),
+                new DecoderMetrics.Metric("pool_frames", DecoderMetrics.Kind.GAUGE));
+        FakeMetrics vvdec = new FakeMetrics(
+                new DecoderMetrics.Metric("native_bytes", DecoderMetrics.Kind.GAUGE));
+        Map<String, DecoderMetrics> byId = new LinkedHashMap<>();
+        byId.put("dav1d", dav1d);
+        byId.put("vvdec", vvdec);
+
+        PluginMetrics pm = new PluginMetrics(byId);
+        assertEquals(Arrays.asList("plugin.dav1d.decode_us", "plugin.dav1d.pool_frames",
+                "plugin.vvdec.native_bytes"), pm.getColumnNames());
+        assertEquals(3, pm.size());
+    }
+
+    @Test
+    public void samplesAndRollsUp() {
+        FakeMetrics m = new FakeMetrics(
+                new DecoderMetrics.Metric("decode_us", DecoderMetrics.Kind.COUNTER),
+                new DecoderMetrics.Metric("queue_depth", DecoderMetrics.Kind.GAUGE));
+        PluginMetrics pm = new PluginMetrics(Collections.singletonMap("dav1d", m));
+        assertTrue(pm.toSummary().isEmpty());
+
+        long[][] samples = {{100, 2}, {250, 6}, {400, 1}};
+        for (long[] s : samples) {
+            m.values.put(0, s[0]);
+            m.values.put(1, s[1]);
+            pm.sample();
+        }
+        assertEquals(400, pm.getValue(0));
+        assertEquals(1, pm.getValue(1));
+
+        Map<String, SessionSummary.PluginMetric> summary = pm.toSummary();
+        SessionSummary.PluginMetric decode = summary.get("plugin.dav1d.decode_us");
+        assertEquals("counter", decode.kind);
+        assertEquals(3, decode.samples);
+        assertEquals(300L, (long) decode.delta);
+
+        SessionSummary.PluginMetric depth = summary.get("plugin.dav1d.queue_depth");
+        assertEquals("gauge", depth.kind);
+        assertEquals(1, depth.min);
+        assertEquals(6, depth.max);
+        assertEquals(3.0, depth.mean, 1e-9);
+        assertNull(depth.delta);
+    }
+
+    @Test
+    public void noPluginsNoColumns() {
+        PluginMetrics pm = new PluginMetrics(Collections.emptyMap());
+        pm.sample();
+        assertEquals(0, pm.size());
+        assertTrue(pm.getColumnNames().isEmpty());
+        assertTrue(pm.toSummary().isEmpty());
+    }
+}
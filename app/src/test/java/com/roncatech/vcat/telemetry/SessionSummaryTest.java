@@ -0,0 +1,315 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.telemetry;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SessionSummaryTest {
+
+    private static final double EPS = 1e-9;
+
+    @Test
+    public void stressStep_rollsUpInstances() {
+        SessionSummary.StressStep step = new SessionSummary.StressStep("clip.mp4", 3, 10_000L,
+                Arrays.asList(
+                        new SessionSummary.StressInstance(0, "c2.dec", 300, 2, 30.0, false, null),
+                        new SessionSummary.StressInstance(1, "c2.dec", 240, 60, 24.0, false, null),
+                        new SessionSummary.StressInstance(2, null, 0, 0, -1.0, true, "ERROR_CODE_DECODER_INIT_FAILED: x")),
+                1080L, 2, new EnergyIntegrator.Snapshot(5400.0, 10_000L, 50L, 0L));
+
+        assertEquals(540L, step.framesRendered);
+        assertEquals(62L, step.framesDropped);
+        assertEquals(54.0, step.fpsTotal, EPS);
+        assertEquals(24.0, step.fpsMin, EPS);
+        assertEquals(1, step.initFailures);
+        assertEquals(0, step.playbackFailures);
+        assertEquals(2.0, step.cpuMsPerFrame, EPS);
+        assertEquals(10.0, step.energyPerFrameMj, EPS);
+    }
+
+    @Test
+    public void stressStep_noInstanceDecoded() {
+        SessionSummary.StressStep step = new SessionSummary.StressStep("clip.mp4", 1, 50L,
+                Arrays.asList(new SessionSummary.StressInstance(0, null, 0, 0, -1.0, true, "init")),
+                0L, 0, EnergyIntegrator.Snapshot.empty);
+
+        assertEquals(0.0, step.fpsTotal, EPS);
+        assertEquals(-1.0, step.fpsMin, EPS);
+        assertEquals(-1.0, step.cpuMsPerFrame, EPS);
+    }
+
+    @Test
+    public void stressStepsOmittedUnlessPresent() {
+        SessionSummary s = new SessionSummary(0L, 5);
+        assertFalse(s.toJson().contains("stress_steps"));
+
+        s.addStressStep(new SessionSummary.StressStep("clip.mp4", 1, 1000L,
+                Arrays.asList(new SessionSummary.StressInstance(0, "d", 30, 1, 30.0, false, null)),
+                0L, 0, EnergyIntegrator.Snapshot.empty), EnergyIntegrator.Snapshot.empty);
+        assertTrue(s.toJson().contains("stress_steps"));
+    }
+
+    @Test
+    public void stressStepsBoundedWhileLevelsKeepRunning() {
+        SessionSummary s = new SessionSummary(0L, 5);
+        int n = SessionSummary.STRESS_STEPS_KEPT + 10;
+        for (int i = 0; i < n; i++) {
+            int instances = 1 + i % 2;
+            s.addStressStep(new SessionSummary.StressStep("clip" + i + ".mp4", instances, 1000L,
+                    Arrays.asList(
+                            new SessionSummary.StressInstance(0, "d", 30, 1, 30.0 - i % 2, false, null),
+                            new SessionSummary.StressInstance(1, null, 0, 0, -1.0, true, "init")),
+                    0L, 0, EnergyIntegrator.Snapshot.empty), EnergyIntegrator.Snapshot.empty);
+        }
+
+        assertEquals(SessionSummary.STRESS_STEPS_KEPT, s.getStressSteps().size());
+        assertEquals("clip10.mp4", s.getStressSteps().get(0).fileName);
+        assertTrue(s.toJson().contains("\"stress_step_count\": " + n));
+
+        SessionSummary.StressLevel two = s.getStressByInstances().get(2);
+        assertEquals(n / 2, two.steps);
+        assertEquals(30L * n / 2, two.framesRendered);
+        assertEquals(29.0, two.fpsTotalMax, EPS);
+        assertEquals(29.0, two.fpsMin, EPS);
+        assertEquals(n / 2, two.initFailures);
+
+        // every step goes to the stress steps file once
+        assertEquals(n, s.takeUnappendedStressSteps().size());
+        assertTrue(s.takeUnappendedStressSteps().isEmpty());
+        assertFalse(s.toJson().contains("unappendedStressSteps"));
+    }
+
+    @Test
+    public void speedHeadroomKeptWithoutProbes() {
+        SessionSummary s = new SessionSummary(0L, 5);
+        assertFalse(s.toJson().contains("speed_headroom"));
+
+        SessionSummary.SpeedProbe p = new SessionSummary.SpeedProbe(1f, 2000L, 60, 0, 0.0, true, 500L, 0);
+        int n = SessionSummary.SPEED_HEADROOM_KEPT + 5;
+        for (int i = 0; i < n; i++) {
+            s.addSpeedHeadroom(new SessionSummary.SpeedHeadroom("clip" + i + ".mp4", "dav1d", "video/av01",
+                    5, 8f, i % 2 == 0 ? 2f : 4f, Arrays.asList(p, p, p)));
+        }
+
+        assertEquals(SessionSummary.SPEED_HEADROOM_KEPT, s.getSpeedHeadroom().size());
+        assertEquals("clip5.mp4", s.getSpeedHeadroom().get(0).fileName);
+        assertNull(s.getSpeedHeadroom().get(0).probes);
+        assertEquals(3, s.getSpeedHeadroom().get(0).probeCount);
+        assertFalse(s.toJson().contains("window_ms"));
+        assertTrue(s.toJson().contains("\"speed_headroom_count\": " + n));
+
+        SessionSummary.DecoderHeadroom d = s.getHeadroomByDecoder().get("dav1d");
+        assertEquals(n, d.clips);
+        assertEquals(3L * n, d.probes);
+        assertEquals(2f, d.headroomMin, 0f);
+        assertEquals(4f, d.headroomMax, 0f);
+        assertEquals((2.0 * 53 + 4.0 * 52) / n, d.headroomMean, EPS);
+
+        // the headroom file gets every search once, probes included
+        assertEquals(3, s.takeUnappendedSpeedHeadroom().get(0).probes.size());
+        assertTrue(s.takeUnappendedSpeedHeadroom().isEmpty());
+    }
+
+    @Test
+    public void clipStartup_firstMilestonesFromBegin() {
+        ClipStartup c = new ClipStartup();
+        assertEquals(-1L, c.getFirstFrameMs());
+
+        c.begin(1000L);
+        c.onPrepared(1040L);
+        c.onPrepared(1900L); // a later track change is not the prepare
+        c.onDecoderInitialized(1100L, 35L);
+        c.onFirstFrame(1180L);
+
+        assertEquals(40L, c.getPrepareMs());
+        assertEquals(100L, c.getDecoderReadyMs());
+        assertEquals(35L, c.getDecoderInitMs());
+        assertEquals(180L, c.getFirstFrameMs());
+
+        // next clip, decoder kept (gapless reuse): no init milestone
+        c.begin(5000L);
+        c.onFirstFrame(5020L);
+        assertEquals(-1L, c.getDecoderReadyMs());
+        assertEquals(-1L, c.getDecoderInitMs());
+        assertEquals(20L, c.getFirstFrameMs());
+    }
+
+    @Test
+    public void clipStartup_moovTimesFirstReportOnly() {
+        ClipStartup c = new ClipStartup();
+        c.onMoovReady(12L, 3L, false); // before begin: not this clip's
+        assertEquals(-1L, c.getMoovParseMs());
+
+        c.begin(0L);
+        c.onMoovReady(12L, 3L, false);
+        c.onMoovReady(1L, 1L, true);   // a second extractor for the same uri
+        assertEquals(12L, c.getMoovParseMs());
+        assertEquals(3L, c.getMoovSetupMs());
+        assertFalse(c.isMoovCached());
+
+        SessionSummary.ClipSummary r = new SessionSummary.ClipSummary("clip.mp4", "d", "video/avc",
+                1000L, 30L, 0L, EnergyIntegrator.Snapshot.empty);
+        r.setStartup(c);
+        assertEquals(Long.valueOf(12L), r.startupMoovParseMs);
+        assertEquals(Boolean.FALSE, r.startupMoovCached);
+
+        // IVF and fragmented clips have no moov: the fields stay out of the JSON
+        c.begin(100L);
+        r.setStartup(c);
+        assertNull(r.startupMoovParseMs);
+        assertNull(r.startupMoovCached);
+    }
+
+    @Test
+    public void clipStartup_takesOverPrewarmedMilestones() {
+        // the back buffer set its media item at 1000 and got there while the previous clip played
+        ClipStartup prewarm = new ClipStartup();
+        prewarm.begin(1000L);
+        prewarm.onMoovReady(8L, 2L, true);
+        prewarm.onPrepared(1060L);
+        prewarm.onDecoderInitialized(1150L, 40L);
+
+        ClipStartup c = new ClipStartup();
+        c.begin(9000L); // play
+        c.takePrewarmed(prewarm);
+        c.onFirstFrame(9016L);
+
+        assertEquals(60L, c.getPrepareMs());
+        assertEquals(150L, c.getDecoderReadyMs());
+        assertEquals(40L, c.getDecoderInitMs());
+        assertEquals(8L, c.getMoovParseMs());
+        assertEquals(2L, c.getMoovSetupMs());
+        assertTrue(c.isMoovCached());
+        assertEquals(16L, c.getFirstFrameMs());
+
+        // a back buffer that never got its decoder leaves that milestone to the clip itself
+        ClipStartup partial = new ClipStartup();
+        partial.begin(0L);
+        c.begin(20000L);
+        c.takePrewarmed(partial);
+        c.onDecoderInitialized(20030L, 25L);
+        assertEquals(-1L, c.getPrepareMs());
+        assertEquals(30L, c.getDecoderReadyMs());
+        assertEquals(-1L, c.getMoovParseMs());
+    }
+
+    @Test
+    public void startupHistogramsPerDecoder() {
+        SessionSummary s = new SessionSummary(0L, 5);
+        ClipStartup c = new ClipStartup();
+        for (long initMs : new long[] {8, 30, 30, 700}) {
+            c.begin(0L);
+            c.onDecoderInitialized(initMs, initMs);
+            c.onFirstFrame(initMs + 40);
+            s.addStartup("vvdec", c);
+        }
+        c.begin(0L);
+        c.onFirstFrame(90L);
+        s.addStartup(null, c);
+
+        SessionSummary.DecoderStartup d = s.getStartupByDecoder().get("vvdec");
+        assertEquals(4L, d.clips);
+        assertEquals(4L, d.decoderInitMs.samples);
+        assertEquals(1L, d.decoderInitMs.counts[0]);  // <= 10
+        assertEquals(2L, d.decoderInitMs.counts[2]);  // <= 50
+        assertEquals(1L, d.decoderInitMs.counts[6]);  // <= 1000
+        assertEquals(192.0, d.decoderInitMs.meanMs, EPS);
+        assertEquals(700L, d.decoderInitMs.maxMs);
+        assertEquals(0L, d.prepareMs.samples);
+
+        SessionSummary.DecoderStartup unknown = s.getStartupByDecoder().get("unknown");
+        assertEquals(0L, unknown.decoderInitMs.samples);
+        assertEquals(1L, unknown.firstFrameMs.samples);
+        assertTrue(s.toJson().contains("startup_by_decoder"));
+        assertFalse(s.toJson().contains("sumMs"));
+    }
+
+    @Test
+    public void threadScaling_recommendsFewestThreadsNearBest() {
+        SessionSummary s = new SessionSummary(0L, 5);
+        assertTrue(s.getThreadScaling().isEmpty());
+        assertFalse(s.toJson().contains("thread_scaling"));
+
+        // added out of order, and threads=4 twice (two clips)
+        s.addThreadStep("dav1d", "video/av01", 4, 600, 5_000.0, 0, 6_000L, 3_000.0);
+        s.addThreadStep("dav1d", "video/av01", 1, 300, 10_000.0, 1, 4_000L, 2_000.0);
+        s.addThreadStep("dav1d", "video/av01", 2, 580, 5_000.0, 0, 5_000L, 2_500.0);
+        s.addThreadStep("dav1d", "video/av01", 4, 600, 5_000.0, 0, 6_000L, 3_000.0);
+
+        SessionSummary.ThreadCurve c = s.getThreadScaling().get("dav1d");
+        assertEquals("video/av01", c.mimeType);
+        assertEquals(3, c.points.size());
+        assertEquals(1, c.points.get(0).threads);
+        assertEquals(4, c.points.get(2).threads);
+
+        SessionSummary.ThreadPoint four = c.points.get(2);
+        assertEquals(2, four.clips);
+        assertEquals(1200L, four.framesDecoded);
+        assertEquals(120.0, four.fps, EPS);
+        assertEquals(10.0, four.cpuMsPerFrame, EPS);
+        assertEquals(5.0, four.energyPerFrameMj, EPS);
+
+        // 2 threads: 116 fps, within 5% of the best 120
+        assertEquals(Integer.valueOf(2), c.recommendedThreads);
+        assertTrue(s.toJson().contains("recommended_threads"));
+    }
+
+    @Test
+    public void clipsBoundedWhileTotalsKeepRunning() {
+        SessionSummary s = new SessionSummary(0L, 5);
+        int n = SessionSummary.CLIPS_KEPT + 25;
+        for (int i = 0; i < n; i++) {
+            s.addClip(new SessionSummary.ClipSummary("clip" + i + ".mp4", "d", "video/avc",
+                    1000L, 30L, 1L, EnergyIntegrator.Snapshot.empty), EnergyIntegrator.Snapshot.empty);
+        }
+
+        assertEquals(n, s.getClipCount());
+        assertEquals(SessionSummary.CLIPS_KEPT, s.getClips().size());
+        // oldest dropped first
+        assertEquals("clip25.mp4", s.getClips().get(0).fileName);
+        assertEquals("clip" + (n - 1) + ".mp4", s.getClips().get(SessionSummary.CLIPS_KEPT - 1).fileName);
+        assertTrue(s.toJson().contains("\"frames_rendered\": " + (30L * n)));
+
+        // every clip goes to the clips file once, dropped from the summary or not
+        assertEquals(n, s.takeUnappendedClips().size());
+        assertTrue(s.takeUnappendedClips().isEmpty());
+        s.addClip(new SessionSummary.ClipSummary("late.mp4", "d", "video/avc",
+                1000L, 30L, 0L, EnergyIntegrator.Snapshot.empty), EnergyIntegrator.Snapshot.empty);
+        assertEquals("late.mp4", s.takeUnappendedClips().get(0).fileName);
+        assertFalse(s.toJson().contains("unappendedClips"));
+    }
+}
@@ -96,4 +96,50 @@ public class CpuInfoTest {
 
         assertEquals(expected, testInstance);
     }
+
+    @Test
+    public void clustersByCoreTypeThenFrequency() {
+        // same reported frequency: the A55s come first, so they are the little cluster
+        CpuInfo info = buildTestInstance();
+        assertArrayEquals(new int[] {0, 0, 0, 0, 0, 0, 1, 1}, info.getClusterOfCore());
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4, 5}, info.getLittleCpus());
+        assertArrayEquals(new int[] {6, 7}, info.getBigCpus());
+        assertArrayEquals(new String[] {"little", "big"}, info.getClusterLabels());
+
+        List<CpuInfo.CpuCore> cores = new ArrayList<>();
+        cores.add(new CpuInfo.CpuCore(0xd4b, 3200)); // prime listed first
+        for (int i = 0; i < 3; ++i) {
+            cores.add(new CpuInfo.CpuCore(0xd46, 1800));
+        }
+        for (int i = 0; i < 4; ++i) {
+            cores.add(new CpuInfo.CpuCore(0xd47, 2500));
+        }
+        CpuInfo triCluster = new CpuInfo("ARMv9", cores);
+        assertArrayEquals(new int[] {2, 0, 0, 0, 1, 1, 1, 1}, triCluster.getClusterOfCore());
+        assertArrayEquals(new int[] {1, 2, 3}, triCluster.getLittleCpus());
+        assertArrayEquals(new int[] {0, 4, 5, 6, 7}, triCluster.getBigCpus());
+        assertArrayEquals(new String[] {"little", "mid", "big"}, triCluster.getClusterLabels());
+    }
+
+    @Test
+    public void singleClusterBigIsEveryCore() {
+        List<CpuInfo.CpuCore> cores = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            cores.add(new CpuInfo.CpuCore(0xd03, 1400));
+        }
+        CpuInfo info = new CpuInfo("ARMv8", cores);
+        assertArrayEquals(new int[] {0, 1, 2, 3}, info.getBigCpus());
+        assertArrayEquals(new int[] {0, 1, 2, 3}, info.getLittleCpus());
+        assertArrayEquals(new String[] {"cluster0"}, info.getClusterLabels());
+    }
+
+    @Test
+    public void parsesCpuLists() {
+        assertArrayEquals(new int[] {0, 1, 2, 3, 6}, CpuInfo.parseCpuList("6, 0-3", 8));
+        assertArrayEquals(new int[] {7}, CpuInfo.parseCpuList("7", 8));
+        assertNull(CpuInfo.parseCpuList("", 8));
+        assertNull(CpuInfo.parseCpuList("4-9", 8));
+        assertNull(CpuInfo.parseCpuList("3-1", 8));
+        assertNull(CpuInfo.parseCpuList("a", 8));
+    }
 }
@@ -0,0 +1,129 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.tools;
+
+import com.google.gson.Gson;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DecoderCapabilityCacheTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void keyFollowsBuildAndPluginsButNotRegistrationOrder() {
+        String key = DecoderCapabilityCache.cacheKey("vendor/device:14/AP1A/1:user/release-keys", 42,
+                Arrays.asList("dav1d@1.4.3", "vvdec@3.0.0"));
+        assertEquals(key, DecoderCapabilityCache.cacheKey("vendor/device:14/AP1A/1:user/release-keys", 42,
+                Arrays.asList("vvdec@3.0.0", "dav1d@1.4.3")));
+
+        assertNotEquals(key, DecoderCapabilityCache.cacheKey("vendor/device:14/AP1A/2:user/release-keys", 42,
+                Arrays.asList("dav1d@1.4.3", "vvdec@3.0.0")));
+        assertNotEquals(key, DecoderCapabilityCache.cacheKey("vendor/device:14/AP1A/1:user/release-keys", 43,
+                Arrays.asList("dav1d@1.4.3", "vvdec@3.0.0")));
+        assertNotEquals(key, DecoderCapabilityCache.cacheKey("vendor/device:14/AP1A/1:user/release-keys", 42,
+                Arrays.asList("dav1d@1.5.0", "vvdec@3.0.0")));
+        assertNotEquals(key, DecoderCapabilityCache.cacheKey("vendor/device:14/AP1A/1:user/release-keys", 42,
+                Arrays.asList("dav1d@1.4.3")));
+    }
+
+    @Test
+    public void snapshotSurvivesTheFile() throws IOException {
+        DecoderCapabilityCache.Decoder plugin = new DecoderCapabilityCache.Decoder("dav1d", true, "1.4.3");
+        DecoderCapabilityCache.Decoder hw = new DecoderCapabilityCache.Decoder("c2.exynos.av1.decoder", false, null);
+        hw.hardwareAccelerated = true;
+        hw.softwareOnly = false;
+        hw.profileLevels = new int[][] {{1, 4096}, {2, 4096}};
+        hw.maxWidth = 4096;
+        hw.maxHeight = 2176;
+        hw.maxFrameRate = 120;
+
+        List<DecoderCapabilityCache.Decoder> av1 = new ArrayList<>(Arrays.asList(plugin, hw));
+        Map<String, List<DecoderCapabilityCache.Decoder>> decoders = new HashMap<>();
+        decoders.put("video/av01", av1);
+
+        File file = new File(tmp.newFolder("caps"), "caps.json");
+        DecoderCapabilityCache.write(file, new DecoderCapabilityCache.Snapshot("k", decoders));
+        DecoderCapabilityCache.Snapshot back = DecoderCapabilityCache.read(file);
+
+        assertNotNull(back);
+        assertEquals("k", back.key);
+        List<DecoderCapabilityCache.Decoder> list = back.decoders.get("video/av01");
+        assertEquals(2, list.size());
+        assertEquals("dav1d", list.get(0).name);
+        assertTrue(list.get(0).plugin);
+        assertNull(list.get(0).maxWidth);
+        assertEquals("c2.exynos.av1.decoder", list.get(1).name);
+        assertArrayEquals(new int[] {2, 4096}, list.get(1).profileLevels[1]);
+        assertEquals("HW, up to 4096x2176 @ 120 fps", list.get(1).describe());
+        assertEquals("plugin 1.4.3", list.get(0).describe());
+    }
+
+    @Test
+    public void handEditedFileWithNullsIsIncomplete() {
+        Gson gson = new Gson();
+        assertTrue(DecoderCapabilityCache.isComplete(gson.fromJson(
+                "{\"key\":\"k\",\"decoders\":{\"video/av01\":[{\"name\":\"dav1d\",\"plugin\":true}]}}",
+                DecoderCapabilityCache.Snapshot.class)));
+        // an empty list is a real answer: no decoders for that MIME type
+        assertTrue(DecoderCapabilityCache.isComplete(gson.fromJson(
+                "{\"key\":\"k\",\"decoders\":{\"video/vvc\":[]}}", DecoderCapabilityCache.Snapshot.class)));
+
+        for (String json : new String[] {
+                "{\"key\":\"k\",\"decoders\":{\"video/av01\":null}}",
+                "{\"key\":\"k\",\"decoders\":{\"video/av01\":[null]}}",
+                "{\"key\":\"k\",\"decoders\":{\"video/av01\":[{\"plugin\":true}]}}",
+                "{\"key\":\"k\"}",
+                "{\"decoders\":{}}"}) {
+            assertFalse(json, DecoderCapabilityCache.isComplete(gson.fromJson(json, DecoderCapabilityCache.Snapshot.class)));
+        }
+    }
+
+    @Test
+    public void missingFileIsAMiss() throws IOException {
+        assertNull(DecoderCapabilityCache.read(new File(tmp.newFolder("none"), "caps.json")));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import com.google.android.exoplayer2.decoder.DecoderCounters;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ClipFrameCountsTest {
+
+    private static void render(DecoderCounters c, int rendered, int dropped, int skipped) {
+        c.renderedOutputBufferCount += rendered;
+        c.droppedBufferCount += dropped;
+        c.skippedOutputBufferCount += skipped;
+    }
+
+    @Test
+    public void sameCodecBoundaryCountsDeltas() {
+        ClipFrameCounts f = new ClipFrameCounts();
+        DecoderCounters avc = new DecoderCounters();
+        f.onEnabled(avc);
+        render(avc, 300, 2, 1);
+        assertEquals(300, f.rendered());
+        assertEquals(2, f.dropped());
+        assertEquals(303, f.decoded());
+
+        // decoder kept across the boundary: same counters, rebased
+        f.startClip();
+        render(avc, 250, 0, 0);
+        assertEquals(250, f.rendered());
+        assertEquals(0, f.dropped());
+        assertSame(avc, f.latest());
+    }
+
+    @Test
+    public void mixedCodecGaplessPlaylist() {
+        ClipFrameCounts f = new ClipFrameCounts();
+
+        // clip 0, avc
+        DecoderCounters avc = new DecoderCounters();
+        f.onEnabled(avc);
+        render(avc, 600, 3, 0);
+
+        // clip 1, avc again
+        f.startClip();
+        render(avc, 280, 1, 0);
+
+        // the av1 renderer is enabled for clip 2 while clip 1 still plays out on avc
+        DecoderCounters av1 = new DecoderCounters();
+        f.onEnabled(av1);
+        assertSame(av1, f.latest());
+        render(avc, 20, 0, 0);
+        assertEquals(300, f.rendered());
+        assertEquals(1, f.dropped());
+
+        // clip 2: the avc renderer is disabled after the boundary, having rendered nothing more
+        f.startClip();
+        f.onDisabled(avc);
+        render(av1, 240, 4, 2);
+        assertEquals(240, f.rendered());
+        assertEquals(4, f.dropped());
+        assertEquals(246, f.decoded());
+        assertSame(av1, f.latest());
+
+        // clip 3, back to avc on a renderer disabled and re-enabled mid-clip with fresh counters
+        f.startClip();
+        render(av1, 10, 0, 0);
+        f.onDisabled(av1);
+        DecoderCounters avc2 = new DecoderCounters();
+        f.onEnabled(avc2);
+        render(avc2, 190, 1, 0);
+        assertEquals(200, f.rendered());
+        assertEquals(1, f.dropped());
+        assertTrue(f.rendered() >= 0 && f.dropped() >= 0 && f.decoded() >= 0);
+    }
+
+    @Test
+    public void resetForgetsThePreviousPlayer() {
+        ClipFrameCounts f = new ClipFrameCounts();
+        DecoderCounters old = new DecoderCounters();
+        f.onEnabled(old);
+        render(old, 500, 5, 0);
+
+        f.reset();
+        assertNull(f.latest());
+        assertEquals(0, f.rendered());
+        render(old, 10, 0, 0);
+        assertEquals(0, f.rendered());
+
+        DecoderCounters fresh = new DecoderCounters();
+        f.onEnabled(fresh);
+        f.onEnabled(fresh); // reported twice, tracked once
+        render(fresh, 30, 0, 0);
+        assertEquals(30, f.rendered());
+
+        // disabling counters that are not tracked changes nothing
+        f.onDisabled(old);
+        assertEquals(30, f.rendered());
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.exoplayer2.C;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.LooperMode;
+
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class ClipHeartbeatTest {
+
+    private static final class Beats {
+        int count = 0;
+        final ClipHeartbeat heartbeat =
+                new ClipHeartbeat(new Handler(Looper.getMainLooper()), () -> count++);
+    }
+
+    private static void advance(long ms) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(ms));
+    }
+
+    @Test
+    public void prewarmIsDueOnlyNearTheEnd() {
+        assertFalse(PreparedClip.isPrewarmDue(30_000, 0));
+        assertFalse(PreparedClip.isPrewarmDue(30_000, 30_000 - PreparedClip.PREWARM_LEAD_MS - 1));
+        assertTrue(PreparedClip.isPrewarmDue(30_000, 30_000 - PreparedClip.PREWARM_LEAD_MS));
+        assertTrue(PreparedClip.isPrewarmDue(30_000, 30_000));
+        // no duration yet, nothing to measure the lead against
+        assertFalse(PreparedClip.isPrewarmDue(C.TIME_UNSET, 0));
+    }
+
+    @Test
+    public void restartDoesNotStackBeats() {
+        Beats b = new Beats();
+        b.heartbeat.restart();
+        b.heartbeat.restart();
+        b.heartbeat.restart();
+        advance(3 * ClipHeartbeat.PERIOD_MS);
+        // one beat at restart and one per period, not three chains of them
+        assertEquals(4, b.count);
+    }
+
+    @Test
+    public void stopEndsTheBeat() {
+        Beats b = new Beats();
+        b.heartbeat.restart();
+        advance(ClipHeartbeat.PERIOD_MS);
+        int beats = b.count;
+        b.heartbeat.stop();
+        advance(5 * ClipHeartbeat.PERIOD_MS);
+        assertEquals(beats, b.count);
+        assertFalse(b.heartbeat.isRunning());
+    }
+}
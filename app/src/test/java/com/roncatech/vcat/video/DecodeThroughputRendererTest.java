@@ -0,0 +1,150 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import com.google.android.exoplayer2.BaseRenderer;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.RendererCapabilities;
+import com.google.android.exoplayer2.video.VideoFrameMetadataListener;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DecodeThroughputRendererTest {
+
+    private static final long FRAME_US = 33_333L;
+
+    /**
+     * Stands in for a video renderer: releases at most one frame per render() call, and only when
+     * it is no more than 30 ms early relative to the position it is given.
+     */
+    private static final class PacedFakeRenderer extends BaseRenderer {
+        private final Format format = new Format.Builder().setSampleMimeType("video/av01").build();
+        private final int frameCount;
+        private VideoFrameMetadataListener listener;
+        private int next = 0;
+
+        PacedFakeRenderer(int frameCount) {
+            super(C.TRACK_TYPE_VIDEO);
+            this.frameCount = frameCount;
+        }
+
+        @Override
+        public void handleMessage(int messageType, Object message) {
+            if (messageType == MSG_SET_VIDEO_FRAME_METADATA_LISTENER) {
+                listener = (VideoFrameMetadataListener) message;
+            }
+        }
+
+        @Override
+        public void render(long positionUs, long elapsedRealtimeUs) {
+            if (next < frameCount && next * FRAME_US - positionUs <= 30_000L) {
+                listener.onVideoFrameAboutToBeRendered(next * FRAME_US, 0, format, null);
+                next++;
+            }
+        }
+
+        @Override public boolean isReady() { return true; }
+        @Override public boolean isEnded() { return next == frameCount; }
+        @Override public String getName() { return "PacedFake"; }
+        @Override public int supportsFormat(Format f) { return RendererCapabilities.create(C.FORMAT_HANDLED); }
+    }
+
+    @Test
+    public void decodesAheadOfFrozenPlayerClock() throws Exception {
+        PacedFakeRenderer fake = new PacedFakeRenderer(30);
+        DecodeBenchmarkStats stats = new DecodeBenchmarkStats();
+        DecodeThroughputRenderer r = new DecodeThroughputRenderer(fake, stats);
+
+        // the player's position never moves; only the wrapper's pacing lets frames out
+        for (int i = 0; i < 100 && !r.isEnded(); i++) {
+            r.render(0, 0);
+        }
+
+        assertTrue(r.isEnded());
+        assertEquals(30, stats.getFramesOutput());
+        assertSame(r, r.getMediaClock());
+        assertTrue(r.getPositionUs() >= 29 * FRAME_US);
+    }
+
+    @Test
+    public void forwardsFramesToAppListener() throws Exception {
+        PacedFakeRenderer fake = new PacedFakeRenderer(5);
+        DecodeThroughputRenderer r = new DecodeThroughputRenderer(fake, new DecodeBenchmarkStats());
+        final int[] seen = {0};
+        r.handleMessage(BaseRenderer.MSG_SET_VIDEO_FRAME_METADATA_LISTENER,
+                (VideoFrameMetadataListener) (pts, releaseNs, f, mf) -> seen[0]++);
+
+        for (int i = 0; i < 20 && !r.isEnded(); i++) {
+            r.render(0, 0);
+        }
+        assertEquals(5, seen[0]);
+    }
+
+    @Test
+    public void statsPercentilesAndFps() {
+        DecodeBenchmarkStats s = new DecodeBenchmarkStats();
+        assertEquals(-1.0, s.percentileMs(50), 0.0);
+        assertEquals(-1.0, s.getFps(0), 0.0);
+
+        // 11 frames, intervals 1..10 ms
+        long t = 0;
+        s.onFrameOutput(t);
+        for (int i = 1; i <= 10; i++) {
+            t += i * 1_000_000L;
+            s.onFrameOutput(t);
+        }
+
+        assertEquals(11, s.getFramesOutput());
+        assertEquals(55.0, s.getOutputSpanMs(), 1e-9);
+        assertEquals(5.0, s.percentileMs(50), 1e-9);
+        assertEquals(9.0, s.percentileMs(90), 1e-9);
+        assertEquals(10.0, s.percentileMs(99), 1e-9);
+        assertEquals(10 * 1000.0 / 55.0, s.getFps(11), 1e-9);
+    }
+
+    @Test
+    public void statsPercentilesFollowFramesAddedAfterARead() {
+        DecodeBenchmarkStats s = new DecodeBenchmarkStats();
+        s.onFrameOutput(0);
+        s.onFrameOutput(2_000_000L);
+        assertEquals(2.0, s.percentileMs(99), 1e-9);
+
+        // a slower frame after the first report has to show up in the next one
+        s.onFrameOutput(10_000_000L);
+        assertEquals(8.0, s.percentileMs(99), 1e-9);
+        assertEquals(2.0, s.percentileMs(50), 1e-9);
+    }
+}
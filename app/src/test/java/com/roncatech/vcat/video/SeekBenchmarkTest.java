@@ -0,0 +1,148 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import com.roncatech.vcat.models.RunConfig;
+import com.roncatech.vcat.telemetry.SessionSummary;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SeekBenchmarkTest {
+
+    @Test
+    public void randomTargetsStayClearOfTheEnd() {
+        long[] t = SeekBenchmark.targets(RunConfig.SeekPattern.RANDOM, 200, 30_000, new Random(1));
+        assertEquals(200, t.length);
+        for (long ms : t) {
+            assertTrue(ms >= 0 && ms < 29_000);
+        }
+        // seeded, so every run seeks to the same places
+        assertArrayEquals(t, SeekBenchmark.targets(RunConfig.SeekPattern.RANDOM, 200, 30_000, new Random(1)));
+    }
+
+    @Test
+    public void backwardTargetsDescend() {
+        long[] t = SeekBenchmark.targets(RunConfig.SeekPattern.BACKWARD, 4, 11_000, new Random(1));
+        assertArrayEquals(new long[] {8_000, 6_000, 4_000, 2_000}, t);
+    }
+
+    @Test
+    public void forwardHopsStepAndWrap() {
+        long[] t = SeekBenchmark.targets(RunConfig.SeekPattern.FORWARD_HOPS, 10, 10_000, new Random(3));
+        for (int i = 1; i < t.length; i++) {
+            assertTrue(t[i] < 9_000);
+            long step = (t[i] - t[i - 1] + 9_000) % 9_000;
+            assertEquals(SeekBenchmark.FORWARD_HOP_MS, step);
+        }
+    }
+
+    @Test
+    public void noTargetsWithoutDuration() {
+        assertEquals(0, SeekBenchmark.targets(RunConfig.SeekPattern.RANDOM, 10, -1, new Random(1)).length);
+        assertEquals(0, SeekBenchmark.targets(RunConfig.SeekPattern.RANDOM, 0, 10_000, new Random(1)).length);
+    }
+
+    @Test
+    public void containerIsTheExtension() {
+        assertEquals("ivf", SeekBenchmark.containerOf("clip_1080p.IVF"));
+        assertEquals("mp4", SeekBenchmark.containerOf("a.b.mp4"));
+        assertEquals("unknown", SeekBenchmark.containerOf("noext"));
+        assertEquals("unknown", SeekBenchmark.containerOf(null));
+    }
+
+    @Test
+    public void seeksAreTimedToTheirFirstFrame() {
+        SeekBenchmark sb = new SeekBenchmark(RunConfig.SeekPattern.BACKWARD, 3, 11_000, 0, "c2.test", "mp4");
+        assertTrue(sb.hasNext());
+        sb.begin(1_000, 100);
+        assertTrue(sb.isPending());
+        sb.complete(1_040, 600);
+        sb.begin(2_000, 600);
+        sb.timeout();
+        sb.begin(3_000, 600);
+        sb.complete(3_120, 1_100);
+        assertFalse(sb.hasNext());
+
+        SessionSummary.SeekLatency r = sb.result;
+        assertEquals(3, r.seeks);
+        assertEquals(1, r.timeouts);
+        assertEquals(40, r.msP50);
+        assertEquals(120, r.msP99);
+        assertEquals(120, r.msMax);
+        assertEquals(80.0, r.meanMs, 1e-9);
+        assertEquals(500, r.meanBytesRead);
+    }
+
+    @Test
+    public void percentilesAreNearestRank() {
+        SessionSummary.SeekLatency r = new SessionSummary.SeekLatency("d", "ivf");
+        for (long ms = 100; ms >= 1; ms--) {
+            r.add(ms, 0);
+        }
+        assertEquals(50, r.msP50);
+        assertEquals(90, r.msP90);
+        assertEquals(99, r.msP99);
+        assertEquals(100, r.msMax);
+    }
+
+    @Test
+    public void slowSeeksReportTheirBucketBound() {
+        SessionSummary.SeekLatency r = new SessionSummary.SeekLatency("d", "mp4");
+        r.add(104, 0);
+        r.add(1_234, 0);
+        r.add(2_000, 0);
+        // 1234 ms lies in the 100 ms wide bucket up to 1300
+        assertEquals(1_300, r.msP50);
+        assertEquals(2_000, r.msP90);
+        assertEquals(2_000, r.msMax);
+
+        // a clip merges into the session total bucket by bucket
+        SessionSummary.SeekLatency total = new SessionSummary.SeekLatency("d", "mp4");
+        total.addAll(r);
+        SessionSummary.SeekLatency next = new SessionSummary.SeekLatency("d", "mp4");
+        next.add(5, 0);
+        next.add(5, 0);
+        next.add(5, 0);
+        next.addTimeout();
+        total.addAll(next);
+        assertEquals(7, total.seeks);
+        assertEquals(6, total.completed());
+        assertEquals(5, total.msP50);
+        assertEquals(2_000, total.msP90);
+        assertEquals(2_000, total.msMax);
+    }
+}
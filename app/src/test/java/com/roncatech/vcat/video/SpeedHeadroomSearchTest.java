@@ -0,0 +1,145 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import com.roncatech.vcat.telemetry.SessionSummary;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SpeedHeadroomSearchTest {
+
+    /** Run the search against a decoder that keeps up to {@code limit}x and drops 10% above it. */
+    private static SpeedHeadroomSearch run(int maxSpeed, float limit) {
+        SpeedHeadroomSearch s = new SpeedHeadroomSearch(maxSpeed, 1);
+        long now = 0, rendered = 0, dropped = 0;
+        while (!s.isDone()) {
+            assertTrue(s.getProbes().size() < SpeedHeadroomSearch.maxProbes(maxSpeed));
+            s.beginWindow(now, rendered, dropped, 0);
+            long frames = (long) (s.getSpeed() * 120);
+            long drops = s.getSpeed() <= limit ? 0 : frames / 10;
+            rendered += frames - drops;
+            dropped += drops;
+            now += SpeedHeadroomSearch.WINDOW_MS;
+            s.endWindow(now, rendered, dropped, 0, 0);
+        }
+        return s;
+    }
+
+    @Test
+    public void findsTheFastestSustainedSpeed() {
+        SpeedHeadroomSearch s = run(8, 5.3f);
+        assertEquals(5.25f, s.getHeadroom(), 0f);
+        assertEquals(1f, s.getProbes().get(0).speed, 0f);
+        assertEquals(8f, s.getProbes().get(1).speed, 0f);
+        for (SessionSummary.SpeedProbe p : s.getProbes()) {
+            assertEquals(0f, p.speed % SpeedHeadroomSearch.RESOLUTION, 0f);
+            assertEquals(p.speed <= 5.3f, p.sustained);
+        }
+    }
+
+    @Test
+    public void stopsWhenRealTimeFails() {
+        SpeedHeadroomSearch s = run(8, 0.5f);
+        assertEquals(0f, s.getHeadroom(), 0f);
+        assertEquals(1, s.getProbes().size());
+    }
+
+    @Test
+    public void stopsAtTheTopOfTheRange() {
+        SpeedHeadroomSearch s = run(4, 100f);
+        assertEquals(4f, s.getHeadroom(), 0f);
+        assertEquals(2, s.getProbes().size());
+    }
+
+    @Test
+    public void probeBoundCoversTheBisection() {
+        assertEquals(1, SpeedHeadroomSearch.maxProbes(1));
+        assertEquals(4, SpeedHeadroomSearch.maxProbes(2));
+        assertEquals(7, SpeedHeadroomSearch.maxProbes(8));
+        for (float limit = 1f; limit < 8f; limit += 0.1f) {
+            assertTrue(run(8, limit).getProbes().size() <= SpeedHeadroomSearch.maxProbes(8));
+        }
+    }
+
+    @Test
+    public void shortClipLoopsThroughEveryWindow() {
+        // a 1 s, 30 fps clip looping: at 8x each window plays it through 32 times, and the counters
+        // the search reads keep counting across every wrap
+        final int clipFrames = 30;
+        SpeedHeadroomSearch s = new SpeedHeadroomSearch(8, 1);
+        long now = 0, rendered = 0, dropped = 0;
+        while (!s.isDone()) {
+            assertTrue(s.getProbes().size() < SpeedHeadroomSearch.maxProbes(8));
+            now += SpeedHeadroomSearch.SETTLE_MS;
+            s.beginWindow(now, rendered, dropped, 0);
+            long frames = (long) (s.getSpeed() * 30 * SpeedHeadroomSearch.WINDOW_MS / 1_000);
+            for (long played = 0; played < frames; played += clipFrames) {
+                long pass = Math.min(clipFrames, frames - played);
+                long drops = s.getSpeed() <= 3f ? 0 : pass / 10;
+                rendered += pass - drops;
+                dropped += drops;
+            }
+            now += SpeedHeadroomSearch.WINDOW_MS;
+            s.endWindow(now, rendered, dropped, 0, 0);
+        }
+        assertEquals(3f, s.getHeadroom(), 0f);
+        SessionSummary.SpeedProbe top = s.getProbes().get(1);
+        assertEquals(8f, top.speed, 0f);
+        assertTrue(top.framesRendered + top.framesDropped > 10 * clipFrames);
+    }
+
+    @Test
+    public void probeRecordsDropsAndCpu() {
+        SpeedHeadroomSearch s = new SpeedHeadroomSearch(8, 2);
+        s.beginWindow(1_000, 100, 10, 500);
+        s.endWindow(5_000, 197, 13, 8_500, 2);
+        SessionSummary.SpeedProbe p = s.getProbes().get(0);
+        assertEquals(4_000, p.windowMs);
+        assertEquals(97, p.framesRendered);
+        assertEquals(3, p.framesDropped);
+        assertEquals(3.0, p.dropPct, 1e-9);
+        assertFalse(p.sustained);
+        assertEquals(2.0, p.cpuUtil, 1e-9);
+        assertEquals(2, p.thermalStatus);
+    }
+
+    @Test
+    public void windowWithoutFramesIsNotSustained() {
+        SpeedHeadroomSearch s = new SpeedHeadroomSearch(8, 1);
+        s.beginWindow(0, 0, 0, 0);
+        assertTrue(s.endWindow(4_000, 0, 0, 0, 0));
+        assertFalse(s.getProbes().get(0).sustained);
+    }
+}
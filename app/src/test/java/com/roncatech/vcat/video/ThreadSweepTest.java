@@ -0,0 +1,66 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ThreadSweepTest {
+
+    @Test
+    public void stepsDoubleUpToCoreCount() {
+        assertArrayEquals(new int[] {1}, ThreadSweep.stepsFor(1));
+        assertArrayEquals(new int[] {1, 2}, ThreadSweep.stepsFor(2));
+        assertArrayEquals(new int[] {1, 2, 4, 6}, ThreadSweep.stepsFor(6));
+        assertArrayEquals(new int[] {1, 2, 4, 8}, ThreadSweep.stepsFor(8));
+        assertArrayEquals(new int[] {1}, ThreadSweep.stepsFor(0));
+    }
+
+    @Test
+    public void nextWrapsForTheFollowingClip() {
+        ThreadSweep sweep = new ThreadSweep(4);
+        assertEquals(3, sweep.getStepCount());
+        assertEquals(1, sweep.getThreads());
+        assertTrue(sweep.next());
+        assertEquals(2, sweep.getThreads());
+        assertTrue(sweep.next());
+        assertEquals(4, sweep.getThreads());
+        assertFalse(sweep.next());
+        assertEquals(1, sweep.getThreads());
+
+        sweep.next();
+        sweep.restart();
+        assertEquals(1, sweep.getThreads());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.video;
+
+import android.media.MediaCodecInfo.CodecCapabilities;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+public class YuvFrameHasherTest {
+
+    // 4x2 visible frame: Y rows, then U and V at 2x1
+    private static final byte[] Y = {10, 11, 12, 13, 20, 21, 22, 23};
+    private static final byte[] U = {50, 51};
+    private static final byte[] V = {90, 91};
+
+    private static long canonical8() {
+        CRC32 crc = new CRC32();
+        crc.update(Y);
+        crc.update(U);
+        crc.update(V);
+        return crc.getValue();
+    }
+
+    @Test
+    public void planarAndSemiPlanarHashAlike() {
+        // I420, stride 6 and slice height 3: Y 6x3, then U and V 3x1 each
+        ByteBuffer i420 = ByteBuffer.allocate(6 * 3 + 3 * 2);
+        for (int r = 0; r < 2; r++) {
+            i420.position(r * 6);
+            i420.put(Y, r * 4, 4);
+        }
+        i420.position(18);
+        i420.put(U);
+        i420.position(18 + 3);
+        i420.put(V);
+        i420.position(0);
+
+        YuvFrameHasher h = new YuvFrameHasher();
+        assertTrue(h.setFormat(CodecCapabilities.COLOR_FormatYUV420Planar, 4, 2, 6, 3, 0, 0));
+        assertEquals(canonical8(), h.hash(i420));
+
+        // NV12, stride 6: Y 6x2, interleaved UV 6x1
+        ByteBuffer nv12 = ByteBuffer.allocate(6 * 2 + 6);
+        for (int r = 0; r < 2; r++) {
+            nv12.position(r * 6);
+            nv12.put(Y, r * 4, 4);
+        }
+        nv12.position(12);
+        nv12.put(new byte[] {U[0], V[0], U[1], V[1]});
+        nv12.position(0);
+
+        assertTrue(h.setFormat(CodecCapabilities.COLOR_FormatYUV420SemiPlanar, 4, 2, 6, 2, 0, 0));
+        assertEquals(canonical8(), h.hash(nv12));
+    }
+
+    @Test
+    public void p010HashesLowBitsLittleEndian() {
+        int w = 2;
+        int h = 2;
+        int[] y = {100, 513, 1023, 0};
+        int[] u = {300};
+        int[] v = {700};
+
+        ByteBuffer p010 = ByteBuffer.allocate((w * h + w) * 2);
+        for (int s : y) {
+            putLe16(p010, s << 6);
+        }
+        putLe16(p010, u[0] << 6);
+        putLe16(p010, v[0] << 6);
+        p010.position(0);
+
+        CRC32 expected = new CRC32();
+        for (int s : y) {
+            expected.update(s & 0xFF);
+            expected.update(s >> 8);
+        }
+        expected.update(u[0] & 0xFF);
+        expected.update(u[0] >> 8);
+        expected.update(v[0] & 0xFF);
+        expected.update(v[0] >> 8);
+
+        YuvFrameHasher hasher = new YuvFrameHasher();
+        assertTrue(hasher.setFormat(CodecCapabilities.COLOR_FormatYUVP010, w, h, w * 2, h, 0, 0));
+        assertEquals(expected.getValue(), hasher.hash(p010));
+    }
+
+    @Test
+    public void unsupportedOrShortBuffers() {
+        YuvFrameHasher h = new YuvFrameHasher();
+        assertFalse(h.setFormat(CodecCapabilities.COLOR_FormatYUV420Flexible, 4, 2, 4, 2, 0, 0));
+        assertFalse(h.hasFormat());
+        assertEquals(-1, h.hash(ByteBuffer.allocate(64)));
+
+        assertTrue(h.setFormat(CodecCapabilities.COLOR_FormatYUV420SemiPlanar, 4, 2, 4, 2, 0, 0));
+        assertEquals(-1, h.hash(ByteBuffer.allocate(9)));
+    }
+
+    private static void putLe16(ByteBuffer b, int v) {
+        b.put((byte) v);
+        b.put((byte) (v >> 8));
+    }
+}
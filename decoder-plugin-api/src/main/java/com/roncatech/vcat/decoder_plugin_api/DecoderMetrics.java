@@ -0,0 +1,77 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.decoder_plugin_api;
+
+import java.nio.LongBuffer;
+import java.util.List;
+
+/**
+ * Optional runtime metrics published by a decoder (see {@link VcatDecoder#getMetrics()}): decode
+ * time, worker-thread busy time, frame-pool occupancy, queue depth, native memory and the like.
+ *
+ * <p>The decoder keeps one value per metric in {@link #getValues()}, a buffer it allocates once and
+ * updates in place. A native decoder typically allocates it with
+ * {@code ByteBuffer.allocateDirect(8 * n).order(ByteOrder.nativeOrder()).asLongBuffer()} and
+ * writes through its address, so publishing costs no JNI call. The host reads the buffer at each
+ * telemetry sample without locking; a value may be one update stale, never torn on 64-bit ABIs.
+ */
+public interface DecoderMetrics {
+
+    enum Kind {
+        /** Monotonic total since the decoder was loaded (frames decoded, busy microseconds, ...). */
+        COUNTER,
+        /** Instantaneous level (pool frames in use, queue depth, native bytes, ...). */
+        GAUGE
+    }
+
+    /** One slot of {@link #getValues()}. */
+    final class Metric {
+        /** Short snake_case name with its unit, e.g. "decode_us" or "pool_frames". */
+        public final String name;
+        public final Kind kind;
+
+        public Metric(String name, Kind kind) {
+            this.name = name;
+            this.kind = kind;
+        }
+    }
+
+    /** The metrics, fixed for the decoder's lifetime; metric {@code i} is slot {@code i} of the values. */
+    List<Metric> getMetrics();
+
+    /**
+     * The current values, at least {@code getMetrics().size()} long. Must return the same buffer
+     * every time.
+     */
+    LongBuffer getValues();
+}
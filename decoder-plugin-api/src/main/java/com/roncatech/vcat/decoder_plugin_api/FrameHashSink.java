@@ -0,0 +1,57 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.decoder_plugin_api;
+
+/**
+ * Receives the hashes of decoded frames for vcat-d's benchmark-integrity mode (see
+ * {@link VcatDecoder#createVideoRenderer(android.content.Context, long, android.os.Handler,
+ * com.google.android.exoplayer2.video.VideoRendererEventListener, int, int, FrameHashSink)}).
+ *
+ * <p>The hash is comparable across decoders: the CRC-32 ({@code java.util.zip.CRC32}) of the
+ * visible picture only, cropped, without stride padding, as planar 4:2:0: every row of Y, then
+ * every row of U, then every row of V. Samples of 8-bit video are one byte; deeper video is two
+ * bytes little-endian with the value in the low bits (P010's 10 high bits shifted down).
+ *
+ * <p>Called on the decoder's own thread; implementations must be thread safe and cheap.
+ */
+public interface FrameHashSink {
+
+    /**
+     * @param frameIndex position of the frame in output order, counting every output frame (hashed
+     *     or not) from 0
+     * @param presentationTimeUs the frame's presentation time
+     * @param crc32 the frame's hash, in the low 32 bits
+     * @param hashingNs time spent computing this hash, so results can be normalized for it
+     */
+    void onFrameHashed(long frameIndex, long presentationTimeUs, long crc32, long hashingNs);
+}
@@ -32,16 +32,21 @@
 
 package com.roncatech.vcat.decoder_plugin_api;
 
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.extractor.DefaultExtractorInput;
 import com.google.android.exoplayer2.extractor.ExtractorInput;
+import com.google.android.exoplayer2.upstream.DataReader;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * ContainerParser for IVF-wrapped codecs.
  *
  * The IVF extractor matches the file header FourCC against registered
- * parsers' ivfFourCc() values, then calls parseHeader() to produce a
- * VideoConfiguration for the decoder. The host does not pass any IVF file
+ * parsers' ivfFourCc() values, then calls parseHeader(ByteBuffer) to produce a
+ * VideoConfiguration for the decoder. Parsers that only implement the
+ * ExtractorInput form are reached through its default. The host does not pass any IVF file
  * header to the plugin — the plugin derives all configuration from the
  * bitstream alone.
  *
@@ -87,4 +92,52 @@ public interface IvfParserExtension extends ContainerParser {
      */
     VideoConfiguration parseHeader(ExtractorInput input, int frameSize)
             throws IOException, InterruptedException;
+
+    /**
+     * Parse codec sequence-level configuration from the first frame payload, already peeked by
+     * the host: a read-only view with position 0 at the first payload byte and limit at the end
+     * of the frame. The plugin may move the view's position and limit freely (it does not affect
+     * the extractor, which still feeds the full frame as the first sample afterwards) and reads
+     * it in place, with no ExtractorInput round trips. The view is only valid during the call;
+     * copy anything kept for initializationData. Color rules are as for the ExtractorInput form.
+     *
+     * Defaults to the ExtractorInput form over the buffer, so parsers built against earlier
+     * versions of this interface keep working unchanged. Added in plugin-API 0.3.0.
+     *
+     * @param frame the first frame payload
+     * @return populated VideoConfiguration
+     */
+    default VideoConfiguration parseHeader(ByteBuffer frame)
+            throws IOException, InterruptedException {
+        ByteBuffer src = frame.duplicate();
+        int frameSize = src.remaining();
+        DataReader reader = (target, offset, length) -> {
+            if (length == 0) {
+                return 0;
+            }
+            if (!src.hasRemaining()) {
+                return C.RESULT_END_OF_INPUT;
+            }
+            int n = Math.min(length, src.remaining());
+            src.get(target, offset, n);
+            return n;
+        };
+        return parseHeader(new DefaultExtractorInput(reader, 0, frameSize), frameSize);
+    }
+
+    /**
+     * Whether a frame is a random access point: decoding can start at it with no earlier frame.
+     * The extractor indexes such frames as it reads, so seeks land on the closest one before the
+     * target instead of decoding from the start of the file. The view holds the start of the
+     * frame payload (at most a few hundred bytes, read-only) and is only valid during the call.
+     *
+     * Defaults to false: only the first frame is taken as a random access point, so every seek
+     * decodes from the start of the file. Correct, but slow on long clips. Added in plugin-API
+     * 0.3.0.
+     *
+     * @param frameStart the start of the frame payload
+     */
+    default boolean isKeyFrame(ByteBuffer frameStart) {
+        return false;
+    }
 }
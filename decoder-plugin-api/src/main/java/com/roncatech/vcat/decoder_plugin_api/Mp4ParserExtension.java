@@ -32,13 +32,16 @@
 
 package com.roncatech.vcat.decoder_plugin_api;
 
+import java.nio.ByteBuffer;
+
 /**
  * ContainerParser for non-standard codecs carried in MP4, parsed from the {@code stsd}
  * sample entry. MP4 analog of {@link IvfParserExtension}.
  *
  * <p>The MP4 parser matches a track's sample-entry FourCC against registered parsers'
- * {@link #sampleEntry4ccCode()} values, then calls {@link #parseStsd(byte[])} to produce a
- * {@link VideoConfiguration} for the decoder.
+ * {@link #sampleEntry4ccCode()} values, then calls {@link #parseStsd(ByteBuffer)} to produce a
+ * {@link VideoConfiguration} for the decoder. Parsers that only implement {@link #parseStsd(byte[])}
+ * are reached through its default, which copies the entry once as before.
  *
  * <p>{@link #getContainerMimeType()} defaults to {@code "video/mp4"}; the codec MIME is the
  * owning decoder's {@link VcatDecoder#getMimeType()} (not duplicated here).
@@ -56,4 +59,29 @@ public interface Mp4ParserExtension extends ContainerParser {
 
     /** Parse the {@code stsd} sample-entry bytes into a {@link VideoConfiguration}. */
     VideoConfiguration parseStsd(byte[] data);
+
+    /**
+     * Parse the {@code stsd} sample entry from a read-only view of the host's atom buffer, position
+     * 0 at the entry's size field and limit at its end, big-endian. Nothing is copied, so a parser
+     * that overrides this saves the per-track copy; the view is only valid during the call. Any
+     * blob kept for {@link VideoConfiguration#initializationData} must be copied out of it.
+     *
+     * <p>Defaults to copying the entry into an array for {@link #parseStsd(byte[])}, so parsers
+     * built against earlier versions of this interface keep working unchanged. Added in plugin-API
+     * 0.3.0.
+     */
+    default VideoConfiguration parseStsd(ByteBuffer data) {
+        byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return parseStsd(bytes);
+    }
+
+    /**
+     * Whether the decoder takes samples as stored in the file, with NAL units length-prefixed as
+     * described by the codec configuration box. If so, the MP4 parser hands each sample over
+     * unchanged in a single write instead of rewriting its lengths to Annex-B start codes, and
+     * {@link VideoConfiguration#nalUnitLengthFieldLength} is left to the decoder. Defaults to
+     * {@code false}. Added in plugin-API 0.3.0.
+     */
+    default boolean acceptsLengthPrefixed() { return false; }
 }
@@ -0,0 +1,116 @@
+/*
+ * vcat-d (Video Codec Acid Test)
+ *
+ * SPDX-FileCopyrightText: Copyright (C) 2020-2025 vcat-d authors and RoncaTech
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ * This file is part of vcat-d.
+ *
+ * vcat-d is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * vcat-d is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with vcat-d. If not, see <https://www.gnu.org/licenses/gpl-3.0.html>.
+ *
+ * For proprietary/commercial use cases, a written GPL-3.0 waiver or
+ * a separate commercial license is required from RoncaTech LLC.
+ *
+ * All vcat-d artwork is owned exclusively by RoncaTech LLC. Use of vcat-d logos
+ * and artwork is permitted for the purpose of discussing, documenting,
+ * or promoting vcat-d itself. Any other use requires prior written permission
+ * from RoncaTech LLC.
+ *
+ * Contact: legal@roncatech.com
+ */
+
+package com.roncatech.vcat.decoder_plugin_api;
+
+import java.util.Arrays;
+
+/**
+ * Where a decoder's worker threads should run, see {@link VcatDecoder#setThreadPlacement}. The
+ * host resolves the policy to a CPU set from the device's clusters, so the decoder only pins its
+ * threads (e.g. {@code sched_setaffinity}) to {@link #getCpus()} and gives them
+ * {@link #getThreadPriority()} ({@code android.os.Process} nice values, lower is more urgent).
+ */
+public final class ThreadPlacement {
+
+    public enum Policy {
+        /** No restriction; the scheduler decides. */
+        ALL,
+        /** Every core outside the slowest cluster. */
+        BIG_ONLY,
+        /** The slowest cluster only. */
+        LITTLE_ONLY,
+        /** A CPU set chosen by the user. */
+        CPU_SET
+    }
+
+    /** Threads anywhere at default priority, what decoders do without a placement. */
+    public static final ThreadPlacement DEFAULT = new ThreadPlacement(Policy.ALL, new int[0], 0);
+
+    private final Policy policy;
+    private final int[] cpus;
+    private final int threadPriority;
+
+    /**
+     * @param cpus CPU numbers the threads may run on; empty for no restriction
+     * @param threadPriority nice value for the worker threads, 0 for the default
+     */
+    public ThreadPlacement(Policy policy, int[] cpus, int threadPriority) {
+        this.policy = policy;
+        this.cpus = cpus.clone();
+        this.threadPriority = threadPriority;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /** CPU numbers the threads may run on, ascending; empty for no restriction. */
+    public int[] getCpus() {
+        return cpus.clone();
+    }
+
+    public boolean isRestricted() {
+        return cpus.length > 0;
+    }
+
+    public int getThreadPriority() {
+        return threadPriority;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ThreadPlacement)) return false;
+        ThreadPlacement that = (ThreadPlacement) o;
+        return policy == that.policy && threadPriority == that.threadPriority && Arrays.equals(cpus, that.cpus);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * policy.hashCode() + Arrays.hashCode(cpus)) + threadPriority;
+    }
+
+    /** e.g. "BIG_ONLY cpus=4,5,6,7 priority=-4". */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(policy.name());
+        if (cpus.length > 0) {
+            sb.append(" cpus=");
+            for (int i = 0; i < cpus.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(cpus[i]);
+            }
+        }
+        return sb.append(" priority=").append(threadPriority).toString();
+    }
+}
@@ -35,8 +35,12 @@ package com.roncatech.vcat.decoder_plugin_api;
 import android.content.Context;
 import android.os.Handler;
 
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.Renderer;
 import com.google.android.exoplayer2.decoder.DecoderException;
+import com.google.android.exoplayer2.decoder.DecoderReuseEvaluation;
 import com.google.android.exoplayer2.video.VideoRendererEventListener;
 
 import java.util.Collections;
@@ -66,6 +70,55 @@ public interface VcatDecoder {
             int threads
     ) throws DecoderException;
 
+    /**
+     * As {@link #createVideoRenderer(Context, long, Handler, VideoRendererEventListener, int)}, with
+     * every {@code hashEveryNthFrame}-th output frame (frame index divisible by it) hashed into
+     * {@code hashSink}. Only called when {@link #supportsFrameHashing()}; the default ignores the
+     * sink. Added in plugin-API 0.3.0.
+     */
+    default Renderer createVideoRenderer(
+            Context context,
+            long allowedJoiningTimeMs,
+            Handler eventHandler,
+            VideoRendererEventListener eventListener,
+            int threads,
+            int hashEveryNthFrame,
+            FrameHashSink hashSink
+    ) throws DecoderException {
+        return createVideoRenderer(context, allowedJoiningTimeMs, eventHandler, eventListener, threads);
+    }
+
+    /**
+     * Whether the decoder's renderer can hash its output, see {@link FrameHashSink}. Added in
+     * plugin-API 0.3.0.
+     */
+    default boolean supportsFrameHashing() {
+        return false;
+    }
+
+    /**
+     * Where the worker threads of renderers created after this call should run. The host calls it
+     * before creating a renderer; a decoder that applies the placement returns true, so results can
+     * record whether it took effect. The default ignores it. Added in plugin-API 0.3.0.
+     */
+    default boolean setThreadPlacement(ThreadPlacement placement) {
+        return false;
+    }
+
+    /**
+     * Whether a renderer from this decoder can keep its native decoder when its input switches from
+     * {@code oldFormat} to {@code newFormat}, e.g. at a clip boundary of a gapless playlist whose
+     * clips share a format. Renderers built on {@code DecoderVideoRenderer} return this from their
+     * {@code canReuseDecoder} override; the host checks the reuse the renderer reports against it.
+     * The default discards the decoder, as renderers did before plugin-API 0.3.0. Added in
+     * plugin-API 0.3.0.
+     */
+    default DecoderReuseEvaluation canReuseDecoder(String decoderName, Format oldFormat, Format newFormat) {
+        return new DecoderReuseEvaluation(decoderName, oldFormat, newFormat,
+                DecoderReuseEvaluation.REUSE_RESULT_NO,
+                DecoderReuseEvaluation.DISCARD_REASON_REUSE_NOT_IMPLEMENTED);
+    }
+
     default boolean supports(String mime) {
         return getMimeType().equals(mime);
     }
@@ -76,10 +129,38 @@ public interface VcatDecoder {
 
     /**
      * Version of the plugin SPI this decoder targets. Decoders on the current {@code VcatDecoder}
-     * SPI report {@code "0.1.0"}; legacy decoders on {@link VcatDecoderPlugin} report {@code "0.0.1"}
+     * SPI report {@code "0.3.0"}; legacy decoders on {@link VcatDecoderPlugin} report {@code "0.0.1"}
      * (see its override). Lets tooling/overlays distinguish new vs. legacy decoders at runtime.
+     *
+     * <p>Plugins are loaded parent-first, so a plugin that does not override this inherits the
+     * host's default and reports the host's version, not the one it was built against. The host
+     * therefore only trusts a version the plugin declares itself: a {@code "pluginApiVersion"}
+     * entry in its {@code plugin-manifest.json}, or an override of this method in its own classes.
+     *
+     * <p>0.3.0 added, all with defaults:
+     * <ul>
+     *   <li>{@link #canReuseDecoder(String, Format, Format)}</li>
+     *   <li>{@link #getMetrics()}</li>
+     *   <li>{@link #createVideoRenderer(Context, long, Handler, VideoRendererEventListener, int, int, FrameHashSink)}
+     *       and {@link #supportsFrameHashing()}</li>
+     *   <li>{@link #setThreadPlacement(ThreadPlacement)}</li>
+     *   <li>{@link IvfParserExtension#parseHeader(java.nio.ByteBuffer)} and
+     *       {@link IvfParserExtension#isKeyFrame(java.nio.ByteBuffer)}</li>
+     *   <li>{@link Mp4ParserExtension#parseStsd(java.nio.ByteBuffer)} and
+     *       {@link Mp4ParserExtension#acceptsLengthPrefixed()}</li>
+     * </ul>
      */
     default String getPluginApiVersion() {
-        return "0.1.0";
+        return "0.3.0";
+    }
+
+    /**
+     * Runtime metrics the decoder publishes for vcat-d telemetry, or null if it publishes none.
+     * Called once per session, so the result should be the decoder's single long-lived instance.
+     * Added in plugin-API 0.3.0.
+     */
+    @Nullable
+    default DecoderMetrics getMetrics() {
+        return null;
     }
 }
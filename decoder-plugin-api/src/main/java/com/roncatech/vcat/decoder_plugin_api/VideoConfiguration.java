@@ -37,6 +37,7 @@ import androidx.annotation.Nullable;
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.util.MimeTypes;
+import com.google.common.collect.ImmutableList;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -51,6 +52,11 @@ public class VideoConfiguration {
     public final @C.ColorRange int colorRange;
     public final @C.ColorTransfer int colorTransfer;
     public final float pixelWidthHeightRatio;
+    /**
+     * Codec setup blobs, in the order the decoder expects them. Immutable, so the host hands the
+     * list to ExoPlayer's {@code Format} as is; the blobs are shared, not copied, and must not be
+     * written to after {@link Builder#build()}.
+     */
     public final List<byte[]> initializationData;
 
     private VideoConfiguration(
@@ -73,7 +79,7 @@ public class VideoConfiguration {
         this.colorTransfer = colorTransfer;
         this.pixelWidthHeightRatio = pixelWidthHeightRatio;
         this.codecs = codecs;
-        this.initializationData = new ArrayList<>(initializationData);
+        this.initializationData = ImmutableList.copyOf(initializationData);
     }
 
     public static class Builder{
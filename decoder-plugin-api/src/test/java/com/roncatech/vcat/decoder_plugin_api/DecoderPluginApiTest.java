@@ -22,22 +22,28 @@
 
 package com.roncatech.vcat.decoder_plugin_api;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import android.content.Context;
 import android.os.Handler;
 
+import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.Renderer;
 import com.google.android.exoplayer2.decoder.DecoderException;
+import com.google.android.exoplayer2.decoder.DecoderReuseEvaluation;
 import com.google.android.exoplayer2.extractor.ExtractorInput;
 import com.google.android.exoplayer2.video.VideoRendererEventListener;
 
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 
@@ -79,6 +85,38 @@ public class DecoderPluginApiTest {
         assertEquals(1, parsers.size());
         assertSame(d, parsers.get(0));
         assertEquals("video/mp4", parsers.get(0).getContainerMimeType());
+        // samples are rewritten to Annex-B unless the plugin opts in to length-prefixed input
+        assertFalse(d.acceptsLengthPrefixed());
+        // metrics are optional; a decoder that publishes none needs no code
+        assertNull(d.getMetrics());
+        assertNull(new LegacyMp4Plugin().getMetrics());
+        // so is frame hashing
+        assertFalse(d.supportsFrameHashing());
+        // and thread placement
+        assertFalse(d.setThreadPlacement(ThreadPlacement.DEFAULT));
+    }
+
+    @Test
+    public void decoderReuseIsOptIn() {
+        Format a = new Format.Builder().setSampleMimeType("video/vvc").setWidth(1920).setHeight(1080).build();
+        Format b = a.buildUpon().build();
+        DecoderReuseEvaluation reuse = new NewMp4Decoder().canReuseDecoder("test.mp4", a, b);
+        assertEquals(DecoderReuseEvaluation.REUSE_RESULT_NO, reuse.result);
+        assertEquals(DecoderReuseEvaluation.DISCARD_REASON_REUSE_NOT_IMPLEMENTED, reuse.discardReasons);
+        assertEquals("0.3.0", new NewMp4Decoder().getPluginApiVersion());
+        assertEquals("0.0.1", new LegacyMp4Plugin().getPluginApiVersion());
+    }
+
+    @Test
+    public void threadPlacementKeepsItsOwnCpuSet() {
+        int[] cpus = {4, 5, 6, 7};
+        ThreadPlacement p = new ThreadPlacement(ThreadPlacement.Policy.BIG_ONLY, cpus, -4);
+        cpus[0] = 0;
+        assertEquals(4, p.getCpus()[0]);
+        assertTrue(p.isRestricted());
+        assertFalse(ThreadPlacement.DEFAULT.isRestricted());
+        assertEquals("BIG_ONLY cpus=4,5,6,7 priority=-4", p.toString());
+        assertEquals(p, new ThreadPlacement(ThreadPlacement.Policy.BIG_ONLY, new int[] {4, 5, 6, 7}, -4));
     }
 
     // ---- #5: a new VcatDecoder + IvfParserExtension compiles (see NewIvfDecoder below) ----
@@ -92,8 +130,69 @@ public class DecoderPluginApiTest {
         assertEquals("video/ivf", d.getContainerMimeType());
     }
 
+    // ---- ByteBuffer parser entry points bridge to the array / ExtractorInput forms ----
+
+    @Test
+    public void stsdBufferDefaultCopiesOnlyTheView() {
+        CapturingParsers p = new CapturingParsers();
+        byte[] atom = {9, 9, 1, 2, 3, 4, 9};
+        ByteBuffer view = ByteBuffer.wrap(atom, 2, 4).slice().asReadOnlyBuffer();
+        p.parseStsd(view);
+        assertArrayEquals(new byte[] {1, 2, 3, 4}, p.stsd);
+        // the host's view is left where it was
+        assertEquals(0, view.position());
+    }
+
+    @Test
+    public void ivfBufferDefaultPeeksThroughExtractorInput() throws Exception {
+        CapturingParsers p = new CapturingParsers();
+        ByteBuffer frame = ByteBuffer.wrap(new byte[] {0x12, 0, 0x0a, 5, 6, 7}).asReadOnlyBuffer();
+        p.parseHeader(frame);
+        assertEquals(6, p.frameSize);
+        assertArrayEquals(new byte[] {0x12, 0, 0x0a, 5}, p.header);
+        assertEquals(0, frame.position());
+    }
+
+    @Test
+    public void initializationDataIsImmutable() {
+        VideoConfiguration.Builder b = new VideoConfiguration.Builder();
+        b.initializationData.add(new byte[] {1});
+        VideoConfiguration cfg = b.build();
+        b.initializationData.add(new byte[] {2});
+        assertEquals(1, cfg.initializationData.size());
+        try {
+            cfg.initializationData.add(new byte[] {3});
+            fail("initializationData must not be writable");
+        } catch (UnsupportedOperationException expected) {
+            // shared with the Format as is
+        }
+    }
+
     // ===== stubs =====
 
+    /** Parsers on the array / ExtractorInput forms only, recording what the defaults hand them. */
+    static final class CapturingParsers implements Mp4ParserExtension, IvfParserExtension {
+        byte[] stsd;
+        byte[] header;
+        int frameSize = -1;
+
+        @Override public String getContainerMimeType() { return "video/mp4"; }
+        @Override public int sampleEntry4ccCode() { return 0; }
+        @Override public int codecConfiguration4ccCode() { return 0; }
+        @Override public VideoConfiguration parseStsd(byte[] data) {
+            stsd = data;
+            return null;
+        }
+        @Override public int ivfFourCc() { return 0; }
+        @Override public VideoConfiguration parseHeader(ExtractorInput input, int frameSize)
+                throws IOException {
+            this.frameSize = frameSize;
+            header = new byte[4];
+            input.peekFully(header, 0, header.length);
+            return null;
+        }
+    }
+
     /** Legacy-style plugin: implements the deprecated SPI + STSD parser (like vvdec). */
     @SuppressWarnings("deprecation")
     static final class LegacyMp4Plugin implements VcatDecoderPlugin, NonStdDecoderStsdParser {